@@ -0,0 +1,93 @@
+-- Step 1 of 2: builds a hash-partitioned copy of comments while the application keeps running.
+--
+--   psql -d taskdb -v partitions=16 -f 01-backfill.sql
+--
+-- comments_partitioned is partitioned by HASH (task_id) into :partitions tables (16 by default). A
+-- trigger mirrors every change of comments into it, then the existing rows are copied in batches of
+-- :batch_size IDs (50000 by default), each batch in its own transaction. The copy can be stopped and
+-- started again; it continues after the highest copied ID. Run 02-switch.sql once it has finished.
+
+\set ON_ERROR_STOP on
+\if :{?partitions}
+\else
+    \set partitions 16
+\endif
+\if :{?batch_size}
+\else
+    \set batch_size 50000
+\endif
+
+-- The primary key has to contain the partition key, so it is (id, task_id) instead of (id)
+CREATE TABLE IF NOT EXISTS comments_partitioned (
+    id           bigint NOT NULL,
+    text         bytea,
+    author_id    bigint NOT NULL REFERENCES users (id),
+    task_id      bigint NOT NULL REFERENCES tasks (id),
+    created_date timestamp(6),
+    PRIMARY KEY (id, task_id)
+) PARTITION BY HASH (task_id);
+
+SELECT format('CREATE TABLE IF NOT EXISTS comments_p%s PARTITION OF comments_partitioned '
+                  'FOR VALUES WITH (MODULUS %s, REMAINDER %s)', r, :partitions, r)
+FROM generate_series(0, :partitions - 1) AS r
+\gexec
+
+-- Replaces the identity of the old table after the switch
+CREATE SEQUENCE IF NOT EXISTS comments_partitioned_id_seq OWNED BY comments_partitioned.id;
+ALTER TABLE comments_partitioned ALTER COLUMN id SET DEFAULT nextval('comments_partitioned_id_seq');
+
+CREATE OR REPLACE FUNCTION comments_mirror() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        DELETE FROM comments_partitioned WHERE id = OLD.id AND task_id = OLD.task_id;
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        INSERT INTO comments_partitioned (id, text, author_id, task_id, created_date)
+        VALUES (NEW.id, NEW.text, NEW.author_id, NEW.task_id, NEW.created_date)
+        ON CONFLICT DO NOTHING;
+    END IF;
+    RETURN NULL;
+END
+$$;
+
+-- Creating the trigger waits for running writes, so every later change is mirrored and every earlier
+-- one is visible to the copy below
+DROP TRIGGER IF EXISTS comments_mirror ON comments;
+CREATE TRIGGER comments_mirror AFTER INSERT OR UPDATE OR DELETE ON comments
+    FOR EACH ROW EXECUTE FUNCTION comments_mirror();
+
+-- copied_id is the highest old ID copied so far. target_id is the highest ID when the copy first
+-- started; every later row is mirrored by the trigger
+CREATE TABLE IF NOT EXISTS comments_backfill_progress (copied_id bigint NOT NULL, target_id bigint NOT NULL);
+INSERT INTO comments_backfill_progress (copied_id, target_id)
+SELECT 0, (SELECT coalesce(max(id), 0) FROM comments)
+WHERE NOT EXISTS (SELECT FROM comments_backfill_progress);
+
+CREATE OR REPLACE PROCEDURE comments_backfill(batch_size bigint) LANGUAGE plpgsql AS $$
+DECLARE
+    last_id bigint;
+    max_id  bigint;
+BEGIN
+    SELECT copied_id, target_id INTO last_id, max_id FROM comments_backfill_progress;
+    WHILE last_id < max_id LOOP
+        -- FOR SHARE makes a concurrent delete wait until the batch is committed, so its mirror removes the copy
+        INSERT INTO comments_partitioned (id, text, author_id, task_id, created_date)
+        SELECT id, text, author_id, task_id, created_date
+        FROM comments
+        WHERE id > last_id AND id <= last_id + batch_size
+        FOR SHARE
+        ON CONFLICT DO NOTHING;
+        last_id := least(last_id + batch_size, max_id);
+        UPDATE comments_backfill_progress SET copied_id = last_id;
+        COMMIT;
+        RAISE NOTICE 'Copied comments up to ID % of %', last_id, max_id;
+    END LOOP;
+END
+$$;
+
+CALL comments_backfill(:batch_size);
+
+-- Built after the copy, which is faster than maintaining them row by row
+CREATE INDEX IF NOT EXISTS idx_comments_partitioned_task_created_id
+    ON comments_partitioned (task_id, created_date, id);
+ANALYZE comments_partitioned;
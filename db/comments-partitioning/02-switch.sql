@@ -0,0 +1,53 @@
+-- Step 2 of 2: replaces comments with the partitioned copy built by 01-backfill.sql.
+--
+--   psql -d taskdb -f 02-switch.sql
+--
+-- Runs in one short transaction that blocks comment reads and writes while the tables are renamed.
+-- The old table is kept as comments_unpartitioned; drop it once the application runs on the new one:
+--
+--   DROP TABLE comments_unpartitioned;
+
+\set ON_ERROR_STOP on
+
+BEGIN;
+
+LOCK TABLE comments IN ACCESS EXCLUSIVE MODE;
+
+DO $$
+BEGIN
+    IF EXISTS (SELECT FROM comments_backfill_progress WHERE copied_id < target_id) THEN
+        RAISE EXCEPTION 'The backfill has not finished, run 01-backfill.sql again';
+    END IF;
+END
+$$;
+
+DROP TRIGGER comments_mirror ON comments;
+DROP FUNCTION comments_mirror();
+DROP PROCEDURE comments_backfill(bigint);
+DROP TABLE comments_backfill_progress;
+
+SELECT format('ALTER SEQUENCE %s RENAME TO comments_unpartitioned_id_seq', pg_get_serial_sequence('comments', 'id'))
+\gexec
+ALTER TABLE comments RENAME TO comments_unpartitioned;
+ALTER TABLE comments_unpartitioned RENAME CONSTRAINT comments_pkey TO comments_unpartitioned_pkey;
+ALTER INDEX idx_comments_task_created_id RENAME TO idx_comments_unpartitioned_task_created_id;
+
+-- The old table is only kept as a backup; its foreign keys would stop tasks from being deleted or archived
+SELECT format('ALTER TABLE comments_unpartitioned DROP CONSTRAINT %I', conname)
+FROM pg_constraint
+WHERE conrelid = 'comments_unpartitioned'::regclass AND contype = 'f'
+\gexec
+
+ALTER TABLE comments_partitioned RENAME TO comments;
+ALTER TABLE comments RENAME CONSTRAINT comments_partitioned_pkey TO comments_pkey;
+ALTER INDEX idx_comments_partitioned_task_created_id RENAME TO idx_comments_task_created_id;
+ALTER SEQUENCE comments_partitioned_id_seq RENAME TO comments_id_seq;
+
+-- New comments continue after the highest ID of either table
+SELECT setval('comments_id_seq', greatest(
+        (SELECT coalesce(max(id), 1) FROM comments),
+        (SELECT coalesce(max(id), 1) FROM comments_unpartitioned)));
+
+COMMIT;
+
+ANALYZE comments;
@@ -0,0 +1,134 @@
+package ru.viktor141.tms;
+
+import ru.viktor141.tms.dto.CommentDTO;
+import ru.viktor141.tms.dto.TaskDTO;
+import ru.viktor141.tms.model.Task;
+import ru.viktor141.tms.model.User;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * BenchmarkData builds the objects shared by the benchmarks.
+ * <p>
+ * Texts have realistic lengths, so serialization and copying costs are not underestimated.
+ */
+public final class BenchmarkData {
+
+    private static final String DESCRIPTION = "Investigate the slow response of the task list and prepare a fix. ".repeat(8);
+    private static final String COMMENT = "Checked on the staging environment, the problem is reproduced. ".repeat(3);
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Creates a user.
+     *
+     * @param id   The ID of the user.
+     * @param role The role of the user.
+     * @return A User object.
+     */
+    public static User user(long id, User.Role role) {
+        return new User(id, "user" + id + "@example.com", "$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z3Y2U6rO1P8C1b8pHmD3tQ0e", role);
+    }
+
+    /**
+     * Creates a task with all fields set.
+     *
+     * @param id       The ID of the task.
+     * @param author   The author of the task.
+     * @param assignee The assignee of the task.
+     * @return A Task object.
+     */
+    public static Task task(long id, User author, User assignee) {
+        Task task = new Task();
+        task.setId(id);
+        task.setTitle("Task " + id);
+        task.setDescription(DESCRIPTION);
+        task.setStatus(Task.Status.IN_PROGRESS);
+        task.setPriority(Task.Priority.HIGH);
+        task.setAuthor(author);
+        task.setAssignee(assignee);
+        task.setCommentCount(12);
+        task.setLastCommentId(id * 100);
+        task.setLastCommentPreview(COMMENT);
+        task.setLastCommentDate(new Date());
+        return task;
+    }
+
+    /**
+     * Creates tasks alternating between two assignees.
+     *
+     * @param count The number of tasks.
+     * @return A list of Task objects.
+     */
+    public static List<Task> tasks(int count) {
+        User author = user(1, User.Role.USER);
+        User[] assignees = {user(2, User.Role.USER), user(3, User.Role.ADMIN)};
+        List<Task> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tasks.add(task(i + 1, author, assignees[i % assignees.length]));
+        }
+        return tasks;
+    }
+
+    /**
+     * Creates task DTOs with all fields set.
+     *
+     * @param count The number of tasks.
+     * @return A list of TaskDTO objects.
+     */
+    public static List<TaskDTO> taskDTOs(int count) {
+        return tasks(count).stream()
+                .map(task -> new TaskDTO(task.getId(), task.getTitle(), task.getDescription(), task.getPriority(),
+                        task.getStatus(), task.getAuthor(), task.getAssignee(), task.getCommentCount(),
+                        task.getLastCommentId(), task.getLastCommentPreview(), task.getLastCommentDate()))
+                .toList();
+    }
+
+    /**
+     * Creates comment DTOs of a single task.
+     *
+     * @param count The number of comments.
+     * @return A list of CommentDTO objects.
+     */
+    public static List<CommentDTO> commentDTOs(int count) {
+        User[] authors = {user(1, User.Role.USER), user(2, User.Role.USER)};
+        List<CommentDTO> comments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            comments.add(new CommentDTO((long) i + 1, COMMENT, new Date(), authors[i % authors.length], 1L));
+        }
+        return comments;
+    }
+
+    /**
+     * Creates an implementation of an interface answering the given methods.
+     * <p>
+     * Unlike a Mockito mock, the stub does not record invocations, so it adds almost nothing to the
+     * measured time. Any other method throws UnsupportedOperationException.
+     *
+     * @param type    The interface to implement.
+     * @param answers The answers by method name, receiving the call arguments.
+     * @param <T>     The type of the interface.
+     * @return The stub.
+     */
+    public static <T> T stub(Class<T> type, Map<String, Function<Object[], Object>> answers) {
+        Object stub = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Function<Object[], Object> answer = answers.get(method.getName());
+            if (answer != null) {
+                return answer.apply(args);
+            }
+            return switch (method.getName()) {
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                case "toString" -> type.getSimpleName() + " stub";
+                default -> throw new UnsupportedOperationException(method.getName());
+            };
+        });
+        return type.cast(stub);
+    }
+}
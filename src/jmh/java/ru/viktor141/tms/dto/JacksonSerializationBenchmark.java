@@ -0,0 +1,48 @@
+package ru.viktor141.tms.dto;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.viktor141.tms.BenchmarkData;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the JSON serialization of the task and comment pages returned by the API.
+ * <p>
+ * The ObjectMapper is built with the Spring defaults used by the application.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JacksonSerializationBenchmark {
+
+    @Param({"10", "100"})
+    public int pageSize;
+
+    private ObjectWriter writer;
+    private PageImpl<TaskDTO> taskPage;
+    private PageImpl<CommentDTO> commentPage;
+
+    @Setup
+    public void setup() {
+        writer = Jackson2ObjectMapperBuilder.json().build().writer();
+        taskPage = new PageImpl<>(BenchmarkData.taskDTOs(pageSize), PageRequest.of(0, pageSize), pageSize * 5L);
+        commentPage = new PageImpl<>(BenchmarkData.commentDTOs(pageSize), PageRequest.of(0, pageSize), pageSize * 5L);
+    }
+
+    @Benchmark
+    public byte[] serializeTaskPage() throws Exception {
+        return writer.writeValueAsBytes(taskPage);
+    }
+
+    @Benchmark
+    public byte[] serializeCommentPage() throws Exception {
+        return writer.writeValueAsBytes(commentPage);
+    }
+}
@@ -0,0 +1,61 @@
+package ru.viktor141.tms.exception;
+
+import jakarta.persistence.EntityNotFoundException;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.ErrorResponse;
+import org.springframework.web.ErrorResponseException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Benchmarks of the cost of one 404 response for a missing task, from the throw to the response entity.
+ * <p>
+ * {@code legacyNotFound} repeats the former path: a full EntityNotFoundException wrapped in an
+ * ErrorResponseException, plus the stack trace copy of buildErrorResponse. {@code stacklessNotFound}
+ * is the current path outside development mode. The exceptions are thrown below {@code stackDepth}
+ * frames, since a request handler runs roughly 150 frames deep in Tomcat and the Spring filters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NotFoundBenchmark {
+
+    @Param({"10", "150"})
+    public int stackDepth;
+
+    private final GlobalExceptionHandler handler = new GlobalExceptionHandler();
+
+    @Benchmark
+    public Object legacyNotFound() {
+        return atDepth(stackDepth, () -> {
+            try {
+                throw new EntityNotFoundException("Task not found with id: " + stackDepth);
+            } catch (EntityNotFoundException ex) {
+                ErrorResponse errorResponse = new ErrorResponseException(HttpStatus.NOT_FOUND, ex);
+                StackTraceElement[] stackTrace = ex.getStackTrace();
+                return new Object[]{new ResponseEntity<>(errorResponse, HttpStatus.NOT_FOUND), stackTrace};
+            }
+        });
+    }
+
+    @Benchmark
+    public Object stacklessNotFound() {
+        return atDepth(stackDepth, () -> {
+            try {
+                throw new TaskNotFoundException((long) stackDepth);
+            } catch (EntityNotFoundException ex) {
+                return handler.handleResourceNotFoundException(ex);
+            }
+        });
+    }
+
+    private static Object atDepth(int depth, Supplier<Object> step) {
+        return depth <= 0 ? step.get() : atDepth(depth - 1, step);
+    }
+}
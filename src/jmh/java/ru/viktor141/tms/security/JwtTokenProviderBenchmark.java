@@ -0,0 +1,51 @@
+package ru.viktor141.tms.security;
+
+import org.openjdk.jmh.annotations.*;
+import ru.viktor141.tms.BenchmarkData;
+import ru.viktor141.tms.model.User;
+
+import java.lang.reflect.Field;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the token operations run by JwtAuthenticationFilter on every request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtTokenProviderBenchmark {
+
+    private JwtTokenProvider jwtTokenProvider;
+    private User user;
+    private String token;
+
+    @Setup
+    public void setup() throws Exception {
+        jwtTokenProvider = new JwtTokenProvider();
+        Field secret = JwtTokenProvider.class.getDeclaredField("SECRET_KEY");
+        secret.setAccessible(true);
+        secret.set(jwtTokenProvider, Base64.getEncoder().encodeToString(new byte[64]));
+
+        user = BenchmarkData.user(1, User.Role.USER);
+        token = jwtTokenProvider.generateToken(user);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtTokenProvider.generateToken(user);
+    }
+
+    @Benchmark
+    public String extractEmail() {
+        return jwtTokenProvider.extractEmail(token);
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return jwtTokenProvider.validateToken(token, user);
+    }
+}
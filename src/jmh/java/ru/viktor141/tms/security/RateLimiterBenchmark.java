@@ -0,0 +1,68 @@
+package ru.viktor141.tms.security;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the rate limit check run by RateLimitFilter on every authenticated request.
+ * <p>
+ * Four threads charge the buckets of 10 000 users, as concurrent requests of different users would;
+ * RateLimitFilter aims at well under a microsecond for the whole check.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class RateLimiterBenchmark {
+
+    private static final int USERS = 10_000;
+
+    private final RateLimiter.Rate generous = RateLimiter.Rate.of(1_000_000_000, 1_000);
+    private final RateLimiter.Rate exhausted = RateLimiter.Rate.of(0.001, 1);
+
+    private RateLimiter rateLimiter;
+    private Long[] userIds;
+
+    @Setup
+    public void setup() {
+        rateLimiter = new RateLimiter(100_000, Duration.ofMinutes(10));
+        userIds = new Long[USERS];
+        for (int i = 0; i < USERS; i++) {
+            userIds[i] = (long) i;
+            rateLimiter.tryAcquire(new Key(userIds[i], false), generous, System.nanoTime());
+            rateLimiter.tryAcquire(new Key(userIds[i], true), exhausted, System.nanoTime());
+        }
+    }
+
+    /**
+     * ThreadState gives every thread its own sequence of users.
+     */
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private final SplittableRandom random = new SplittableRandom();
+    }
+
+    @Benchmark
+    public boolean admitted(ThreadState state) {
+        Long userId = userIds[state.random.nextInt(USERS)];
+        return rateLimiter.tryAcquire(new Key(userId, false), generous, System.nanoTime()).allowed();
+    }
+
+    @Benchmark
+    public boolean rejected(ThreadState state) {
+        Long userId = userIds[state.random.nextInt(USERS)];
+        return rateLimiter.tryAcquire(new Key(userId, true), exhausted, System.nanoTime()).allowed();
+    }
+
+    /**
+     * Key mirrors the bucket key of RateLimitFilter, which is allocated per request.
+     */
+    private record Key(Long userId, boolean exhausted) {
+    }
+}
@@ -0,0 +1,85 @@
+package ru.viktor141.tms.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.http.ResponseEntity;
+import ru.viktor141.tms.BenchmarkData;
+import ru.viktor141.tms.dto.TaskDTO;
+import ru.viktor141.tms.model.Task;
+import ru.viktor141.tms.repository.ArchivedTaskRepository;
+import ru.viktor141.tms.repository.CommentRepository;
+import ru.viktor141.tms.repository.TaskRepository;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the entity to DTO conversion and of the reflective copy in TaskService.updateTaskFull.
+ * <p>
+ * The repositories are stubs returning prepared entities and the task cache is bypassed, so only the
+ * service code is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskServiceBenchmark {
+
+    @Param({"10", "100"})
+    public int taskCount;
+
+    private TaskService taskService;
+    private Task task;
+    private List<Long> taskIds;
+    private TaskDTO update;
+
+    @Setup
+    public void setup() {
+        List<Task> tasks = BenchmarkData.tasks(taskCount);
+        task = tasks.get(0);
+        taskIds = tasks.stream().map(Task::getId).toList();
+        update = BenchmarkData.taskDTOs(1).get(0);
+        update.setTitle("Updated title");
+
+        TaskRepository taskRepository = BenchmarkData.stub(TaskRepository.class, Map.of(
+                "findById", args -> Optional.of(task),
+                "findAllById", args -> tasks,
+                "save", args -> args[0]));
+        taskService = new TaskService(taskRepository,
+                BenchmarkData.stub(CommentRepository.class, Map.of()),
+                BenchmarkData.stub(ArchivedTaskRepository.class, Map.of()),
+                event -> {
+                },
+                uncachedTasks());
+    }
+
+    /**
+     * A bus whose listener never started bypasses the cache, so every lookup runs the conversion.
+     */
+    private static LocalCache<Long, TaskDTO> uncachedTasks() {
+        CacheInvalidationBus bus = new CacheInvalidationBus(null, new DataSourceProperties(), true,
+                "tms_cache_invalidation", Duration.ofSeconds(1), Duration.ofSeconds(10), new SimpleMeterRegistry());
+        return new LocalCache<>("tasks", Long::valueOf, 1, Duration.ofMinutes(1), bus, new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public Optional<TaskDTO> convertToDTO() {
+        return taskService.findTaskById(task.getId());
+    }
+
+    @Benchmark
+    public List<TaskDTO> convertPageToDTO() {
+        return taskService.findTasksByIds(taskIds);
+    }
+
+    @Benchmark
+    public ResponseEntity<TaskDTO> updateTaskFull() {
+        return taskService.updateTaskFull(task, update);
+    }
+}
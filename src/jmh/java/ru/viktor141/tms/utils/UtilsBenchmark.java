@@ -0,0 +1,62 @@
+package ru.viktor141.tms.utils;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Pageable;
+import ru.viktor141.tms.BenchmarkData;
+import ru.viktor141.tms.dto.TaskDTO;
+import ru.viktor141.tms.model.User;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the request parsing and permission checks run by the controllers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilsBenchmark {
+
+    private final String[] singleSort = {"id", "desc"};
+    private final String[] multiSort = {"priority,desc", "title,asc", "id,desc"};
+
+    private TaskDTO task;
+    private User author;
+    private User stranger;
+    private User admin;
+
+    @Setup
+    public void setup() {
+        task = BenchmarkData.taskDTOs(2).get(1);
+        author = task.getAuthor();
+        stranger = BenchmarkData.user(10, User.Role.USER);
+        admin = BenchmarkData.user(11, User.Role.ADMIN);
+    }
+
+    @Benchmark
+    public Pageable createPageable() {
+        return PageUtils.createPageable(0, 10, singleSort);
+    }
+
+    @Benchmark
+    public Pageable createPageableMultiSort() {
+        return PageUtils.createPageable(3, 50, multiSort);
+    }
+
+    @Benchmark
+    public boolean isAdminOrAuthorOrAssignedAsAuthor() {
+        return UserAuthoritiesUtils.isAdminOrAuthorOrAssigned(task, author);
+    }
+
+    @Benchmark
+    public boolean isAdminOrAuthorOrAssignedAsAdmin() {
+        return UserAuthoritiesUtils.isAdminOrAuthorOrAssigned(task, admin);
+    }
+
+    @Benchmark
+    public boolean isAdminOrAuthorOrAssignedDenied() {
+        return UserAuthoritiesUtils.isAdminOrAuthorOrAssigned(task, stranger);
+    }
+}
@@ -0,0 +1,166 @@
+package ru.viktor141.tms.loadtest;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ApplicationProcess runs the application as a separate process against a given database.
+ * <p>
+ * The process is launched with a command, such as {@code java -jar app.jar} or a native executable,
+ * followed by the datasource and port settings. Its output goes to a log file.
+ */
+public class ApplicationProcess implements AutoCloseable {
+
+    private static final Duration START_TIMEOUT = Duration.ofMinutes(2);
+    private static final long POLL_INTERVAL_MS = 10;
+
+    private final Process process;
+    private final long startedNanos;
+    private final URI baseUri;
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+
+    private ApplicationProcess(Process process, long startedNanos, URI baseUri) {
+        this.process = process;
+        this.startedNanos = startedNanos;
+        this.baseUri = baseUri;
+    }
+
+    /**
+     * Launches the application.
+     *
+     * @param command   The command that starts the application, without the application arguments.
+     * @param directory The working directory of the process.
+     * @param jdbcUrl   The JDBC URL of the database; the user and password are {@code postgres}.
+     * @param log       The file the output of the process is written to.
+     * @return An ApplicationProcess object.
+     * @throws IOException If the process cannot be started.
+     */
+    public static ApplicationProcess start(List<String> command, Path directory, String jdbcUrl, Path log) throws IOException {
+        int port = freePort();
+        List<String> fullCommand = new ArrayList<>(command);
+        fullCommand.addAll(List.of(
+                "--spring.datasource.url=" + jdbcUrl,
+                "--spring.datasource.username=postgres",
+                "--spring.datasource.password=postgres",
+                "--server.port=" + port,
+                "--tms.archive.enabled=false"));
+
+        long started = System.nanoTime();
+        Process process = new ProcessBuilder(fullCommand)
+                .directory(directory.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        return new ApplicationProcess(process, started, URI.create("http://localhost:" + port));
+    }
+
+    /**
+     * Returns the base URI of the application.
+     *
+     * @return The URI of the port the application listens on.
+     */
+    public URI getBaseUri() {
+        return baseUri;
+    }
+
+    /**
+     * Returns the time since the process was launched.
+     *
+     * @return The elapsed milliseconds.
+     */
+    public long elapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos);
+    }
+
+    /**
+     * Registers a user as soon as the application accepts connections.
+     *
+     * @param email The email of the new user.
+     * @return The token of the user.
+     * @throws Exception If registration fails or the application does not start in time.
+     */
+    public String register(String email) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(baseUri.resolve("/api/auth/register"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"email\":\"" + email + "\",\"password\":\"" + UserSession.PASSWORD + "\"}"))
+                .build();
+        while (System.nanoTime() - startedNanos < START_TIMEOUT.toNanos()) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("The application exited with " + process.exitValue());
+            }
+            try {
+                HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() != 201) {
+                    throw new IllegalStateException("Could not register " + email + ": " + response.statusCode() + " " + response.body());
+                }
+                return response.body();
+            } catch (ConnectException e) {
+                Thread.sleep(POLL_INTERVAL_MS);
+            }
+        }
+        throw new IllegalStateException("The application did not start within " + START_TIMEOUT);
+    }
+
+    /**
+     * Sends a request with the token of a user.
+     *
+     * @param token   The token of the user.
+     * @param request The request, without the Authorization header.
+     * @return The response.
+     * @throws Exception If the request fails.
+     */
+    public HttpResponse<String> send(String token, HttpRequest.Builder request) throws Exception {
+        return httpClient.send(request.header("Authorization", "Bearer " + token).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Reads the resident set size of the process.
+     *
+     * @return The resident memory in kilobytes, or -1 where {@code /proc} is not available.
+     * @throws IOException If the status file cannot be read.
+     */
+    public long residentKilobytes() throws IOException {
+        Path status = Path.of("/proc", String.valueOf(process.pid()), "status");
+        if (!Files.exists(status)) {
+            return -1;
+        }
+        for (String line : Files.readAllLines(status)) {
+            if (line.startsWith("VmRSS:")) {
+                return Long.parseLong(line.replaceAll("\\D", ""));
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Stops the application.
+     *
+     * @throws InterruptedException If interrupted while waiting for the process to exit.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(30, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package ru.viktor141.tms.loadtest;
+
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HexFormat;
+
+/**
+ * CopyWriter streams rows into a table with {@code COPY ... FROM STDIN (FORMAT csv)}.
+ * <p>
+ * Rows are formatted into a buffer that is sent whenever it grows past one megabyte, so memory use
+ * does not depend on the number of rows. Strings are always quoted, null is written as an unquoted
+ * empty field (NULL in the CSV format) and byte arrays as bytea hex literals.
+ */
+public class CopyWriter implements AutoCloseable {
+
+    private static final int FLUSH_THRESHOLD = 1 << 20;
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final CopyIn copyIn;
+    private final StringBuilder buffer = new StringBuilder(FLUSH_THRESHOLD + 64 * 1024);
+    private long rows;
+
+    /**
+     * Starts copying into a table.
+     *
+     * @param copyManager The copy API of the connection.
+     * @param table       The table name followed by its column list.
+     * @throws SQLException If the copy cannot be started.
+     */
+    public CopyWriter(CopyManager copyManager, String table) throws SQLException {
+        this.copyIn = copyManager.copyIn("COPY " + table + " FROM STDIN (FORMAT csv)");
+    }
+
+    /**
+     * Writes a row.
+     *
+     * @param values The column values in the order of the column list.
+     * @throws SQLException If sending the buffer fails.
+     */
+    public void row(Object... values) throws SQLException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                buffer.append(',');
+            }
+            Object value = values[i];
+            if (value instanceof String text) {
+                buffer.append('"').append(text.replace("\"", "\"\"")).append('"');
+            } else if (value instanceof byte[] bytes) {
+                buffer.append("\\x").append(HEX.formatHex(bytes));
+            } else if (value instanceof Timestamp timestamp) {
+                buffer.append(timestamp);
+            } else if (value != null) {
+                buffer.append(value);
+            }
+        }
+        buffer.append('\n');
+        rows++;
+
+        if (buffer.length() >= FLUSH_THRESHOLD) {
+            flush();
+        }
+    }
+
+    /**
+     * Returns the number of rows written so far.
+     *
+     * @return The number of rows.
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * Sends the remaining rows and finishes the copy.
+     *
+     * @throws SQLException If the database rejects the data.
+     */
+    @Override
+    public void close() throws SQLException {
+        if (!copyIn.isActive()) {
+            return;
+        }
+        try {
+            flush();
+            copyIn.endCopy();
+        } catch (SQLException | RuntimeException e) {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+            throw e;
+        }
+    }
+
+    private void flush() throws SQLException {
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        buffer.setLength(0);
+    }
+}
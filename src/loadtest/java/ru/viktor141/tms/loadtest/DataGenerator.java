@@ -0,0 +1,298 @@
+package ru.viktor141.tms.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import ru.viktor141.tms.model.Task;
+import ru.viktor141.tms.model.User;
+import ru.viktor141.tms.service.CommentService;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DataGenerator fills users, tasks and comments with a large synthetic dataset through COPY.
+ * <p>
+ * Authors, assignees and comment authors follow a Zipf distribution, statuses and priorities follow
+ * fixed mixes and the number of comments per task has a long tail: most tasks have a few comments,
+ * some have thousands. The denormalized comment statistics of the tasks are written together with
+ * the tasks, so the data is consistent without a repair run.
+ * <p>
+ * The tables must already exist (start the application once). Before copying, the generator reserves
+ * a range of IDs for each table by moving its identity sequence forward in one statement, and the rows
+ * take the IDs of those ranges. The application keeps inserting with IDs past the ranges, so the
+ * generator can be run on a database in use; an insert that draws an ID in the instant between the two
+ * sequence calls makes the COPY fail on the primary key and roll back, and the run can simply be
+ * repeated. Run it with {@code gradle generateData}; the settings are described in DataGeneratorConfig.
+ */
+@Slf4j
+public class DataGenerator {
+
+    /**
+     * The password of every generated user.
+     */
+    public static final String PASSWORD = "Generated#2024";
+
+    private static final long DAY_MS = TimeUnit.DAYS.toMillis(1);
+    private static final long PROGRESS_ROWS = 1_000_000;
+    private static final int MAX_COMMENTS_PER_TASK = 20_000;
+    private static final double COMMENT_TAIL = 1.5;
+
+    private static final String[] WORDS = {
+            "deploy", "release", "database", "migration", "customer", "report", "invoice", "review", "fix",
+            "regression", "endpoint", "latency", "cache", "index", "backup", "checklist", "design", "draft",
+            "approve", "update", "schedule", "meeting", "budget", "contract", "test", "staging", "production",
+            "rollback", "config", "monitoring", "alert", "dashboard", "export", "import", "security", "audit",
+            "и", "проверить", "задача", "отчёт", "клиент", "срочно", "согласовать", "исправить", "документ"
+    };
+
+    private final DataGeneratorConfig config;
+    private final Connection connection;
+    private final long now = System.currentTimeMillis();
+
+    private long firstUserId;
+    private long firstTaskId;
+    private long firstCommentId;
+    private ZipfDistribution userDistribution;
+
+    /**
+     * Constructs a new DataGenerator.
+     *
+     * @param config     The settings of the run.
+     * @param connection The connection to the database.
+     */
+    public DataGenerator(DataGeneratorConfig config, Connection connection) {
+        this.config = config;
+        this.connection = connection;
+    }
+
+    /**
+     * Generates the dataset.
+     *
+     * @param args Settings as {@code key=value} arguments.
+     * @throws Exception If the generation fails.
+     */
+    public static void main(String[] args) throws Exception {
+        DataGeneratorConfig config = DataGeneratorConfig.parse(args);
+        try (Connection connection = DriverManager.getConnection(config.url(), config.username(), config.password())) {
+            new DataGenerator(config, connection).generate();
+        }
+    }
+
+    /**
+     * Generates users, tasks and comments in one transaction and analyzes the tables.
+     *
+     * @throws SQLException If a statement fails.
+     */
+    public void generate() throws SQLException {
+        long started = System.nanoTime();
+        // Sequences are not transactional, so the ranges stay reserved even if the copy fails
+        firstUserId = reserveIds("users", config.users());
+        firstTaskId = reserveIds("tasks", config.tasks());
+        firstCommentId = reserveIds("comments", countComments());
+        userDistribution = new ZipfDistribution(firstUserId, config.users(), config.skew());
+
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            // Nothing is lost if the run is interrupted, so the commit does not need to wait for the WAL flush
+            statement.execute("SET LOCAL synchronous_commit = off");
+        }
+
+        CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+        long users = copyUsers(copyManager);
+        long tasks = copyTasks(copyManager);
+        long comments = copyComments(copyManager);
+        connection.commit();
+
+        connection.setAutoCommit(true);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE users, tasks, comments");
+        }
+        log.info("Generated {} users, {} tasks and {} comments in {}s", users, tasks, comments,
+                TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started));
+    }
+
+    private long copyUsers(CopyManager copyManager) throws SQLException {
+        // Hashing is slow on purpose, so all users share one hash
+        String hash = new BCryptPasswordEncoder().encode(PASSWORD);
+        SplittableRandom random = new SplittableRandom(config.seed());
+
+        try (CopyWriter writer = new CopyWriter(copyManager, "users (id, email, password, role)")) {
+            for (int i = 0; i < config.users(); i++) {
+                long id = firstUserId + i;
+                // About one user in a thousand is an administrator
+                User.Role role = random.nextInt(1000) == 0 ? User.Role.ADMIN : User.Role.USER;
+                writer.row(id, "user" + id + "@generated.example", hash, role.name());
+                progress("users", writer);
+            }
+            return writer.getRows();
+        }
+    }
+
+    private long copyTasks(CopyManager copyManager) throws SQLException {
+        SplittableRandom random = new SplittableRandom(config.seed() + 1);
+        long nextCommentId = firstCommentId;
+
+        try (CopyWriter writer = new CopyWriter(copyManager, "tasks (id, title, description, status, priority, author_id, " +
+                "assignee_id, completed_date, comment_count, last_comment_id, last_comment_preview, last_comment_date)")) {
+            for (int i = 0; i < config.tasks(); i++) {
+                long taskId = firstTaskId + i;
+                Task.Status status = status(random);
+                Timestamp completedDate = status == Task.Status.COMPLETED
+                        ? new Timestamp(now - random.nextLong(365 * DAY_MS)) : null;
+                // One task in ten is not assigned yet
+                Long assigneeId = random.nextInt(10) == 0 ? null : userDistribution.sample(random);
+
+                CommentPlan plan = new CommentPlan(taskId);
+                Long lastCommentId = null;
+                String lastCommentPreview = null;
+                Timestamp lastCommentDate = null;
+                if (plan.count > 0) {
+                    GeneratedComment last = plan.comment(plan.count - 1);
+                    lastCommentId = nextCommentId + plan.count - 1;
+                    lastCommentPreview = CommentService.preview(last.text());
+                    lastCommentDate = last.createdDate();
+                }
+                nextCommentId += plan.count;
+
+                writer.row(taskId, "Task " + taskId + ": " + words(random, 3, 8),
+                        utf8(words(random, 10, 150)), status.name(), priority(random).name(),
+                        userDistribution.sample(random), assigneeId, completedDate,
+                        plan.count, lastCommentId, lastCommentPreview, lastCommentDate);
+                progress("tasks", writer);
+            }
+            return writer.getRows();
+        }
+    }
+
+    private long copyComments(CopyManager copyManager) throws SQLException {
+        long commentId = firstCommentId;
+        try (CopyWriter writer = new CopyWriter(copyManager, "comments (id, text, author_id, task_id, created_date)")) {
+            for (int i = 0; i < config.tasks(); i++) {
+                long taskId = firstTaskId + i;
+                CommentPlan plan = new CommentPlan(taskId);
+                for (int k = 0; k < plan.count; k++) {
+                    GeneratedComment comment = plan.comment(k);
+                    writer.row(commentId++, utf8(comment.text()), comment.authorId(), taskId, comment.createdDate());
+                    progress("comments", writer);
+                }
+            }
+            return writer.getRows();
+        }
+    }
+
+    private static Task.Status status(SplittableRandom random) {
+        int value = random.nextInt(100);
+        if (value < 20) {
+            return Task.Status.PENDING;
+        }
+        return value < 45 ? Task.Status.IN_PROGRESS : Task.Status.COMPLETED;
+    }
+
+    private static Task.Priority priority(SplittableRandom random) {
+        int value = random.nextInt(100);
+        if (value < 30) {
+            return Task.Priority.LOW;
+        }
+        return value < 80 ? Task.Priority.MEDIUM : Task.Priority.HIGH;
+    }
+
+    private static String words(SplittableRandom random, int min, int max) {
+        int count = random.nextInt(min, max + 1);
+        StringBuilder text = new StringBuilder(count * 8);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Texts are stored as plain UTF-8 bytes, which CompressedTextConverter reads at any length; long ones are
+     * compressed when they are next written by the application.
+     */
+    private static byte[] utf8(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private long countComments() {
+        long count = 0;
+        for (int i = 0; i < config.tasks(); i++) {
+            count += new CommentPlan(firstTaskId + i).count;
+        }
+        return count;
+    }
+
+    /**
+     * Reserves a range of IDs by moving the identity sequence of a table past it.
+     *
+     * @return The first ID of the range.
+     */
+    private long reserveIds(String table, long count) throws SQLException {
+        if (count == 0) {
+            return 1;
+        }
+        String sequence = "pg_get_serial_sequence('" + table + "', 'id')";
+        // One statement keeps the window in which a concurrent insert could draw an ID of the range tiny
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT setval(" + sequence + ", nextval(" + sequence + ") + " + (count - 1) + ")")) {
+            rs.next();
+            return rs.getLong(1) - count + 1;
+        }
+    }
+
+    private static void progress(String table, CopyWriter writer) {
+        if (writer.getRows() % PROGRESS_ROWS == 0) {
+            log.info("Copied {} rows into {}", writer.getRows(), table);
+        }
+    }
+
+    /**
+     * GeneratedComment represents a comment before it is written.
+     */
+    private record GeneratedComment(String text, long authorId, Timestamp createdDate) {
+    }
+
+    /**
+     * CommentPlan derives the comments of a task from the seed and the task ID alone.
+     * <p>
+     * The tasks are written before their comments, but need the count and the latest comment of
+     * each task; deriving both from the task ID gives the same comments in both passes without
+     * keeping them in memory.
+     */
+    private class CommentPlan {
+
+        private final long taskId;
+        private final int count;
+        private final long firstDate;
+        private final long gap;
+
+        CommentPlan(long taskId) {
+            this.taskId = taskId;
+            SplittableRandom random = new SplittableRandom(config.seed() * 0x9E3779B97F4A7C15L + taskId);
+            // Lomax (Pareto II) distribution with the configured mean: mostly a few comments, some threads with thousands
+            double scale = config.commentsPerTask() * (COMMENT_TAIL - 1);
+            double value = scale * (Math.pow(1 - random.nextDouble(), -1 / COMMENT_TAIL) - 1);
+            this.count = (int) Math.min(MAX_COMMENTS_PER_TASK, Math.floor(value));
+            this.firstDate = now - random.nextLong(365 * DAY_MS) - DAY_MS;
+            this.gap = Math.max(1, (now - firstDate) / Math.max(1, count));
+        }
+
+        GeneratedComment comment(int index) {
+            SplittableRandom random = new SplittableRandom((config.seed() * 0x9E3779B97F4A7C15L + taskId) * 31 + index);
+            // Dates grow with the index, so the last comment is also the latest one
+            Timestamp createdDate = new Timestamp(firstDate + index * gap + random.nextLong(gap));
+            return new GeneratedComment(words(random, 2, 60), userDistribution.sample(random), createdDate);
+        }
+    }
+}
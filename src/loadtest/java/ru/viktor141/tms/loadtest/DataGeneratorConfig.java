@@ -0,0 +1,64 @@
+package ru.viktor141.tms.loadtest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * DataGeneratorConfig represents the settings of a data generation run.
+ * <p>
+ * Settings are passed as {@code key=value} arguments; missing ones take the defaults below, which
+ * match the database of docker-compose.yml.
+ *
+ * @param url             The JDBC URL of the database.
+ * @param username        The database user.
+ * @param password        The database password.
+ * @param users           The number of users to create.
+ * @param tasks           The number of tasks to create.
+ * @param commentsPerTask The average number of comments per task.
+ * @param skew            The Zipf exponent of the author, assignee and comment author distributions.
+ * @param seed            The seed of the generated data.
+ */
+public record DataGeneratorConfig(String url, String username, String password, int users, int tasks,
+                                  double commentsPerTask, double skew, long seed) {
+
+    /**
+     * Parses the settings from command-line arguments.
+     *
+     * @param args Arguments such as {@code users=100000 tasks=1000000}.
+     * @return A DataGeneratorConfig object.
+     * @throws IllegalArgumentException If an argument is malformed or unknown.
+     */
+    public static DataGeneratorConfig parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected key=value but got: " + arg);
+            }
+            values.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+
+        DataGeneratorConfig config = new DataGeneratorConfig(
+                take(values, "url", "jdbc:postgresql://localhost:5432/taskdb"),
+                take(values, "username", "postgres"),
+                take(values, "password", "pMRLJew8"),
+                Integer.parseInt(take(values, "users", "10000")),
+                Integer.parseInt(take(values, "tasks", "1000000")),
+                Double.parseDouble(take(values, "commentsPerTask", "9")),
+                Double.parseDouble(take(values, "skew", "1.1")),
+                Long.parseLong(take(values, "seed", "42")));
+
+        if (!values.isEmpty()) {
+            throw new IllegalArgumentException("Unknown settings: " + values.keySet());
+        }
+        if (config.users() < 1 || config.tasks() < 0 || config.commentsPerTask() < 0 || config.skew() < 0) {
+            throw new IllegalArgumentException("users must be positive; tasks, commentsPerTask and skew must not be negative");
+        }
+        return config;
+    }
+
+    private static String take(Map<String, String> values, String key, String defaultValue) {
+        String value = values.remove(key);
+        return value != null ? value : defaultValue;
+    }
+}
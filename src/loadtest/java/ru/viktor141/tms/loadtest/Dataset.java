@@ -0,0 +1,132 @@
+package ru.viktor141.tms.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.viktor141.tms.model.Task;
+import ru.viktor141.tms.service.CommentStatsRepairService;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Dataset seeds the users, tasks and comments the load test works on.
+ * <p>
+ * Users are registered through the API, so their passwords are hashed as in production. Tasks and
+ * comments are inserted with JDBC batches and the comment statistics of the tasks are filled in by
+ * CommentStatsRepairService. The data depends only on the settings and the seed.
+ */
+@Slf4j
+public final class Dataset {
+
+    /**
+     * The description of the seeded and updated tasks.
+     */
+    public static final String DESCRIPTION = "Prepare the release notes and check the migration on a copy of production. ".repeat(4);
+
+    /**
+     * The text of the seeded and added comments.
+     */
+    public static final String COMMENT = "Checked on the staging environment, the problem is reproduced.";
+
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+
+    private Dataset() {
+    }
+
+    /**
+     * Seeds the dataset.
+     *
+     * @param config       The settings of the run.
+     * @param baseUri      The URI of the running application.
+     * @param jdbcTemplate The JdbcTemplate of the application database.
+     * @param statsRepair  The service filling in the comment statistics of the tasks.
+     * @return The seeded users with their tokens and tasks.
+     * @throws IOException          If a registration request fails.
+     * @throws InterruptedException If the thread is interrupted.
+     */
+    public static List<UserSession> seed(LoadTestConfig config, URI baseUri, JdbcTemplate jdbcTemplate,
+                                         CommentStatsRepairService statsRepair) throws IOException, InterruptedException {
+        Random random = new Random(config.seed());
+        Map<String, String> tokens = register(config, baseUri);
+
+        Map<String, Long> userIds = new HashMap<>();
+        jdbcTemplate.query("SELECT id, email FROM users", rs -> {
+            userIds.put(rs.getString("email"), rs.getLong("id"));
+        });
+        List<Long> ids = tokens.keySet().stream().map(userIds::get).sorted().toList();
+
+        long now = System.currentTimeMillis();
+        Task.Status[] statuses = Task.Status.values();
+        Task.Priority[] priorities = Task.Priority.values();
+        for (Long authorId : ids) {
+            List<Object[]> rows = new ArrayList<>(config.tasksPerUser());
+            for (int i = 0; i < config.tasksPerUser(); i++) {
+                rows.add(new Object[]{"Task " + authorId + "-" + i, DESCRIPTION,
+                        statuses[random.nextInt(statuses.length)].name(), priorities[random.nextInt(priorities.length)].name(),
+                        authorId, ids.get(random.nextInt(ids.size()))});
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO tasks (title, description, status, priority, author_id, assignee_id, comment_count) " +
+                    "VALUES (?, convert_to(?, 'UTF8'), ?, ?, ?, ?, 0)", rows);
+        }
+
+        Map<Long, List<Long>> tasksByAuthor = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT id, author_id FROM tasks ORDER BY id", rs -> {
+            tasksByAuthor.computeIfAbsent(rs.getLong("author_id"), id -> new ArrayList<>()).add(rs.getLong("id"));
+        });
+
+        for (Map.Entry<Long, List<Long>> entry : tasksByAuthor.entrySet()) {
+            List<Object[]> rows = new ArrayList<>();
+            for (Long taskId : entry.getValue()) {
+                for (int i = 0; i < config.commentsPerTask(); i++) {
+                    rows.add(new Object[]{COMMENT, ids.get(random.nextInt(ids.size())), taskId,
+                            new Timestamp(now - random.nextLong(30 * DAY_MS))});
+                }
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO comments (text, author_id, task_id, created_date) " +
+                    "VALUES (convert_to(?, 'UTF8'), ?, ?, ?)", rows);
+        }
+        statsRepair.repairAll();
+        jdbcTemplate.execute("ANALYZE");
+
+        List<UserSession> users = new ArrayList<>(ids.size());
+        for (Map.Entry<String, String> entry : tokens.entrySet()) {
+            long id = userIds.get(entry.getKey());
+            long[] taskIds = tasksByAuthor.getOrDefault(id, List.of()).stream().mapToLong(Long::longValue).toArray();
+            UserSession user = new UserSession(id, entry.getKey(), taskIds);
+            user.setToken(entry.getValue());
+            users.add(user);
+        }
+        log.info("Seeded {} users, {} tasks and {} comments", users.size(),
+                (long) users.size() * config.tasksPerUser(), (long) users.size() * config.tasksPerUser() * config.commentsPerTask());
+        return users;
+    }
+
+    private static Map<String, String> register(LoadTestConfig config, URI baseUri) throws IOException, InterruptedException {
+        HttpClient httpClient = HttpClient.newHttpClient();
+        Map<String, String> tokens = new LinkedHashMap<>();
+        for (int i = 0; i < config.users(); i++) {
+            String email = "load" + i + "@example.com";
+            HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder(baseUri.resolve("/api/auth/register"))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(
+                                    "{\"email\":\"" + email + "\",\"password\":\"" + UserSession.PASSWORD + "\"}"))
+                            .build(),
+                    HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 201) {
+                throw new IllegalStateException("Could not register " + email + ": " + response.statusCode() + " " + response.body());
+            }
+            tokens.put(email, response.body());
+        }
+        return tokens;
+    }
+}
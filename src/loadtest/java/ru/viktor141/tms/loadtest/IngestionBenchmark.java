@@ -0,0 +1,158 @@
+package ru.viktor141.tms.loadtest;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.viktor141.tms.TestTaskTmsApplication;
+import ru.viktor141.tms.dto.CommentDTO;
+import ru.viktor141.tms.model.User;
+import ru.viktor141.tms.service.CommentIngestionBuffer;
+import ru.viktor141.tms.service.UserService;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * IngestionBenchmark compares the comment write throughput of the per-request path and of the group-commit buffer.
+ * <p>
+ * For each path the application is started against a fresh embedded PostgreSQL and the configured
+ * number of threads add comments through CommentIngestionBuffer as fast as they can, so the
+ * controller and HTTP overhead are left out and only the write path is compared. The report lists
+ * comments per second and the latency of a single write. Run it with {@code gradle ingestionBenchmark};
+ * the settings are described in IngestionBenchmarkConfig.
+ */
+@Slf4j
+public class IngestionBenchmark {
+
+    private static final String EMAIL = "ingestion@benchmark.example";
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    /**
+     * Runs the benchmark on both paths and writes the report.
+     *
+     * @param args Settings as {@code key=value} arguments.
+     * @throws Exception If the run fails.
+     */
+    public static void main(String[] args) throws Exception {
+        IngestionBenchmarkConfig config = IngestionBenchmarkConfig.parse(args);
+
+        StringWriter text = new StringWriter();
+        PrintWriter out = new PrintWriter(text);
+        out.printf(Locale.ROOT, "threads=%d tasks=%d warmup=%ds duration=%ds maxBatchSize=%d lingerMs=%d%n",
+                config.threads(), config.tasks(), config.warmupSeconds(), config.durationSeconds(),
+                config.maxBatchSize(), config.lingerMs());
+        out.printf(Locale.ROOT, "java=%s cpus=%d%n%n", System.getProperty("java.version"),
+                Runtime.getRuntime().availableProcessors());
+        out.printf(Locale.ROOT, "%-10s %10s %7s %11s %9s %9s %9s%n",
+                "path", "comments", "errors", "comments/s", "p50 ms", "p99 ms", "max ms");
+        for (boolean batching : new boolean[]{false, true}) {
+            run(config, batching, out);
+        }
+        out.flush();
+
+        if (config.report().getParent() != null) {
+            Files.createDirectories(config.report().getParent());
+        }
+        Files.writeString(config.report(), text.toString(), StandardCharsets.UTF_8);
+        log.info("Report written to {}\n{}", config.report().toAbsolutePath(), text);
+    }
+
+    private static void run(IngestionBenchmarkConfig config, boolean batching, PrintWriter out) throws Exception {
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().start()) {
+            String[] properties = {
+                    "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                    "--spring.datasource.username=postgres",
+                    "--spring.datasource.password=postgres",
+                    "--server.port=0",
+                    "--tms.sql-trace.sample-rate=0",
+                    "--tms.archive.enabled=false",
+                    "--tms.rate-limit.enabled=false",
+                    "--tms.comments.ingest.batching.enabled=" + batching,
+                    "--tms.comments.ingest.batching.max-batch-size=" + config.maxBatchSize(),
+                    "--tms.comments.ingest.batching.linger-ms=" + config.lingerMs(),
+                    "--logging.level.root=WARN",
+                    "--logging.level.ru.viktor141.tms.loadtest=INFO"
+            };
+
+            try (ConfigurableApplicationContext context = SpringApplication.run(TestTaskTmsApplication.class, properties)) {
+                List<Long> taskIds = seed(context.getBean(JdbcTemplate.class), config.tasks());
+                User user = context.getBean(UserService.class).loadUserByUsername(EMAIL);
+                CommentIngestionBuffer buffer = context.getBean(CommentIngestionBuffer.class);
+
+                String path = batching ? "batched" : "direct";
+                log.info("Path {}: warming up for {}s, measuring for {}s with {} threads", path,
+                        config.warmupSeconds(), config.durationSeconds(), config.threads());
+                measure(buffer, user, taskIds, config.threads(), config.warmupSeconds(), new ConcurrentHistogram(3), new LongAdder());
+
+                Histogram latencies = new ConcurrentHistogram(3);
+                LongAdder errors = new LongAdder();
+                measure(buffer, user, taskIds, config.threads(), config.durationSeconds(), latencies, errors);
+
+                out.printf(Locale.ROOT, "%-10s %10d %7d %11.1f %9.2f %9.2f %9.2f%n", path,
+                        latencies.getTotalCount(), errors.sum(),
+                        latencies.getTotalCount() / (double) config.durationSeconds(),
+                        latencies.getValueAtPercentile(50) / NANOS_PER_MILLI,
+                        latencies.getValueAtPercentile(99) / NANOS_PER_MILLI,
+                        latencies.getMaxValue() / NANOS_PER_MILLI);
+            }
+        }
+    }
+
+    private static List<Long> seed(JdbcTemplate jdbcTemplate, int tasks) {
+        // The password is never checked: the benchmark calls the service directly
+        jdbcTemplate.update("INSERT INTO users (email, password, role) VALUES (?, 'unused', 'USER')", EMAIL);
+        Long userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = ?", Long.class, EMAIL);
+        List<Object[]> rows = new ArrayList<>(tasks);
+        for (int i = 0; i < tasks; i++) {
+            rows.add(new Object[]{"Task " + i, userId});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO tasks (title, status, priority, author_id, comment_count) " +
+                "VALUES (?, 'IN_PROGRESS', 'MEDIUM', ?, 0)", rows);
+        return jdbcTemplate.queryForList("SELECT id FROM tasks ORDER BY id", Long.class);
+    }
+
+    private static void measure(CommentIngestionBuffer buffer, User user, List<Long> taskIds, int threads,
+                                int seconds, Histogram latencies, LongAdder errors) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> workers = new ArrayList<>(threads);
+            for (int t = 0; t < threads; t++) {
+                SplittableRandom random = new SplittableRandom(t);
+                workers.add(executor.submit(() -> {
+                    while (System.nanoTime() - deadline < 0) {
+                        CommentDTO comment = new CommentDTO();
+                        comment.setText(Dataset.COMMENT);
+                        long started = System.nanoTime();
+                        try {
+                            buffer.submit(taskIds.get(random.nextInt(taskIds.size())), comment, user);
+                            latencies.recordValue(System.nanoTime() - started);
+                        } catch (RuntimeException e) {
+                            errors.increment();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
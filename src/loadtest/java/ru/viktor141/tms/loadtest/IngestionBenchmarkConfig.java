@@ -0,0 +1,64 @@
+package ru.viktor141.tms.loadtest;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * IngestionBenchmarkConfig represents the settings of a comment ingestion benchmark run.
+ * <p>
+ * Settings are passed as {@code key=value} arguments; missing ones take the defaults below.
+ *
+ * @param threads         The number of threads adding comments at the same time.
+ * @param tasks           The number of tasks the comments are spread over.
+ * @param warmupSeconds   The length of the unmeasured warm-up.
+ * @param durationSeconds The length of the measurement.
+ * @param maxBatchSize    The maximum number of comments per batched insert.
+ * @param lingerMs        The maximum time a comment waits for other comments to join its batch.
+ * @param report          The file the report is written to.
+ */
+public record IngestionBenchmarkConfig(int threads, int tasks, int warmupSeconds, int durationSeconds,
+                                       int maxBatchSize, int lingerMs, Path report) {
+
+    /**
+     * Parses the settings from command-line arguments.
+     *
+     * @param args Arguments such as {@code threads=64 duration=30}.
+     * @return An IngestionBenchmarkConfig object.
+     * @throws IllegalArgumentException If an argument is malformed or unknown.
+     */
+    public static IngestionBenchmarkConfig parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected key=value but got: " + arg);
+            }
+            values.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+
+        IngestionBenchmarkConfig config = new IngestionBenchmarkConfig(
+                Integer.parseInt(take(values, "threads", "32")),
+                Integer.parseInt(take(values, "tasks", "100")),
+                Integer.parseInt(take(values, "warmup", "5")),
+                Integer.parseInt(take(values, "duration", "20")),
+                Integer.parseInt(take(values, "maxBatchSize", "100")),
+                Integer.parseInt(take(values, "lingerMs", "5")),
+                Path.of(take(values, "report", "build/reports/ingestion/report.txt")));
+
+        if (!values.isEmpty()) {
+            throw new IllegalArgumentException("Unknown settings: " + values.keySet());
+        }
+        if (config.threads() < 1 || config.tasks() < 1 || config.durationSeconds() < 1 || config.warmupSeconds() < 0
+                || config.maxBatchSize() < 1 || config.lingerMs() < 0) {
+            throw new IllegalArgumentException("threads, tasks, duration and maxBatchSize must be positive; " +
+                    "warmup and lingerMs must not be negative");
+        }
+        return config;
+    }
+
+    private static String take(Map<String, String> values, String key, String defaultValue) {
+        String value = values.remove(key);
+        return value != null ? value : defaultValue;
+    }
+}
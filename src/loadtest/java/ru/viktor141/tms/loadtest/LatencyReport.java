@@ -0,0 +1,97 @@
+package ru.viktor141.tms.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LatencyReport collects the latencies of the measured requests by operation.
+ * <p>
+ * Latencies are kept in HdrHistograms with three significant digits, so the high percentiles are
+ * exact enough to compare runs. Failed requests are counted separately and not recorded.
+ */
+public class LatencyReport {
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+
+    /**
+     * Constructs a new empty LatencyReport.
+     */
+    public LatencyReport() {
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new ConcurrentHistogram(3));
+            errors.put(operation, new LongAdder());
+        }
+    }
+
+    /**
+     * Records a completed request.
+     *
+     * @param operation    The operation of the request.
+     * @param latencyNanos The time from when the request was due to be sent to receiving the whole response.
+     * @param success      Whether the response had the expected status.
+     */
+    public void record(Operation operation, long latencyNanos, boolean success) {
+        if (success) {
+            latencies.get(operation).recordValue(latencyNanos);
+        } else {
+            errors.get(operation).increment();
+        }
+    }
+
+    /**
+     * Formats the report as a table of throughput and latency percentiles per endpoint.
+     *
+     * @param config          The settings of the run.
+     * @param mode            The request thread mode of the application.
+     * @param measuredSeconds The length of the measurement.
+     * @return The report text.
+     */
+    public String format(LoadTestConfig config, ThreadMode mode, double measuredSeconds) {
+        StringWriter text = new StringWriter();
+        PrintWriter out = new PrintWriter(text);
+        out.printf(Locale.ROOT, "mode=%s%n", mode.name().toLowerCase(Locale.ROOT));
+        out.printf(Locale.ROOT, "users=%d tasksPerUser=%d commentsPerTask=%d threads=%d rate=%d warmup=%ds duration=%ds seed=%d mix=%s%n",
+                config.users(), config.tasksPerUser(), config.commentsPerTask(), config.threads(), config.rate(),
+                config.warmupSeconds(), config.durationSeconds(), config.seed(), config.mix());
+        out.printf(Locale.ROOT, "java=%s cpus=%d%n%n", System.getProperty("java.version"),
+                Runtime.getRuntime().availableProcessors());
+        out.printf(Locale.ROOT, "%-36s %9s %7s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+
+        long totalRequests = 0;
+        long totalErrors = 0;
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = latencies.get(operation);
+            long failed = errors.get(operation).sum();
+            if (histogram.getTotalCount() == 0 && failed == 0) {
+                continue;
+            }
+            totalRequests += histogram.getTotalCount();
+            totalErrors += failed;
+            out.printf(Locale.ROOT, "%-36s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    operation.getEndpoint(), histogram.getTotalCount(), failed,
+                    histogram.getTotalCount() / measuredSeconds,
+                    millis(histogram.getValueAtPercentile(50)),
+                    millis(histogram.getValueAtPercentile(99)),
+                    millis(histogram.getValueAtPercentile(99.9)),
+                    millis(histogram.getMaxValue()));
+        }
+        out.printf(Locale.ROOT, "%-36s %9d %7d %9.1f%n", "total", totalRequests, totalErrors, totalRequests / measuredSeconds);
+        out.flush();
+        return text.toString();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / NANOS_PER_MILLI;
+    }
+}
@@ -0,0 +1,193 @@
+package ru.viktor141.tms.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LoadGenerator sends a weighted mix of requests at a constant arrival rate from a fixed number of workers.
+ * <p>
+ * Each worker has its own schedule, one request every {@code threads / rate} seconds, and the latency of
+ * a request is measured from when it was due rather than from when it was actually sent. A worker that
+ * falls behind because the application stalls sends its overdue requests right away, and the time they
+ * waited is counted, so the percentiles are not hidden by coordinated omission. Every worker draws users,
+ * tasks and operations from its own Random seeded from the run seed, which keeps the request sequence
+ * of a worker identical between runs.
+ */
+@Slf4j
+public class LoadGenerator {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final String JSON = "application/json";
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(REQUEST_TIMEOUT)
+            .build();
+
+    private final URI baseUri;
+    private final List<UserSession> users;
+    private final LoadTestConfig config;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+
+    /**
+     * Constructs a new LoadGenerator.
+     *
+     * @param baseUri The URI of the running application.
+     * @param users   The seeded users with their tokens and tasks.
+     * @param config  The settings of the run.
+     */
+    public LoadGenerator(URI baseUri, List<UserSession> users, LoadTestConfig config) {
+        this.baseUri = baseUri;
+        this.users = users;
+        this.config = config;
+
+        List<Map.Entry<Operation, Integer>> mix = config.mix().entrySet().stream()
+                .filter(entry -> entry.getValue() > 0)
+                .toList();
+        this.operations = new Operation[mix.size()];
+        this.cumulativeWeights = new int[mix.size()];
+        int total = 0;
+        for (int i = 0; i < mix.size(); i++) {
+            total += mix.get(i).getValue();
+            operations[i] = mix.get(i).getKey();
+            cumulativeWeights[i] = total;
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("The operation mix is empty");
+        }
+    }
+
+    /**
+     * Runs the warmup and the measurement.
+     *
+     * @return The latencies of the requests due during the measurement.
+     * @throws Exception If a worker fails unexpectedly.
+     */
+    public LatencyReport run() throws Exception {
+        LatencyReport report = new LatencyReport();
+        long start = System.nanoTime();
+        long measureStart = start + Duration.ofSeconds(config.warmupSeconds()).toNanos();
+        long measureEnd = measureStart + Duration.ofSeconds(config.durationSeconds()).toNanos();
+        long interval = Duration.ofSeconds(config.threads()).toNanos() / config.rate();
+
+        ExecutorService workers = Executors.newFixedThreadPool(config.threads());
+        try {
+            List<Future<?>> running = new ArrayList<>();
+            for (int i = 0; i < config.threads(); i++) {
+                Random random = new Random(config.seed() * 31 + i);
+                // Spread the first requests of the workers evenly over one interval
+                long firstDue = start + interval * i / config.threads();
+                running.add(workers.submit(() -> {
+                    work(random, report, firstDue, interval, measureStart, measureEnd);
+                    return null;
+                }));
+            }
+            for (Future<?> worker : running) {
+                worker.get();
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+        return report;
+    }
+
+    private void work(Random random, LatencyReport report, long firstDue, long interval,
+                      long measureStart, long measureEnd) throws InterruptedException {
+        for (long due = firstDue; due < measureEnd; due += interval) {
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+
+            Operation operation = nextOperation(random);
+            UserSession user = users.get(random.nextInt(users.size()));
+            long taskId = user.getTaskIds()[random.nextInt(user.getTaskIds().length)];
+
+            boolean success;
+            try {
+                success = send(operation, user, taskId, random);
+            } catch (IOException e) {
+                log.debug("{} failed", operation.getEndpoint(), e);
+                success = false;
+            }
+
+            if (due >= measureStart) {
+                report.record(operation, System.nanoTime() - due, success);
+            }
+        }
+    }
+
+    private Operation nextOperation(Random random) {
+        int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    private boolean send(Operation operation, UserSession user, long taskId, Random random) throws IOException, InterruptedException {
+        return switch (operation) {
+            case LOGIN -> {
+                HttpResponse<String> response = httpClient.send(post("/api/auth/login", null,
+                        "{\"email\":\"" + user.getEmail() + "\",\"password\":\"" + UserSession.PASSWORD + "\"}"),
+                        HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() == 200) {
+                    user.setToken(response.body());
+                }
+                yield response.statusCode() == 200;
+            }
+            case LIST -> status(get("/api/tasks?page=0&size=10&authorId=" + user.getId(), user)) == 200;
+            case GET -> status(get("/api/tasks/" + taskId, user)) == 200;
+            case UPDATE -> status(HttpRequest.newBuilder(baseUri.resolve("/api/tasks/" + taskId))
+                    .timeout(REQUEST_TIMEOUT)
+                    .header("Authorization", "Bearer " + user.getToken())
+                    .header("Content-Type", JSON)
+                    .PUT(HttpRequest.BodyPublishers.ofString("{\"title\":\"Task " + taskId + " revision " + random.nextInt(1000)
+                            + "\",\"description\":\"" + Dataset.DESCRIPTION + "\",\"status\":\"IN_PROGRESS\",\"priority\":\"MEDIUM\"}"))
+                    .build()) == 200;
+            case COMMENT -> status(post("/api/tasks/" + taskId + "/comments", user,
+                    "{\"text\":\"" + Dataset.COMMENT + "\"}")) == 201;
+            case COMMENTS -> status(get("/api/tasks/" + taskId + "/comments/cursor?size=20", user)) == 200;
+        };
+    }
+
+    private int status(HttpRequest request) throws IOException, InterruptedException {
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private HttpRequest get(String path, UserSession user) {
+        return HttpRequest.newBuilder(baseUri.resolve(path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Authorization", "Bearer " + user.getToken())
+                .GET()
+                .build();
+    }
+
+    private HttpRequest post(String path, UserSession user, String body) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(baseUri.resolve(path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", JSON)
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        if (user != null) {
+            builder.header("Authorization", "Bearer " + user.getToken());
+        }
+        return builder.build();
+    }
+}
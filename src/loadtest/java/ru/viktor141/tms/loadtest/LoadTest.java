@@ -0,0 +1,90 @@
+package ru.viktor141.tms.loadtest;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.viktor141.tms.TestTaskTmsApplication;
+import ru.viktor141.tms.service.CommentStatsRepairService;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * LoadTest boots the application against an embedded PostgreSQL, seeds a dataset and measures it under load.
+ * <p>
+ * Everything runs in one JVM on the local machine: the PostgreSQL binaries come from a Maven artifact
+ * and the database lives in a temporary directory that is removed afterwards, so the run needs no
+ * network or Docker. With {@code mode=both} the same run is repeated on platform and on virtual request
+ * threads and both tables are written to the report. Run it with {@code gradle loadTest}; the settings
+ * are described in LoadTestConfig.
+ */
+@Slf4j
+public class LoadTest {
+
+    /**
+     * Runs the load test in each requested mode and writes the report.
+     *
+     * @param args Settings as {@code key=value} arguments.
+     * @throws Exception If the run fails.
+     */
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.parse(args);
+        if (config.users() < 1 || config.tasksPerUser() < 1 || config.threads() < 1 || config.rate() < 1
+                || config.durationSeconds() < 1) {
+            throw new IllegalArgumentException("users, tasksPerUser, threads, rate and duration must be positive");
+        }
+
+        StringBuilder report = new StringBuilder();
+        for (ThreadMode mode : config.modes()) {
+            if (!report.isEmpty()) {
+                report.append(System.lineSeparator());
+            }
+            report.append(run(config, mode));
+        }
+
+        if (config.report().getParent() != null) {
+            Files.createDirectories(config.report().getParent());
+        }
+        Files.writeString(config.report(), report, StandardCharsets.UTF_8);
+        log.info("Report written to {}\n{}", config.report().toAbsolutePath(), report);
+    }
+
+    /**
+     * Runs the application in one mode on a fresh database, so every mode sees the same data.
+     */
+    private static String run(LoadTestConfig config, ThreadMode mode) throws Exception {
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().start()) {
+            // Command-line properties take precedence over application.properties
+            String[] properties = {
+                    "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                    "--spring.datasource.username=postgres",
+                    "--spring.datasource.password=postgres",
+                    "--spring.threads.virtual.enabled=" + (mode == ThreadMode.VIRTUAL),
+                    "--server.port=0",
+                    "--tms.sql-trace.sample-rate=0",
+                    "--tms.archive.enabled=false",
+                    "--tms.rate-limit.enabled=false",
+                    "--logging.level.root=WARN",
+                    "--logging.level.ru.viktor141.tms.loadtest=INFO"
+            };
+
+            try (ConfigurableApplicationContext context = SpringApplication.run(TestTaskTmsApplication.class, properties)) {
+                int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                URI baseUri = URI.create("http://localhost:" + port);
+
+                List<UserSession> users = Dataset.seed(config, baseUri, context.getBean(JdbcTemplate.class),
+                        context.getBean(CommentStatsRepairService.class));
+
+                log.info("Mode {}: warming up for {}s, measuring for {}s at {} req/s with {} threads", mode,
+                        config.warmupSeconds(), config.durationSeconds(), config.rate(), config.threads());
+                LatencyReport report = new LoadGenerator(baseUri, users, config).run();
+                return report.format(config, mode, config.durationSeconds());
+            }
+        }
+    }
+}
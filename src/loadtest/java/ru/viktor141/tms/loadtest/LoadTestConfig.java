@@ -0,0 +1,90 @@
+package ru.viktor141.tms.loadtest;
+
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * LoadTestConfig represents the settings of a load test run.
+ * <p>
+ * Settings are passed as {@code key=value} arguments; missing ones take the defaults below. Two runs
+ * with the same settings seed the same dataset and send the same sequence of requests per worker.
+ *
+ * @param users           The number of users.
+ * @param tasksPerUser    The number of tasks authored by each user.
+ * @param commentsPerTask The number of comments of each task.
+ * @param threads         The number of concurrent workers, each sending one request at a time.
+ * @param rate            The number of requests per second the workers start together.
+ * @param warmupSeconds   How long requests are sent before measuring.
+ * @param durationSeconds How long requests are measured.
+ * @param seed            The seed of the dataset and of the request sequence.
+ * @param mix             The relative weights of the operations.
+ * @param modes           The request thread modes to measure, one after the other.
+ * @param report          The file the report is written to.
+ */
+public record LoadTestConfig(int users, int tasksPerUser, int commentsPerTask, int threads, int rate,
+                             int warmupSeconds, int durationSeconds, long seed,
+                             Map<Operation, Integer> mix, List<ThreadMode> modes, Path report) {
+
+    private static final String DEFAULT_MIX = "login:2,list:30,get:33,update:15,comment:10,comments:10";
+
+    /**
+     * Parses the settings from command-line arguments.
+     *
+     * @param args Arguments such as {@code users=50 threads=16}.
+     * @return A LoadTestConfig object.
+     * @throws IllegalArgumentException If an argument is malformed or unknown.
+     */
+    public static LoadTestConfig parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected key=value but got: " + arg);
+            }
+            values.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+
+        LoadTestConfig config = new LoadTestConfig(
+                Integer.parseInt(take(values, "users", "50")),
+                Integer.parseInt(take(values, "tasksPerUser", "20")),
+                Integer.parseInt(take(values, "commentsPerTask", "10")),
+                Integer.parseInt(take(values, "threads", "16")),
+                Integer.parseInt(take(values, "rate", "400")),
+                Integer.parseInt(take(values, "warmup", "15")),
+                Integer.parseInt(take(values, "duration", "60")),
+                Long.parseLong(take(values, "seed", "42")),
+                parseMix(take(values, "mix", DEFAULT_MIX)),
+                parseModes(take(values, "mode", "platform")),
+                Path.of(take(values, "report", "build/reports/loadtest/report.txt")));
+
+        if (!values.isEmpty()) {
+            throw new IllegalArgumentException("Unknown settings: " + values.keySet());
+        }
+        return config;
+    }
+
+    private static String take(Map<String, String> values, String key, String defaultValue) {
+        String value = values.remove(key);
+        return value != null ? value : defaultValue;
+    }
+
+    private static List<ThreadMode> parseModes(String mode) {
+        if (mode.equalsIgnoreCase("both")) {
+            return List.of(ThreadMode.PLATFORM, ThreadMode.VIRTUAL);
+        }
+        return List.of(ThreadMode.valueOf(mode.toUpperCase(Locale.ROOT)));
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.split(":");
+            weights.put(Operation.valueOf(parts[0].trim().toUpperCase(Locale.ROOT)), Integer.parseInt(parts[1].trim()));
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,121 @@
+package ru.viktor141.tms.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * NativeIntegrationTest checks the native executable of the application from the outside.
+ * <p>
+ * The Spring test suite relies on Mockito and Testcontainers, which do not run inside a native
+ * image, so the executable is started as a process against an embedded PostgreSQL and driven over
+ * HTTP instead. The scenario touches the paths that need reachability metadata: JSON binding of the
+ * entities and DTOs, JWT signing and parsing, Hibernate proxies, the error responses and the
+ * springdoc API description. Run it with {@code gradle nativeIntegrationTest}.
+ */
+@Slf4j
+public class NativeIntegrationTest {
+
+    private static final String JSON = "application/json";
+
+    private final ApplicationProcess application;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Constructs a new NativeIntegrationTest.
+     *
+     * @param application The started application.
+     */
+    public NativeIntegrationTest(ApplicationProcess application) {
+        this.application = application;
+    }
+
+    /**
+     * Starts the native executable and runs the scenario.
+     *
+     * @param args The path of the native executable.
+     * @throws Exception If a check fails.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("Expected the path of the native executable");
+        }
+        Path executable = Path.of(args[0]);
+        Path directory = Files.createTempDirectory("tms-native");
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+             ApplicationProcess application = ApplicationProcess.start(List.of(executable.toAbsolutePath().toString()),
+                     directory, postgres.getJdbcUrl("postgres", "postgres"), directory.resolve("native.log"))) {
+            new NativeIntegrationTest(application).run();
+            log.info("The native executable passed in {} ms, {} kB resident", application.elapsedMillis(),
+                    application.residentKilobytes());
+        } catch (Exception e) {
+            log.error("The native executable failed, see {}", directory.resolve("native.log"));
+            throw e;
+        }
+    }
+
+    /**
+     * Runs the scenario.
+     *
+     * @throws Exception If a check fails.
+     */
+    public void run() throws Exception {
+        String token = application.register("native@example.com");
+
+        JsonNode task = json(expect(201, application.send(token, HttpRequest.newBuilder(uri("/api/tasks/create"))
+                .header("Content-Type", JSON)
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"title\":\"Native task\",\"description\":\"Built ahead of time\",\"status\":\"PENDING\",\"priority\":\"HIGH\"}")))));
+        long taskId = task.get("id").asLong();
+        check("native@example.com".equals(task.path("author").path("email").asText()), "The author of the task is not serialized");
+
+        JsonNode read = json(expect(200, application.send(token, HttpRequest.newBuilder(uri("/api/tasks/" + taskId)).GET())));
+        check("HIGH".equals(read.path("priority").asText()), "The task was not read back");
+
+        expect(201, application.send(token, HttpRequest.newBuilder(uri("/api/tasks/" + taskId + "/comments"))
+                .header("Content-Type", JSON)
+                .POST(HttpRequest.BodyPublishers.ofString("{\"text\":\"Первый комментарий\"}"))));
+        JsonNode comments = json(expect(200, application.send(token,
+                HttpRequest.newBuilder(uri("/api/tasks/" + taskId + "/comments/cursor?size=20")).GET())));
+        check("Первый комментарий".equals(comments.path("content").path(0).path("text").asText()), "The comment was not read back");
+
+        JsonNode page = json(expect(200, application.send(token, HttpRequest.newBuilder(uri("/api/tasks?page=0&size=10")).GET())));
+        check(page.path("content").size() == 1, "The task list does not contain the task");
+
+        JsonNode notFound = json(expect(404, application.send(token, HttpRequest.newBuilder(uri("/api/tasks/" + (taskId + 1000))).GET())));
+        check(notFound.path("message").asText().contains(String.valueOf(taskId + 1000)), "The error response is not serialized");
+
+        expect(401, application.send("not-a-token", HttpRequest.newBuilder(uri("/api/tasks")).GET()));
+
+        JsonNode apiDocs = json(expect(200, application.send(token, HttpRequest.newBuilder(uri("/v3/api-docs")).GET())));
+        check(apiDocs.path("paths").has("/api/tasks/{id}"), "The API description is incomplete");
+    }
+
+    private URI uri(String path) {
+        return application.getBaseUri().resolve(path);
+    }
+
+    private JsonNode json(HttpResponse<String> response) throws Exception {
+        return objectMapper.readTree(response.body());
+    }
+
+    private static HttpResponse<String> expect(int status, HttpResponse<String> response) {
+        check(response.statusCode() == status, response.request().method() + " " + response.uri().getPath()
+                + " returned " + response.statusCode() + " instead of " + status + ": " + response.body());
+        return response;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
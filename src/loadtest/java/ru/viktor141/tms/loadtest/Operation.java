@@ -0,0 +1,46 @@
+package ru.viktor141.tms.loadtest;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Operation represents the requests sent by the load generator.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum Operation {
+    /**
+     * Logs the user in again.
+     */
+    LOGIN("POST /api/auth/login"),
+
+    /**
+     * Reads the first page of the user's tasks.
+     */
+    LIST("GET /api/tasks"),
+
+    /**
+     * Reads one of the user's tasks.
+     */
+    GET("GET /api/tasks/{id}"),
+
+    /**
+     * Updates one of the user's tasks.
+     */
+    UPDATE("PUT /api/tasks/{id}"),
+
+    /**
+     * Adds a comment to one of the user's tasks.
+     */
+    COMMENT("POST /api/tasks/{id}/comments"),
+
+    /**
+     * Reads the first page of comments of one of the user's tasks.
+     */
+    COMMENTS("GET /api/tasks/{id}/comments/cursor");
+
+    /**
+     * The endpoint the operation calls.
+     */
+    private final String endpoint;
+}
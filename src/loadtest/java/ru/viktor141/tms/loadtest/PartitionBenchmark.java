@@ -0,0 +1,244 @@
+package ru.viktor141.tms.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * PartitionBenchmark compares insert and range-scan latency of comment tables with the same rows.
+ * <p>
+ * It is meant to run after db/comments-partitioning has replaced {@code comments} with the
+ * hash-partitioned table and kept the old one as {@code comments_unpartitioned}; fill the database
+ * with {@code gradle generateData} first, for example 10M tasks with 10 comments each for 100M rows.
+ * Every table is measured with the statements of the application:
+ * <ul>
+ *     <li>insert: a single comment, rolled back after it is timed, so the tables keep their rows;</li>
+ *     <li>page: the first 20 comments of a task in (creation date, ID) order;</li>
+ *     <li>scan: all comments of a task in the same order, as the export reads them.</li>
+ * </ul>
+ * Tasks are drawn uniformly from a sample of the tasks table. Run it with {@code gradle partitionBenchmark};
+ * the settings are described in PartitionBenchmarkConfig.
+ */
+@Slf4j
+public class PartitionBenchmark {
+
+    private static final int TASK_SAMPLE = 100_000;
+    private static final int PAGE_SIZE = 20;
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    /**
+     * Operation represents a statement measured on each table.
+     */
+    private enum Operation {
+        INSERT("INSERT INTO %s (text, author_id, task_id, created_date) VALUES (?, ?, ?, now()) RETURNING id"),
+        PAGE("SELECT id, text, author_id, created_date FROM %s WHERE task_id = ? ORDER BY created_date, id LIMIT " + PAGE_SIZE),
+        SCAN("SELECT id, text, author_id, created_date FROM %s WHERE task_id = ? ORDER BY created_date, id");
+
+        private final String sql;
+
+        Operation(String sql) {
+            this.sql = sql;
+        }
+    }
+
+    private final PartitionBenchmarkConfig config;
+    private long[] taskIds;
+    private long authorId;
+
+    /**
+     * Constructs a new PartitionBenchmark.
+     *
+     * @param config The settings of the run.
+     */
+    public PartitionBenchmark(PartitionBenchmarkConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Runs the benchmark and writes the report.
+     *
+     * @param args Settings as {@code key=value} arguments.
+     * @throws Exception If the run fails.
+     */
+    public static void main(String[] args) throws Exception {
+        PartitionBenchmarkConfig config = PartitionBenchmarkConfig.parse(args);
+        String report = new PartitionBenchmark(config).run();
+
+        if (config.report().getParent() != null) {
+            Files.createDirectories(config.report().getParent());
+        }
+        Files.writeString(config.report(), report, StandardCharsets.UTF_8);
+        log.info("Report written to {}\n{}", config.report().toAbsolutePath(), report);
+    }
+
+    /**
+     * Measures every operation on every existing table.
+     *
+     * @return The report text.
+     * @throws Exception If a statement fails.
+     */
+    public String run() throws Exception {
+        StringWriter text = new StringWriter();
+        PrintWriter out = new PrintWriter(text);
+        out.printf(Locale.ROOT, "threads=%d warmup=%d iterations=%d seed=%d%n%n",
+                config.threads(), config.warmup(), config.iterations(), config.seed());
+        out.printf(Locale.ROOT, "%-24s %10s %6s %9s %-7s %9s %9s %9s %9s%n",
+                "table", "rows", "parts", "size GB", "op", "p50 ms", "p99 ms", "p999 ms", "max ms");
+
+        try (Connection connection = connect()) {
+            sampleTasks(connection);
+            for (String table : config.tables()) {
+                TableStats stats = tableStats(connection, table);
+                if (stats == null) {
+                    log.info("Skipping {}: the table does not exist", table);
+                    continue;
+                }
+                for (Operation operation : Operation.values()) {
+                    Histogram histogram = measure(table, operation);
+                    out.printf(Locale.ROOT, "%-24s %10d %6d %9.1f %-7s %9.3f %9.3f %9.3f %9.3f%n",
+                            table, stats.rows(), stats.partitions(), stats.bytes() / 1e9,
+                            operation.name().toLowerCase(Locale.ROOT),
+                            millis(histogram.getValueAtPercentile(50)),
+                            millis(histogram.getValueAtPercentile(99)),
+                            millis(histogram.getValueAtPercentile(99.9)),
+                            millis(histogram.getMaxValue()));
+                }
+            }
+        }
+        out.flush();
+        return text.toString();
+    }
+
+    private Connection connect() throws SQLException {
+        return DriverManager.getConnection(config.url(), config.username(), config.password());
+    }
+
+    private void sampleTasks(Connection connection) throws SQLException {
+        List<Long> ids = new ArrayList<>(TASK_SAMPLE);
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT id FROM tasks TABLESAMPLE SYSTEM (least(100, ? * 100.0 / greatest(1, " +
+                        "(SELECT reltuples FROM pg_class WHERE oid = 'tasks'::regclass)))) LIMIT ?")) {
+            statement.setInt(1, TASK_SAMPLE);
+            statement.setInt(2, TASK_SAMPLE);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getLong(1));
+                }
+            }
+        }
+        if (ids.isEmpty()) {
+            throw new IllegalStateException("The tasks table is empty; fill it with gradle generateData");
+        }
+        taskIds = ids.stream().mapToLong(Long::longValue).toArray();
+
+        try (PreparedStatement statement = connection.prepareStatement("SELECT min(id) FROM users");
+             ResultSet rs = statement.executeQuery()) {
+            rs.next();
+            authorId = rs.getLong(1);
+        }
+        log.info("Sampled {} tasks", taskIds.length);
+    }
+
+    /**
+     * Reads the estimated rows, the number of partitions and the size of a table with its indexes.
+     *
+     * @return The statistics, or null if the table does not exist.
+     */
+    private static TableStats tableStats(Connection connection, String table) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT sum(c.reltuples)::bigint, count(*) FILTER (WHERE t.isleaf AND t.level > 0), " +
+                        "sum(pg_total_relation_size(t.relid)) " +
+                        "FROM pg_partition_tree(to_regclass(?)) t JOIN pg_class c ON c.oid = t.relid")) {
+            statement.setString(1, table);
+            try (ResultSet rs = statement.executeQuery()) {
+                if (!rs.next() || rs.getObject(3) == null) {
+                    return null;
+                }
+                return new TableStats(rs.getLong(1), rs.getInt(2), rs.getLong(3));
+            }
+        }
+    }
+
+    private Histogram measure(String table, Operation operation) throws Exception {
+        Histogram histogram = new ConcurrentHistogram(3);
+        ExecutorService executor = Executors.newFixedThreadPool(config.threads());
+        try {
+            List<Future<Void>> workers = new ArrayList<>();
+            for (int thread = 0; thread < config.threads(); thread++) {
+                SplittableRandom random = new SplittableRandom(config.seed() * 31 + thread);
+                workers.add(executor.submit(() -> {
+                    run(table, operation, random, histogram);
+                    return null;
+                }));
+            }
+            for (Future<Void> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        log.info("{} {}: p50 {} ms", table, operation, millis(histogram.getValueAtPercentile(50)));
+        return histogram;
+    }
+
+    private void run(String table, Operation operation, SplittableRandom random, Histogram histogram) throws SQLException {
+        try (Connection connection = connect();
+             PreparedStatement statement = connection.prepareStatement(operation.sql.formatted(table))) {
+            connection.setAutoCommit(operation != Operation.INSERT);
+            for (int i = 0; i < config.warmup() + config.iterations(); i++) {
+                long taskId = taskIds[random.nextInt(taskIds.length)];
+                long started = System.nanoTime();
+                execute(operation, statement, taskId, random);
+                long latency = System.nanoTime() - started;
+                if (operation == Operation.INSERT) {
+                    connection.rollback();
+                }
+                if (i >= config.warmup()) {
+                    histogram.recordValue(latency);
+                }
+            }
+        }
+    }
+
+    private void execute(Operation operation, PreparedStatement statement, long taskId, SplittableRandom random) throws SQLException {
+        if (operation == Operation.INSERT) {
+            statement.setBytes(1, ("Benchmark comment " + random.nextLong()).getBytes(StandardCharsets.UTF_8));
+            statement.setLong(2, authorId);
+            statement.setLong(3, taskId);
+        } else {
+            statement.setLong(1, taskId);
+        }
+        try (ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                rs.getLong(1);
+            }
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / NANOS_PER_MILLI;
+    }
+
+    /**
+     * TableStats represents the size of a measured table.
+     */
+    private record TableStats(long rows, int partitions, long bytes) {
+    }
+}
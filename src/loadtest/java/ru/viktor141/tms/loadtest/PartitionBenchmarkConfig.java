@@ -0,0 +1,76 @@
+package ru.viktor141.tms.loadtest;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PartitionBenchmarkConfig represents the settings of a comments table benchmark run.
+ * <p>
+ * Settings are passed as {@code key=value} arguments; missing ones take the defaults below, which
+ * match the database of docker-compose.yml.
+ *
+ * @param url        The JDBC URL of the database.
+ * @param username   The database user.
+ * @param password   The database password.
+ * @param tables     The comment tables to measure; tables that do not exist are skipped.
+ * @param threads    The number of connections sending statements at the same time.
+ * @param warmup     The number of unmeasured statements per thread, operation and table.
+ * @param iterations The number of measured statements per thread, operation and table.
+ * @param seed       The seed of the task IDs and comment texts.
+ * @param report     The file the report is written to.
+ */
+public record PartitionBenchmarkConfig(String url, String username, String password, List<String> tables,
+                                       int threads, int warmup, int iterations, long seed, Path report) {
+
+    /**
+     * Parses the settings from command-line arguments.
+     *
+     * @param args Arguments such as {@code threads=8 iterations=20000}.
+     * @return A PartitionBenchmarkConfig object.
+     * @throws IllegalArgumentException If an argument is malformed or unknown.
+     */
+    public static PartitionBenchmarkConfig parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected key=value but got: " + arg);
+            }
+            values.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+
+        PartitionBenchmarkConfig config = new PartitionBenchmarkConfig(
+                take(values, "url", "jdbc:postgresql://localhost:5432/taskdb"),
+                take(values, "username", "postgres"),
+                take(values, "password", "pMRLJew8"),
+                Arrays.stream(take(values, "tables", "comments,comments_unpartitioned").split(","))
+                        .map(String::trim)
+                        .toList(),
+                Integer.parseInt(take(values, "threads", "4")),
+                Integer.parseInt(take(values, "warmup", "1000")),
+                Integer.parseInt(take(values, "iterations", "10000")),
+                Long.parseLong(take(values, "seed", "42")),
+                Path.of(take(values, "report", "build/reports/partitioning/report.txt")));
+
+        if (!values.isEmpty()) {
+            throw new IllegalArgumentException("Unknown settings: " + values.keySet());
+        }
+        if (config.threads() < 1 || config.iterations() < 1 || config.warmup() < 0) {
+            throw new IllegalArgumentException("threads and iterations must be positive and warmup must not be negative");
+        }
+        for (String table : config.tables()) {
+            if (!table.matches("[a-z_][a-z0-9_]*")) {
+                throw new IllegalArgumentException("Not a table name: " + table);
+            }
+        }
+        return config;
+    }
+
+    private static String take(Map<String, String> values, String key, String defaultValue) {
+        String value = values.remove(key);
+        return value != null ? value : defaultValue;
+    }
+}
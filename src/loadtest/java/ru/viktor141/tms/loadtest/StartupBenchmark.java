@@ -0,0 +1,141 @@
+package ru.viktor141.tms.loadtest;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * StartupBenchmark measures how long the application takes to serve its first successful request.
+ * <p>
+ * The jar is extracted as in the Docker image and, for the CDS mode, a training run records the class
+ * data sharing archive. Each mode is then started {@code runs} times against an embedded PostgreSQL; a
+ * start is timed from launching the process to the first 200 response of {@code GET /api/tasks}, which
+ * includes registering a user. The resident memory of the process is read right after that response;
+ * the report gives its median. Run it with {@code gradle startupBenchmark}, or with
+ * {@code gradle nativeStartupBenchmark} to add the native executable; the settings are described in
+ * StartupBenchmarkConfig.
+ */
+@Slf4j
+public class StartupBenchmark {
+
+    private final StartupBenchmarkConfig config;
+    private final Path appDirectory;
+    private final String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+
+    /**
+     * Constructs a new StartupBenchmark.
+     *
+     * @param config       The settings of the run.
+     * @param appDirectory The directory the jar is extracted to.
+     */
+    public StartupBenchmark(StartupBenchmarkConfig config, Path appDirectory) {
+        this.config = config;
+        this.appDirectory = appDirectory;
+    }
+
+    /**
+     * Runs the benchmark and writes the report.
+     *
+     * @param args Settings as {@code key=value} arguments.
+     * @throws Exception If the run fails.
+     */
+    public static void main(String[] args) throws Exception {
+        StartupBenchmarkConfig config = StartupBenchmarkConfig.parse(args);
+        Path appDirectory = Files.createTempDirectory("tms-startup");
+        log.info("Extracting the application and writing its logs to {}", appDirectory);
+        String report = new StartupBenchmark(config, appDirectory).run();
+
+        if (config.report().getParent() != null) {
+            Files.createDirectories(config.report().getParent());
+        }
+        Files.writeString(config.report(), report, StandardCharsets.UTF_8);
+        log.info("Report written to {}\n{}", config.report().toAbsolutePath(), report);
+    }
+
+    /**
+     * Prepares the application directory and measures every mode.
+     *
+     * @return The report text.
+     * @throws Exception If a step fails or the application does not start in time.
+     */
+    public String run() throws Exception {
+        exec(List.of(java, "-Djarmode=tools", "-jar", config.jar().toAbsolutePath().toString(),
+                "extract", "--destination", appDirectory.resolve("app").toString()), appDirectory);
+        Path app = appDirectory.resolve("app");
+        if (config.modes().contains(StartupMode.CDS)) {
+            // The same training run as in the Dockerfile
+            exec(List.of(java, "-XX:ArchiveClassesAtExit=" + StartupMode.ARCHIVE, "-Dspring.aot.enabled=true",
+                    "-Dspring.context.exit=onRefresh", "-jar", "app.jar", "--spring.profiles.active=training"), app);
+        }
+
+        StringWriter text = new StringWriter();
+        PrintWriter out = new PrintWriter(text);
+        out.printf(Locale.ROOT, "jar=%s runs=%d java=%s cpus=%d%n%n", config.jar().getFileName(), config.runs(),
+                System.getProperty("java.version"), Runtime.getRuntime().availableProcessors());
+        out.printf(Locale.ROOT, "%-6s %9s %9s %9s %9s%n", "mode", "min ms", "median ms", "max ms", "rss MB");
+
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().start()) {
+            String jdbcUrl = postgres.getJdbcUrl("postgres", "postgres");
+            int start = 0;
+            for (StartupMode mode : config.modes()) {
+                long[] millis = new long[config.runs()];
+                long[] residentKilobytes = new long[config.runs()];
+                for (int run = 0; run < config.runs(); run++) {
+                    Start measured = measure(mode, app, jdbcUrl, start++);
+                    millis[run] = measured.millis();
+                    residentKilobytes[run] = measured.residentKilobytes();
+                    log.info("{} start {}: {} ms, {} kB resident", mode, run + 1, millis[run], residentKilobytes[run]);
+                }
+                Arrays.sort(millis);
+                Arrays.sort(residentKilobytes);
+                out.printf(Locale.ROOT, "%-6s %9d %9d %9d %9.1f%n", mode.name().toLowerCase(Locale.ROOT),
+                        millis[0], millis[millis.length / 2], millis[millis.length - 1],
+                        residentKilobytes[residentKilobytes.length / 2] / 1024.0);
+            }
+        }
+        out.flush();
+        return text.toString();
+    }
+
+    /**
+     * Starts the application once and waits for the first successful task listing.
+     *
+     * @return The milliseconds from launch to the response and the resident memory after it.
+     */
+    private Start measure(StartupMode mode, Path app, String jdbcUrl, int start) throws Exception {
+        List<String> command = mode.command(java, config.nativeExecutable());
+        try (ApplicationProcess process = ApplicationProcess.start(command, app, jdbcUrl, app.resolve("start-" + start + ".log"))) {
+            String token = process.register("startup" + start + "@example.com");
+            HttpResponse<String> response = process.send(token,
+                    HttpRequest.newBuilder(process.getBaseUri().resolve("/api/tasks")).GET());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("GET /api/tasks returned " + response.statusCode() + " " + response.body());
+            }
+            return new Start(process.elapsedMillis(), process.residentKilobytes());
+        }
+    }
+
+    private static void exec(List<String> command, Path directory) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command).directory(directory.toFile()).inheritIO().start();
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException("Command failed with " + process.exitValue() + ": " + command);
+        }
+    }
+
+    /**
+     * Start represents one measured start.
+     */
+    private record Start(long millis, long residentKilobytes) {
+    }
+}
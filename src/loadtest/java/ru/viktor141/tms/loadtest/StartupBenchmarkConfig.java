@@ -0,0 +1,70 @@
+package ru.viktor141.tms.loadtest;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * StartupBenchmarkConfig represents the settings of a startup benchmark run.
+ * <p>
+ * Settings are passed as {@code key=value} arguments; missing ones take the defaults below.
+ *
+ * @param jar              The executable jar of the application.
+ * @param nativeExecutable The native executable of the application, or null if the NATIVE mode is not measured.
+ * @param runs             The number of starts measured per mode.
+ * @param modes            The startup modes to measure.
+ * @param report           The file the report is written to.
+ */
+public record StartupBenchmarkConfig(Path jar, Path nativeExecutable, int runs, List<StartupMode> modes, Path report) {
+
+    /**
+     * Parses the settings from command-line arguments.
+     *
+     * @param args Arguments such as {@code jar=build/libs/tms.jar runs=5}.
+     * @return A StartupBenchmarkConfig object.
+     * @throws IllegalArgumentException If an argument is malformed or unknown.
+     */
+    public static StartupBenchmarkConfig parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected key=value but got: " + arg);
+            }
+            values.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+
+        String jar = values.remove("jar");
+        if (jar == null) {
+            throw new IllegalArgumentException("The jar setting is required");
+        }
+        String nativeExecutable = values.remove("native");
+        StartupBenchmarkConfig config = new StartupBenchmarkConfig(
+                Path.of(jar),
+                nativeExecutable != null ? Path.of(nativeExecutable) : null,
+                Integer.parseInt(take(values, "runs", "5")),
+                Arrays.stream(take(values, "modes", nativeExecutable != null ? "jvm,aot,cds,native" : "jvm,aot,cds").split(","))
+                        .map(mode -> StartupMode.valueOf(mode.trim().toUpperCase(Locale.ROOT)))
+                        .toList(),
+                Path.of(take(values, "report", "build/reports/startup/report.txt")));
+
+        if (!values.isEmpty()) {
+            throw new IllegalArgumentException("Unknown settings: " + values.keySet());
+        }
+        if (config.runs() < 1) {
+            throw new IllegalArgumentException("runs must be positive");
+        }
+        if (config.modes().contains(StartupMode.NATIVE) && config.nativeExecutable() == null) {
+            throw new IllegalArgumentException("The native mode requires the native setting");
+        }
+        return config;
+    }
+
+    private static String take(Map<String, String> values, String key, String defaultValue) {
+        String value = values.remove(key);
+        return value != null ? value : defaultValue;
+    }
+}
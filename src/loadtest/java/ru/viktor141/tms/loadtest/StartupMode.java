@@ -0,0 +1,68 @@
+package ru.viktor141.tms.loadtest;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * StartupMode represents a way of launching the application.
+ */
+public enum StartupMode {
+    /**
+     * A plain JVM start.
+     */
+    JVM(List.of()),
+
+    /**
+     * A start from the bean definitions generated at build time.
+     */
+    AOT(List.of("-Dspring.aot.enabled=true")),
+
+    /**
+     * An AOT start that maps the classes from the archive of a training run, as in the Docker image.
+     */
+    CDS(List.of("-Dspring.aot.enabled=true", "-XX:SharedArchiveFile=" + StartupMode.ARCHIVE)),
+
+    /**
+     * A start of the GraalVM native executable, which needs no JVM.
+     */
+    NATIVE(List.of());
+
+    /**
+     * The file name of the class data sharing archive in the extracted application directory.
+     */
+    public static final String ARCHIVE = "app.jsa";
+
+    private final List<String> jvmArgs;
+
+    StartupMode(List<String> jvmArgs) {
+        this.jvmArgs = jvmArgs;
+    }
+
+    /**
+     * Returns the JVM options of the mode.
+     *
+     * @return The options passed before {@code -jar}.
+     */
+    public List<String> getJvmArgs() {
+        return jvmArgs;
+    }
+
+    /**
+     * Builds the command that starts the application in this mode.
+     *
+     * @param java             The java launcher.
+     * @param nativeExecutable The native executable, used by the NATIVE mode only.
+     * @return The command without the application arguments, run in the extracted application directory.
+     */
+    public List<String> command(String java, Path nativeExecutable) {
+        if (this == NATIVE) {
+            return List.of(nativeExecutable.toAbsolutePath().toString());
+        }
+        List<String> command = new ArrayList<>();
+        command.add(java);
+        command.addAll(jvmArgs);
+        command.addAll(List.of("-jar", "app.jar"));
+        return command;
+    }
+}
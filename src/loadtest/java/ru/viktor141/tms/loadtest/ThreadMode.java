@@ -0,0 +1,16 @@
+package ru.viktor141.tms.loadtest;
+
+/**
+ * ThreadMode represents the threads the application handles requests on.
+ */
+public enum ThreadMode {
+    /**
+     * Requests run on the Tomcat pool of platform threads.
+     */
+    PLATFORM,
+
+    /**
+     * Requests run on virtual threads, bounded by the concurrency limit.
+     */
+    VIRTUAL
+}
@@ -0,0 +1,41 @@
+package ru.viktor141.tms.loadtest;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+/**
+ * UserSession represents a seeded user as seen by the load generator.
+ * <p>
+ * The token is replaced by login requests while other workers may be using it.
+ */
+@Getter
+@RequiredArgsConstructor
+public class UserSession {
+
+    /**
+     * The password of every seeded user.
+     */
+    public static final String PASSWORD = "LoadTest#2024";
+
+    /**
+     * The ID of the user.
+     */
+    private final long id;
+
+    /**
+     * The email of the user.
+     */
+    private final String email;
+
+    /**
+     * The IDs of the tasks authored by the user.
+     */
+    private final long[] taskIds;
+
+    /**
+     * The current JWT token of the user.
+     */
+    @Setter
+    private volatile String token;
+}
@@ -0,0 +1,51 @@
+package ru.viktor141.tms.loadtest;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * ZipfDistribution samples IDs from a range so that the k-th ID is drawn with weight 1 / k^exponent.
+ * <p>
+ * With an exponent around 1 a few IDs receive most of the draws and most IDs only a handful,
+ * which is how work is spread between users in practice. The cumulative weights are precomputed,
+ * so a draw is a binary search.
+ */
+public class ZipfDistribution {
+
+    private final long firstId;
+    private final double[] cumulative;
+
+    /**
+     * Constructs a new ZipfDistribution.
+     *
+     * @param firstId  The first ID of the range, which is the most frequent one.
+     * @param count    The number of IDs in the range.
+     * @param exponent The skew; 0 draws uniformly.
+     */
+    public ZipfDistribution(long firstId, int count, double exponent) {
+        this.firstId = firstId;
+        this.cumulative = new double[count];
+        double total = 0;
+        for (int k = 0; k < count; k++) {
+            total += 1 / Math.pow(k + 1, exponent);
+            cumulative[k] = total;
+        }
+        for (int k = 0; k < count; k++) {
+            cumulative[k] /= total;
+        }
+    }
+
+    /**
+     * Draws an ID.
+     *
+     * @param random The source of randomness.
+     * @return An ID of the range.
+     */
+    public long sample(SplittableRandom random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return firstId + Math.min(index, cumulative.length - 1);
+    }
+}
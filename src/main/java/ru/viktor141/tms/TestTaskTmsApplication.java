@@ -2,6 +2,9 @@ package ru.viktor141.tms;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import ru.viktor141.tms.config.NativeHints;
 
 /**
  * TestTaskTmsApplication is the entry point of the Spring Boot application.
@@ -9,6 +12,8 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  * This class initializes the application context and starts the application.
  */
 @SpringBootApplication
+@EnableScheduling
+@ImportRuntimeHints(NativeHints.class)
 public class TestTaskTmsApplication {
 
     /**
@@ -0,0 +1,61 @@
+package ru.viktor141.tms.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.viktor141.tms.dto.TaskDTO;
+import ru.viktor141.tms.model.User;
+import ru.viktor141.tms.service.CacheInvalidationBus;
+import ru.viktor141.tms.service.LocalCache;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * CacheConfig defines the in-process caches of users and tasks.
+ * <p>
+ * Both caches are kept coherent between application instances by the {@link CacheInvalidationBus}.
+ */
+@Configuration
+public class CacheConfig {
+
+    /**
+     * Creates the cache of users by email, used to authenticate every request.
+     * <p>
+     * Users are changed outside the application, e.g. when a role is granted, so every update or delete
+     * of a row of {@code users} evicts it.
+     *
+     * @param maximumSize   The maximum number of cached users.
+     * @param ttl           How long a user is kept after it was loaded.
+     * @param bus           The bus that distributes evictions.
+     * @param meterRegistry The registry of the cache metrics.
+     * @return A LocalCache of users.
+     */
+    @Bean
+    public LocalCache<String, User> userCache(@Value("${tms.cache.users.max-size:10000}") long maximumSize,
+                                              @Value("${tms.cache.ttl:PT10M}") Duration ttl,
+                                              CacheInvalidationBus bus,
+                                              MeterRegistry meterRegistry) {
+        LocalCache<String, User> cache = new LocalCache<>("users", Function.identity(), maximumSize, ttl, bus, meterRegistry);
+        bus.evictOnRowChange(cache.getName(), "users", "email");
+        return cache;
+    }
+
+    /**
+     * Creates the cache of active tasks by ID.
+     *
+     * @param maximumSize   The maximum number of cached tasks.
+     * @param ttl           How long a task is kept after it was loaded.
+     * @param bus           The bus that distributes evictions.
+     * @param meterRegistry The registry of the cache metrics.
+     * @return A LocalCache of tasks.
+     */
+    @Bean
+    public LocalCache<Long, TaskDTO> taskCache(@Value("${tms.cache.tasks.max-size:10000}") long maximumSize,
+                                               @Value("${tms.cache.ttl:PT10M}") Duration ttl,
+                                               CacheInvalidationBus bus,
+                                               MeterRegistry meterRegistry) {
+        return new LocalCache<>("tasks", Long::valueOf, maximumSize, ttl, bus, meterRegistry);
+    }
+}
@@ -0,0 +1,158 @@
+package ru.viktor141.tms.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * ConcurrencyLimitFilter bounds the number of requests processed at the same time.
+ * <p>
+ * With platform threads the Tomcat thread pool bounds concurrency. Virtual threads remove that
+ * bound, and every request would then queue for a database connection until the pool times out.
+ * This filter admits at most {@code tms.concurrency-limit.max-concurrent-requests} requests and
+ * lets the others wait in a fair queue for up to {@code tms.concurrency-limit.acquire-timeout}.
+ * After that they are answered with 503 and a Retry-After header. It runs before authentication, so
+ * the JWT lookups and the BCrypt checks of logins are bounded as well. Actuator endpoints are not
+ * limited.
+ * <p>
+ * An asynchronous request, such as a streamed comment export, keeps its permit until the async
+ * processing completes, times out or fails, since its body is written on the async executor after
+ * the initial dispatch has returned. Server-sent event streams are the exception: they stay open for
+ * a long time while mostly idle, and their sends are bounded by the sender pool of the broadcaster,
+ * so they release the permit when the subscription has been set up.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@ConditionalOnProperty(name = "tms.concurrency-limit.enabled", havingValue = "true")
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private final Semaphore permits;
+    private final long acquireTimeoutNanos;
+    private final Counter rejected;
+
+    /**
+     * Constructs a new ConcurrencyLimitFilter.
+     *
+     * @param maxConcurrentRequests The maximum number of requests processed at the same time.
+     * @param acquireTimeout        How long a request waits for a permit before it is rejected.
+     * @param meterRegistry         The registry of the limiter metrics.
+     */
+    public ConcurrencyLimitFilter(@Value("${tms.concurrency-limit.max-concurrent-requests:20}") int maxConcurrentRequests,
+                                  @Value("${tms.concurrency-limit.acquire-timeout:PT5S}") Duration acquireTimeout,
+                                  MeterRegistry meterRegistry) {
+        this.permits = new Semaphore(maxConcurrentRequests, true);
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+        this.rejected = Counter.builder("tms.concurrency.rejected")
+                .description("Requests rejected because no permit became free in time")
+                .register(meterRegistry);
+        Gauge.builder("tms.concurrency.waiting", permits, Semaphore::getQueueLength)
+                .description("Requests waiting for a permit")
+                .register(meterRegistry);
+        Gauge.builder("tms.concurrency.active", permits, p -> maxConcurrentRequests - p.availablePermits())
+                .description("Requests holding a permit")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+
+        if (!acquired) {
+            rejected.increment();
+            log.debug("Rejected {} {}: concurrency limit reached", request.getMethod(), request.getRequestURI());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Too many concurrent requests");
+            return;
+        }
+
+        boolean releaseNow = true;
+        try {
+            filterChain.doFilter(request, response);
+            if (request.isAsyncStarted() && !isEventStream(response)) {
+                // The body is still being written on another thread, so keep the permit until it is done
+                request.getAsyncContext().addListener(new ReleasingListener());
+                releaseNow = false;
+            }
+        } finally {
+            if (releaseNow) {
+                permits.release();
+            }
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith("/actuator/");
+    }
+
+    private static boolean isEventStream(HttpServletResponse response) {
+        String contentType = response.getContentType();
+        return contentType != null && contentType.startsWith(MediaType.TEXT_EVENT_STREAM_VALUE);
+    }
+
+    /**
+     * ReleasingListener returns the permit of an asynchronous request once, whichever way it ends.
+     */
+    private class ReleasingListener implements AsyncListener {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // A new asynchronous cycle registers its own listeners; this one still ends with the request
+            event.getAsyncContext().addListener(this);
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package ru.viktor141.tms.config;
+
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.data.domain.PageImpl;
+import ru.viktor141.tms.dto.CommentDTO;
+import ru.viktor141.tms.dto.CommentExportRow;
+import ru.viktor141.tms.dto.CursorPageDTO;
+import ru.viktor141.tms.dto.TaskChangesDTO;
+import ru.viktor141.tms.dto.TaskDTO;
+import ru.viktor141.tms.dto.UserDTO;
+import ru.viktor141.tms.exception.GlobalExceptionHandler;
+import ru.viktor141.tms.model.Comment;
+import ru.viktor141.tms.model.Task;
+import ru.viktor141.tms.model.User;
+
+import java.util.List;
+
+/**
+ * NativeHints registers the reflection and resource metadata a native image needs beyond what Spring AOT infers.
+ * <p>
+ * Spring AOT already covers the bean definitions, the JPA managed types and the return types of the
+ * controllers. This class adds the rest: the entity and DTO fields copied reflectively by
+ * TaskService.updateTaskFull, the Lombok-generated accessors of every DTO for Jackson (including the
+ * ones stored by IdempotencyService or streamed by CommentExportService), the jjwt implementation
+ * classes that jjwt-api loads by name, and the Swagger UI resources.
+ */
+public class NativeHints implements RuntimeHintsRegistrar {
+
+    private static final List<String> JJWT_IMPLEMENTATIONS = List.of(
+            "io.jsonwebtoken.impl.DefaultJwtBuilder",
+            "io.jsonwebtoken.impl.DefaultJwtParserBuilder",
+            "io.jsonwebtoken.impl.DefaultJwtParser",
+            "io.jsonwebtoken.impl.DefaultClaims",
+            "io.jsonwebtoken.impl.DefaultJwsHeader",
+            "io.jsonwebtoken.impl.compression.DefaultCompressionCodecResolver",
+            "io.jsonwebtoken.jackson.io.JacksonSerializer",
+            "io.jsonwebtoken.jackson.io.JacksonDeserializer");
+
+    private final BindingReflectionHintsRegistrar bindingRegistrar = new BindingReflectionHintsRegistrar();
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        // TaskService.updateTaskFull copies the fields of TaskDTO into Task by name
+        for (Class<?> type : List.of(Task.class, TaskDTO.class)) {
+            hints.reflection().registerType(type, MemberCategory.DECLARED_FIELDS);
+        }
+        for (Class<?> entity : List.of(User.class, Task.class, Comment.class)) {
+            hints.reflection().registerType(entity, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                    MemberCategory.INVOKE_PUBLIC_METHODS);
+        }
+
+        bindingRegistrar.registerReflectionHints(hints.reflection(),
+                TaskDTO.class, CommentDTO.class, UserDTO.class, CursorPageDTO.class, TaskChangesDTO.class,
+                CommentExportRow.class, GlobalExceptionHandler.ResponseError.class, PageImpl.class, User.class);
+
+        for (String className : JJWT_IMPLEMENTATIONS) {
+            hints.reflection().registerType(TypeReference.of(className), MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                    MemberCategory.INVOKE_PUBLIC_METHODS);
+        }
+        hints.resources().registerPattern("META-INF/services/io.jsonwebtoken.*");
+
+        hints.resources().registerPattern("META-INF/resources/webjars/swagger-ui/**");
+    }
+}
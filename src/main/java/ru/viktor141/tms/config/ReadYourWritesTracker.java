@@ -0,0 +1,117 @@
+package ru.viktor141.tms.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ReadYourWritesTracker remembers which users wrote recently, so their reads can avoid a lagging replica.
+ * <p>
+ * The user of the current request is bound to the thread by email. When a read-write transaction of a
+ * bound user commits, the user is kept on the primary for {@code tms.datasource.replica.sticky-window};
+ * read-only transactions of that user run on the primary until the window has passed. Without a replica
+ * nothing is recorded.
+ * <p>
+ * The windows are kept in the memory of this instance only. A request that a load balancer sends to
+ * another instance right after a write reads from the replica there and may miss the write, so reading
+ * your own writes across instances needs sticky sessions.
+ */
+@Component
+public class ReadYourWritesTracker {
+
+    private final ThreadLocal<String> currentUser = new ThreadLocal<>();
+    private final Map<String, Long> stickyUntil = new ConcurrentHashMap<>();
+    private final long windowNanos;
+
+    /**
+     * Constructs a new ReadYourWritesTracker.
+     *
+     * @param stickyWindow How long a user reads from the primary after a write.
+     */
+    public ReadYourWritesTracker(@Value("${tms.datasource.replica.sticky-window:PT3S}") Duration stickyWindow) {
+        this.windowNanos = stickyWindow.toNanos();
+    }
+
+    /**
+     * Binds the user of the current request to the thread.
+     *
+     * @param email The email of the user.
+     */
+    public void bind(String email) {
+        currentUser.set(email);
+    }
+
+    /**
+     * Removes the user of the current request from the thread.
+     */
+    public void unbind() {
+        currentUser.remove();
+    }
+
+    /**
+     * Returns the user bound to the thread.
+     *
+     * @return The email of the user, or null if no user is bound.
+     */
+    public String getCurrentUser() {
+        return currentUser.get();
+    }
+
+    /**
+     * Keeps the bound user on the primary once the current transaction commits.
+     * <p>
+     * Outside a transaction the window starts immediately.
+     */
+    public void recordWrite() {
+        String email = currentUser.get();
+        if (email == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    stickyUntil.put(email, System.nanoTime() + windowNanos);
+                }
+            });
+        } else {
+            stickyUntil.put(email, System.nanoTime() + windowNanos);
+        }
+    }
+
+    /**
+     * Checks whether the bound user has to read from the primary.
+     *
+     * @return True if the bound user wrote within the sticky window.
+     */
+    public boolean isSticky() {
+        String email = currentUser.get();
+        if (email == null) {
+            return false;
+        }
+        Long until = stickyUntil.get(email);
+        if (until == null) {
+            return false;
+        }
+        if (until - System.nanoTime() > 0) {
+            return true;
+        }
+        stickyUntil.remove(email, until);
+        return false;
+    }
+
+    /**
+     * Forgets users whose window has passed and who did not read since.
+     */
+    @Scheduled(fixedDelayString = "${tms.datasource.replica.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        long now = System.nanoTime();
+        stickyUntil.values().removeIf(until -> until - now <= 0);
+    }
+}
@@ -0,0 +1,77 @@
+package ru.viktor141.tms.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * ReplicaDataSourceConfig splits the DataSource into a primary and a read replica.
+ * <p>
+ * It is active when {@code tms.datasource.replica.url} is set. The primary pool is configured by
+ * {@code spring.datasource.*} as before; the replica pool takes its URL from
+ * {@code tms.datasource.replica.url}, its credentials from {@code tms.datasource.replica.username} and
+ * {@code password} (the primary's by default) and its pool settings from
+ * {@code tms.datasource.replica.hikari.*}. Both pools are hidden behind one ReplicaRoutingDataSource bean,
+ * so the statement proxies and JPA see a single DataSource.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "tms.datasource.replica.url")
+public class ReplicaDataSourceConfig {
+
+    /**
+     * Provides the routing DataSource over the primary and the replica pools.
+     *
+     * @param properties            The settings of the primary.
+     * @param environment           The environment holding the pool settings.
+     * @param readYourWritesTracker The tracker of recent writes per user.
+     * @param meterRegistry         The registry of the pool metrics, if any.
+     * @return A ReplicaRoutingDataSource object.
+     */
+    @Bean
+    public ReplicaRoutingDataSource dataSource(DataSourceProperties properties,
+                                               Environment environment,
+                                               ReadYourWritesTracker readYourWritesTracker,
+                                               ObjectProvider<MeterRegistry> meterRegistry) {
+        Binder binder = Binder.get(environment);
+
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setPoolName("primary");
+
+        HikariDataSource replica = new HikariDataSource();
+        binder.bind("tms.datasource.replica.hikari", Bindable.ofInstance(replica));
+        replica.setJdbcUrl(environment.getRequiredProperty("tms.datasource.replica.url"));
+        replica.setUsername(environment.getProperty("tms.datasource.replica.username", properties.determineUsername()));
+        replica.setPassword(environment.getProperty("tms.datasource.replica.password", properties.determinePassword()));
+        replica.setPoolName("replica");
+
+        meterRegistry.ifAvailable(registry -> {
+            primary.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+            replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+        });
+        return new ReplicaRoutingDataSource(primary, replica, readYourWritesTracker);
+    }
+
+    /**
+     * Makes Hibernate fetch a connection per transaction instead of per request.
+     * <p>
+     * With the open session in view, Hibernate would otherwise keep the connection of the first
+     * transaction of a request for all later ones, and a write following a read would reach the replica.
+     *
+     * @return A HibernatePropertiesCustomizer object.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer connectionPerTransactionCustomizer() {
+        return hibernateProperties -> hibernateProperties.put("hibernate.connection.handling_mode",
+                "DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION");
+    }
+}
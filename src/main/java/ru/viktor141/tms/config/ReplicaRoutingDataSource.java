@@ -0,0 +1,125 @@
+package ru.viktor141.tms.config;
+
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * ReplicaRoutingDataSource sends read-only transactions to a replica and everything else to the primary.
+ * <p>
+ * The physical connection is only fetched when the first statement runs, after the transaction manager
+ * has published whether the transaction is read-only. Statements outside transactions, read-write
+ * transactions, read-only transactions of users who wrote recently (see ReadYourWritesTracker) and reads
+ * made through {@link #readFromPrimary} use the primary. Closing this DataSource closes both pools.
+ */
+public class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+
+    /**
+     * Route represents the database a connection is fetched from.
+     */
+    public enum Route {
+        /**
+         * The primary, which takes all writes.
+         */
+        PRIMARY,
+
+        /**
+         * The replica, which serves read-only transactions.
+         */
+        REPLICA
+    }
+
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final DataSource replica;
+
+    /**
+     * Constructs a new ReplicaRoutingDataSource.
+     *
+     * @param primary               The pool of the primary.
+     * @param replica               The pool of the replica.
+     * @param readYourWritesTracker The tracker of recent writes per user.
+     */
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReadYourWritesTracker readYourWritesTracker) {
+        this.primary = primary;
+        this.replica = replica;
+        AbstractRoutingDataSource router = new AbstractRoutingDataSource() {
+            @Override
+            protected Object determineCurrentLookupKey() {
+                return route(readYourWritesTracker);
+            }
+        };
+        router.setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        router.setDefaultTargetDataSource(primary);
+        router.setLenientFallback(false);
+        router.afterPropertiesSet();
+        setTargetDataSource(router);
+        // The defaults of Hikari and PostgreSQL; declaring them spares a connection at startup
+        setDefaultAutoCommit(true);
+        setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        afterPropertiesSet();
+    }
+
+    /**
+     * Decides where the connection of the current transaction comes from.
+     *
+     * @param readYourWritesTracker The tracker of recent writes per user.
+     * @return The route of the connection.
+     */
+    static Route route(ReadYourWritesTracker readYourWritesTracker) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return Route.PRIMARY;
+        }
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            readYourWritesTracker.recordWrite();
+            return Route.PRIMARY;
+        }
+        return PRIMARY_REQUIRED.get() != null || readYourWritesTracker.isSticky() ? Route.PRIMARY : Route.REPLICA;
+    }
+
+    /**
+     * Runs a read whose read-only transactions use the primary.
+     * <p>
+     * Values loaded into a LocalCache are read this way: their evictions are sent when a change commits
+     * on the primary, so a value reloaded from a lagging replica right after it would stay cached until it
+     * expires. A transaction that already holds a connection keeps it. Without a replica this changes nothing.
+     *
+     * @param read The read.
+     * @param <T>  The type of the result.
+     * @return The result of the read.
+     */
+    public static <T> T readFromPrimary(Supplier<T> read) {
+        if (PRIMARY_REQUIRED.get() != null) {
+            return read.get();
+        }
+        PRIMARY_REQUIRED.set(Boolean.TRUE);
+        try {
+            return read.get();
+        } finally {
+            PRIMARY_REQUIRED.remove();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            closePool(replica);
+        } finally {
+            closePool(primary);
+        }
+    }
+
+    private static void closePool(DataSource dataSource) throws IOException {
+        if (dataSource instanceof Closeable closeable) {
+            closeable.close();
+        }
+    }
+}
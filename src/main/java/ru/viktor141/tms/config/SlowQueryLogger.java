@@ -0,0 +1,105 @@
+package ru.viktor141.tms.config;
+
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * SlowQueryLogger logs the SQL statements that took longer than a threshold and a sample of the others.
+ * <p>
+ * Statements at or above {@code tms.sql-trace.slow-threshold} are logged at WARN; of the faster ones,
+ * a {@code tms.sql-trace.sample-rate} fraction is logged at INFO. Each entry names the service or
+ * controller method that issued the statement, so a slow query can be traced back without a profiler.
+ * The caller is only looked up for the statements that are logged. Parameters are not logged, since
+ * they contain user data. Entries are written to the {@code ru.viktor141.tms.sql} logger.
+ */
+@Slf4j(topic = "ru.viktor141.tms.sql")
+public class SlowQueryLogger implements QueryExecutionListener {
+
+    private static final String APPLICATION_PACKAGE = "ru.viktor141.tms.";
+    private static final String CONFIG_PACKAGE = "ru.viktor141.tms.config.";
+    private static final String REPOSITORY_PACKAGE = "ru.viktor141.tms.repository.";
+
+    private final long slowThresholdMillis;
+    private final double sampleRate;
+
+    /**
+     * Constructs a new SlowQueryLogger.
+     *
+     * @param slowThreshold The minimum duration of a statement logged as slow.
+     * @param sampleRate    The fraction of faster statements that are logged, from 0 to 1.
+     */
+    public SlowQueryLogger(Duration slowThreshold, double sampleRate) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("Sample rate must be between 0 and 1");
+        }
+        this.slowThresholdMillis = slowThreshold.toMillis();
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        long elapsed = execInfo.getElapsedTime();
+        if (elapsed >= slowThresholdMillis) {
+            if (log.isWarnEnabled()) {
+                log.warn("Slow SQL {} ms in {}{}: {}", elapsed, caller(), details(execInfo), sql(queryInfoList));
+            }
+        } else if (sampleRate > 0 && log.isInfoEnabled() && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            log.info("Sampled SQL {} ms in {}{}: {}", elapsed, caller(), details(execInfo), sql(queryInfoList));
+        }
+    }
+
+    /**
+     * Finds the application method that issued the statement.
+     * <p>
+     * Repository interfaces and Spring proxies are skipped, so the result is the service, controller
+     * or scheduled method that called them.
+     *
+     * @return The class and method name, or {@code unknown} if the statement was not issued by application code.
+     */
+    static String caller() {
+        return StackWalker.getInstance().walk(frames -> frames
+                        .filter(frame -> isCaller(frame.getClassName()))
+                        .findFirst())
+                .map(frame -> simpleName(frame.getClassName()) + "." + frame.getMethodName())
+                .orElse("unknown");
+    }
+
+    private static boolean isCaller(String className) {
+        return className.startsWith(APPLICATION_PACKAGE)
+                && !className.startsWith(CONFIG_PACKAGE)
+                && !className.startsWith(REPOSITORY_PACKAGE)
+                && !className.contains("$$");
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    private static String details(ExecutionInfo execInfo) {
+        StringBuilder details = new StringBuilder();
+        if (execInfo.isBatch()) {
+            details.append(" (batch of ").append(execInfo.getBatchSize()).append(')');
+        }
+        if (!execInfo.isSuccess()) {
+            details.append(" (failed)");
+        }
+        return details.toString();
+    }
+
+    private static String sql(List<QueryInfo> queryInfoList) {
+        return queryInfoList.stream()
+                .map(QueryInfo::getQuery)
+                .collect(Collectors.joining("; "));
+    }
+}
@@ -0,0 +1,62 @@
+package ru.viktor141.tms.config;
+
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * SqlTraceConfig routes the DataSource through a proxy that reports statements to the SlowQueryLogger.
+ * <p>
+ * This replaces {@code spring.jpa.show-sql}, which printed every statement synchronously. A DataSource
+ * that is already a datasource-proxy gets the logger added to its listeners instead of a second proxy.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "tms.sql-trace.enabled", havingValue = "true", matchIfMissing = true)
+public class SqlTraceConfig {
+
+    /**
+     * Provides the SlowQueryLogger.
+     *
+     * @param slowThreshold The minimum duration of a statement logged as slow.
+     * @param sampleRate    The fraction of faster statements that are logged.
+     * @return A SlowQueryLogger object.
+     */
+    @Bean
+    public static SlowQueryLogger slowQueryLogger(@Value("${tms.sql-trace.slow-threshold:PT0.2S}") Duration slowThreshold,
+                                                  @Value("${tms.sql-trace.sample-rate:0}") double sampleRate) {
+        return new SlowQueryLogger(slowThreshold, sampleRate);
+    }
+
+    /**
+     * Wraps every DataSource bean in a proxy reporting to the SlowQueryLogger.
+     *
+     * @param slowQueryLogger The listener receiving the executed statements.
+     * @return A BeanPostProcessor object.
+     */
+    @Bean
+    public static BeanPostProcessor sqlTraceDataSourcePostProcessor(SlowQueryLogger slowQueryLogger) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof ProxyDataSource proxyDataSource) {
+                    proxyDataSource.getProxyConfig().getQueryListener().addListener(slowQueryLogger);
+                    return bean;
+                }
+                if (bean instanceof DataSource dataSource) {
+                    return ProxyDataSourceBuilder.create(dataSource)
+                            .name(beanName)
+                            .listener(slowQueryLogger)
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+}
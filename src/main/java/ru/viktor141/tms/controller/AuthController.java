@@ -20,6 +20,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import ru.viktor141.tms.config.ReadYourWritesTracker;
 import ru.viktor141.tms.dto.UserDTO;
 import ru.viktor141.tms.security.JwtTokenProvider;
 import ru.viktor141.tms.service.UserService;
@@ -39,6 +40,7 @@ public class AuthController {
     private final UserService userService;
     private final JwtTokenProvider jwtTokenProvider;
     private final AuthenticationManager authenticationManager;
+    private final ReadYourWritesTracker readYourWritesTracker;
 
     /**
      * Registers a new user.
@@ -56,6 +58,8 @@ public class AuthController {
                     @ApiResponse(responseCode = "500", description = "Internal Server Error")
             })
     public ResponseEntity<String> registerUser(@Valid @RequestBody @Parameter(description = "User object containing email and password") UserDTO userDTO) {
+        // The new user's first requests must find the user before the replica does; JwtAuthenticationFilter unbinds
+        readYourWritesTracker.bind(userDTO.getEmail());
         if (userService.emailExists(userDTO.getEmail())) {
             log.warn("Registration failed: Email already exists - {}", userDTO.getEmail());
             return new ResponseEntity<>("Email already exists", HttpStatus.BAD_REQUEST);
@@ -81,6 +85,7 @@ public class AuthController {
                     @ApiResponse(responseCode = "500", description = "Internal Server Error")
             })
     public ResponseEntity<String> loginUser(@Valid @RequestBody @Parameter(description = "User object containing email and password") UserDTO userDTO) {
+        readYourWritesTracker.bind(userDTO.getEmail());
         try {
             Authentication authentication = authenticationManager.authenticate(
                     new UsernamePasswordAuthenticationToken(userDTO.getEmail(), userDTO.getPassword())
@@ -1,25 +1,34 @@
 package ru.viktor141.tms.controller;
 
+import io.micrometer.core.annotation.Timed;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
-import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.viktor141.tms.dto.CommentDTO;
+import ru.viktor141.tms.dto.CursorPageDTO;
 import ru.viktor141.tms.dto.TaskDTO;
+import ru.viktor141.tms.exception.TaskNotFoundException;
 import ru.viktor141.tms.model.User;
+import ru.viktor141.tms.service.CommentExportService;
+import ru.viktor141.tms.service.CommentIngestionBuffer;
 import ru.viktor141.tms.service.CommentService;
+import ru.viktor141.tms.service.IdempotencyService;
 import ru.viktor141.tms.service.TaskService;
 import ru.viktor141.tms.utils.PageUtils;
 import ru.viktor141.tms.utils.UserAuthoritiesUtils;
@@ -35,16 +44,23 @@ import java.util.Optional;
 @RequestMapping("/api/tasks/{taskId}/comments")
 @RequiredArgsConstructor
 @Tag(name = "Comment Management", description = "Endpoints for managing comments.")
+@Timed(value = "tms.controller", histogram = true)
 public class CommentController {
 
+    private static final int MAX_CURSOR_PAGE_SIZE = 1000;
+
     private final CommentService commentService;
     private final TaskService taskService;
+    private final CommentIngestionBuffer commentIngestionBuffer;
+    private final IdempotencyService idempotencyService;
+    private final CommentExportService commentExportService;
 
     /**
      * Adds a new comment to a specific task.
      *
      * @param taskId        The ID of the task to which the comment will be added.
      * @param commentDTO    The comment object containing the text to be saved.
+     * @param idempotencyKey The optional key making retries of the request safe.
      * @param authentication The authentication object for user details.
      * @return A ResponseEntity containing the created comment or an error message.
      */
@@ -61,20 +77,25 @@ public class CommentController {
     public ResponseEntity<CommentDTO> addCommentToTask(
             @Parameter(description = "ID of the task") @PathVariable Long taskId,
             @Valid @RequestBody @Parameter(description = "Comment object containing text") CommentDTO commentDTO,
+            @Parameter(description = "Key making retries of the request safe") @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             Authentication authentication) {
         UserDetails userDetails = UserAuthoritiesUtils.getUserDetails(authentication);
-        Optional<TaskDTO> task = taskService.findTaskById(taskId);
+        String scope = "POST /api/tasks/" + taskId + "/comments";
 
-        if (task.isEmpty()) {
-            throw new EntityNotFoundException("Task not found with id: " + taskId);
-        }
+        return idempotencyService.execute(idempotencyKey, ((User) userDetails).getId(), scope, commentDTO, CommentDTO.class, () -> {
+            Optional<TaskDTO> task = taskService.findTaskHeaderById(taskId);
 
-        if (!UserAuthoritiesUtils.isAdminOrAuthorOrAssigned(task.get(), userDetails)) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
-        }
+            if (task.isEmpty()) {
+                throw new TaskNotFoundException(taskId);
+            }
+
+            if (!UserAuthoritiesUtils.isAdminOrAuthorOrAssigned(task.get(), userDetails)) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).<CommentDTO>build();
+            }
 
-        CommentDTO newCommentDTO = commentService.addCommentToTask(taskId, commentDTO, (User) userDetails);
-        return new ResponseEntity<>(newCommentDTO, HttpStatus.CREATED);
+            CommentDTO newCommentDTO = commentIngestionBuffer.submit(taskId, commentDTO, (User) userDetails);
+            return new ResponseEntity<>(newCommentDTO, HttpStatus.CREATED);
+        });
     }
 
     /**
@@ -102,4 +123,72 @@ public class CommentController {
         Page<CommentDTO> comments = commentService.getCommentsByTask(taskId, pageable);
         return ResponseEntity.ok(comments);
     }
+
+    /**
+     * Retrieves comments for a specific task using cursor-based pagination.
+     *
+     * @param taskId The ID of the task for which comments are retrieved.
+     * @param cursor The cursor returned with the previous page (optional).
+     * @param size   The page size (default: 10, maximum: 1000).
+     * @return A ResponseEntity containing a page of comments and the cursor of the next page.
+     */
+    @GetMapping("/cursor")
+    @Operation(summary = "Get comments for a task by cursor",
+            description = "Retrieves comments for the specified task in creation order, continuing after the given cursor.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Comments retrieved successfully",
+                            content = @Content(schema = @Schema(implementation = CursorPageDTO.class))),
+                    @ApiResponse(responseCode = "400", description = "Bad request - Malformed cursor or invalid page size"),
+                    @ApiResponse(responseCode = "404", description = "Task not found"),
+                    @ApiResponse(responseCode = "500", description = "Internal Server Error")
+            })
+    public ResponseEntity<CursorPageDTO<CommentDTO>> getCommentsByTaskCursor(
+            @Parameter(description = "ID of the task") @PathVariable Long taskId,
+            @Parameter(description = "Cursor of the next page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size") @RequestParam(defaultValue = "10") int size) {
+        if (size < 1 || size > MAX_CURSOR_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_CURSOR_PAGE_SIZE);
+        }
+        return ResponseEntity.ok(commentService.getCommentsByTask(taskId, cursor, size));
+    }
+
+    /**
+     * Exports the full comment history of a task as a stream.
+     *
+     * @param taskId         The ID of the task for which comments are exported.
+     * @param format         The output format, ndjson or csv (default: ndjson).
+     * @param gzip           Whether the output is gzip-compressed (default: false).
+     * @param authentication The authentication object for user details.
+     * @return A ResponseEntity streaming the comments or an error message.
+     */
+    @GetMapping("/export")
+    @Operation(summary = "Export comments of a task",
+            description = "Streams all comments of the specified task in creation order as NDJSON or CSV, optionally gzip-compressed.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Comments exported successfully"),
+                    @ApiResponse(responseCode = "400", description = "Bad request - Unsupported format"),
+                    @ApiResponse(responseCode = "404", description = "Task not found"),
+                    @ApiResponse(responseCode = "403", description = "Forbidden - User is not authorized to view the task"),
+                    @ApiResponse(responseCode = "500", description = "Internal Server Error")
+            })
+    public ResponseEntity<StreamingResponseBody> exportComments(
+            @Parameter(description = "ID of the task") @PathVariable Long taskId,
+            @Parameter(description = "Output format: ndjson or csv") @RequestParam(defaultValue = "ndjson") String format,
+            @Parameter(description = "Compress the output with gzip") @RequestParam(defaultValue = "false") boolean gzip,
+            Authentication authentication) {
+        UserDetails userDetails = UserAuthoritiesUtils.getUserDetails(authentication);
+        CommentExportService.Format exportFormat = CommentExportService.Format.of(format);
+        TaskDTO task = taskService.findTaskHeaderById(taskId)
+                .orElseThrow(() -> new TaskNotFoundException(taskId));
+
+        if (!UserAuthoritiesUtils.isAdminOrAuthorOrAssigned(task, userDetails)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        String filename = "task-" + taskId + "-comments." + exportFormat.getExtension() + (gzip ? ".gz" : "");
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(gzip ? MediaType.valueOf("application/gzip") : exportFormat.toMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString());
+        return response.body(out -> commentExportService.export(taskId, exportFormat, gzip, out));
+    }
 }
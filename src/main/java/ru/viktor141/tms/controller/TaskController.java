@@ -1,31 +1,39 @@
 package ru.viktor141.tms.controller;
 
+import io.micrometer.core.annotation.Timed;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
-import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.viktor141.tms.dto.TaskChangesDTO;
 import ru.viktor141.tms.dto.TaskDTO;
+import ru.viktor141.tms.exception.TaskNotFoundException;
 import ru.viktor141.tms.model.Task;
 import ru.viktor141.tms.model.User;
+import ru.viktor141.tms.service.IdempotencyService;
+import ru.viktor141.tms.service.TaskChangeLogService;
+import ru.viktor141.tms.service.TaskEventBroadcaster;
 import ru.viktor141.tms.service.TaskService;
 import ru.viktor141.tms.utils.PageUtils;
 import ru.viktor141.tms.utils.UserAuthoritiesUtils;
 
 import java.util.Arrays;
 import java.util.Optional;
+import java.util.Set;
 
 
 /**
@@ -38,14 +46,22 @@ import java.util.Optional;
 @RequestMapping("/api/tasks")
 @RequiredArgsConstructor
 @Tag(name = "Task Management", description = "Endpoints for managing tasks.")
+@Timed(value = "tms.controller", histogram = true)
 public class TaskController {
 
+    private static final int MAX_SUBSCRIBED_TASKS = 100;
+    private static final int MAX_CHANGES_LIMIT = 1000;
+
     private final TaskService taskService;
+    private final IdempotencyService idempotencyService;
+    private final TaskEventBroadcaster taskEventBroadcaster;
+    private final TaskChangeLogService taskChangeLogService;
 
     /**
      * Creates a new task.
      *
      * @param task           The task object containing details to be saved.
+     * @param idempotencyKey The optional key making retries of the request safe.
      * @param authentication The authentication object for user details.
      * @return A ResponseEntity containing the created task or an error message.
      */
@@ -58,18 +74,24 @@ public class TaskController {
                     @ApiResponse(responseCode = "403", description = "Forbidden - User is not an admin and did not specify an author"),
                     @ApiResponse(responseCode = "500", description = "Internal Server Error")
             })
-    public ResponseEntity<TaskDTO> createTask(@Valid @RequestBody Task task, Authentication authentication) {
+    public ResponseEntity<TaskDTO> createTask(
+            @Valid @RequestBody Task task,
+            @Parameter(description = "Key making retries of the request safe") @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            Authentication authentication) {
         UserDetails userDetails = UserAuthoritiesUtils.getUserDetails(authentication);
-        if (task.getAuthor() == null) {
-            task.setAuthor((User) userDetails);
-        }
-        TaskDTO newTaskDTO = taskService.saveTask(task);
-        return new ResponseEntity<>(newTaskDTO, HttpStatus.CREATED);
+        return idempotencyService.execute(idempotencyKey, ((User) userDetails).getId(), "POST /api/tasks/create", task, TaskDTO.class, () -> {
+            if (task.getAuthor() == null) {
+                task.setAuthor((User) userDetails);
+            }
+            TaskDTO newTaskDTO = taskService.saveTask(task);
+            return new ResponseEntity<>(newTaskDTO, HttpStatus.CREATED);
+        });
     }
 
     /**
      * Retrieves all tasks based on user role (admin or regular user).
      *
+     * @param includeArchived Whether archived tasks are included (default: false).
      * @param authentication The authentication object for user details.
      * @return A ResponseEntity containing a list of tasks or an error message.
      */
@@ -81,13 +103,15 @@ public class TaskController {
                     @ApiResponse(responseCode = "403", description = "Forbidden - User is not authorized to view all tasks"),
                     @ApiResponse(responseCode = "500", description = "Internal Server Error")
             })
-    public ResponseEntity<Page<TaskDTO>> getAllTasks(Authentication authentication) {
+    public ResponseEntity<Page<TaskDTO>> getAllTasks(
+            @Parameter(description = "Include archived tasks") @RequestParam(defaultValue = "false") boolean includeArchived,
+            Authentication authentication) {
         UserDetails userDetails = UserAuthoritiesUtils.getUserDetails(authentication);
         if (UserAuthoritiesUtils.isAdmin(userDetails)) {
-            return ResponseEntity.ok(taskService.findAllTasks(Pageable.unpaged()));
+            return ResponseEntity.ok(taskService.findAllTasks(Pageable.unpaged(), includeArchived));
         }
         long id = ((User) userDetails).getId();
-        Page<TaskDTO> tasks = taskService.findTasksByAuthorOrAssignee(id, id, Pageable.unpaged());
+        Page<TaskDTO> tasks = taskService.findTasksByAuthorOrAssignee(id, id, Pageable.unpaged(), includeArchived);
         return ResponseEntity.ok(tasks);
     }
 
@@ -99,6 +123,7 @@ public class TaskController {
      * @param page           The page number (default: 0).
      * @param size           The page size (default: 10).
      * @param sort           The sort parameters (default: id,desc).
+     * @param includeArchived Whether archived tasks are included (default: false).
      * @param authentication The authentication object for user details.
      * @return A ResponseEntity containing a page of tasks or an error message.
      */
@@ -116,6 +141,7 @@ public class TaskController {
             @Parameter(description = "Page number") @RequestParam(defaultValue = "0") int page,
             @Parameter(description = "Page size") @RequestParam(defaultValue = "10") int size,
             @Parameter(description = "Sort parameters") @RequestParam(defaultValue = "id,desc") String[] sort,
+            @Parameter(description = "Include archived tasks") @RequestParam(defaultValue = "false") boolean includeArchived,
             Authentication authentication) {
         UserDetails userDetails = UserAuthoritiesUtils.getUserDetails(authentication);
         long id = ((User) userDetails).getId();
@@ -129,15 +155,88 @@ public class TaskController {
             }
         }
         Pageable pageable = PageUtils.createPageable(page, size, sort);
-        Page<TaskDTO> tasks = taskService.findTasksByAuthorOrAssignee(authorId, assigneeId, pageable);
+        Page<TaskDTO> tasks = taskService.findTasksByAuthorOrAssignee(authorId, assigneeId, pageable, includeArchived);
         return ResponseEntity.ok(tasks);
     }
 
 
+    /**
+     * Retrieves the changes of the user's tasks since a sync cursor.
+     *
+     * @param since          The cursor returned by the previous sync (optional).
+     * @param limit          The maximum number of changes, tasks or comments to read (default: 500).
+     * @param authentication The authentication object for user details.
+     * @return A ResponseEntity containing the changes or an error message.
+     */
+    @GetMapping("/changes")
+    @Operation(summary = "Get task changes since a cursor",
+            description = "Returns the tasks and comments created or updated since the cursor and the IDs of tasks that were deleted " +
+                    "or are no longer visible. Without a cursor, or with an expired one, a full snapshot of the tasks and their comments " +
+                    "is returned in pages, the first one with 'reset' set; 'hasMore' asks to continue right away.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Changes retrieved successfully", content = @Content(schema = @Schema(implementation = TaskChangesDTO.class))),
+                    @ApiResponse(responseCode = "400", description = "Bad request - Invalid cursor or limit"),
+                    @ApiResponse(responseCode = "500", description = "Internal Server Error")
+            })
+    public ResponseEntity<TaskChangesDTO> getTaskChanges(
+            @Parameter(description = "Cursor returned by the previous sync") @RequestParam(required = false) String since,
+            @Parameter(description = "Maximum number of changes") @RequestParam(defaultValue = "500") int limit,
+            Authentication authentication) {
+        if (limit < 1 || limit > MAX_CHANGES_LIMIT) {
+            return ResponseEntity.badRequest().build();
+        }
+        UserDetails userDetails = UserAuthoritiesUtils.getUserDetails(authentication);
+        return ResponseEntity.ok(taskChangeLogService.getChanges(since, limit, userDetails));
+    }
+
+    /**
+     * Subscribes to a Server-Sent Events stream of task and comment changes.
+     * <p>
+     * Without task IDs the stream carries changes of the tasks the user authored or is assigned to.
+     *
+     * @param taskIds        The IDs of the tasks to follow (optional).
+     * @param authentication The authentication object for user details.
+     * @return A ResponseEntity containing the event stream or an error message.
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Subscribe to task changes",
+            description = "Streams changes of the user's tasks, or of the given tasks, as Server-Sent Events. " +
+                    "A 'resync' event means that events were dropped and the client should reload its data. " +
+                    "A 'TASK_REMOVED' event carrying only the task ID means the user can no longer see the task.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Subscription opened"),
+                    @ApiResponse(responseCode = "400", description = "Bad request - Too many task IDs"),
+                    @ApiResponse(responseCode = "404", description = "Task not found"),
+                    @ApiResponse(responseCode = "403", description = "Forbidden - User is not authorized to view a requested task"),
+                    @ApiResponse(responseCode = "500", description = "Internal Server Error")
+            })
+    public ResponseEntity<SseEmitter> subscribeToTaskEvents(
+            @Parameter(description = "IDs of the tasks to follow") @RequestParam(required = false) Set<Long> taskIds,
+            Authentication authentication) {
+        UserDetails userDetails = UserAuthoritiesUtils.getUserDetails(authentication);
+        if (taskIds == null || taskIds.isEmpty()) {
+            return ResponseEntity.ok(taskEventBroadcaster.subscribeToUser(((User) userDetails).getId()));
+        }
+        if (taskIds.size() > MAX_SUBSCRIBED_TASKS) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        for (Long taskId : taskIds) {
+            TaskDTO task = taskService.findTaskHeaderById(taskId)
+                    .orElseThrow(() -> new TaskNotFoundException(taskId));
+            if (!UserAuthoritiesUtils.isAdminOrAuthorOrAssigned(task, userDetails)) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+            }
+        }
+        return ResponseEntity.ok(taskEventBroadcaster.subscribeToTasks(Set.copyOf(taskIds),
+                ((User) userDetails).getId(), UserAuthoritiesUtils.isAdmin(userDetails)));
+    }
+
     /**
      * Retrieves a specific task by its ID.
      *
      * @param id             The ID of the task to retrieve.
+     * @param includeArchived Whether the archive is searched as well (default: false).
      * @param authentication The authentication object for user details.
      * @return A ResponseEntity containing the task or an error message.
      */
@@ -150,12 +249,15 @@ public class TaskController {
                     @ApiResponse(responseCode = "403", description = "Forbidden - User is not authorized to view the task"),
                     @ApiResponse(responseCode = "500", description = "Internal Server Error")
             })
-    public ResponseEntity<TaskDTO> getTaskById(@PathVariable Long id, Authentication authentication) {
+    public ResponseEntity<TaskDTO> getTaskById(
+            @PathVariable Long id,
+            @Parameter(description = "Include archived tasks") @RequestParam(defaultValue = "false") boolean includeArchived,
+            Authentication authentication) {
         UserDetails userDetails = UserAuthoritiesUtils.getUserDetails(authentication);
-        Optional<TaskDTO> task = taskService.findTaskById(id);
+        Optional<TaskDTO> task = taskService.findTaskById(id, includeArchived);
 
         if (task.isEmpty()) {
-            throw new EntityNotFoundException("Task not found");
+            throw new TaskNotFoundException(id);
         }
 
         if (!UserAuthoritiesUtils.isAdminOrAuthorOrAssigned(task.get(), userDetails)) {
@@ -206,10 +308,10 @@ public class TaskController {
             })
     public ResponseEntity<Void> deleteTask(@PathVariable Long id, Authentication authentication) {
         UserDetails userDetails = UserAuthoritiesUtils.getUserDetails(authentication);
-        Optional<TaskDTO> task = taskService.findTaskById(id);
+        Optional<TaskDTO> task = taskService.findTaskHeaderById(id);
 
         if (task.isEmpty()) {
-            throw new EntityNotFoundException("Task not found");
+            throw new TaskNotFoundException(id);
         }
 
         if (!UserAuthoritiesUtils.isAdmin(userDetails) && !UserAuthoritiesUtils.isAuthor(task.get(), userDetails)) {
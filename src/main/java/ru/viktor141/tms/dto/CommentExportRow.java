@@ -0,0 +1,17 @@
+package ru.viktor141.tms.dto;
+
+import java.util.Date;
+
+/**
+ * CommentExportRow represents one comment in an export of a task's comment history.
+ * <p>
+ * This record is filled directly by the export query, so exported comments never become managed entities.
+ *
+ * @param id          The ID of the comment.
+ * @param createdDate The creation date of the comment.
+ * @param authorId    The ID of the comment author.
+ * @param authorEmail The email of the comment author.
+ * @param text        The text of the comment.
+ */
+public record CommentExportRow(Long id, Date createdDate, Long authorId, String authorEmail, String text) {
+}
@@ -0,0 +1,30 @@
+package ru.viktor141.tms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * CursorPageDTO represents one page of a cursor-based listing.
+ * <p>
+ * This class is used to return a page of results together with the cursor of the next page.
+ *
+ * @param <T> The type of the page elements.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageDTO<T> {
+
+    /**
+     * The elements of the page.
+     */
+    private List<T> content;
+
+    /**
+     * The cursor of the next page, or null if this is the last page.
+     */
+    private String nextCursor;
+}
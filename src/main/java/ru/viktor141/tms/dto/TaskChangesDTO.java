@@ -0,0 +1,49 @@
+package ru.viktor141.tms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * TaskChangesDTO represents the changes of the caller's tasks since a sync cursor.
+ * <p>
+ * This class is used to return upserted tasks and comments, tombstones of tasks the caller can
+ * no longer see, and the cursor of the next sync.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskChangesDTO {
+
+    /**
+     * The current state of the tasks created or updated since the cursor, or a page of the snapshot tasks.
+     */
+    private List<TaskDTO> tasks;
+
+    /**
+     * The IDs of the tasks deleted or no longer visible since the cursor.
+     */
+    private List<Long> deletedTaskIds;
+
+    /**
+     * The comments added since the cursor to the tasks still visible, or a page of the snapshot comments.
+     */
+    private List<CommentDTO> comments;
+
+    /**
+     * The cursor to pass with the next sync.
+     */
+    private String cursor;
+
+    /**
+     * Whether more changes are available right away after this cursor.
+     */
+    private boolean hasMore;
+
+    /**
+     * Whether this is the first page of a full snapshot that replaces all local data instead of a delta.
+     */
+    private boolean reset;
+}
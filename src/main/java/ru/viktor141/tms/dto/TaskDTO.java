@@ -4,6 +4,8 @@ import lombok.*;
 import ru.viktor141.tms.model.Task;
 import ru.viktor141.tms.model.User;
 
+import java.util.Date;
+
 /**
  * TaskDTO represents the data transfer object for a task.
  * <p>
@@ -48,4 +50,24 @@ public class TaskDTO {
      * The user to whom the task is assigned.
      */
     private User assignee;
+
+    /**
+     * The number of comments on the task.
+     */
+    private Integer commentCount;
+
+    /**
+     * The ID of the latest comment on the task.
+     */
+    private Long lastCommentId;
+
+    /**
+     * The beginning of the latest comment on the task.
+     */
+    private String lastCommentPreview;
+
+    /**
+     * The creation date of the latest comment on the task.
+     */
+    private Date lastCommentDate;
 }
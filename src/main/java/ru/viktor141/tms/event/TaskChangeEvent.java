@@ -0,0 +1,171 @@
+package ru.viktor141.tms.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import ru.viktor141.tms.dto.CommentDTO;
+import ru.viktor141.tms.dto.TaskDTO;
+import ru.viktor141.tms.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * TaskChangeEvent describes a change to a task or to its comments.
+ * <p>
+ * Services publish this event inside the transaction making the change; listeners decide whether
+ * to act before or after the transaction commits.
+ */
+@Getter
+@AllArgsConstructor
+public class TaskChangeEvent {
+
+    /**
+     * The kind of change.
+     */
+    private final Type type;
+
+    /**
+     * The ID of the changed task.
+     */
+    private final Long taskId;
+
+    /**
+     * The ID of the task author at the time of the change.
+     */
+    private final Long authorId;
+
+    /**
+     * The ID of the task assignee at the time of the change, or null if unassigned.
+     */
+    private final Long assigneeId;
+
+    /**
+     * The ID of the task author before the change, if it differs from the current one.
+     */
+    private final Long previousAuthorId;
+
+    /**
+     * The ID of the task assignee before the change, if it differs from the current one.
+     */
+    private final Long previousAssigneeId;
+
+    /**
+     * The changed task or comment, or null for deletions.
+     */
+    private final Object payload;
+
+    /**
+     * Creates an event for a change to the given task that kept its author and assignee.
+     *
+     * @param type The kind of change.
+     * @param task The changed task.
+     * @return A TaskChangeEvent object.
+     */
+    public static TaskChangeEvent ofTask(Type type, TaskDTO task) {
+        return ofTask(type, task, null, null);
+    }
+
+    /**
+     * Creates an event for a change to the given task.
+     *
+     * @param type               The kind of change.
+     * @param task               The changed task.
+     * @param previousAuthorId   The ID of the author before the change.
+     * @param previousAssigneeId The ID of the assignee before the change.
+     * @return A TaskChangeEvent object.
+     */
+    public static TaskChangeEvent ofTask(Type type, TaskDTO task, Long previousAuthorId, Long previousAssigneeId) {
+        Long authorId = idOf(task.getAuthor());
+        Long assigneeId = idOf(task.getAssignee());
+        return new TaskChangeEvent(type, task.getId(), authorId, assigneeId,
+                Objects.equals(previousAuthorId, authorId) ? null : previousAuthorId,
+                Objects.equals(previousAssigneeId, assigneeId) ? null : previousAssigneeId,
+                task);
+    }
+
+    /**
+     * Creates an event for a deleted task.
+     *
+     * @param taskId     The ID of the deleted task.
+     * @param authorId   The ID of the task author.
+     * @param assigneeId The ID of the task assignee, or null if unassigned.
+     * @return A TaskChangeEvent object.
+     */
+    public static TaskChangeEvent ofDeletedTask(Long taskId, Long authorId, Long assigneeId) {
+        return new TaskChangeEvent(Type.TASK_DELETED, taskId, authorId, assigneeId, null, null, null);
+    }
+
+    /**
+     * Creates an event telling a user that a task is no longer visible to them.
+     * <p>
+     * The event carries only the task ID, so nothing about the current state of the task is revealed.
+     *
+     * @param taskId The ID of the task.
+     * @return A TaskChangeEvent object.
+     */
+    public static TaskChangeEvent ofRemovedTask(Long taskId) {
+        return new TaskChangeEvent(Type.TASK_REMOVED, taskId, null, null, null, null, null);
+    }
+
+    /**
+     * Creates an event for a comment added to a task.
+     *
+     * @param comment    The added comment.
+     * @param authorId   The ID of the task author.
+     * @param assigneeId The ID of the task assignee, or null if unassigned.
+     * @return A TaskChangeEvent object.
+     */
+    public static TaskChangeEvent ofComment(CommentDTO comment, Long authorId, Long assigneeId) {
+        return new TaskChangeEvent(Type.COMMENT_ADDED, comment.getTaskId(), authorId, assigneeId, null, null, comment);
+    }
+
+    /**
+     * Returns the IDs of the users who could see the task before the change but no longer can.
+     *
+     * @return A list of user IDs.
+     */
+    public List<Long> getFormerOwnerIds() {
+        List<Long> former = new ArrayList<>(2);
+        for (Long id : new Long[]{previousAuthorId, previousAssigneeId}) {
+            if (id != null && !id.equals(authorId) && !id.equals(assigneeId) && !former.contains(id)) {
+                former.add(id);
+            }
+        }
+        return former;
+    }
+
+    private static Long idOf(User user) {
+        return user == null ? null : user.getId();
+    }
+
+    /**
+     * Type represents the kinds of changes.
+     */
+    public enum Type {
+        /**
+         * A task was created.
+         */
+        TASK_CREATED,
+
+        /**
+         * A task was updated.
+         */
+        TASK_UPDATED,
+
+        /**
+         * A task was deleted.
+         */
+        TASK_DELETED,
+
+        /**
+         * A comment was added to a task.
+         */
+        COMMENT_ADDED,
+
+        /**
+         * A task is no longer visible to the receiving user.
+         */
+        TASK_REMOVED;
+    }
+}
@@ -5,11 +5,10 @@ import lombok.Getter;
 import lombok.Setter;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.ErrorResponse;
-import org.springframework.web.ErrorResponseException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.servlet.NoHandlerFoundException;
+import ru.viktor141.tms.utils.EnvironmentUtils;
 
 import javax.naming.NoPermissionException;
 import java.time.LocalDateTime;
@@ -22,8 +21,6 @@ import java.time.LocalDateTime;
 @ControllerAdvice
 public class GlobalExceptionHandler {
 
-    private static final String DEVELOPMENT_MODE = "development";
-
     /**
      * Handles NoHandlerFoundException.
      *
@@ -46,6 +43,28 @@ public class GlobalExceptionHandler {
         return buildErrorResponse(HttpStatus.BAD_REQUEST, "Invalid input: " + ex.getMessage(), ex);
     }
 
+    /**
+     * Handles IdempotencyKeyReusedException.
+     *
+     * @param ex The exception object.
+     * @return A ResponseEntity with a 422 status code.
+     */
+    @ExceptionHandler(value = {IdempotencyKeyReusedException.class})
+    protected ResponseEntity<ResponseError> handleIdempotencyKeyReusedException(IdempotencyKeyReusedException ex) {
+        return buildErrorResponse(HttpStatus.UNPROCESSABLE_ENTITY, ex.getMessage(), ex);
+    }
+
+    /**
+     * Handles IdempotentRequestInProgressException.
+     *
+     * @param ex The exception object.
+     * @return A ResponseEntity with a 409 status code.
+     */
+    @ExceptionHandler(value = {IdempotentRequestInProgressException.class})
+    protected ResponseEntity<ResponseError> handleIdempotentRequestInProgressException(IdempotentRequestInProgressException ex) {
+        return buildErrorResponse(HttpStatus.CONFLICT, ex.getMessage(), ex);
+    }
+
     /**
      * Handles generic exceptions.
      *
@@ -75,23 +94,19 @@ public class GlobalExceptionHandler {
      * @return A ResponseEntity with a 404 status code.
      */
     @ExceptionHandler(value = {EntityNotFoundException.class})
-    public ResponseEntity<ErrorResponse> handleResourceNotFoundException(EntityNotFoundException ex) {
-        ErrorResponse errorResponse = new ErrorResponseException(HttpStatus.NOT_FOUND, ex);
-        return new ResponseEntity<>(errorResponse, HttpStatus.NOT_FOUND);
+    public ResponseEntity<ResponseError> handleResourceNotFoundException(EntityNotFoundException ex) {
+        return buildErrorResponse(HttpStatus.NOT_FOUND, ex.getMessage(), ex);
     }
 
     private ResponseEntity<ResponseError> buildErrorResponse(HttpStatus status, String message, Exception ex) {
+        // Copying the stack trace is costly, so it is only done in development mode, where it is returned
         ResponseError responseError = new ResponseError(
                 LocalDateTime.now(),
                 status.value(),
                 message,
-                ex.getStackTrace()
+                EnvironmentUtils.isDevelopmentMode() ? ex.getStackTrace() : null
         );
 
-        if (!DEVELOPMENT_MODE.equals(System.getenv("APP_ENV"))) {
-            responseError.setStackTrace(null); // Remove stack trace in production
-        }
-
         return new ResponseEntity<>(responseError, status);
     }
 
@@ -0,0 +1,24 @@
+package ru.viktor141.tms.exception;
+
+import java.io.Serial;
+
+/**
+ * IdempotencyKeyReusedException signals that an idempotency key was sent again with a different request.
+ * <p>
+ * Replaying the response of the first request would hide that the second one was never carried out,
+ * so such a request is rejected instead.
+ */
+public class IdempotencyKeyReusedException extends RuntimeException {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructs a new IdempotencyKeyReusedException.
+     *
+     * @param header The name of the header carrying the key.
+     */
+    public IdempotencyKeyReusedException(String header) {
+        super(header + " was already used for a different request");
+    }
+}
@@ -0,0 +1,24 @@
+package ru.viktor141.tms.exception;
+
+import java.io.Serial;
+
+/**
+ * IdempotentRequestInProgressException signals that a request with the same idempotency key is still running.
+ * <p>
+ * The retry waited for the first request to finish, possibly on another instance, and gave up. The
+ * client can retry again later with the same key.
+ */
+public class IdempotentRequestInProgressException extends RuntimeException {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructs a new IdempotentRequestInProgressException.
+     *
+     * @param header The name of the header carrying the key.
+     */
+    public IdempotentRequestInProgressException(String header) {
+        super("A request with the same " + header + " is still in progress");
+    }
+}
@@ -0,0 +1,33 @@
+package ru.viktor141.tms.exception;
+
+import jakarta.persistence.EntityNotFoundException;
+import ru.viktor141.tms.utils.EnvironmentUtils;
+
+import java.io.Serial;
+
+/**
+ * TaskNotFoundException signals that a requested task does not exist.
+ * <p>
+ * A missing task is an expected outcome: clients probing IDs can cause thousands of them a second,
+ * and the stack trace is never shown outside development mode. Outside development mode the
+ * exception is therefore created without a stack trace, which is most of its cost.
+ */
+public class TaskNotFoundException extends EntityNotFoundException {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructs a new TaskNotFoundException.
+     *
+     * @param taskId The ID of the missing task.
+     */
+    public TaskNotFoundException(Long taskId) {
+        super("Task not found with id: " + taskId);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return EnvironmentUtils.isDevelopmentMode() ? super.fillInStackTrace() : this;
+    }
+}
@@ -0,0 +1,57 @@
+package ru.viktor141.tms.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+/**
+ * ArchivedComment represents a comment of an archived task.
+ * <p>
+ * This entity keeps the original comment and task identifiers.
+ */
+@Entity
+@Table(name = "comments_archive", indexes = {
+        @Index(name = "idx_comments_archive_task", columnList = "task_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivedComment {
+
+    /**
+     * The identifier of the comment, copied from the active table.
+     */
+    @Id
+    private Long id;
+
+    /**
+     * The text content of the comment.
+     */
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(columnDefinition = "bytea")
+    private String text;
+
+    /**
+     * The user who authored the comment.
+     */
+    @ManyToOne
+    @JoinColumn(name = "author_id", nullable = false)
+    private User author;
+
+    /**
+     * The ID of the archived task to which the comment is associated.
+     */
+    @Column(name = "task_id", nullable = false)
+    private Long taskId;
+
+    /**
+     * The creation date of the comment.
+     */
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date createdDate;
+}
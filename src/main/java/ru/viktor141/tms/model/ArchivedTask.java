@@ -0,0 +1,82 @@
+package ru.viktor141.tms.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+/**
+ * ArchivedTask represents a completed task moved out of the active tasks table.
+ * <p>
+ * This entity keeps the original task identifier, so archived tasks stay reachable by the same ID.
+ */
+@Entity
+@Table(name = "tasks_archive", indexes = {
+        @Index(name = "idx_tasks_archive_author", columnList = "author_id"),
+        @Index(name = "idx_tasks_archive_assignee", columnList = "assignee_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivedTask {
+
+    /**
+     * The identifier of the task, copied from the active table.
+     */
+    @Id
+    private Long id;
+
+    /**
+     * The title of the task.
+     */
+    private String title;
+
+    /**
+     * The description of the task.
+     */
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(columnDefinition = "bytea")
+    private String description;
+
+    /**
+     * The status of the task.
+     */
+    @Enumerated(EnumType.STRING)
+    private Task.Status status;
+
+    /**
+     * The priority level of the task.
+     */
+    @Enumerated(EnumType.STRING)
+    private Task.Priority priority;
+
+    /**
+     * The user who created the task.
+     */
+    @ManyToOne
+    @JoinColumn(name = "author_id", nullable = false)
+    private User author;
+
+    /**
+     * The user to whom the task is assigned.
+     */
+    @ManyToOne
+    @JoinColumn(name = "assignee_id")
+    private User assignee;
+
+    /**
+     * The date when the task was completed.
+     */
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date completedDate;
+
+    /**
+     * The date when the task was archived.
+     */
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date archivedDate;
+}
@@ -22,7 +22,9 @@ import java.util.Date;
         property = "id"
 )
 @Entity
-@Table(name = "comments")
+@Table(name = "comments", indexes = {
+        @Index(name = "idx_comments_task_created_id", columnList = "task_id, created_date, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -41,6 +43,8 @@ public class Comment {
      */
     @NotNull
     @Size(max = 65536, message = "Comment too long")
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(columnDefinition = "bytea")
     private String text;
 
     /**
@@ -53,7 +57,7 @@ public class Comment {
     /**
      * The task to which the comment is associated.
      */
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "task_id", nullable = false)
     private Task task;
 
@@ -0,0 +1,81 @@
+package ru.viktor141.tms.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * CompressedTextConverter stores large text attributes as optionally compressed bytea values.
+ * <p>
+ * Texts whose UTF-8 form reaches the threshold are stored gzip-compressed; shorter texts are
+ * stored as plain UTF-8. Gzip data starts with the bytes 0x1f 0x8b, which never start valid
+ * UTF-8, so both forms, including rows written before compression was enabled, are read back
+ * without a marker column.
+ */
+@Component
+@Converter
+public class CompressedTextConverter implements AttributeConverter<String, byte[]> {
+
+    private static final int GZIP_MAGIC_FIRST = 0x1f;
+    private static final int GZIP_MAGIC_SECOND = 0x8b;
+
+    private final int thresholdBytes;
+
+    /**
+     * Constructs a new CompressedTextConverter.
+     *
+     * @param thresholdBytes The minimum UTF-8 size of a compressed text, or 0 to disable compression.
+     */
+    public CompressedTextConverter(@Value("${tms.text-compression.threshold-bytes:2048}") int thresholdBytes) {
+        this.thresholdBytes = thresholdBytes;
+    }
+
+    @Override
+    public byte[] convertToDatabaseColumn(String attribute) {
+        if (attribute == null) {
+            return null;
+        }
+        byte[] raw = attribute.getBytes(StandardCharsets.UTF_8);
+        if (thresholdBytes <= 0 || raw.length < thresholdBytes) {
+            return raw;
+        }
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(raw.length / 2);
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(raw);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to compress text", e);
+        }
+        // Incompressible text is kept as is instead of growing by the gzip overhead
+        return buffer.size() < raw.length ? buffer.toByteArray() : raw;
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] dbData) {
+        if (dbData == null) {
+            return null;
+        }
+        if (!isCompressed(dbData)) {
+            return new String(dbData, StandardCharsets.UTF_8);
+        }
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(dbData))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to decompress text", e);
+        }
+    }
+
+    private static boolean isCompressed(byte[] data) {
+        return data.length >= 2 && (data[0] & 0xff) == GZIP_MAGIC_FIRST && (data[1] & 0xff) == GZIP_MAGIC_SECOND;
+    }
+}
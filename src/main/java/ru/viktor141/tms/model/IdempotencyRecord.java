@@ -0,0 +1,55 @@
+package ru.viktor141.tms.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+/**
+ * IdempotencyRecord stores the response of a request made with an Idempotency-Key header.
+ * <p>
+ * This entity lets retried requests be answered with the original response instead of repeating the write.
+ */
+@Entity
+@Table(name = "idempotency_keys", indexes = {
+        @Index(name = "idx_idempotency_keys_created_date", columnList = "created_date")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+
+    /**
+     * The SHA-256 hash of the user and idempotency key.
+     */
+    @Id
+    @Column(length = 64)
+    private String id;
+
+    /**
+     * The SHA-256 hash of the request scope and body the key was first used with.
+     */
+    @Column(length = 64, nullable = false)
+    private String fingerprint;
+
+    /**
+     * The HTTP status code of the stored response, or 0 while the request is in progress.
+     */
+    private int status;
+
+    /**
+     * The JSON body of the stored response, without user passwords.
+     */
+    @Column(columnDefinition = "text")
+    private String body;
+
+    /**
+     * The creation date of the record.
+     */
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date createdDate;
+}
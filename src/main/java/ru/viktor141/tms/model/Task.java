@@ -1,6 +1,7 @@
 package ru.viktor141.tms.model;
 
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Size;
@@ -9,6 +10,7 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -21,7 +23,9 @@ import java.util.List;
         property = "id"
 )
 @Entity
-@Table(name = "tasks")
+@Table(name = "tasks", indexes = {
+        @Index(name = "idx_tasks_status_completed_date", columnList = "status, completed_date")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -45,6 +49,8 @@ public class Task {
      * The description of the task.
      */
     @Size(max = 65536, message = "Description too long")
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(columnDefinition = "bytea")
     private String description;
 
     /**
@@ -73,9 +79,65 @@ public class Task {
     @JoinColumn(name = "assignee_id")
     private User assignee;
 
-    @OneToMany(mappedBy = "task", cascade = CascadeType.ALL)
+    /**
+     * The date when the task was moved to the COMPLETED status.
+     */
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date completedDate;
+
+    /**
+     * The number of comments on the task, maintained by CommentService.
+     * <p>
+     * The comment statistics are only written by the bulk updates of TaskRepository: a task loaded
+     * before a comment was added would otherwise overwrite them with stale values when saved.
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(nullable = false, columnDefinition = "integer default 0", insertable = false, updatable = false)
+    private int commentCount;
+
+    /**
+     * The ID of the latest comment on the task.
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(insertable = false, updatable = false)
+    private Long lastCommentId;
+
+    /**
+     * The beginning of the latest comment on the task.
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(length = 256, insertable = false, updatable = false)
+    private String lastCommentPreview;
+
+    /**
+     * The creation date of the latest comment on the task.
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(insertable = false, updatable = false)
+    private Date lastCommentDate;
+
+    /**
+     * The comments associated with the task.
+     * <p>
+     * Not cascaded: comments are removed with a bulk statement when the task is deleted.
+     */
+    @OneToMany(mappedBy = "task")
     private List<Comment> comments;
 
+    /**
+     * Keeps the completion date in sync with the status before the task is written.
+     */
+    @PrePersist
+    @PreUpdate
+    private void trackCompletion() {
+        if (status != Status.COMPLETED) {
+            completedDate = null;
+        } else if (completedDate == null) {
+            completedDate = new Date();
+        }
+    }
+
     /**
      * Priority represents the priority levels of a task.
      * <p>
@@ -0,0 +1,98 @@
+package ru.viktor141.tms.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+/**
+ * TaskChange represents an entry of the append-only task change log.
+ * <p>
+ * Entries are written in the transaction making the change and carry the ID of that transaction.
+ * The log is read in (transaction ID, entry ID) order and only up to the oldest transaction still
+ * running, so no entry can appear later before a position a client has already seen.
+ */
+@Entity
+@Table(name = "task_changes", indexes = {
+        @Index(name = "idx_task_changes_position", columnList = "tx_id, id"),
+        @Index(name = "idx_task_changes_author_position", columnList = "author_id, tx_id, id"),
+        @Index(name = "idx_task_changes_assignee_position", columnList = "assignee_id, tx_id, id"),
+        @Index(name = "idx_task_changes_created_date", columnList = "created_date")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskChange {
+
+    /**
+     * The ID of the entry, ordering the entries of one transaction.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * The ID of the transaction that wrote the entry, assigned by the database.
+     */
+    @Column(nullable = false, insertable = false, updatable = false, columnDefinition = "bigint default 0")
+    private long txId;
+
+    /**
+     * The kind of change.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Kind kind;
+
+    /**
+     * The ID of the changed task.
+     */
+    @Column(nullable = false)
+    private Long taskId;
+
+    /**
+     * The ID of the added comment, for comment changes.
+     */
+    private Long commentId;
+
+    /**
+     * The ID of a user who can see the change as the task author.
+     */
+    private Long authorId;
+
+    /**
+     * The ID of a user who can see the change as the task assignee.
+     */
+    private Long assigneeId;
+
+    /**
+     * The date of the change.
+     */
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(nullable = false)
+    private Date createdDate;
+
+    /**
+     * Kind represents the kinds of log entries.
+     */
+    public enum Kind {
+        /**
+         * The task was created or updated.
+         */
+        TASK_UPSERT,
+
+        /**
+         * The task was deleted or is no longer visible to the user.
+         */
+        TASK_TOMBSTONE,
+
+        /**
+         * A comment was added to the task.
+         */
+        COMMENT_UPSERT;
+    }
+}
@@ -0,0 +1,29 @@
+package ru.viktor141.tms.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.viktor141.tms.model.ArchivedComment;
+
+import java.util.List;
+
+/**
+ * ArchivedCommentRepository provides database operations for comments of archived tasks.
+ * <p>
+ * This interface extends JpaRepository to handle CRUD operations for the ArchivedComment entity.
+ */
+public interface ArchivedCommentRepository extends JpaRepository<ArchivedComment, Long> {
+
+    /**
+     * Copies all comments of the given tasks from the active table into the archive.
+     *
+     * @param taskIds The IDs of the tasks whose comments are copied.
+     * @return The number of copied comments.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO comments_archive (id, text, author_id, task_id, created_date) " +
+            "SELECT id, text, author_id, task_id, created_date FROM comments WHERE task_id IN (:taskIds)",
+            nativeQuery = true)
+    int copyFromComments(@Param("taskIds") List<Long> taskIds);
+}
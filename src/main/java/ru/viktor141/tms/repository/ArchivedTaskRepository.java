@@ -0,0 +1,68 @@
+package ru.viktor141.tms.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.viktor141.tms.model.ArchivedTask;
+
+import java.util.List;
+
+/**
+ * ArchivedTaskRepository provides database operations for archived tasks.
+ * <p>
+ * This interface extends JpaRepository to handle read operations and the archival copy for the ArchivedTask entity.
+ */
+public interface ArchivedTaskRepository extends JpaRepository<ArchivedTask, Long> {
+
+    /**
+     * Finds all archived tasks matching the given specification with pagination.
+     *
+     * @param spec     The specification for filtering tasks.
+     * @param pageable The pagination settings.
+     * @return A Page of ArchivedTask objects.
+     */
+    Page<ArchivedTask> findAll(Specification<ArchivedTask> spec, Pageable pageable);
+
+    /**
+     * Copies the given tasks from the active table into the archive.
+     *
+     * @param ids The IDs of the tasks to copy.
+     * @return The number of copied tasks.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO tasks_archive (id, title, description, status, priority, author_id, assignee_id, completed_date, archived_date) " +
+            "SELECT id, title, description, status, priority, author_id, assignee_id, completed_date, now() FROM tasks WHERE id IN (:ids)",
+            nativeQuery = true)
+    int copyFromTasks(@Param("ids") List<Long> ids);
+
+    /**
+     * Finds archived tasks based on author or assignee ID with pagination.
+     *
+     * @param authorId   The ID of the author (optional).
+     * @param assigneeId The ID of the assignee (optional).
+     * @param pageable   The pagination settings.
+     * @return A Page of ArchivedTask objects.
+     */
+    default Page<ArchivedTask> findByAuthorOrAssignee(Long authorId, Long assigneeId, Pageable pageable) {
+        Specification<ArchivedTask> hasAuthor = (root, query, cb) -> cb.equal(root.get("author").get("id"), authorId);
+        Specification<ArchivedTask> hasAssignee = (root, query, cb) -> cb.equal(root.get("assignee").get("id"), assigneeId);
+        Specification<ArchivedTask> spec = Specification.where(null);
+
+        if (authorId != null && assigneeId != null) {
+            spec = Specification.where(hasAuthor).or(hasAssignee);
+        } else {
+            if (authorId != null) {
+                spec = spec.and(hasAuthor);
+            }
+            if (assigneeId != null) {
+                spec = spec.and(hasAssignee);
+            }
+        }
+
+        return findAll(spec, pageable);
+    }
+}
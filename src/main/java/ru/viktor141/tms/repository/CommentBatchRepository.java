@@ -0,0 +1,23 @@
+package ru.viktor141.tms.repository;
+
+import ru.viktor141.tms.model.Comment;
+
+import java.util.List;
+
+/**
+ * CommentBatchRepository provides batched write operations for comments.
+ * <p>
+ * This fragment is mixed into CommentRepository and writes many comments in a single statement.
+ */
+public interface CommentBatchRepository {
+
+    /**
+     * Inserts the given comments with a single multi-row statement.
+     * <p>
+     * The IDs are reserved from the table's sequence first and inserted explicitly.
+     *
+     * @param comments The comments to insert; each must reference an author and a task.
+     * @return The assigned IDs, in the same order as the given comments.
+     */
+    List<Long> insertAll(List<Comment> comments);
+}
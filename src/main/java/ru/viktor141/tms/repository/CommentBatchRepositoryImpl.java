@@ -0,0 +1,61 @@
+package ru.viktor141.tms.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.viktor141.tms.model.Comment;
+import ru.viktor141.tms.model.CompressedTextConverter;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * CommentBatchRepositoryImpl implements batched comment writes with plain JDBC.
+ * <p>
+ * The IDs are drawn from the sequence of the comments table before the insert and written explicitly,
+ * so each comment is known to have its ID without relying on the order of the returned rows. Both
+ * statements join the surrounding transaction, so the IDs are durable once it commits. Texts are
+ * encoded with the same converter the Comment entity uses.
+ */
+@RequiredArgsConstructor
+public class CommentBatchRepositoryImpl implements CommentBatchRepository {
+
+    private static final String RESERVE_IDS =
+            "SELECT nextval(pg_get_serial_sequence('comments', 'id')) FROM generate_series(1, ?)";
+    private static final String INSERT_PREFIX = "INSERT INTO comments (id, text, author_id, task_id, created_date) VALUES ";
+    private static final String ROW = "(?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CompressedTextConverter textConverter;
+
+    @Override
+    public List<Long> insertAll(List<Comment> comments) {
+        if (comments.isEmpty()) {
+            return List.of();
+        }
+
+        // Ascending IDs keep the comments of one batch in input order among equal creation dates
+        List<Long> ids = jdbcTemplate.queryForList(RESERVE_IDS, Long.class, comments.size()).stream()
+                .sorted()
+                .toList();
+
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + comments.size() * (ROW.length() + 2))
+                .append(INSERT_PREFIX);
+        Object[] args = new Object[comments.size() * 5];
+
+        for (int i = 0; i < comments.size(); i++) {
+            Comment comment = comments.get(i);
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(ROW);
+            args[i * 5] = ids.get(i);
+            args[i * 5 + 1] = textConverter.convertToDatabaseColumn(comment.getText());
+            args[i * 5 + 2] = comment.getAuthor().getId();
+            args[i * 5 + 3] = comment.getTask().getId();
+            args[i * 5 + 4] = new Timestamp(comment.getCreatedDate().getTime());
+        }
+
+        jdbcTemplate.update(sql.toString(), args);
+        return ids;
+    }
+}
@@ -1,21 +1,31 @@
 package ru.viktor141.tms.repository;
 
+import jakarta.persistence.QueryHint;
 import lombok.NonNull;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import ru.viktor141.tms.dto.CommentExportRow;
 import ru.viktor141.tms.model.Comment;
 
+import java.util.Date;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * CommentRepository provides database operations for comments.
  * <p>
  * This interface extends JpaRepository to handle CRUD operations for the Comment entity.
+ * The comments table may be hash-partitioned by task_id, so every query names the task IDs it reads;
+ * PostgreSQL then only scans the partitions holding them.
  */
-public interface CommentRepository extends JpaRepository<Comment, Long> {
+public interface CommentRepository extends JpaRepository<Comment, Long>, CommentBatchRepository {
 
     /**
      * Finds all comments associated with a specific task.
@@ -30,4 +40,117 @@ public interface CommentRepository extends JpaRepository<Comment, Long> {
     @NonNull
     Optional<Comment> findById(@NonNull Long id);
 
+    /**
+     * Finds the first comments of a task in (creation date, ID) order.
+     * <p>
+     * The task is outer-joined, so the result is empty only if the task does not exist;
+     * a task without comments yields a single row with a null comment.
+     *
+     * @param taskId   The ID of the task.
+     * @param pageable The limit settings.
+     * @return A list of (task ID, comment, comment author) rows.
+     */
+    @Query("SELECT t.id, c, a FROM Task t LEFT JOIN Comment c ON c.task.id = :taskId LEFT JOIN c.author a " +
+            "WHERE t.id = :taskId ORDER BY c.createdDate, c.id")
+    List<Object[]> findFirstByTaskIdWithTask(@Param("taskId") Long taskId, Pageable pageable);
+
+    /**
+     * Finds the comments of a task that follow the given (creation date, ID) position.
+     * <p>
+     * The task is outer-joined, so the result is empty only if the task does not exist;
+     * a task without further comments yields a single row with a null comment.
+     *
+     * @param taskId      The ID of the task.
+     * @param createdDate The creation date of the last returned comment.
+     * @param id          The ID of the last returned comment.
+     * @param pageable    The limit settings.
+     * @return A list of (task ID, comment, comment author) rows.
+     */
+    @Query("SELECT t.id, c, a FROM Task t LEFT JOIN Comment c ON c.task.id = :taskId AND (c.createdDate, c.id) > (:createdDate, :id) " +
+            "LEFT JOIN c.author a WHERE t.id = :taskId ORDER BY c.createdDate, c.id")
+    List<Object[]> findAfterByTaskIdWithTask(@Param("taskId") Long taskId, @Param("createdDate") Date createdDate,
+                                             @Param("id") Long id, Pageable pageable);
+
+    /**
+     * Streams all comments of a task in (creation date, ID) order as export rows.
+     * <p>
+     * The rows are fetched from a server-side cursor in chunks, so the stream must be consumed
+     * inside a transaction and closed afterwards.
+     *
+     * @param taskId The ID of the task.
+     * @return A Stream of CommentExportRow objects.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new ru.viktor141.tms.dto.CommentExportRow(c.id, c.createdDate, a.id, a.email, c.text) " +
+            "FROM Comment c JOIN c.author a WHERE c.task.id = :taskId ORDER BY c.createdDate, c.id")
+    Stream<CommentExportRow> streamExportRowsByTaskId(@Param("taskId") Long taskId);
+
+    /**
+     * Counts the comments of the given tasks and finds the latest comment of each.
+     *
+     * @param taskIds The IDs of the tasks.
+     * @return A list of (task ID, comment count, latest comment ID) rows for tasks that have comments.
+     */
+    @Query("SELECT c.task.id, COUNT(c), MAX(c.id) FROM Comment c WHERE c.task.id IN :taskIds GROUP BY c.task.id")
+    List<Object[]> summarizeByTaskIdIn(@Param("taskIds") List<Long> taskIds);
+
+    /**
+     * Finds comments by their IDs within the given tasks.
+     *
+     * @param taskIds The IDs of the tasks.
+     * @param ids     The IDs of the comments.
+     * @return A list of Comment objects.
+     */
+    @Query("SELECT c FROM Comment c WHERE c.task.id IN :taskIds AND c.id IN :ids")
+    List<Comment> findAllByTaskIdInAndIdIn(@Param("taskIds") List<Long> taskIds, @Param("ids") List<Long> ids);
+
+    /**
+     * Finds comments after the given position in (task ID, ID) order, with their authors.
+     *
+     * @param taskId   The task ID of the last returned comment.
+     * @param id       The ID of the last returned comment.
+     * @param pageable The limit settings.
+     * @return A list of Comment objects.
+     */
+    @Query("SELECT c FROM Comment c LEFT JOIN FETCH c.author WHERE (c.task.id, c.id) > (:taskId, :id) ORDER BY c.task.id, c.id")
+    List<Comment> findAfter(@Param("taskId") Long taskId, @Param("id") Long id, Pageable pageable);
+
+    /**
+     * Finds comments on the tasks of a user after the given position in (task ID, ID) order, with their authors.
+     *
+     * @param taskId   The task ID of the last returned comment.
+     * @param id       The ID of the last returned comment.
+     * @param userId   The ID of the user who authored or is assigned to the tasks.
+     * @param pageable The limit settings.
+     * @return A list of Comment objects.
+     */
+    @Query("SELECT c FROM Comment c LEFT JOIN FETCH c.author WHERE (c.task.id, c.id) > (:taskId, :id) " +
+            "AND c.task.id IN (SELECT t.id FROM Task t WHERE t.author.id = :userId OR t.assignee.id = :userId) " +
+            "ORDER BY c.task.id, c.id")
+    List<Comment> findVisibleAfter(@Param("taskId") Long taskId, @Param("id") Long id, @Param("userId") Long userId,
+                                   Pageable pageable);
+
+    /**
+     * Deletes all comments associated with a specific task in a single statement.
+     *
+     * @param taskId The ID of the task.
+     * @return The number of deleted comments.
+     */
+    @Modifying
+    @Query("DELETE FROM Comment c WHERE c.task.id = :taskId")
+    int deleteByTaskId(@Param("taskId") Long taskId);
+
+    /**
+     * Deletes all comments associated with the given tasks in a single statement.
+     *
+     * @param taskIds The IDs of the tasks.
+     * @return The number of deleted comments.
+     */
+    @Modifying
+    @Query("DELETE FROM Comment c WHERE c.task.id IN :taskIds")
+    int deleteByTaskIdIn(@Param("taskIds") List<Long> taskIds);
+
 }
@@ -0,0 +1,88 @@
+package ru.viktor141.tms.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.viktor141.tms.model.IdempotencyRecord;
+
+import java.util.Date;
+
+/**
+ * IdempotencyRecordRepository provides database operations for stored idempotent responses.
+ * <p>
+ * This interface extends JpaRepository to handle CRUD operations for the IdempotencyRecord entity.
+ * A key is reserved, carried out and completed in the caller's transaction, so the lock and
+ * reservation methods require one.
+ */
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    /**
+     * Takes the transaction-scoped advisory lock of a key without waiting.
+     *
+     * @param key The lock key derived from the hashed idempotency key.
+     * @return True if the lock was taken, false if another transaction holds it.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+    boolean tryLock(@Param("key") long key);
+
+    /**
+     * Reserves a key as pending unless an unexpired record for it exists.
+     * <p>
+     * An expired record that was not purged yet is taken over.
+     *
+     * @param id            The hashed idempotency key.
+     * @param fingerprint   The hash of the request scope and body.
+     * @param pending       The status marking the reservation as pending.
+     * @param createdDate   The creation date of the record.
+     * @param expiredBefore Records created before this date are expired.
+     * @return The number of reserved records: 1 if the key was reserved, 0 otherwise.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Modifying
+    @Query(value = "INSERT INTO idempotency_keys (id, fingerprint, status, body, created_date) " +
+            "VALUES (:id, :fingerprint, :pending, NULL, :createdDate) " +
+            "ON CONFLICT (id) DO UPDATE SET fingerprint = EXCLUDED.fingerprint, status = EXCLUDED.status, " +
+            "body = NULL, created_date = EXCLUDED.created_date " +
+            "WHERE idempotency_keys.created_date < :expiredBefore", nativeQuery = true)
+    int reserve(@Param("id") String id, @Param("fingerprint") String fingerprint, @Param("pending") int pending,
+                @Param("createdDate") Date createdDate, @Param("expiredBefore") Date expiredBefore);
+
+    /**
+     * Completes a reserved key with the response of its request.
+     *
+     * @param id     The hashed idempotency key.
+     * @param status The HTTP status code of the response.
+     * @param body   The JSON body of the response.
+     * @return The number of updated records.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Modifying
+    @Query(value = "UPDATE idempotency_keys SET status = :status, body = :body WHERE id = :id", nativeQuery = true)
+    int complete(@Param("id") String id, @Param("status") int status, @Param("body") String body);
+
+    /**
+     * Releases a reserved key whose request did not succeed.
+     *
+     * @param id The hashed idempotency key.
+     * @return The number of deleted records.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Modifying
+    @Query(value = "DELETE FROM idempotency_keys WHERE id = :id", nativeQuery = true)
+    int release(@Param("id") String id);
+
+    /**
+     * Deletes all records created before the given date.
+     *
+     * @param createdBefore The expiration threshold.
+     * @return The number of deleted records.
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.createdDate < :createdBefore")
+    int deleteByCreatedDateBefore(@Param("createdBefore") Date createdBefore);
+}
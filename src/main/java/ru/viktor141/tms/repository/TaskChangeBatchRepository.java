@@ -0,0 +1,23 @@
+package ru.viktor141.tms.repository;
+
+import ru.viktor141.tms.model.TaskChange;
+
+import java.util.List;
+
+/**
+ * TaskChangeBatchRepository provides batched write operations for the task change log.
+ * <p>
+ * This fragment is mixed into TaskChangeRepository and appends many entries in a single statement.
+ */
+public interface TaskChangeBatchRepository {
+
+    /**
+     * Appends the given entries to the change log in the current transaction.
+     * <p>
+     * Writers are serialized until their transaction ends, so entry IDs follow commit order and a
+     * reader never sees a later entry before an earlier one has been committed.
+     *
+     * @param changes The entries to append.
+     */
+    void append(List<TaskChange> changes);
+}
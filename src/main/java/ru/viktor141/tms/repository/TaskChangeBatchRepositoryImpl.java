@@ -0,0 +1,51 @@
+package ru.viktor141.tms.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.viktor141.tms.model.TaskChange;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * TaskChangeBatchRepositoryImpl implements change log writes with plain JDBC.
+ * <p>
+ * Every entry is stamped with the ID of the writing transaction, which orders the log without
+ * serializing the writers.
+ */
+@RequiredArgsConstructor
+public class TaskChangeBatchRepositoryImpl implements TaskChangeBatchRepository {
+
+    private static final String INSERT_PREFIX =
+            "INSERT INTO task_changes (kind, task_id, comment_id, author_id, assignee_id, created_date, tx_id) VALUES ";
+    private static final String ROW = "(?, ?, ?, ?, ?, ?, pg_current_xact_id()::text::bigint)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void append(List<TaskChange> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + changes.size() * (ROW.length() + 2))
+                .append(INSERT_PREFIX);
+        Object[] args = new Object[changes.size() * 6];
+
+        for (int i = 0; i < changes.size(); i++) {
+            TaskChange change = changes.get(i);
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(ROW);
+            args[i * 6] = change.getKind().name();
+            args[i * 6 + 1] = change.getTaskId();
+            args[i * 6 + 2] = change.getCommentId();
+            args[i * 6 + 3] = change.getAuthorId();
+            args[i * 6 + 4] = change.getAssigneeId();
+            args[i * 6 + 5] = new Timestamp(change.getCreatedDate().getTime());
+        }
+
+        jdbcTemplate.update(sql.toString(), args);
+    }
+}
@@ -0,0 +1,71 @@
+package ru.viktor141.tms.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import ru.viktor141.tms.model.TaskChange;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * TaskChangeRepository provides database operations for the task change log.
+ * <p>
+ * This interface extends JpaRepository to handle CRUD operations for the TaskChange entity.
+ */
+public interface TaskChangeRepository extends JpaRepository<TaskChange, Long>, TaskChangeBatchRepository {
+
+    /**
+     * Finds the log entries after the given position that concern a user.
+     *
+     * @param txId     The transaction ID of the last position seen by the client.
+     * @param id       The entry ID of the last position seen by the client.
+     * @param horizon  The oldest transaction that may still be running; its entries and later ones are left out.
+     * @param userId   The ID of the user.
+     * @param pageable The limit settings.
+     * @return A list of TaskChange objects in log order.
+     */
+    @Query("SELECT c FROM TaskChange c WHERE (c.txId, c.id) > (:txId, :id) AND c.txId < :horizon " +
+            "AND (c.authorId = :userId OR c.assigneeId = :userId) ORDER BY c.txId, c.id")
+    List<TaskChange> findVisibleAfter(@Param("txId") long txId, @Param("id") long id, @Param("horizon") long horizon,
+                                      @Param("userId") Long userId, Pageable pageable);
+
+    /**
+     * Finds all log entries after the given position.
+     *
+     * @param txId     The transaction ID of the last position seen by the client.
+     * @param id       The entry ID of the last position seen by the client.
+     * @param horizon  The oldest transaction that may still be running; its entries and later ones are left out.
+     * @param pageable The limit settings.
+     * @return A list of TaskChange objects in log order.
+     */
+    @Query("SELECT c FROM TaskChange c WHERE (c.txId, c.id) > (:txId, :id) AND c.txId < :horizon ORDER BY c.txId, c.id")
+    List<TaskChange> findAfter(@Param("txId") long txId, @Param("id") long id, @Param("horizon") long horizon,
+                               Pageable pageable);
+
+    /**
+     * Finds the readable horizon of the log and the position of its oldest retained entry.
+     * <p>
+     * All transactions older than the horizon have finished, so no entry can still appear before it.
+     *
+     * @return A single (horizon, transaction ID, entry ID) row; the position is null if the log is empty.
+     */
+    @Query(value = "SELECT pg_snapshot_xmin(pg_current_snapshot())::text::bigint, oldest.tx_id, oldest.id " +
+            "FROM (SELECT 1) AS now LEFT JOIN (SELECT tx_id, id FROM task_changes ORDER BY tx_id, id LIMIT 1) AS oldest ON true",
+            nativeQuery = true)
+    List<Object[]> findBounds();
+
+    /**
+     * Deletes log entries created before the given date, always keeping the newest entry.
+     *
+     * @param createdBefore The retention threshold.
+     * @return The number of deleted entries.
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM TaskChange c WHERE c.createdDate < :createdBefore AND c.id < (SELECT MAX(m.id) FROM TaskChange m)")
+    int deleteExpired(@Param("createdBefore") Date createdBefore);
+}
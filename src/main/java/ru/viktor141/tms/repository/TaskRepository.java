@@ -4,8 +4,15 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import ru.viktor141.tms.model.Task;
 
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
 /**
  * TaskRepository provides database operations for tasks.
  * <p>
@@ -22,6 +29,153 @@ public interface TaskRepository extends JpaRepository<Task, Long> {
      */
     Page<Task> findAll(Specification<Task> spec, Pageable pageable);
 
+    /**
+     * Deletes a task by its ID in a single statement without loading it.
+     *
+     * @param id The ID of the task.
+     * @return The number of deleted tasks.
+     */
+    @Modifying
+    @Query("DELETE FROM Task t WHERE t.id = :id")
+    int deleteTaskById(@Param("id") Long id);
+
+    /**
+     * Deletes the given tasks in a single statement without loading them.
+     *
+     * @param ids The IDs of the tasks.
+     * @return The number of deleted tasks.
+     */
+    @Modifying
+    @Query("DELETE FROM Task t WHERE t.id IN :ids")
+    int deleteTasksByIdIn(@Param("ids") List<Long> ids);
+
+    /**
+     * Registers new comments on a task in a single statement.
+     * <p>
+     * The counter is incremented atomically; the latest comment is only replaced by a newer one.
+     *
+     * @param taskId      The ID of the task.
+     * @param count       The number of new comments.
+     * @param commentId   The ID of the newest of the new comments.
+     * @param preview     The beginning of the newest comment.
+     * @param createdDate The creation date of the newest comment.
+     * @return The number of updated tasks.
+     */
+    @Modifying
+    @Query("UPDATE Task t SET t.commentCount = t.commentCount + :count, " +
+            "t.lastCommentPreview = CASE WHEN t.lastCommentId IS NULL OR t.lastCommentId < :commentId THEN :preview ELSE t.lastCommentPreview END, " +
+            "t.lastCommentDate = CASE WHEN t.lastCommentId IS NULL OR t.lastCommentId < :commentId THEN :createdDate ELSE t.lastCommentDate END, " +
+            "t.lastCommentId = CASE WHEN t.lastCommentId IS NULL OR t.lastCommentId < :commentId THEN :commentId ELSE t.lastCommentId END " +
+            "WHERE t.id = :taskId")
+    int registerComments(@Param("taskId") Long taskId, @Param("count") int count, @Param("commentId") Long commentId,
+                         @Param("preview") String preview, @Param("createdDate") Date createdDate);
+
+    /**
+     * Overwrites the comment statistics of a task.
+     *
+     * @param taskId      The ID of the task.
+     * @param count       The number of comments.
+     * @param commentId   The ID of the latest comment, or null if there are none.
+     * @param preview     The beginning of the latest comment.
+     * @param createdDate The creation date of the latest comment.
+     * @return The number of updated tasks.
+     */
+    @Modifying
+    @Query("UPDATE Task t SET t.commentCount = :count, t.lastCommentId = :commentId, " +
+            "t.lastCommentPreview = :preview, t.lastCommentDate = :createdDate WHERE t.id = :taskId")
+    int updateCommentStats(@Param("taskId") Long taskId, @Param("count") int count, @Param("commentId") Long commentId,
+                           @Param("preview") String preview, @Param("createdDate") Date createdDate);
+
+    /**
+     * Finds and locks the stored comment statistics of the given tasks.
+     * <p>
+     * The rows are locked in ID order, so that concurrent comment writes wait until the statistics
+     * are rewritten and batches cannot deadlock with each other.
+     *
+     * @param ids The IDs of the tasks.
+     * @return A list of (task ID, comment count, latest comment ID) rows.
+     */
+    @Query(value = "SELECT id, comment_count, last_comment_id FROM tasks WHERE id IN (:ids) ORDER BY id FOR UPDATE",
+            nativeQuery = true)
+    List<Object[]> lockCommentStatsByIdIn(@Param("ids") List<Long> ids);
+
+    /**
+     * Finds the short fields and the owners of a task, leaving out its description.
+     *
+     * @param id The ID of the task.
+     * @return A list with at most one (ID, title, status, priority, author, assignee) row.
+     */
+    @Query("SELECT t.id, t.title, t.status, t.priority, au, a FROM Task t LEFT JOIN t.author au LEFT JOIN t.assignee a WHERE t.id = :id")
+    List<Object[]> findHeaderById(@Param("id") Long id);
+
+    /**
+     * Finds the author and assignee IDs of the given tasks without loading the tasks.
+     *
+     * @param ids The IDs of the tasks.
+     * @return A list of (task ID, author ID, assignee ID) rows.
+     */
+    @Query("SELECT t.id, au.id, a.id FROM Task t LEFT JOIN t.author au LEFT JOIN t.assignee a WHERE t.id IN :ids")
+    List<Object[]> findOwnerIdsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Finds task IDs greater than the given one in ascending order.
+     *
+     * @param afterId  The ID after which to start.
+     * @param pageable The limit settings.
+     * @return A list of task IDs.
+     */
+    @Query("SELECT t.id FROM Task t WHERE t.id > :afterId ORDER BY t.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Finds tasks with IDs greater than the given one in ascending order, with their owners.
+     *
+     * @param afterId  The ID after which to start.
+     * @param pageable The limit settings.
+     * @return A list of Task objects.
+     */
+    @Query("SELECT t FROM Task t LEFT JOIN FETCH t.author LEFT JOIN FETCH t.assignee WHERE t.id > :afterId ORDER BY t.id")
+    List<Task> findAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Finds tasks of a user with IDs greater than the given one in ascending order, with their owners.
+     *
+     * @param afterId  The ID after which to start.
+     * @param userId   The ID of the user who authored or is assigned to the tasks.
+     * @param pageable The limit settings.
+     * @return A list of Task objects.
+     */
+    @Query("SELECT t FROM Task t LEFT JOIN FETCH t.author au LEFT JOIN FETCH t.assignee a " +
+            "WHERE t.id > :afterId AND (au.id = :userId OR a.id = :userId) ORDER BY t.id")
+    List<Task> findVisibleAfter(@Param("afterId") Long afterId, @Param("userId") Long userId, Pageable pageable);
+
+    /**
+     * Finds and locks a batch of tasks completed before the given date.
+     * <p>
+     * Rows locked by concurrent transactions are skipped, so several archival runs never collide.
+     *
+     * @param completedBefore The completion date threshold.
+     * @param limit           The maximum number of tasks to return.
+     * @return A list of task IDs.
+     */
+    @Query(value = "SELECT id FROM tasks WHERE status = 'COMPLETED' AND completed_date < :completedBefore " +
+            "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Long> lockCompletedTaskIds(@Param("completedBefore") Date completedBefore, @Param("limit") int limit);
+
+    /**
+     * Stamps a batch of completed tasks without a completion date with the current time.
+     * <p>
+     * Tasks completed before the completion date was tracked have none, and a missing date never
+     * matches the archive threshold; stamped tasks are archived once the completion age has passed.
+     *
+     * @param limit The maximum number of tasks to stamp.
+     * @return The number of stamped tasks.
+     */
+    @Modifying
+    @Query(value = "UPDATE tasks SET completed_date = now() WHERE id IN (SELECT id FROM tasks " +
+            "WHERE status = 'COMPLETED' AND completed_date IS NULL LIMIT :limit FOR UPDATE SKIP LOCKED)", nativeQuery = true)
+    int stampUndatedCompletedTasks(@Param("limit") int limit);
+
     /**
      * Creates a specification for filtering tasks by author ID.
      *
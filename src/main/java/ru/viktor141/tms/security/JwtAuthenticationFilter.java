@@ -2,11 +2,13 @@ package ru.viktor141.tms.security;
 
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -14,6 +16,7 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
+import ru.viktor141.tms.config.ReadYourWritesTracker;
 import ru.viktor141.tms.service.UserService;
 
 import java.io.IOException;
@@ -22,14 +25,46 @@ import java.io.IOException;
  * JwtAuthenticationFilter handles JWT-based authentication for incoming requests.
  * <p>
  * This filter verifies the JWT token in the Authorization header and authenticates the user.
+ * The time spent authenticating is recorded in the {@code tms.auth.jwt} timer, and rejected
+ * tokens are counted in {@code tms.auth.failures} by reason. The email of the token is bound to the
+ * ReadYourWritesTracker for the whole request, so a user who just wrote reads from the primary.
  */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtTokenProvider jwtTokenProvider;
     private final UserService userService;
+    private final ReadYourWritesTracker readYourWritesTracker;
+
+    private final Timer authenticationTimer;
+    private final Counter emailNotRegistered;
+    private final Counter tokenExpired;
+    private final Counter tokenInvalid;
+    private final Counter tokenRejected;
+
+    /**
+     * Constructs a new JwtAuthenticationFilter.
+     *
+     * @param jwtTokenProvider The provider used to parse and validate tokens.
+     * @param userService           The service used to load users.
+     * @param readYourWritesTracker The tracker the user of the request is bound to.
+     * @param meterRegistry         The registry of the authentication metrics.
+     */
+    public JwtAuthenticationFilter(JwtTokenProvider jwtTokenProvider, UserService userService,
+                                   ReadYourWritesTracker readYourWritesTracker, MeterRegistry meterRegistry) {
+        this.jwtTokenProvider = jwtTokenProvider;
+        this.userService = userService;
+        this.readYourWritesTracker = readYourWritesTracker;
+        this.authenticationTimer = Timer.builder("tms.auth.jwt")
+                .description("Time spent authenticating requests with a JWT token")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.emailNotRegistered = failureCounter(meterRegistry, "email_not_registered");
+        this.tokenExpired = failureCounter(meterRegistry, "token_expired");
+        this.tokenInvalid = failureCounter(meterRegistry, "token_invalid");
+        this.tokenRejected = failureCounter(meterRegistry, "token_rejected");
+    }
 
     /**
      * Processes each incoming request to verify the JWT token and authenticate the user.
@@ -46,34 +81,67 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                                     FilterChain filterChain) throws ServletException, IOException {
         String authHeader = request.getHeader("Authorization");
 
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            String token = authHeader.substring(7);
-            try {
-                String email = jwtTokenProvider.extractEmail(token);
-
-                if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                    if (!userService.emailExists(email)) {
-                        response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Email not registered");
+        try {
+            if (authHeader != null && authHeader.startsWith("Bearer ")) {
+                Timer.Sample sample = Timer.start();
+                try {
+                    if (!authenticate(authHeader.substring(7), request, response)) {
                         return;
                     }
-                    UserDetails userDetails = userService.loadUserByUsername(email);
+                } finally {
+                    sample.stop(authenticationTimer);
+                }
+            }
 
-                    if (jwtTokenProvider.validateToken(token, userDetails)) {
-                        UsernamePasswordAuthenticationToken authentication =
-                                new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-                        authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                        SecurityContextHolder.getContext().setAuthentication(authentication);
-                    }
+            filterChain.doFilter(request, response);
+        } finally {
+            readYourWritesTracker.unbind();
+        }
+    }
+
+    /**
+     * Authenticates the request with the given token.
+     *
+     * @return False if the request was rejected and the response has been sent.
+     */
+    private boolean authenticate(String token, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        try {
+            String email = jwtTokenProvider.extractEmail(token);
+
+            if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+                readYourWritesTracker.bind(email);
+                if (!userService.emailExists(email)) {
+                    emailNotRegistered.increment();
+                    response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Email not registered");
+                    return false;
+                }
+                UserDetails userDetails = userService.loadUserByUsername(email);
+
+                if (jwtTokenProvider.validateToken(token, userDetails)) {
+                    UsernamePasswordAuthenticationToken authentication =
+                            new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                } else {
+                    tokenRejected.increment();
                 }
-            } catch (ExpiredJwtException e) {
-                response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "JWT token expired");
-                return;
-            } catch (JwtException e) {
-                response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Incorrect JWT token");
-                return;
             }
+        } catch (ExpiredJwtException e) {
+            tokenExpired.increment();
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "JWT token expired");
+            return false;
+        } catch (JwtException e) {
+            tokenInvalid.increment();
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Incorrect JWT token");
+            return false;
         }
+        return true;
+    }
 
-        filterChain.doFilter(request, response);
+    private static Counter failureCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("tms.auth.failures")
+                .description("Requests whose JWT token was rejected")
+                .tag("reason", reason)
+                .register(meterRegistry);
     }
 }
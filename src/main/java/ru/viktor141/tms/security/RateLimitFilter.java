@@ -0,0 +1,162 @@
+package ru.viktor141.tms.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.viktor141.tms.model.User;
+import ru.viktor141.tms.security.RateLimitProperties.EndpointClass;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RateLimitFilter limits the request rate of every user per endpoint class.
+ * <p>
+ * It runs after JwtAuthenticationFilter and charges the bucket of the authenticated user and the
+ * endpoint class of the request (see {@link RateLimitProperties.EndpointClass}) in a RateLimiter.
+ * The limits depend on the role of the user. Admitted and rejected responses carry the
+ * {@code X-RateLimit-Limit}, {@code X-RateLimit-Remaining} and {@code X-RateLimit-Reset} headers;
+ * rejected requests are answered with 429 and a Retry-After header. Anonymous requests and
+ * actuator endpoints are not limited.
+ */
+@Slf4j
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    /**
+     * The burst of the limit that applied to the request.
+     */
+    public static final String LIMIT_HEADER = "X-RateLimit-Limit";
+
+    /**
+     * The number of requests that would still be admitted right now.
+     */
+    public static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+
+    /**
+     * The number of seconds until the full burst is available again.
+     */
+    public static final String RESET_HEADER = "X-RateLimit-Reset";
+
+    private static final Duration MIN_IDLE_EXPIRY = Duration.ofMinutes(1);
+    private static final EndpointClass[] ENDPOINT_CLASSES = EndpointClass.values();
+
+    private final boolean enabled;
+    private final Map<User.Role, RateLimiter.Rate[]> rates = new EnumMap<>(User.Role.class);
+    private final Map<User.Role, Counter[]> rejected = new EnumMap<>(User.Role.class);
+    private final RateLimiter rateLimiter;
+
+    /**
+     * Constructs a new RateLimitFilter.
+     *
+     * @param properties    The limits.
+     * @param meterRegistry The registry of the limiter metrics.
+     */
+    public RateLimitFilter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.enabled();
+
+        Duration idleExpiry = MIN_IDLE_EXPIRY;
+        for (User.Role role : User.Role.values()) {
+            Map<EndpointClass, RateLimitProperties.Limit> limits = properties.limits().getOrDefault(role, Map.of());
+            RateLimiter.Rate[] roleRates = new RateLimiter.Rate[ENDPOINT_CLASSES.length];
+            Counter[] roleRejected = new Counter[ENDPOINT_CLASSES.length];
+            for (EndpointClass endpointClass : ENDPOINT_CLASSES) {
+                RateLimitProperties.Limit limit = limits.get(endpointClass);
+                if (limit != null) {
+                    RateLimiter.Rate rate = RateLimiter.Rate.of(limit.rate(), limit.burst());
+                    roleRates[endpointClass.ordinal()] = rate;
+                    // A bucket forgotten before it refilled would hand out a fresh burst too early
+                    if (rate.refillTime().compareTo(idleExpiry) > 0) {
+                        idleExpiry = rate.refillTime();
+                    }
+                }
+                roleRejected[endpointClass.ordinal()] = Counter.builder("tms.rate-limit.rejected")
+                        .description("Requests rejected because the user exceeded the rate limit")
+                        .tag("role", role.name().toLowerCase(Locale.ROOT))
+                        .tag("endpoint", endpointClass.name().toLowerCase(Locale.ROOT))
+                        .register(meterRegistry);
+            }
+            rates.put(role, roleRates);
+            rejected.put(role, roleRejected);
+        }
+
+        this.rateLimiter = new RateLimiter(properties.maxTrackedKeys(), idleExpiry);
+        Gauge.builder("tms.rate-limit.buckets", rateLimiter, RateLimiter::size)
+                .description("Tracked rate limit buckets")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof User user) || user.getRole() == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        EndpointClass endpointClass = classify(request);
+        RateLimiter.Rate rate = rates.get(user.getRole())[endpointClass.ordinal()];
+        if (rate == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        RateLimiter.Decision decision = rateLimiter.tryAcquire(new BucketKey(user.getId(), endpointClass), rate, System.nanoTime());
+        response.setIntHeader(LIMIT_HEADER, rate.burst());
+        response.setIntHeader(REMAINING_HEADER, decision.remaining());
+        response.setHeader(RESET_HEADER, Long.toString(seconds(decision.resetNanos())));
+
+        if (!decision.allowed()) {
+            rejected.get(user.getRole())[endpointClass.ordinal()].increment();
+            log.debug("Rejected {} {} of user {}: rate limit reached", request.getMethod(), request.getRequestURI(), user.getId());
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, seconds(decision.retryAfterNanos()))));
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Rate limit exceeded");
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || request.getRequestURI().startsWith("/actuator/");
+    }
+
+    private static EndpointClass classify(HttpServletRequest request) {
+        String method = request.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            return EndpointClass.WRITE;
+        }
+        return request.getRequestURI().endsWith("/export") ? EndpointClass.EXPORT : EndpointClass.READ;
+    }
+
+    /**
+     * Rounds up, so a client that waits the announced time is admitted.
+     */
+    private static long seconds(long nanos) {
+        return (nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+    }
+
+    /**
+     * BucketKey identifies the bucket of a user and an endpoint class.
+     */
+    private record BucketKey(Long userId, EndpointClass endpointClass) {
+    }
+}
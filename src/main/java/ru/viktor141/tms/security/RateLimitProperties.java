@@ -0,0 +1,55 @@
+package ru.viktor141.tms.security;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import ru.viktor141.tms.model.User;
+
+import java.util.Map;
+
+/**
+ * RateLimitProperties represents the settings of RateLimitFilter under {@code tms.rate-limit}.
+ * <p>
+ * Limits are nested by role and endpoint class, for example
+ * {@code tms.rate-limit.limits.user.read.rate=20}, which cannot be expressed with single values.
+ * A role or an endpoint class without a limit is not limited.
+ *
+ * @param enabled        Whether requests are limited.
+ * @param maxTrackedKeys The maximum number of tracked buckets, one per user and endpoint class.
+ * @param limits         The limits by role and endpoint class.
+ */
+@ConfigurationProperties("tms.rate-limit")
+public record RateLimitProperties(@DefaultValue("false") boolean enabled,
+                                  @DefaultValue("100000") long maxTrackedKeys,
+                                  Map<User.Role, Map<EndpointClass, Limit>> limits) {
+
+    public RateLimitProperties {
+        limits = limits == null ? Map.of() : limits;
+    }
+
+    /**
+     * EndpointClass groups endpoints with a similar cost.
+     */
+    public enum EndpointClass {
+        /**
+         * GET requests, except exports.
+         */
+        READ,
+        /**
+         * Requests that change data.
+         */
+        WRITE,
+        /**
+         * Streaming exports, which read whole comment histories.
+         */
+        EXPORT
+    }
+
+    /**
+     * Limit represents the limit of one role and endpoint class.
+     *
+     * @param rate  The sustained number of requests per second.
+     * @param burst The number of requests admitted at once after a pause.
+     */
+    public record Limit(double rate, int burst) {
+    }
+}
@@ -0,0 +1,123 @@
+package ru.viktor141.tms.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * RateLimiter admits requests per key with the generic cell rate algorithm (GCRA).
+ * <p>
+ * GCRA behaves exactly like a token bucket but keeps a single number per key: the theoretical
+ * arrival time (TAT) at which the bucket would be full again. A request is admitted if the TAT is
+ * no further ahead than the burst allows and then moves it by one emission interval with a
+ * compare-and-set, so admitting a request takes no lock and allocates nothing once the key is known.
+ * <p>
+ * The keys live in a bounded map that forgets keys idle for longer than the expiry; an expiry of at
+ * least the longest refill time makes forgetting a key equivalent to a full bucket.
+ */
+public class RateLimiter {
+
+    private final Cache<Object, AtomicLong> arrivals;
+
+    /**
+     * Constructs a new RateLimiter.
+     *
+     * @param maximumKeys The maximum number of tracked keys; the least recently used ones are dropped first.
+     * @param idleExpiry  How long an unused key is kept.
+     */
+    public RateLimiter(long maximumKeys, Duration idleExpiry) {
+        this.arrivals = Caffeine.newBuilder()
+                .maximumSize(maximumKeys)
+                .expireAfterAccess(idleExpiry)
+                .build();
+    }
+
+    /**
+     * Tries to admit a request.
+     *
+     * @param key   The key whose bucket is charged, for example the user and the endpoint class.
+     * @param rate  The limit of the key.
+     * @param nanos The current time from {@link System#nanoTime()}.
+     * @return The decision.
+     */
+    public Decision tryAcquire(Object key, Rate rate, long nanos) {
+        AtomicLong arrival = arrivals.getIfPresent(key);
+        if (arrival == null) {
+            arrival = arrivals.get(key, k -> new AtomicLong(nanos));
+        }
+
+        while (true) {
+            long tat = arrival.get();
+            // nanoTime values may wrap, so they are only compared through their difference
+            long start = tat - nanos > 0 ? tat : nanos;
+            long ahead = start - nanos;
+            if (ahead > rate.toleranceNanos()) {
+                return new Decision(false, rate, 0, ahead - rate.toleranceNanos(), ahead);
+            }
+            long next = start + rate.intervalNanos();
+            if (arrival.compareAndSet(tat, next)) {
+                long remaining = (rate.toleranceNanos() - ahead) / rate.intervalNanos();
+                return new Decision(true, rate, (int) remaining, 0, next - nanos);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of tracked keys.
+     *
+     * @return The approximate number of keys.
+     */
+    public long size() {
+        return arrivals.estimatedSize();
+    }
+
+    /**
+     * Rate represents a limit as an emission interval and a burst.
+     *
+     * @param intervalNanos  The time one request costs; the inverse of the sustained rate.
+     * @param toleranceNanos How far the TAT may run ahead of the current time, {@code (burst - 1) * interval}.
+     * @param burst          The number of requests admitted at once by a full bucket.
+     */
+    public record Rate(long intervalNanos, long toleranceNanos, int burst) {
+
+        /**
+         * Creates a Rate.
+         *
+         * @param perSecond The sustained number of requests per second.
+         * @param burst     The number of requests admitted at once by a full bucket.
+         * @return A Rate object.
+         * @throws IllegalArgumentException If the rate is not positive or the burst is less than one.
+         */
+        public static Rate of(double perSecond, int burst) {
+            if (!(perSecond > 0) || burst < 1) {
+                throw new IllegalArgumentException("Rate must be positive and burst at least 1");
+            }
+            long interval = Math.max(1, Math.round(TimeUnit.SECONDS.toNanos(1) / perSecond));
+            return new Rate(interval, interval * (burst - 1), burst);
+        }
+
+        /**
+         * Returns how long an unused bucket takes to become full.
+         *
+         * @return The refill time.
+         */
+        public Duration refillTime() {
+            return Duration.ofNanos(intervalNanos * burst);
+        }
+    }
+
+    /**
+     * Decision represents the outcome of {@link #tryAcquire}.
+     *
+     * @param allowed          Whether the request is admitted.
+     * @param rate             The limit that was applied.
+     * @param remaining        How many more requests would be admitted right now.
+     * @param retryAfterNanos  How long a rejected request should wait; 0 if admitted.
+     * @param resetNanos       How long until the bucket is full again.
+     */
+    public record Decision(boolean allowed, Rate rate, int remaining, long retryAfterNanos, long resetNanos) {
+    }
+}
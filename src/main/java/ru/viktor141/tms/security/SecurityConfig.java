@@ -1,6 +1,9 @@
 package ru.viktor141.tms.security;
 
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -15,14 +18,21 @@ import org.springframework.transaction.annotation.EnableTransactionManagement;
  * SecurityConfig configures security settings for the application.
  * <p>
  * This configuration enables JWT-based authentication and defines access rules for endpoints.
+ * Authenticated requests are rate limited per user right after authentication. Of the actuator
+ * endpoints only health is public; Prometheus metrics require an administrator, unless they are
+ * scraped on a separate {@code management.server.port} that is not exposed publicly.
  */
 @Configuration
 @RequiredArgsConstructor
 @EnableWebSecurity
 @EnableTransactionManagement
+@EnableConfigurationProperties(RateLimitProperties.class)
 public class SecurityConfig {
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final RateLimitFilter rateLimitFilter;
 
+    @Value("${management.server.port:-1}")
+    private int managementPort;
 
     /**
      * Configures the security filter chain.
@@ -36,13 +46,20 @@ public class SecurityConfig {
         return http.csrf(AbstractHttpConfigurer::disable).
                 authorizeHttpRequests(
                         authorizeRequests -> authorizeRequests
+                                // Async dispatches of event streams were already authorized on the initial request
+                                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                                 .requestMatchers("/swagger-ui.html", "/swagger-ui/**", "/v3/api-docs/**").permitAll()
                                 .requestMatchers("/api/auth/**").permitAll()
+                                .requestMatchers("/actuator/health", "/actuator/health/**").permitAll()
+                                .requestMatchers(request -> managementPort > 0 && request.getLocalPort() == managementPort
+                                        && "/actuator/prometheus".equals(request.getRequestURI())).permitAll()
+                                .requestMatchers("/actuator/**").hasRole("ADMIN")
                                 .requestMatchers("/api/admin/**").hasRole("ADMIN")
                                 .anyRequest().authenticated())
                 .sessionManagement(session -> session
                         .sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterAfter(rateLimitFilter, JwtAuthenticationFilter.class)
                 .build();
     }
 }
@@ -0,0 +1,507 @@
+package ru.viktor141.tms.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.postgresql.PGProperty;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * CacheInvalidationBus distributes evictions of {@link LocalCache} entries between application instances.
+ * <p>
+ * Evictions made in a read-write transaction are sent with {@code pg_notify} just before the commit,
+ * so PostgreSQL delivers them exactly when the change becomes visible and drops them on rollback;
+ * this instance evicts its own entries after the commit. Every instance keeps a dedicated connection
+ * to the primary database that {@code LISTEN}s on the channel and evicts the received keys.
+ * <p>
+ * Rows changed outside the application, such as a role granted with SQL, are evicted by triggers
+ * registered with {@link #evictOnRowChange}, which send the same notifications.
+ * <p>
+ * Notifications sent while an instance is not listening are lost, so all local caches are flushed
+ * whenever the listening connection is (re)established, and caching is bypassed while it is down.
+ * A connection that silently stopped delivering, e.g. after the network dropped it without a reset,
+ * is found by a keepalive query that has to be answered within the socket timeout.
+ * The delay between the commit of a change and its eviction on another instance is recorded as
+ * {@code tms.cache.invalidation.lag}; it is measured with the wall clocks of both instances and is
+ * only as exact as their synchronization.
+ */
+@Slf4j
+@Service
+public class CacheInvalidationBus implements SmartInitializingSingleton {
+
+    /**
+     * PostgreSQL rejects payloads of 8000 bytes or more.
+     */
+    static final int MAX_PAYLOAD_BYTES = 7900;
+
+    private static final Pattern CHANNEL_NAME = Pattern.compile("[a-z_][a-z0-9_]*");
+    private static final int POLL_TIMEOUT_MS = 500;
+    private static final String APPLICATION_NAME = "tms-cache-invalidation";
+    private static final String TRIGGER_NODE_ID = "database";
+    // The tgtype bits of a FOR EACH ROW (1) AFTER trigger on DELETE (8) and UPDATE (16)
+    private static final int ROW_AFTER_UPDATE_OR_DELETE = 1 | 8 | 16;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSourceProperties dataSourceProperties;
+    private final boolean enabled;
+    private final String channel;
+    private final long reconnectDelayMs;
+    private final long keepaliveIntervalNanos;
+    private final int socketTimeoutSeconds;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, LocalCache<?, ?>> caches = new ConcurrentHashMap<>();
+    private final List<RowTrigger> rowTriggers = new ArrayList<>();
+
+    private final Timer lag;
+    private final Counter received;
+    private final MeterRegistry meterRegistry;
+
+    private volatile boolean running;
+    private volatile boolean connected;
+    private volatile Connection listenConnection;
+    private Thread listener;
+
+    /**
+     * Constructs a new CacheInvalidationBus.
+     *
+     * @param jdbcTemplate         The template used to send notifications in the current transaction.
+     * @param dataSourceProperties The settings of the primary database, used for the listening connection.
+     * @param enabled              Whether evictions are distributed; when disabled they only apply to this instance.
+     * @param channel              The name of the notification channel.
+     * @param reconnectDelay       How long to wait before reconnecting after the listening connection failed.
+     * @param keepaliveInterval    How often the idle listening connection is checked; it is also the time the
+     *                             database has to answer, so a dead connection is found within twice this time.
+     * @param meterRegistry        The registry of the bus metrics.
+     */
+    public CacheInvalidationBus(JdbcTemplate jdbcTemplate,
+                                DataSourceProperties dataSourceProperties,
+                                @Value("${tms.cache.invalidation.enabled:true}") boolean enabled,
+                                @Value("${tms.cache.invalidation.channel:tms_cache_invalidation}") String channel,
+                                @Value("${tms.cache.invalidation.reconnect-delay:PT1S}") Duration reconnectDelay,
+                                @Value("${tms.cache.invalidation.keepalive-interval:PT10S}") Duration keepaliveInterval,
+                                MeterRegistry meterRegistry) {
+        if (!CHANNEL_NAME.matcher(channel).matches()) {
+            throw new IllegalArgumentException("Invalid notification channel name: " + channel);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSourceProperties = dataSourceProperties;
+        this.enabled = enabled;
+        this.channel = channel;
+        this.reconnectDelayMs = reconnectDelay.toMillis();
+        this.keepaliveIntervalNanos = keepaliveInterval.toNanos();
+        this.socketTimeoutSeconds = (int) Math.max(1, keepaliveInterval.toSeconds());
+        this.meterRegistry = meterRegistry;
+        this.lag = Timer.builder("tms.cache.invalidation.lag")
+                .description("Time from the commit of a change to its eviction on this instance")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.received = Counter.builder("tms.cache.invalidation.received")
+                .description("Keys evicted because another instance changed them")
+                .register(meterRegistry);
+        Gauge.builder("tms.cache.invalidation.connected", this, bus -> bus.isConnected() ? 1 : 0)
+                .description("Whether this instance listens for evictions; caches are bypassed otherwise")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts the listener thread when evictions are distributed.
+     */
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        listener = new Thread(this::listen, "cache-invalidation-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    /**
+     * Stops the listener thread and closes its connection.
+     *
+     * @throws InterruptedException If interrupted while waiting for the listener.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (listener == null) {
+            return;
+        }
+        closeQuietly(listenConnection);
+        listener.interrupt();
+        listener.join();
+    }
+
+    /**
+     * Returns whether local caches may serve entries.
+     *
+     * @return True if this instance receives the evictions of the others, or if they are not distributed.
+     */
+    public boolean isConnected() {
+        return !enabled || connected;
+    }
+
+    /**
+     * Registers a cache so that it receives evictions.
+     *
+     * @param cache The cache.
+     * @throws IllegalArgumentException If a cache with the same name is already registered.
+     */
+    public void register(LocalCache<?, ?> cache) {
+        if (caches.putIfAbsent(cache.getName(), cache) != null) {
+            throw new IllegalArgumentException("Duplicate cache name: " + cache.getName());
+        }
+    }
+
+    /**
+     * Evicts the entries of a cache whenever rows of a table are updated or deleted, by whomever.
+     * <p>
+     * A trigger on the table sends the eviction of the old key value with the commit. Missing or
+     * outdated triggers are created once all beans, including the schema created by Hibernate, are initialized.
+     *
+     * @param cacheName The name of the cache.
+     * @param table     The table the cached values are read from.
+     * @param keyColumn The column holding the cache key.
+     * @throws IllegalArgumentException If a name is not a plain lowercase SQL identifier.
+     */
+    public void evictOnRowChange(String cacheName, String table, String keyColumn) {
+        for (String name : List.of(cacheName, table, keyColumn)) {
+            if (!CHANNEL_NAME.matcher(name).matches()) {
+                throw new IllegalArgumentException("Invalid name for a cache eviction trigger: " + name);
+            }
+        }
+        rowTriggers.add(new RowTrigger(cacheName, table, keyColumn));
+    }
+
+    /**
+     * Creates the triggers registered with {@link #evictOnRowChange} that are missing or differ from the expected ones.
+     * <p>
+     * Replacing a trigger locks its table exclusively, so triggers and functions that are already up to
+     * date, as on every start after the first one, are left alone.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            return;
+        }
+        for (RowTrigger trigger : rowTriggers) {
+            String function = "tms_evict_" + trigger.cacheName();
+            String body = String.format("""
+                    BEGIN
+                        PERFORM pg_notify('%1$s', (extract(epoch FROM clock_timestamp()) * 1000)::bigint
+                            || ' %2$s' || chr(10) || '%3$s:' || OLD.%4$s);
+                        RETURN NULL;
+                    END
+                    """, channel, TRIGGER_NODE_ID, trigger.cacheName(), trigger.keyColumn());
+            boolean functionCurrent = isFunctionCurrent(function, body);
+            boolean triggerCurrent = isTriggerCurrent(function, trigger.table());
+            if (functionCurrent && triggerCurrent) {
+                continue;
+            }
+
+            log.info("Installing cache eviction trigger {} on {}", function, trigger.table());
+            // The statements are sent together and run as one transaction; the lock keeps instances starting
+            // at the same time from installing the trigger at once. Only a missing or changed trigger is
+            // dropped and created, as that locks the table exclusively
+            StringBuilder statements = new StringBuilder(String.format("SELECT pg_advisory_xact_lock(hashtext('%s'));%n", function));
+            if (!functionCurrent) {
+                statements.append(String.format("CREATE OR REPLACE FUNCTION %s() RETURNS trigger LANGUAGE plpgsql AS $$%s$$;%n",
+                        function, body));
+            }
+            if (!triggerCurrent) {
+                statements.append(String.format("""
+                        DROP TRIGGER IF EXISTS %1$s ON %2$s;
+                        CREATE TRIGGER %1$s AFTER UPDATE OR DELETE ON %2$s
+                            FOR EACH ROW EXECUTE FUNCTION %1$s();
+                        """, function, trigger.table()));
+            }
+            jdbcTemplate.execute(statements.toString());
+        }
+    }
+
+    private boolean isFunctionCurrent(String function, String body) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_proc WHERE oid = to_regprocedure(?) AND prosrc = ?)",
+                Boolean.class, function + "()", body));
+    }
+
+    /**
+     * Checks whether a trigger fires the function for updated and deleted rows of its table.
+     */
+    private boolean isTriggerCurrent(String function, String table) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("""
+                SELECT EXISTS (SELECT 1 FROM pg_trigger
+                    WHERE tgrelid = to_regclass(?) AND tgname = ? AND tgfoid = to_regprocedure(?)
+                      AND tgtype = ? AND tgenabled <> 'D')
+                """, Boolean.class, table, function, function + "()", ROW_AFTER_UPDATE_OR_DELETE));
+    }
+
+    /**
+     * Evicts keys of a cache on all instances.
+     * <p>
+     * Inside a transaction the eviction is sent with the commit and dropped on rollback; outside of
+     * one it is applied and sent immediately.
+     *
+     * @param cacheName The name of the cache.
+     * @param keys      The keys to evict.
+     * @throws IllegalStateException If called in a read-only transaction, which cannot send notifications.
+     */
+    public void publish(String cacheName, Collection<String> keys) {
+        List<String> entries = keys.stream().map(key -> cacheName + ':' + key).toList();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidateLocally(entries);
+            send(entries);
+            return;
+        }
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            throw new IllegalStateException("Cache entries cannot be evicted in a read-only transaction");
+        }
+        pendingEntries().addAll(entries);
+    }
+
+    private Set<String> pendingEntries() {
+        @SuppressWarnings("unchecked")
+        Set<String> pending = (Set<String>) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) {
+            return pending;
+        }
+
+        Set<String> entries = new LinkedHashSet<>();
+        TransactionSynchronizationManager.bindResource(this, entries);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                send(entries);
+            }
+
+            @Override
+            public void afterCommit() {
+                invalidateLocally(entries);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(CacheInvalidationBus.this);
+            }
+        });
+        return entries;
+    }
+
+    private void send(Collection<String> entries) {
+        if (!enabled || entries.isEmpty()) {
+            return;
+        }
+        ResultSetExtractor<Void> ignore = rs -> null;
+        for (String payload : encode(System.currentTimeMillis(), nodeId, entries)) {
+            jdbcTemplate.query("SELECT pg_notify(?, ?)", ignore, channel, payload);
+        }
+    }
+
+    private void invalidateLocally(Collection<String> entries) {
+        for (String entry : entries) {
+            int separator = entry.indexOf(':');
+            LocalCache<?, ?> cache = caches.get(entry.substring(0, separator));
+            if (cache != null) {
+                cache.invalidateLocally(entry.substring(separator + 1));
+            }
+        }
+    }
+
+    private void flushAll(String reason) {
+        caches.values().forEach(LocalCache::invalidateAllLocally);
+        meterRegistry.counter("tms.cache.invalidation.flushes", "reason", reason).increment();
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(), connectionProperties());
+                 Statement statement = connection.createStatement()) {
+                listenConnection = connection;
+                statement.execute("LISTEN " + channel);
+                // Changes committed while nobody was listening are unknown, so nothing cached before may be kept
+                flushAll("connected");
+                connected = true;
+                log.info("Listening for cache evictions on channel {}", channel);
+
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                long nextKeepalive = System.nanoTime() + keepaliveIntervalNanos;
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            receive(notification.getParameter());
+                        }
+                    }
+                    // A half-open connection neither delivers nor fails; only an unanswered query reveals it
+                    if (System.nanoTime() - nextKeepalive >= 0) {
+                        statement.execute("SELECT 1");
+                        nextKeepalive = System.nanoTime() + keepaliveIntervalNanos;
+                    }
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    log.warn("Cache eviction channel lost, retrying in {} ms", reconnectDelayMs, e);
+                }
+            } finally {
+                listenConnection = null;
+                if (connected) {
+                    connected = false;
+                    flushAll("disconnected");
+                }
+            }
+
+            if (running) {
+                try {
+                    Thread.sleep(reconnectDelayMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private Properties connectionProperties() {
+        Properties properties = new Properties();
+        if (dataSourceProperties.determineUsername() != null) {
+            PGProperty.USER.set(properties, dataSourceProperties.determineUsername());
+        }
+        if (dataSourceProperties.determinePassword() != null) {
+            PGProperty.PASSWORD.set(properties, dataSourceProperties.determinePassword());
+        }
+        PGProperty.APPLICATION_NAME.set(properties, APPLICATION_NAME);
+        PGProperty.TCP_KEEP_ALIVE.set(properties, true);
+        PGProperty.SOCKET_TIMEOUT.set(properties, socketTimeoutSeconds);
+        return properties;
+    }
+
+    private void receive(String payload) {
+        Notification notification;
+        try {
+            notification = decode(payload);
+        } catch (RuntimeException e) {
+            log.warn("Malformed cache eviction, flushing all caches: {}", payload, e);
+            flushAll("malformed");
+            return;
+        }
+        if (nodeId.equals(notification.nodeId())) {
+            return;
+        }
+        invalidateLocally(notification.entries());
+        received.increment(notification.entries().size());
+        lag.record(Math.max(0, System.currentTimeMillis() - notification.sentAt()), TimeUnit.MILLISECONDS);
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.debug("Failed to close the cache eviction connection", e);
+        }
+    }
+
+    /**
+     * Splits evicted entries into notification payloads below the PostgreSQL size limit.
+     * <p>
+     * A payload is a header line with the send time and the sending instance followed by one
+     * {@code cache:key} line per entry.
+     *
+     * @param sentAt  The send time in epoch milliseconds.
+     * @param nodeId  The ID of the sending instance.
+     * @param entries The evicted entries as {@code cache:key}.
+     * @return The payloads.
+     */
+    static List<String> encode(long sentAt, String nodeId, Collection<String> entries) {
+        String header = sentAt + " " + nodeId;
+        int headerBytes = header.getBytes(StandardCharsets.UTF_8).length;
+        List<String> payloads = new ArrayList<>(1);
+        StringBuilder payload = new StringBuilder(header);
+        int payloadBytes = headerBytes;
+        for (String entry : entries) {
+            int entryBytes = 1 + entry.getBytes(StandardCharsets.UTF_8).length;
+            if (headerBytes + entryBytes > MAX_PAYLOAD_BYTES) {
+                throw new IllegalArgumentException("Cache key too long for a notification: " + entry);
+            }
+            if (payloadBytes + entryBytes > MAX_PAYLOAD_BYTES) {
+                payloads.add(payload.toString());
+                payload = new StringBuilder(header);
+                payloadBytes = headerBytes;
+            }
+            payload.append('\n').append(entry);
+            payloadBytes += entryBytes;
+        }
+        payloads.add(payload.toString());
+        return payloads;
+    }
+
+    /**
+     * Parses a notification payload.
+     *
+     * @param payload The payload created by {@link #encode}.
+     * @return The notification.
+     * @throws IllegalArgumentException If the payload is malformed.
+     */
+    static Notification decode(String payload) {
+        String[] lines = payload.split("\n");
+        int separator = lines[0].indexOf(' ');
+        if (separator <= 0) {
+            throw new IllegalArgumentException("Missing header");
+        }
+        long sentAt = Long.parseLong(lines[0].substring(0, separator));
+        List<String> entries = Arrays.asList(lines).subList(1, lines.length);
+        for (String entry : entries) {
+            if (entry.indexOf(':') <= 0) {
+                throw new IllegalArgumentException("Malformed entry: " + entry);
+            }
+        }
+        return new Notification(sentAt, lines[0].substring(separator + 1), entries);
+    }
+
+    /**
+     * Notification represents a received batch of evictions.
+     *
+     * @param sentAt  The send time in epoch milliseconds.
+     * @param nodeId  The ID of the sending instance.
+     * @param entries The evicted entries as {@code cache:key}.
+     */
+    record Notification(long sentAt, String nodeId, List<String> entries) {
+    }
+
+    /**
+     * RowTrigger represents a table whose changed rows evict entries of a cache.
+     *
+     * @param cacheName The name of the cache.
+     * @param table     The table.
+     * @param keyColumn The column holding the cache key.
+     */
+    private record RowTrigger(String cacheName, String table, String keyColumn) {
+    }
+}
@@ -0,0 +1,168 @@
+package ru.viktor141.tms.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.viktor141.tms.dto.CommentExportRow;
+import ru.viktor141.tms.repository.CommentRepository;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * CommentExportService writes the full comment history of a task as NDJSON or CSV.
+ * <p>
+ * Comments are read from a server-side cursor and written as they arrive, so memory use does not
+ * depend on the number of comments. The output can be gzip-compressed on the fly.
+ */
+@Service
+@RequiredArgsConstructor
+public class CommentExportService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final CommentRepository commentRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Writes all comments of a task to the given stream.
+     * <p>
+     * The caller is responsible for checking that the task exists and may be read. The stream
+     * is finished but not closed.
+     *
+     * @param taskId The ID of the task.
+     * @param format The output format.
+     * @param gzip   Whether the output is gzip-compressed.
+     * @param out    The stream to write to.
+     * @throws IOException If writing fails, for example because the client disconnected.
+     */
+    @Transactional(readOnly = true)
+    public void export(Long taskId, Format format, boolean gzip, OutputStream out) throws IOException {
+        // Closing the writer finishes the gzip output and always frees its deflater, even when writing failed
+        OutputStream body = new KeepOpenOutputStream(out);
+        try (OutputStream encoded = gzip ? new GZIPOutputStream(body, BUFFER_SIZE) : body;
+             Writer writer = new BufferedWriter(new OutputStreamWriter(encoded, StandardCharsets.UTF_8), BUFFER_SIZE);
+             Stream<CommentExportRow> rows = commentRepository.streamExportRowsByTaskId(taskId)) {
+            if (format == Format.CSV) {
+                writeCsv(rows.iterator(), writer);
+            } else {
+                writeNdjson(rows.iterator(), writer);
+            }
+        }
+        out.flush();
+    }
+
+    private void writeNdjson(Iterator<CommentExportRow> rows, Writer writer) throws IOException {
+        ObjectWriter rowWriter = objectMapper.writerFor(CommentExportRow.class);
+        while (rows.hasNext()) {
+            writer.write(rowWriter.writeValueAsString(rows.next()));
+            writer.write('\n');
+        }
+    }
+
+    private static void writeCsv(Iterator<CommentExportRow> rows, Writer writer) throws IOException {
+        writer.write("id,createdDate,authorId,authorEmail,text\r\n");
+        while (rows.hasNext()) {
+            CommentExportRow row = rows.next();
+            writer.write(String.valueOf(row.id()));
+            writer.write(',');
+            writer.write(row.createdDate() == null ? "" : row.createdDate().toInstant().toString());
+            writer.write(',');
+            writer.write(String.valueOf(row.authorId()));
+            writer.write(',');
+            writeCsvField(row.authorEmail(), writer);
+            writer.write(',');
+            writeCsvField(row.text(), writer);
+            writer.write("\r\n");
+        }
+    }
+
+    private static void writeCsvField(String value, Writer writer) throws IOException {
+        if (value == null) {
+            return;
+        }
+        // RFC 4180: quote fields containing separators, quotes or line breaks, doubling the quotes
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    /**
+     * Format represents the supported export formats.
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public enum Format {
+        /**
+         * One JSON object per line.
+         */
+        NDJSON("application/x-ndjson", "ndjson"),
+
+        /**
+         * Comma-separated values with a header row.
+         */
+        CSV("text/csv", "csv");
+
+        /**
+         * The media type of the output.
+         */
+        private final String mediaType;
+
+        /**
+         * The file extension of the output.
+         */
+        private final String extension;
+
+        /**
+         * Parses a format name, ignoring case.
+         *
+         * @param name The format name.
+         * @return The Format.
+         * @throws IllegalArgumentException If the format is not supported.
+         */
+        public static Format of(String name) {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        }
+
+        /**
+         * Returns the media type of the output with its charset.
+         *
+         * @return A MediaType object.
+         */
+        public MediaType toMediaType() {
+            return new MediaType(MediaType.valueOf(mediaType), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * KeepOpenOutputStream passes writes through to a stream that is owned by the caller and must not be closed.
+     */
+    private static class KeepOpenOutputStream extends FilterOutputStream {
+
+        KeepOpenOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
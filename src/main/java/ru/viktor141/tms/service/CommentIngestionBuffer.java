@@ -0,0 +1,211 @@
+package ru.viktor141.tms.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.viktor141.tms.dto.CommentDTO;
+import ru.viktor141.tms.model.Comment;
+import ru.viktor141.tms.model.Task;
+import ru.viktor141.tms.model.User;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * CommentIngestionBuffer groups concurrent comment writes into batched inserts.
+ * <p>
+ * When enabled, validated comments are queued and a single flusher thread writes them with one
+ * multi-row insert per batch. A batch is flushed when it reaches the maximum size or when the
+ * linger time has passed since its first comment. Callers block until their batch is committed,
+ * so the returned comment always carries its durable ID. When disabled, or when the caller runs in a
+ * transaction the comment must commit with (such as an idempotent request), comments are written
+ * directly through {@link CommentService#addCommentToTask}.
+ */
+@Slf4j
+@Component
+public class CommentIngestionBuffer {
+
+    private static final long IDLE_POLL_MS = 100;
+
+    private final CommentService commentService;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final long lingerNanos;
+    private final BlockingQueue<PendingComment> queue;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    /**
+     * Constructs a new CommentIngestionBuffer.
+     *
+     * @param commentService The service used to write comments.
+     * @param enabled        Whether comments are batched.
+     * @param maxBatchSize   The maximum number of comments per insert.
+     * @param lingerMs       The maximum time a comment waits for other comments to join its batch.
+     * @param queueCapacity  The maximum number of queued comments before writes fall back to the direct path.
+     */
+    public CommentIngestionBuffer(CommentService commentService,
+                                  @Value("${tms.comments.ingest.batching.enabled:false}") boolean enabled,
+                                  @Value("${tms.comments.ingest.batching.max-batch-size:100}") int maxBatchSize,
+                                  @Value("${tms.comments.ingest.batching.linger-ms:5}") long lingerMs,
+                                  @Value("${tms.comments.ingest.batching.queue-capacity:10000}") int queueCapacity) {
+        this.commentService = commentService;
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMs);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    /**
+     * Starts the flusher thread when batching is enabled.
+     */
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        flusher = new Thread(this::run, "comment-ingestion-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Stops the flusher thread after writing all queued comments.
+     *
+     * @throws InterruptedException If interrupted while waiting for the flusher.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (flusher != null) {
+            flusher.join();
+        }
+    }
+
+    /**
+     * Adds a new comment to a task, batching the write when enabled.
+     *
+     * @param taskId     The ID of the task; the caller must have checked that it exists.
+     * @param commentDTO The comment details.
+     * @param user       The user adding the comment.
+     * @return A CommentDTO representing the committed comment.
+     */
+    public CommentDTO submit(Long taskId, CommentDTO commentDTO, User user) {
+        if (!running || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return commentService.addCommentToTask(taskId, commentDTO, user);
+        }
+
+        Task task = new Task();
+        task.setId(taskId);
+
+        Comment comment = new Comment();
+        comment.setText(commentDTO.getText());
+        comment.setAuthor(user);
+        comment.setTask(task);
+        comment.setCreatedDate(new Date());
+
+        PendingComment pending = new PendingComment(comment);
+        if (!queue.offer(pending)) {
+            log.warn("Comment ingestion queue is full, writing directly");
+            return commentService.addCommentToTask(taskId, commentDTO, user);
+        }
+        // The flusher may have drained the queue and exited since running was checked: whoever removes
+        // the comment from the queue writes it, so it is never left behind
+        if (!running && queue.remove(pending)) {
+            return commentService.addCommentToTask(taskId, commentDTO, user);
+        }
+
+        try {
+            return pending.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the comment to be written", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Failed to write comment", e.getCause());
+        }
+    }
+
+    private void run() {
+        List<PendingComment> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingComment first = queue.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingComment next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(batch, e);
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingComment> batch) {
+        try {
+            List<CommentDTO> saved = commentService.addComments(batch.stream().map(p -> p.comment).toList());
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result.complete(saved.get(i));
+            }
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.get(0).result.completeExceptionally(e);
+                return;
+            }
+            // One bad comment must not fail the whole batch: retry them one by one
+            log.warn("Batched comment insert failed, retrying {} comments individually", batch.size(), e);
+            for (PendingComment pending : batch) {
+                try {
+                    pending.result.complete(commentService.addComments(List.of(pending.comment)).get(0));
+                } catch (RuntimeException ex) {
+                    pending.result.completeExceptionally(ex);
+                }
+            }
+        }
+    }
+
+    private void fail(List<PendingComment> batch, Exception cause) {
+        batch.forEach(p -> p.result.completeExceptionally(cause));
+        PendingComment pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * A queued comment together with the future completed once it is committed.
+     */
+    private static final class PendingComment {
+        private final Comment comment;
+        private final CompletableFuture<CommentDTO> result = new CompletableFuture<>();
+
+        private PendingComment(Comment comment) {
+            this.comment = comment;
+        }
+    }
+}
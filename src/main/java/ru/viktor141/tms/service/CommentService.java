@@ -1,19 +1,31 @@
 package ru.viktor141.tms.service;
 
-import jakarta.persistence.EntityNotFoundException;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.transaction.annotation.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import ru.viktor141.tms.dto.CommentDTO;
+import ru.viktor141.tms.dto.CursorPageDTO;
+import ru.viktor141.tms.event.TaskChangeEvent;
+import ru.viktor141.tms.exception.TaskNotFoundException;
 import ru.viktor141.tms.model.Comment;
-import ru.viktor141.tms.model.Task;
 import ru.viktor141.tms.model.User;
 import ru.viktor141.tms.repository.CommentRepository;
 import ru.viktor141.tms.repository.TaskRepository;
+import ru.viktor141.tms.utils.CursorUtils;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 /**
  * CommentService manages comment-related operations.
@@ -22,10 +34,17 @@ import java.util.Date;
  */
 @Service
 @RequiredArgsConstructor
+@Timed(value = "tms.service", histogram = true)
 public class CommentService {
 
+    /**
+     * The maximum length of the latest comment preview stored on a task.
+     */
+    public static final int PREVIEW_LENGTH = 256;
+
     private final CommentRepository commentRepository;
     private final TaskRepository taskRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Retrieves comments for a specific task with pagination.
@@ -33,13 +52,89 @@ public class CommentService {
      * @param taskId   The ID of the task.
      * @param pageable The pagination settings.
      * @return A Page of CommentDTO objects.
-     * @throws EntityNotFoundException If the task is not found.
+     * @throws TaskNotFoundException If the task is not found.
      */
     public Page<CommentDTO> getCommentsByTask(Long taskId, Pageable pageable) {
-        Task task = taskRepository.findById(taskId)
-                .orElseThrow(() -> new EntityNotFoundException("Task not found with id: " + taskId));
+        if (!taskRepository.existsById(taskId)) {
+            throw new TaskNotFoundException(taskId);
+        }
 
-        return commentRepository.findAllByTaskId(task.getId(), pageable).map(this::convertToDTO);
+        return commentRepository.findAllByTaskId(taskId, pageable).map(this::convertToDTO);
+    }
+
+    /**
+     * Retrieves comments for a specific task using keyset pagination on (creation date, ID).
+     * <p>
+     * The task existence check is part of the page query, so each page is a single index range scan.
+     *
+     * @param taskId The ID of the task.
+     * @param cursor The cursor returned with the previous page, or null for the first page.
+     * @param size   The page size.
+     * @return A CursorPageDTO of CommentDTO objects.
+     * @throws TaskNotFoundException If the task is not found.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDTO<CommentDTO> getCommentsByTask(Long taskId, String cursor, int size) {
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<Object[]> rows;
+        if (cursor == null) {
+            rows = commentRepository.findFirstByTaskIdWithTask(taskId, limit);
+        } else {
+            CursorUtils.Position position = CursorUtils.decode(cursor);
+            rows = commentRepository.findAfterByTaskIdWithTask(taskId, position.createdDate(), position.id(), limit);
+        }
+
+        if (rows.isEmpty()) {
+            throw new TaskNotFoundException(taskId);
+        }
+
+        List<Comment> comments = rows.stream()
+                .map(row -> (Comment) row[1])
+                .filter(Objects::nonNull)
+                .toList();
+
+        String nextCursor = null;
+        if (comments.size() > size) {
+            comments = comments.subList(0, size);
+            Comment last = comments.get(size - 1);
+            nextCursor = CursorUtils.encode(last.getCreatedDate(), last.getId());
+        }
+
+        return new CursorPageDTO<>(comments.stream().map(this::convertToDTO).toList(), nextCursor);
+    }
+
+    /**
+     * Retrieves comments by their IDs within the given tasks.
+     *
+     * @param taskIds The IDs of the tasks.
+     * @param ids     The IDs of the comments.
+     * @return A list of CommentDTO objects ordered by ID.
+     */
+    public List<CommentDTO> findCommentsByIds(List<Long> taskIds, List<Long> ids) {
+        if (taskIds.isEmpty() || ids.isEmpty()) {
+            return List.of();
+        }
+        return commentRepository.findAllByTaskIdInAndIdIn(taskIds, ids).stream()
+                .sorted(Comparator.comparing(Comment::getId))
+                .map(this::convertToDTO)
+                .toList();
+    }
+
+    /**
+     * Retrieves comments after the given position in (task ID, ID) order.
+     *
+     * @param afterTaskId The task ID of the last returned comment.
+     * @param afterId     The ID of the last returned comment.
+     * @param userId      The ID of the user whose tasks the comments belong to, or null for all comments.
+     * @param limit       The maximum number of comments.
+     * @return A list of CommentDTO objects.
+     */
+    public List<CommentDTO> findCommentsAfter(Long afterTaskId, Long afterId, Long userId, int limit) {
+        Pageable page = PageRequest.of(0, limit);
+        List<Comment> comments = userId == null
+                ? commentRepository.findAfter(afterTaskId, afterId, page)
+                : commentRepository.findVisibleAfter(afterTaskId, afterId, userId, page);
+        return comments.stream().map(this::convertToDTO).toList();
     }
 
     /**
@@ -49,21 +144,78 @@ public class CommentService {
      * @param commentDTO  The comment details.
      * @param user        The user adding the comment.
      * @return A CommentDTO representing the newly added comment.
-     * @throws EntityNotFoundException If the task is not found.
+     * @throws TaskNotFoundException If the task is not found.
      */
     @Transactional
     public CommentDTO addCommentToTask(Long taskId, CommentDTO commentDTO, User user) {
-        Task task = taskRepository.findById(taskId)
-                .orElseThrow(() -> new EntityNotFoundException("Task not found with id: " + taskId));
+        // Only the owners are needed, so the task itself (and its description) is not loaded
+        Object[] owners = taskRepository.findOwnerIdsByIdIn(List.of(taskId)).stream().findFirst()
+                .orElseThrow(() -> new TaskNotFoundException(taskId));
 
         Comment comment = new Comment();
         comment.setText(commentDTO.getText());
         comment.setAuthor(user);
-        comment.setTask(task);
+        comment.setTask(taskRepository.getReferenceById(taskId));
         comment.setCreatedDate(new Date());
 
         Comment savedComment = commentRepository.save(comment);
-        return convertToDTO(savedComment);
+        taskRepository.registerComments(taskId, 1, savedComment.getId(),
+                preview(savedComment.getText()), savedComment.getCreatedDate());
+
+        CommentDTO dto = convertToDTO(savedComment);
+        eventPublisher.publishEvent(TaskChangeEvent.ofComment(dto, (Long) owners[1], (Long) owners[2]));
+        return dto;
+    }
+
+    /**
+     * Adds several already validated comments with a single multi-row insert.
+     * <p>
+     * The caller is responsible for checking that the referenced tasks exist and may be commented on.
+     *
+     * @param comments The comments to add; each must reference an author and a task.
+     * @return A list of CommentDTO objects in the same order as the given comments.
+     */
+    @Transactional
+    public List<CommentDTO> addComments(List<Comment> comments) {
+        List<Long> ids = commentRepository.insertAll(comments);
+        Map<Long, List<Comment>> byTask = new LinkedHashMap<>();
+        for (int i = 0; i < comments.size(); i++) {
+            Comment comment = comments.get(i);
+            comment.setId(ids.get(i));
+            byTask.computeIfAbsent(comment.getTask().getId(), id -> new ArrayList<>()).add(comment);
+        }
+
+        byTask.forEach((taskId, taskComments) -> {
+            Comment last = taskComments.get(taskComments.size() - 1);
+            taskRepository.registerComments(taskId, taskComments.size(), last.getId(),
+                    preview(last.getText()), last.getCreatedDate());
+        });
+
+        List<CommentDTO> dtos = comments.stream().map(this::convertToDTO).toList();
+        Map<Long, Object[]> owners = new HashMap<>();
+        for (Object[] row : taskRepository.findOwnerIdsByIdIn(byTask.keySet())) {
+            owners.put((Long) row[0], row);
+        }
+        for (CommentDTO dto : dtos) {
+            Object[] row = owners.get(dto.getTaskId());
+            eventPublisher.publishEvent(TaskChangeEvent.ofComment(dto,
+                    row == null ? null : (Long) row[1], row == null ? null : (Long) row[2]));
+        }
+        return dtos;
+    }
+
+    /**
+     * Returns the beginning of a comment text as stored in the task preview.
+     *
+     * @param text The comment text.
+     * @return The text truncated to at most PREVIEW_LENGTH characters.
+     */
+    public static String preview(String text) {
+        if (text == null || text.length() <= PREVIEW_LENGTH) {
+            return text;
+        }
+        int end = Character.isHighSurrogate(text.charAt(PREVIEW_LENGTH - 1)) ? PREVIEW_LENGTH - 1 : PREVIEW_LENGTH;
+        return text.substring(0, end);
     }
 
 
@@ -0,0 +1,125 @@
+package ru.viktor141.tms.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.viktor141.tms.dto.TaskDTO;
+import ru.viktor141.tms.model.Comment;
+import ru.viktor141.tms.repository.CommentRepository;
+import ru.viktor141.tms.repository.TaskRepository;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * CommentStatsRepairService recomputes the comment statistics stored on tasks.
+ * <p>
+ * The counters are maintained incrementally by CommentService; this job walks all tasks in
+ * batches and rewrites the statistics of the tasks whose stored values have drifted. Each batch
+ * locks its task rows before counting the comments. It also runs once at startup: a schema update
+ * that adds the statistics columns leaves every existing task with zero comments until then.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CommentStatsRepairService {
+
+    private final TaskRepository taskRepository;
+    private final CommentRepository commentRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final LocalCache<Long, TaskDTO> taskCache;
+
+    @Value("${tms.comment-stats.repair.batch-size:500}")
+    private int batchSize;
+
+    @Value("${tms.comment-stats.repair.on-startup:true}")
+    private boolean repairOnStartup;
+
+    /**
+     * Recomputes the comment statistics of all tasks once the application has started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void repairAfterStartup() {
+        if (repairOnStartup) {
+            repairAll();
+        }
+    }
+
+    /**
+     * Recomputes the comment statistics of all tasks.
+     *
+     * @return The number of repaired tasks.
+     */
+    @Scheduled(cron = "${tms.comment-stats.repair.cron:0 30 3 * * *}")
+    public int repairAll() {
+        long lastId = 0;
+        int repaired = 0;
+        List<Long> ids;
+        while (!(ids = taskRepository.findIdsAfter(lastId, PageRequest.of(0, batchSize))).isEmpty()) {
+            List<Long> batch = ids;
+            Integer count = transactionTemplate.execute(status -> repairBatch(batch));
+            repaired += count == null ? 0 : count;
+            lastId = ids.get(ids.size() - 1);
+        }
+
+        if (repaired > 0) {
+            log.warn("Repaired comment statistics of {} tasks", repaired);
+        }
+        return repaired;
+    }
+
+    /**
+     * Recomputes the comment statistics of the given tasks.
+     *
+     * @param taskIds The IDs of the tasks.
+     * @return The number of repaired tasks.
+     */
+    private int repairBatch(List<Long> taskIds) {
+        // Locking the tasks first makes comments added meanwhile either visible to the summary or
+        // wait for the rewritten statistics, so none of them is lost
+        List<Object[]> storedStats = taskRepository.lockCommentStatsByIdIn(taskIds);
+        Map<Long, Object[]> actual = commentRepository.summarizeByTaskIdIn(taskIds).stream()
+                .collect(Collectors.toMap(row -> (Long) row[0], Function.identity()));
+
+        List<Long> drifted = new ArrayList<>();
+        for (Object[] stored : storedStats) {
+            Object[] summary = actual.get((Long) stored[0]);
+            int count = summary == null ? 0 : ((Long) summary[1]).intValue();
+            Long lastCommentId = summary == null ? null : (Long) summary[2];
+            if (count != (Integer) stored[1] || !Objects.equals(lastCommentId, stored[2])) {
+                drifted.add((Long) stored[0]);
+            }
+        }
+        if (drifted.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> lastCommentIds = drifted.stream()
+                .map(actual::get)
+                .filter(Objects::nonNull)
+                .map(summary -> (Long) summary[2])
+                .toList();
+        Map<Long, Comment> lastComments = lastCommentIds.isEmpty() ? Map.of()
+                : commentRepository.findAllByTaskIdInAndIdIn(drifted, lastCommentIds).stream()
+                .collect(Collectors.toMap(Comment::getId, Function.identity()));
+
+        for (Long taskId : drifted) {
+            Object[] summary = actual.get(taskId);
+            Comment last = summary == null ? null : lastComments.get((Long) summary[2]);
+            taskRepository.updateCommentStats(taskId,
+                    summary == null ? 0 : ((Long) summary[1]).intValue(),
+                    last == null ? null : last.getId(),
+                    last == null ? null : CommentService.preview(last.getText()),
+                    last == null ? null : last.getCreatedDate());
+        }
+        taskCache.evictAll(drifted);
+        return drifted.size();
+    }
+}
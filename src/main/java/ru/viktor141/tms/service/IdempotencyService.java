@@ -0,0 +1,268 @@
+package ru.viktor141.tms.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.viktor141.tms.exception.IdempotencyKeyReusedException;
+import ru.viktor141.tms.exception.IdempotentRequestInProgressException;
+import ru.viktor141.tms.model.IdempotencyRecord;
+import ru.viktor141.tms.model.User;
+import ru.viktor141.tms.repository.IdempotencyRecordRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * IdempotencyService makes retried write requests safe.
+ * <p>
+ * Successful responses of requests carrying an Idempotency-Key header are kept in the idempotency_keys
+ * table for a limited time, together with a hash of the request scope and body. Before running the
+ * write, a request takes a transaction-scoped advisory lock on its key and reserves the key as pending;
+ * the write and the stored response then commit in that same transaction, so a key is never stored
+ * without its write or the other way round. A request whose key is locked by another one, on this or
+ * any other instance, polls until that request has finished and then replays its response. Reusing a
+ * key for a different request is rejected with IdempotencyKeyReusedException.
+ * <p>
+ * Stored bodies leave out user passwords. Completed responses are also kept in memory, so repeated
+ * retries on the same instance skip the database.
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    /**
+     * The name of the request header carrying the idempotency key.
+     */
+    public static final String HEADER = "Idempotency-Key";
+
+    /**
+     * The name of the response header marking a replayed response.
+     */
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final int PENDING = 0;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper storageMapper;
+    private final Duration ttl;
+    private final int maxCachedEntries;
+    private final Duration waitTimeout;
+    private final Duration pollInterval;
+
+    private final Map<String, IdempotencyRecord> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new IdempotencyService.
+     *
+     * @param idempotencyRecordRepository The repository storing responses.
+     * @param transactionTemplate         The template running each request together with its stored response.
+     * @param objectMapper                The mapper used to store response bodies.
+     * @param ttl                         How long responses are kept.
+     * @param maxCachedEntries            The maximum number of responses kept in memory.
+     * @param waitTimeout                 How long a request waits for another one with the same key.
+     * @param pollInterval                How often a waiting request checks whether the other one has finished.
+     */
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository,
+                              TransactionTemplate transactionTemplate,
+                              ObjectMapper objectMapper,
+                              @Value("${tms.idempotency.ttl:PT24H}") Duration ttl,
+                              @Value("${tms.idempotency.max-cached-entries:100000}") int maxCachedEntries,
+                              @Value("${tms.idempotency.wait-timeout:PT30S}") Duration waitTimeout,
+                              @Value("${tms.idempotency.poll-interval:PT0.05S}") Duration pollInterval) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.storageMapper = objectMapper.copy().addMixIn(User.class, PasswordFreeUser.class);
+        this.ttl = ttl;
+        this.maxCachedEntries = maxCachedEntries;
+        this.waitTimeout = waitTimeout;
+        this.pollInterval = pollInterval;
+    }
+
+    /**
+     * Runs a write action at most once per idempotency key.
+     *
+     * @param idempotencyKey The key sent by the client, or null to run the action unconditionally.
+     * @param userId         The ID of the user making the request.
+     * @param scope          The request scope, such as the method and path.
+     * @param request        The request body.
+     * @param bodyType       The type of the response body.
+     * @param action         The write action; it runs in the transaction that stores its response.
+     * @param <T>            The type of the response body.
+     * @return The response of the action, or the stored response if the request was already made.
+     * @throws IllegalArgumentException              If the key is too long.
+     * @throws IdempotencyKeyReusedException         If the key was already used for a different request.
+     * @throws IdempotentRequestInProgressException If a request with the same key is still running after the wait timeout.
+     */
+    public <T> ResponseEntity<T> execute(String idempotencyKey, Long userId, String scope, Object request,
+                                         Class<T> bodyType, Supplier<ResponseEntity<T>> action) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return action.get();
+        }
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException(HEADER + " must not be longer than " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String id = hash(userId + ":" + idempotencyKey);
+        String fingerprint = hash(scope + "\n" + toJson(objectMapper, request));
+        long deadline = System.nanoTime() + waitTimeout.toNanos();
+        while (true) {
+            IdempotencyRecord cached = cached(id);
+            if (cached != null) {
+                return replay(cached, fingerprint, bodyType);
+            }
+
+            Attempt<T> attempt = transactionTemplate.execute(status -> attempt(id, fingerprint, bodyType, action));
+            if (attempt != null) {
+                if (attempt.record() != null) {
+                    cacheRecord(attempt.record());
+                }
+                return attempt.response();
+            }
+
+            // Another request with this key is running: wait for it to commit or roll back
+            if (System.nanoTime() - deadline > 0) {
+                throw new IdempotentRequestInProgressException(HEADER);
+            }
+            sleep(pollInterval);
+        }
+    }
+
+    /**
+     * Removes expired responses from memory and from the database.
+     */
+    @Scheduled(fixedDelayString = "${tms.idempotency.purge-interval-ms:600000}")
+    public void purgeExpired() {
+        cache.values().removeIf(this::isExpired);
+        int deleted = idempotencyRecordRepository.deleteByCreatedDateBefore(new Date(System.currentTimeMillis() - ttl.toMillis()));
+        if (deleted > 0) {
+            log.info("Purged {} expired idempotency keys", deleted);
+        }
+    }
+
+    /**
+     * Runs the request unless another one holds its key, in the caller's transaction.
+     *
+     * @return The outcome, or null if another request holds the key.
+     */
+    private <T> Attempt<T> attempt(String id, String fingerprint, Class<T> bodyType, Supplier<ResponseEntity<T>> action) {
+        if (!idempotencyRecordRepository.tryLock(lockKey(id))) {
+            return null;
+        }
+
+        Date now = new Date();
+        if (idempotencyRecordRepository.reserve(id, fingerprint, PENDING, now, new Date(now.getTime() - ttl.toMillis())) == 0) {
+            // Completed by a request that committed before the lock was taken
+            IdempotencyRecord stored = idempotencyRecordRepository.findById(id)
+                    .orElseThrow(() -> new IllegalStateException("Idempotency key disappeared while locked"));
+            return new Attempt<>(replay(stored, fingerprint, bodyType), stored);
+        }
+
+        ResponseEntity<T> response = action.get();
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            // Nothing is stored, so a retry runs the action again
+            idempotencyRecordRepository.release(id);
+            return new Attempt<>(response, null);
+        }
+
+        IdempotencyRecord record = new IdempotencyRecord(id, fingerprint, response.getStatusCode().value(),
+                toJson(storageMapper, response.getBody()), now);
+        idempotencyRecordRepository.complete(id, record.getStatus(), record.getBody());
+        return new Attempt<>(response, record);
+    }
+
+    private IdempotencyRecord cached(String id) {
+        IdempotencyRecord cached = cache.get(id);
+        if (cached != null && isExpired(cached)) {
+            cache.remove(id, cached);
+            return null;
+        }
+        return cached;
+    }
+
+    private void cacheRecord(IdempotencyRecord record) {
+        // Past the limit the database alone backs the lookups
+        if (cache.size() < maxCachedEntries) {
+            cache.put(record.getId(), record);
+        }
+    }
+
+    private <T> ResponseEntity<T> replay(IdempotencyRecord record, String fingerprint, Class<T> bodyType) {
+        if (!record.getFingerprint().equals(fingerprint)) {
+            throw new IdempotencyKeyReusedException(HEADER);
+        }
+        try {
+            T body = objectMapper.readValue(record.getBody(), bodyType);
+            return ResponseEntity.status(HttpStatusCode.valueOf(record.getStatus()))
+                    .header(REPLAYED_HEADER, "true")
+                    .body(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to replay idempotent response", e);
+        }
+    }
+
+    private boolean isExpired(IdempotencyRecord record) {
+        return record.getCreatedDate().getTime() + ttl.toMillis() < System.currentTimeMillis();
+    }
+
+    private static String toJson(ObjectMapper mapper, Object value) {
+        try {
+            return mapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize idempotent request or response", e);
+        }
+    }
+
+    private static long lockKey(String id) {
+        // The ID is a hex SHA-256 hash, so its first 64 bits are as good as any
+        return Long.parseUnsignedLong(id.substring(0, 16), 16);
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a concurrent request", e);
+        }
+    }
+
+    private static String hash(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * The response of an attempt together with the record stored or found for it, if any.
+     */
+    private record Attempt<T>(ResponseEntity<T> response, IdempotencyRecord record) {
+    }
+
+    /**
+     * Mix-in leaving the password hash out of stored users.
+     */
+    @JsonIgnoreProperties("password")
+    private abstract static class PasswordFreeUser {
+    }
+}
@@ -0,0 +1,128 @@
+package ru.viktor141.tms.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import ru.viktor141.tms.config.ReplicaRoutingDataSource;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * LocalCache represents an in-process cache whose entries are evicted on every application instance.
+ * <p>
+ * Evictions go through the {@link CacheInvalidationBus}: inside a transaction they take effect when it
+ * commits, on this instance and, through a notification, on all others. Entries also expire after a
+ * fixed time, which bounds the staleness if a notification is ever lost. Values are loaded from the
+ * primary database, never from a lagging replica. While the bus is not listening, nothing is cached
+ * and every lookup goes to the loader. Cached values are shared between threads and must not be modified.
+ *
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values.
+ */
+public class LocalCache<K, V> {
+
+    private final String name;
+    private final Function<String, K> keyParser;
+    private final Cache<K, V> cache;
+    private final CacheInvalidationBus bus;
+
+    /**
+     * Constructs a new LocalCache and registers it with the bus.
+     *
+     * @param name          The name of the cache, unique within the application.
+     * @param keyParser     Converts a key received in a notification back into a key of the cache.
+     * @param maximumSize   The maximum number of entries.
+     * @param ttl           How long an entry is kept after it was loaded.
+     * @param bus           The bus that distributes evictions.
+     * @param meterRegistry The registry of the cache metrics.
+     */
+    public LocalCache(String name, Function<String, K> keyParser, long maximumSize, Duration ttl,
+                      CacheInvalidationBus bus, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.keyParser = keyParser;
+        this.bus = bus;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, name);
+        bus.register(this);
+    }
+
+    /**
+     * Returns the name of the cache.
+     *
+     * @return The name of the cache.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the cached value of a key, loading it when it is missing.
+     * <p>
+     * A null result of the loader is returned but not cached, so a missing row is looked up again.
+     * A value that is cached is loaded with {@link ReplicaRoutingDataSource#readFromPrimary}.
+     *
+     * @param key    The key.
+     * @param loader Loads the value of the key; may return null.
+     * @return The value or null.
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        if (!bus.isConnected()) {
+            return loader.apply(key);
+        }
+        return cache.get(key, k -> ReplicaRoutingDataSource.readFromPrimary(() -> loader.apply(k)));
+    }
+
+    /**
+     * Returns the cached value of a key without loading it.
+     *
+     * @param key The key.
+     * @return The value or null if it is not cached.
+     */
+    public V getIfPresent(K key) {
+        return bus.isConnected() ? cache.getIfPresent(key) : null;
+    }
+
+    /**
+     * Evicts a key on all application instances.
+     *
+     * @param key The key.
+     */
+    public void evict(K key) {
+        evictAll(List.of(key));
+    }
+
+    /**
+     * Evicts keys on all application instances.
+     *
+     * @param keys The keys.
+     */
+    public void evictAll(Collection<? extends K> keys) {
+        if (!keys.isEmpty()) {
+            bus.publish(name, keys.stream().map(String::valueOf).toList());
+        }
+    }
+
+    /**
+     * Removes a key received from the bus from this instance only.
+     *
+     * @param key The key as sent in the notification.
+     */
+    void invalidateLocally(String key) {
+        cache.invalidate(keyParser.apply(key));
+    }
+
+    /**
+     * Removes all entries from this instance only.
+     */
+    void invalidateAllLocally() {
+        cache.invalidateAll();
+    }
+}
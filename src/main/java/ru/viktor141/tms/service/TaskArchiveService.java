@@ -0,0 +1,116 @@
+package ru.viktor141.tms.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.viktor141.tms.event.TaskChangeEvent;
+import ru.viktor141.tms.repository.ArchivedCommentRepository;
+import ru.viktor141.tms.repository.ArchivedTaskRepository;
+import ru.viktor141.tms.repository.CommentRepository;
+import ru.viktor141.tms.repository.TaskRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * TaskArchiveService moves old completed tasks into the archive tables.
+ * <p>
+ * Tasks are moved together with their comments in small batches, each batch in its own transaction,
+ * so the active tables and their indexes stay small. An archived task is published as deleted in
+ * the same transaction, so it leaves the change log, the event streams and the task caches.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "tms.archive.enabled", havingValue = "true", matchIfMissing = true)
+public class TaskArchiveService {
+
+    private final TaskRepository taskRepository;
+    private final CommentRepository commentRepository;
+    private final ArchivedTaskRepository archivedTaskRepository;
+    private final ArchivedCommentRepository archivedCommentRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${tms.archive.completed-age:P30D}")
+    private Duration completedAge;
+
+    @Value("${tms.archive.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * Archives all tasks completed longer than the configured age ago.
+     *
+     * @return The number of archived tasks.
+     */
+    @Scheduled(fixedDelayString = "${tms.archive.interval-ms:3600000}",
+            initialDelayString = "${tms.archive.initial-delay-ms:60000}")
+    public int archiveCompletedTasks() {
+        stampUndatedCompletedTasks();
+        Date completedBefore = Date.from(Instant.now().minus(completedAge));
+        int total = 0;
+        int archived;
+        do {
+            Integer batch = transactionTemplate.execute(status -> archiveBatch(completedBefore));
+            archived = batch == null ? 0 : batch;
+            total += archived;
+        } while (archived == batchSize);
+
+        if (total > 0) {
+            log.info("Archived {} tasks completed before {}", total, completedBefore);
+        }
+        return total;
+    }
+
+    /**
+     * Gives a completion date to completed tasks that have none, in batches.
+     *
+     * @return The number of stamped tasks.
+     */
+    private int stampUndatedCompletedTasks() {
+        int total = 0;
+        int stamped;
+        do {
+            Integer batch = transactionTemplate.execute(status -> taskRepository.stampUndatedCompletedTasks(batchSize));
+            stamped = batch == null ? 0 : batch;
+            total += stamped;
+        } while (stamped == batchSize);
+
+        if (total > 0) {
+            log.info("Stamped {} completed tasks without a completion date", total);
+        }
+        return total;
+    }
+
+    /**
+     * Moves one batch of completed tasks and their comments into the archive.
+     * <p>
+     * Must be called inside a transaction: the selected tasks stay locked until the batch is committed.
+     *
+     * @param completedBefore The completion date threshold.
+     * @return The number of archived tasks.
+     */
+    private int archiveBatch(Date completedBefore) {
+        List<Long> ids = taskRepository.lockCompletedTaskIds(completedBefore, batchSize);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        List<Object[]> owners = taskRepository.findOwnerIdsByIdIn(ids);
+        archivedTaskRepository.copyFromTasks(ids);
+        archivedCommentRepository.copyFromComments(ids);
+        commentRepository.deleteByTaskIdIn(ids);
+        taskRepository.deleteTasksByIdIn(ids);
+        for (Object[] row : owners) {
+            eventPublisher.publishEvent(TaskChangeEvent.ofDeletedTask((Long) row[0], (Long) row[1], (Long) row[2]));
+        }
+        return ids.size();
+    }
+}
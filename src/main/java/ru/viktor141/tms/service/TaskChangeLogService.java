@@ -0,0 +1,279 @@
+package ru.viktor141.tms.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.viktor141.tms.dto.CommentDTO;
+import ru.viktor141.tms.dto.TaskChangesDTO;
+import ru.viktor141.tms.dto.TaskDTO;
+import ru.viktor141.tms.event.TaskChangeEvent;
+import ru.viktor141.tms.model.TaskChange;
+import ru.viktor141.tms.model.User;
+import ru.viktor141.tms.repository.TaskChangeRepository;
+import ru.viktor141.tms.utils.UserAuthoritiesUtils;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * TaskChangeLogService maintains the task change log and answers delta sync requests.
+ * <p>
+ * Changes published by TaskService, CommentService and TaskArchiveService are collected for the
+ * current transaction and appended to the log with a single insert right before it commits. Each
+ * entry names the users who can see it, and a task that changes owners gets a tombstone for the
+ * former ones, so a sync only reads the entries of the caller written after the cursor. Entries
+ * are read in transaction order up to the oldest running transaction, so concurrent writers do not
+ * have to wait for each other and a sync never skips an entry committed late.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TaskChangeLogService {
+
+    private final TaskChangeRepository taskChangeRepository;
+    private final TaskService taskService;
+    private final CommentService commentService;
+
+    @Value("${tms.changes.retention:P30D}")
+    private Duration retention;
+
+    /**
+     * Records a change in the log as part of the transaction that made it.
+     *
+     * @param event The change.
+     */
+    @EventListener
+    public void onTaskChange(TaskChangeEvent event) {
+        List<TaskChange> entries = toEntries(event);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            taskChangeRepository.append(entries);
+            return;
+        }
+        pendingEntries().addAll(entries);
+    }
+
+    /**
+     * Retrieves the changes of the tasks visible to a user since a cursor.
+     * <p>
+     * Without a cursor, or with one older than the retained log, a full snapshot of the visible
+     * tasks and their comments is returned instead, in pages of at most {@code limit} items. The
+     * first page is marked with the reset flag, and the cursor of the last page continues with the
+     * changes made since the snapshot started.
+     *
+     * @param since       The cursor returned by the previous sync, or null for a full snapshot.
+     * @param limit       The maximum number of log entries, tasks or comments to read.
+     * @param userDetails The user details for authorization.
+     * @return A TaskChangesDTO object.
+     * @throws IllegalArgumentException If the cursor is malformed.
+     */
+    @Transactional(readOnly = true)
+    public TaskChangesDTO getChanges(String since, int limit, UserDetails userDetails) {
+        boolean admin = UserAuthoritiesUtils.isAdmin(userDetails);
+        Long userId = ((User) userDetails).getId();
+        Long ownerId = admin ? null : userId;
+
+        Cursor cursor = Cursor.parse(since);
+        if (cursor != null && cursor.phase() == Cursor.TASKS) {
+            return snapshotTasks(cursor, limit, ownerId, false);
+        }
+        if (cursor != null && cursor.phase() == Cursor.COMMENTS) {
+            return snapshotComments(cursor, limit, ownerId);
+        }
+
+        Object[] bounds = taskChangeRepository.findBounds().get(0);
+        long horizon = ((Number) bounds[0]).longValue();
+        if (cursor == null || (bounds[1] != null
+                && cursor.isBefore(((Number) bounds[1]).longValue(), ((Number) bounds[2]).longValue()))) {
+            return snapshotTasks(new Cursor(Cursor.TASKS, horizon, 0, 0), limit, ownerId, true);
+        }
+
+        Pageable page = PageRequest.of(0, limit + 1);
+        List<TaskChange> entries = admin
+                ? taskChangeRepository.findAfter(cursor.txId(), cursor.id(), horizon, page)
+                : taskChangeRepository.findVisibleAfter(cursor.txId(), cursor.id(), horizon, userId, page);
+        boolean hasMore = entries.size() > limit;
+        if (hasMore) {
+            entries = entries.subList(0, limit);
+        }
+        if (entries.isEmpty()) {
+            return new TaskChangesDTO(List.of(), List.of(), List.of(), cursor.toString(), false, false);
+        }
+
+        Set<Long> taskIds = new LinkedHashSet<>();
+        List<Long> commentIds = new ArrayList<>();
+        for (TaskChange entry : entries) {
+            taskIds.add(entry.getTaskId());
+            if (entry.getKind() == TaskChange.Kind.COMMENT_UPSERT) {
+                commentIds.add(entry.getCommentId());
+            }
+        }
+
+        // The log only says which tasks were touched; their current state decides upsert or tombstone
+        Map<Long, TaskDTO> visible = taskService.findTasksByIds(taskIds).stream()
+                .filter(task -> admin || UserAuthoritiesUtils.isAuthorOrAssigned(task, userDetails))
+                .collect(Collectors.toMap(TaskDTO::getId, Function.identity()));
+        List<TaskDTO> tasks = new ArrayList<>();
+        List<Long> deletedTaskIds = new ArrayList<>();
+        for (Long taskId : taskIds) {
+            TaskDTO task = visible.get(taskId);
+            if (task != null) {
+                tasks.add(task);
+            } else {
+                deletedTaskIds.add(taskId);
+            }
+        }
+        List<CommentDTO> comments = commentService.findCommentsByIds(List.copyOf(visible.keySet()), commentIds);
+
+        TaskChange last = entries.get(entries.size() - 1);
+        String next = new Cursor(Cursor.LOG, last.getTxId(), 0, last.getId()).toString();
+        return new TaskChangesDTO(tasks, deletedTaskIds, comments, next, hasMore, false);
+    }
+
+    /**
+     * Removes log entries older than the retention period.
+     * <p>
+     * Clients whose cursor falls before the retained entries receive a full snapshot.
+     */
+    @Scheduled(fixedDelayString = "${tms.changes.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        int deleted = taskChangeRepository.deleteExpired(new Date(System.currentTimeMillis() - retention.toMillis()));
+        if (deleted > 0) {
+            log.info("Purged {} expired task changes", deleted);
+        }
+    }
+
+    private TaskChangesDTO snapshotTasks(Cursor cursor, int limit, Long ownerId, boolean reset) {
+        List<TaskDTO> tasks = taskService.findTasksAfter(cursor.taskId(), ownerId, limit + 1);
+        if (tasks.size() > limit) {
+            tasks = tasks.subList(0, limit);
+            Cursor next = new Cursor(Cursor.TASKS, cursor.txId(), tasks.get(limit - 1).getId(), 0);
+            return new TaskChangesDTO(tasks, List.of(), List.of(), next.toString(), true, reset);
+        }
+        // The comments of the tasks follow on the next pages
+        Cursor next = new Cursor(Cursor.COMMENTS, cursor.txId(), 0, 0);
+        return new TaskChangesDTO(tasks, List.of(), List.of(), next.toString(), true, reset);
+    }
+
+    private TaskChangesDTO snapshotComments(Cursor cursor, int limit, Long ownerId) {
+        List<CommentDTO> comments = commentService.findCommentsAfter(cursor.taskId(), cursor.id(), ownerId, limit + 1);
+        if (comments.size() > limit) {
+            comments = comments.subList(0, limit);
+            CommentDTO last = comments.get(limit - 1);
+            Cursor next = new Cursor(Cursor.COMMENTS, cursor.txId(), last.getTaskId(), last.getId());
+            return new TaskChangesDTO(List.of(), List.of(), comments, next.toString(), true, false);
+        }
+        // Changes of the transactions that were running when the snapshot started are replayed from the log
+        Cursor next = new Cursor(Cursor.LOG, cursor.txId(), 0, 0);
+        return new TaskChangesDTO(List.of(), List.of(), comments, next.toString(), false, false);
+    }
+
+    private List<TaskChange> pendingEntries() {
+        @SuppressWarnings("unchecked")
+        List<TaskChange> pending = (List<TaskChange>) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) {
+            return pending;
+        }
+
+        List<TaskChange> entries = new ArrayList<>();
+        TransactionSynchronizationManager.bindResource(this, entries);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                taskChangeRepository.append(entries);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(TaskChangeLogService.this);
+            }
+        });
+        return entries;
+    }
+
+    private static List<TaskChange> toEntries(TaskChangeEvent event) {
+        Date now = new Date();
+        List<TaskChange> entries = new ArrayList<>(1);
+        switch (event.getType()) {
+            case TASK_CREATED, TASK_UPDATED -> {
+                entries.add(new TaskChange(null, 0, TaskChange.Kind.TASK_UPSERT, event.getTaskId(), null,
+                        event.getAuthorId(), event.getAssigneeId(), now));
+                for (Long formerOwnerId : event.getFormerOwnerIds()) {
+                    entries.add(new TaskChange(null, 0, TaskChange.Kind.TASK_TOMBSTONE, event.getTaskId(), null,
+                            formerOwnerId, null, now));
+                }
+            }
+            case TASK_DELETED -> entries.add(new TaskChange(null, 0, TaskChange.Kind.TASK_TOMBSTONE, event.getTaskId(), null,
+                    event.getAuthorId(), event.getAssigneeId(), now));
+            case COMMENT_ADDED -> entries.add(new TaskChange(null, 0, TaskChange.Kind.COMMENT_UPSERT, event.getTaskId(),
+                    ((CommentDTO) event.getPayload()).getId(), event.getAuthorId(), event.getAssigneeId(), now));
+            case TASK_REMOVED -> {
+                // Only addressed to event subscribers, never published
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Cursor represents a sync position: a position in the log, or the progress of a snapshot.
+     * <p>
+     * Log positions are (transaction ID, entry ID) pairs. Snapshot positions keep the log horizon
+     * of the snapshot next to the last task or comment returned.
+     *
+     * @param phase  The phase: {@link #LOG}, {@link #TASKS} or {@link #COMMENTS}.
+     * @param txId   The transaction ID of the log position, or the horizon of the snapshot.
+     * @param taskId The ID of the last returned task, or the task ID of the last returned comment.
+     * @param id     The ID of the last returned log entry or comment.
+     */
+    private record Cursor(char phase, long txId, long taskId, long id) {
+
+        private static final char LOG = 'l';
+        private static final char TASKS = 't';
+        private static final char COMMENTS = 'c';
+
+        /**
+         * Parses a cursor returned by a previous sync.
+         *
+         * @param value The cursor, or null.
+         * @return The cursor, or null if none was given.
+         * @throws IllegalArgumentException If the cursor is malformed.
+         */
+        static Cursor parse(String value) {
+            if (value == null || value.isEmpty()) {
+                return null;
+            }
+            String[] parts = value.substring(1).split("\\.");
+            char phase = value.charAt(0);
+            if (parts.length != 3 || (phase != LOG && phase != TASKS && phase != COMMENTS)) {
+                throw new IllegalArgumentException("Malformed cursor: " + value);
+            }
+            return new Cursor(phase, Long.parseLong(parts[0]), Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+        }
+
+        /**
+         * Checks whether this log position comes before the given one.
+         *
+         * @param otherTxId The transaction ID of the other position.
+         * @param otherId   The entry ID of the other position.
+         * @return True if this position is earlier.
+         */
+        boolean isBefore(long otherTxId, long otherId) {
+            return txId < otherTxId || (txId == otherTxId && id < otherId);
+        }
+
+        @Override
+        public String toString() {
+            return phase + Long.toString(txId) + "." + taskId + "." + id;
+        }
+    }
+}
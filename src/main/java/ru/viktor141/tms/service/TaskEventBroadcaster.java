@@ -0,0 +1,296 @@
+package ru.viktor141.tms.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.viktor141.tms.event.TaskChangeEvent;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * TaskEventBroadcaster delivers committed task and comment changes to Server-Sent Events subscribers.
+ * <p>
+ * Subscriptions are indexed by user and by task ID, so publishing an event only touches the
+ * subscribers it concerns. Each subscriber has a bounded buffer drained by a small shared pool;
+ * no thread is held by an idle subscription. When a slow consumer overflows its buffer, the
+ * buffered events are dropped and a single {@code resync} event tells the client to reload.
+ * <p>
+ * Visibility is checked for every event against the task's author and assignee at the time of the
+ * change. A user who lost access to a task receives a {@code TASK_REMOVED} event carrying only its
+ * ID instead of the change, and a subscription to specific tasks stops following such a task and
+ * closes once it follows none.
+ */
+@Slf4j
+@Service
+public class TaskEventBroadcaster {
+
+    /**
+     * The name of the event sent to a subscriber whose buffer overflowed.
+     */
+    public static final String RESYNC_EVENT = "resync";
+
+    private final int bufferCapacity;
+    private final long emitterTimeoutMs;
+    private final ExecutorService sender;
+
+    private final Map<Long, Set<Subscriber>> byUser = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Subscriber>> byTask = new ConcurrentHashMap<>();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Constructs a new TaskEventBroadcaster.
+     *
+     * @param bufferCapacity   The maximum number of undelivered events per subscriber.
+     * @param emitterTimeoutMs How long a subscription stays open before the client has to reconnect.
+     * @param senderThreads    The number of threads writing events to subscribers.
+     */
+    public TaskEventBroadcaster(@Value("${tms.events.buffer-capacity:256}") int bufferCapacity,
+                                @Value("${tms.events.emitter-timeout-ms:1800000}") long emitterTimeoutMs,
+                                @Value("${tms.events.sender-threads:4}") int senderThreads) {
+        this.bufferCapacity = bufferCapacity;
+        this.emitterTimeoutMs = emitterTimeoutMs;
+        this.sender = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "task-event-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Stops delivering events and closes all subscriptions.
+     */
+    @PreDestroy
+    public void stop() {
+        sender.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    /**
+     * Subscribes to changes of the tasks a user authored or is assigned to.
+     *
+     * @param userId The ID of the user.
+     * @return An SseEmitter streaming the events.
+     */
+    public SseEmitter subscribeToUser(Long userId) {
+        return register(byUser, Set.of(userId), userId, false);
+    }
+
+    /**
+     * Subscribes to changes of specific tasks.
+     * <p>
+     * The caller is responsible for checking that the user may see the tasks when subscribing; later
+     * changes are checked here.
+     *
+     * @param taskIds The IDs of the tasks.
+     * @param userId  The ID of the subscribing user.
+     * @param admin   Whether the user is an administrator and may see every task.
+     * @return An SseEmitter streaming the events.
+     */
+    public SseEmitter subscribeToTasks(Set<Long> taskIds, Long userId, boolean admin) {
+        return register(byTask, taskIds, userId, admin);
+    }
+
+    /**
+     * Returns the number of open subscriptions.
+     *
+     * @return The number of subscribers.
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Queues a committed change for every subscriber it concerns.
+     *
+     * @param event The change.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onTaskChange(TaskChangeEvent event) {
+        TaskChangeEvent removed = TaskChangeEvent.ofRemovedTask(event.getTaskId());
+        Map<Subscriber, TaskChangeEvent> deliveries = new HashMap<>();
+        List<Subscriber> finished = new ArrayList<>();
+
+        Set<Subscriber> followers = byTask.get(event.getTaskId());
+        if (followers != null) {
+            for (Subscriber follower : followers) {
+                if (follower.canSee(event)) {
+                    deliveries.put(follower, event);
+                } else {
+                    deliveries.put(follower, removed);
+                    if (unfollow(follower, event.getTaskId())) {
+                        finished.add(follower);
+                    }
+                }
+            }
+        }
+        addSubscribers(deliveries, byUser, event.getAuthorId(), event);
+        addSubscribers(deliveries, byUser, event.getAssigneeId(), event);
+        event.getFormerOwnerIds().forEach(userId -> addSubscribers(deliveries, byUser, userId, removed));
+        deliveries.forEach(Subscriber::offer);
+        // Closed only after the removal is queued, so it is delivered first
+        finished.forEach(Subscriber::close);
+    }
+
+    /**
+     * Sends a comment to all subscribers so that idle connections are not closed by proxies
+     * and dead clients are detected.
+     */
+    @Scheduled(fixedDelayString = "${tms.events.heartbeat-interval-ms:30000}")
+    public void sendHeartbeats() {
+        subscribers.forEach(Subscriber::heartbeat);
+    }
+
+    private SseEmitter register(Map<Long, Set<Subscriber>> index, Set<Long> keys, Long userId, boolean admin) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, index, keys, userId, admin);
+
+        keys.forEach(key -> index.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(subscriber));
+        subscribers.add(subscriber);
+
+        emitter.onCompletion(() -> unregister(subscriber));
+        emitter.onTimeout(() -> unregister(subscriber));
+        emitter.onError(e -> unregister(subscriber));
+        return emitter;
+    }
+
+    private void unregister(Subscriber subscriber) {
+        if (!subscribers.remove(subscriber)) {
+            return;
+        }
+        for (Long key : subscriber.keys) {
+            subscriber.index.computeIfPresent(key, (k, set) -> {
+                set.remove(subscriber);
+                return set.isEmpty() ? null : set;
+            });
+        }
+    }
+
+    /**
+     * Stops a subscription from following a task it may no longer see.
+     *
+     * @return True if the subscription follows no task any more.
+     */
+    private boolean unfollow(Subscriber subscriber, Long taskId) {
+        subscriber.keys.remove(taskId);
+        subscriber.index.computeIfPresent(taskId, (k, set) -> {
+            set.remove(subscriber);
+            return set.isEmpty() ? null : set;
+        });
+        return subscriber.keys.isEmpty();
+    }
+
+    private static void addSubscribers(Map<Subscriber, TaskChangeEvent> deliveries, Map<Long, Set<Subscriber>> index,
+                                       Long key, TaskChangeEvent event) {
+        // ConcurrentHashMap rejects null keys, and unassigned tasks have no assignee
+        Set<Subscriber> source = key == null ? null : index.get(key);
+        if (source != null) {
+            source.forEach(subscriber -> deliveries.putIfAbsent(subscriber, event));
+        }
+    }
+
+    /**
+     * A subscription together with its buffer of undelivered events.
+     * <p>
+     * At most one sender thread drains a subscriber at a time, so events are delivered in order.
+     */
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final Map<Long, Set<Subscriber>> index;
+        private final Set<Long> keys;
+        private final Long userId;
+        private final boolean admin;
+        private final BlockingQueue<TaskChangeEvent> buffer = new ArrayBlockingQueue<>(bufferCapacity);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean overflowed;
+        private volatile boolean heartbeatDue;
+        private volatile boolean closing;
+
+        private Subscriber(SseEmitter emitter, Map<Long, Set<Subscriber>> index, Set<Long> keys, Long userId, boolean admin) {
+            this.emitter = emitter;
+            this.index = index;
+            this.keys = ConcurrentHashMap.newKeySet();
+            this.keys.addAll(keys);
+            this.userId = userId;
+            this.admin = admin;
+        }
+
+        private boolean canSee(TaskChangeEvent event) {
+            return admin || Objects.equals(userId, event.getAuthorId()) || Objects.equals(userId, event.getAssigneeId());
+        }
+
+        private void offer(TaskChangeEvent event) {
+            if (!buffer.offer(event)) {
+                // Slow consumer: the client reloads its state instead of receiving a partial history
+                overflowed = true;
+                buffer.clear();
+            }
+            schedule();
+        }
+
+        private void heartbeat() {
+            heartbeatDue = true;
+            schedule();
+        }
+
+        private void close() {
+            closing = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    sender.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    draining.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                if (overflowed) {
+                    overflowed = false;
+                    emitter.send(SseEmitter.event().name(RESYNC_EVENT).data("", MediaType.TEXT_PLAIN));
+                }
+                if (heartbeatDue) {
+                    heartbeatDue = false;
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                }
+                TaskChangeEvent event;
+                while ((event = buffer.poll()) != null) {
+                    emitter.send(SseEmitter.event()
+                            .name(event.getType().name())
+                            .data(event.getPayload() != null ? event.getPayload() : Map.of("taskId", event.getTaskId()),
+                                    MediaType.APPLICATION_JSON));
+                }
+                if (closing) {
+                    unregister(this);
+                    emitter.complete();
+                    return;
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Closing event subscription: {}", e.getMessage());
+                unregister(this);
+                emitter.completeWithError(e);
+                return;
+            } finally {
+                draining.set(false);
+            }
+
+            // Events offered while the flag was still set would otherwise wait for the next offer
+            if (!buffer.isEmpty() || overflowed || heartbeatDue || closing) {
+                schedule();
+            }
+        }
+    }
+}
@@ -1,20 +1,35 @@
 package ru.viktor141.tms.service;
 
+import io.micrometer.core.annotation.Timed;
 import org.springframework.transaction.annotation.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 import ru.viktor141.tms.dto.TaskDTO;
+import ru.viktor141.tms.event.TaskChangeEvent;
+import ru.viktor141.tms.model.ArchivedTask;
 import ru.viktor141.tms.model.Task;
+import ru.viktor141.tms.model.User;
+import ru.viktor141.tms.repository.ArchivedTaskRepository;
+import ru.viktor141.tms.repository.CommentRepository;
 import ru.viktor141.tms.repository.TaskRepository;
 import ru.viktor141.tms.utils.UserAuthoritiesUtils;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 
 /**
  * TaskService manages task-related business logic.
@@ -23,9 +38,20 @@ import java.util.Optional;
  */
 @Service
 @RequiredArgsConstructor
+@Timed(value = "tms.service", histogram = true)
 public class TaskService {
 
+    /**
+     * TaskDTO fields that are maintained by the service and never copied from client input.
+     */
+    private static final Set<String> READ_ONLY_FIELDS = Set.of(
+            "id", "commentCount", "lastCommentId", "lastCommentPreview", "lastCommentDate");
+
     private final TaskRepository taskRepository;
+    private final CommentRepository commentRepository;
+    private final ArchivedTaskRepository archivedTaskRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final LocalCache<Long, TaskDTO> taskCache;
 
     /**
      * Retrieves all tasks with pagination.
@@ -37,14 +63,103 @@ public class TaskService {
         return taskRepository.findAll(pageable).map(this::convertToDTO);
     }
 
+    /**
+     * Retrieves all tasks with pagination, optionally followed by archived tasks.
+     *
+     * @param pageable        The pagination settings.
+     * @param includeArchived Whether archived tasks are included after the active ones.
+     * @return A Page of TaskDTO objects.
+     */
+    public Page<TaskDTO> findAllTasks(Pageable pageable, boolean includeArchived) {
+        Page<TaskDTO> active = findAllTasks(pageable);
+        if (!includeArchived) {
+            return active;
+        }
+        return appendArchived(active, pageable, p -> archivedTaskRepository.findAll(p).map(this::convertToDTO));
+    }
+
     /**
      * Retrieves a task by its ID.
+     * <p>
+     * Tasks are cached on every instance and the returned object must not be modified.
      *
      * @param id The ID of the task.
      * @return An Optional containing the TaskDTO or empty if not found.
      */
     public Optional<TaskDTO> findTaskById(Long id) {
-        return taskRepository.findById(id).map(this::convertToDTO);
+        return Optional.ofNullable(taskCache.get(id, key -> taskRepository.findById(key).map(this::convertToDTO).orElse(null)));
+    }
+
+    /**
+     * Evicts a changed task from the caches of all instances when the change commits.
+     *
+     * @param event The change event.
+     */
+    @EventListener
+    public void onTaskChange(TaskChangeEvent event) {
+        taskCache.evict(event.getTaskId());
+    }
+
+    /**
+     * Retrieves a task by its ID, optionally falling back to the archive.
+     *
+     * @param id              The ID of the task.
+     * @param includeArchived Whether the archive is searched when the task is not active.
+     * @return An Optional containing the TaskDTO or empty if not found.
+     */
+    public Optional<TaskDTO> findTaskById(Long id, boolean includeArchived) {
+        Optional<TaskDTO> task = findTaskById(id);
+        if (task.isPresent() || !includeArchived) {
+            return task;
+        }
+        return archivedTaskRepository.findById(id).map(this::convertToDTO);
+    }
+
+    /**
+     * Retrieves the short fields and the owners of a task without its description.
+     * <p>
+     * This is enough for permission checks and avoids reading a description of up to 64 KB.
+     *
+     * @param id The ID of the task.
+     * @return An Optional containing a TaskDTO without description or empty if not found.
+     */
+    public Optional<TaskDTO> findTaskHeaderById(Long id) {
+        return taskRepository.findHeaderById(id).stream().findFirst().map(row -> {
+            TaskDTO dto = new TaskDTO();
+            dto.setId((Long) row[0]);
+            dto.setTitle((String) row[1]);
+            dto.setStatus((Task.Status) row[2]);
+            dto.setPriority((Task.Priority) row[3]);
+            dto.setAuthor((User) row[4]);
+            dto.setAssignee((User) row[5]);
+            return dto;
+        });
+    }
+
+    /**
+     * Retrieves the tasks with the given IDs.
+     *
+     * @param ids The IDs of the tasks.
+     * @return A list of TaskDTO objects for the tasks that exist.
+     */
+    public List<TaskDTO> findTasksByIds(Collection<Long> ids) {
+        return taskRepository.findAllById(ids).stream().map(this::convertToDTO).toList();
+    }
+
+    /**
+     * Retrieves tasks with IDs greater than the given one in ascending order.
+     *
+     * @param afterId The ID after which to start.
+     * @param userId  The ID of the user whose tasks are returned, or null for all tasks.
+     * @param limit   The maximum number of tasks.
+     * @return A list of TaskDTO objects.
+     */
+    public List<TaskDTO> findTasksAfter(Long afterId, Long userId, int limit) {
+        Pageable page = PageRequest.of(0, limit);
+        List<Task> tasks = userId == null
+                ? taskRepository.findAfter(afterId, page)
+                : taskRepository.findVisibleAfter(afterId, userId, page);
+        return tasks.stream().map(this::convertToDTO).toList();
     }
 
     /**
@@ -56,21 +171,35 @@ public class TaskService {
     @Transactional
     public TaskDTO saveTask(Task task) {
         Task savedTask = taskRepository.save(task);
-        return convertToDTO(savedTask);
+        TaskDTO dto = convertToDTO(savedTask);
+        eventPublisher.publishEvent(TaskChangeEvent.ofTask(TaskChangeEvent.Type.TASK_CREATED, dto));
+        return dto;
     }
 
     /**
      * Deletes a task by its ID.
+     * <p>
+     * The task and its comments are removed with bulk statements, so the number of
+     * statements does not depend on how many comments the task has. The owner IDs are read
+     * first so that subscribers of the task can be notified.
      *
      * @param id The ID of the task to delete.
      * @return True if the task was deleted, false otherwise.
      */
     @Transactional
     public boolean deleteTask(Long id) {
-        return taskRepository.findById(id).map(task -> {
-            taskRepository.delete(task);
-            return true;
-        }).orElse(false);
+        List<Object[]> owners = taskRepository.findOwnerIdsByIdIn(List.of(id));
+        if (owners.isEmpty()) {
+            return false;
+        }
+
+        commentRepository.deleteByTaskId(id);
+        boolean deleted = taskRepository.deleteTaskById(id) > 0;
+        if (deleted) {
+            Object[] row = owners.get(0);
+            eventPublisher.publishEvent(TaskChangeEvent.ofDeletedTask(id, (Long) row[1], (Long) row[2]));
+        }
+        return deleted;
     }
 
     /**
@@ -102,7 +231,9 @@ public class TaskService {
         oldTask.setStatus(task.getStatus());
 
         Task updatedTask = taskRepository.save(oldTask);
-        return ResponseEntity.ok(convertToDTO(updatedTask));
+        TaskDTO dto = convertToDTO(updatedTask);
+        eventPublisher.publishEvent(TaskChangeEvent.ofTask(TaskChangeEvent.Type.TASK_UPDATED, dto));
+        return ResponseEntity.ok(dto);
 
     }
 
@@ -115,6 +246,9 @@ public class TaskService {
      */
     @Transactional
     public ResponseEntity<TaskDTO> updateTaskFull(Task current, TaskDTO updatedTask) {
+        Long previousAuthorId = current.getAuthor() == null ? null : current.getAuthor().getId();
+        Long previousAssigneeId = current.getAssignee() == null ? null : current.getAssignee().getId();
+
         // Dynamically update all fields from TaskDTO to Task
         Field[] dtoFields = TaskDTO.class.getDeclaredFields();
         for (Field dtoField : dtoFields) {
@@ -124,7 +258,7 @@ public class TaskService {
                 String fieldName = dtoField.getName();
                 Object fieldValue = dtoField.get(updatedTask);
 
-                if (fieldName.equals("id"))
+                if (READ_ONLY_FIELDS.contains(fieldName))
                     continue;
 
                 if (fieldValue != null) {
@@ -138,7 +272,9 @@ public class TaskService {
         }
 
         Task updatedTaskEntity = taskRepository.save(current);
-        return ResponseEntity.ok(convertToDTO(updatedTaskEntity));
+        TaskDTO dto = convertToDTO(updatedTaskEntity);
+        eventPublisher.publishEvent(TaskChangeEvent.ofTask(TaskChangeEvent.Type.TASK_UPDATED, dto, previousAuthorId, previousAssigneeId));
+        return ResponseEntity.ok(dto);
     }
 
     /**
@@ -153,6 +289,67 @@ public class TaskService {
         return taskRepository.findByAuthorOrAssignee(authorId, assigneeId, pageable).map(this::convertToDTO);
     }
 
+    /**
+     * Finds tasks based on author or assignee ID with pagination, optionally followed by archived tasks.
+     *
+     * @param authorId        The ID of the author (optional).
+     * @param assigneeId      The ID of the assignee (optional).
+     * @param pageable        The pagination settings.
+     * @param includeArchived Whether archived tasks are included after the active ones.
+     * @return A Page of TaskDTO objects.
+     */
+    public Page<TaskDTO> findTasksByAuthorOrAssignee(Long authorId, Long assigneeId, Pageable pageable, boolean includeArchived) {
+        Page<TaskDTO> active = findTasksByAuthorOrAssignee(authorId, assigneeId, pageable);
+        if (!includeArchived) {
+            return active;
+        }
+        return appendArchived(active, pageable,
+                p -> archivedTaskRepository.findByAuthorOrAssignee(authorId, assigneeId, p).map(this::convertToDTO));
+    }
+
+    /**
+     * Combines a page of active tasks with archived tasks, as if the archive followed the active table.
+     * <p>
+     * The archive is only read for the rows missing from the requested page, at most two archive pages per call.
+     *
+     * @param active   The page of active tasks.
+     * @param pageable The pagination settings.
+     * @param archived The query returning a page of archived tasks.
+     * @return A Page of TaskDTO objects.
+     */
+    private Page<TaskDTO> appendArchived(Page<TaskDTO> active, Pageable pageable, Function<Pageable, Page<TaskDTO>> archived) {
+        List<TaskDTO> content = new ArrayList<>(active.getContent());
+        if (pageable.isUnpaged()) {
+            content.addAll(archived.apply(pageable).getContent());
+            return new PageImpl<>(content);
+        }
+
+        int size = pageable.getPageSize();
+        long activeTotal = active.getTotalElements();
+        long archivedTotal;
+
+        if (content.size() == size) {
+            archivedTotal = archived.apply(PageRequest.of(0, 1, pageable.getSort())).getTotalElements();
+        } else {
+            long archivedOffset = Math.max(0, pageable.getOffset() - activeTotal);
+            int firstPage = (int) (archivedOffset / size);
+            Page<TaskDTO> first = archived.apply(PageRequest.of(firstPage, size, pageable.getSort()));
+            archivedTotal = first.getTotalElements();
+
+            List<TaskDTO> rows = first.getContent();
+            int from = Math.min((int) (archivedOffset % size), rows.size());
+            content.addAll(rows.subList(from, Math.min(from + size - content.size(), rows.size())));
+
+            int missing = size - content.size();
+            if (missing > 0 && (long) (firstPage + 1) * size < archivedTotal) {
+                List<TaskDTO> next = archived.apply(PageRequest.of(firstPage + 1, size, pageable.getSort())).getContent();
+                content.addAll(next.subList(0, Math.min(missing, next.size())));
+            }
+        }
+
+        return new PageImpl<>(content, pageable, activeTotal + archivedTotal);
+    }
+
     /**
      * Converts a Task entity to a TaskDTO.
      *
@@ -160,6 +357,28 @@ public class TaskService {
      * @return A TaskDTO representing the converted task.
      */
     private TaskDTO convertToDTO(Task task) {
+        TaskDTO dto = new TaskDTO();
+        dto.setId(task.getId());
+        dto.setTitle(task.getTitle());
+        dto.setDescription(task.getDescription());
+        dto.setPriority(task.getPriority());
+        dto.setStatus(task.getStatus());
+        dto.setAuthor(task.getAuthor());
+        dto.setAssignee(task.getAssignee());
+        dto.setCommentCount(task.getCommentCount());
+        dto.setLastCommentId(task.getLastCommentId());
+        dto.setLastCommentPreview(task.getLastCommentPreview());
+        dto.setLastCommentDate(task.getLastCommentDate());
+        return dto;
+    }
+
+    /**
+     * Converts an ArchivedTask entity to a TaskDTO.
+     *
+     * @param task The ArchivedTask entity to convert.
+     * @return A TaskDTO representing the archived task.
+     */
+    private TaskDTO convertToDTO(ArchivedTask task) {
         TaskDTO dto = new TaskDTO();
         dto.setId(task.getId());
         dto.setTitle(task.getTitle());
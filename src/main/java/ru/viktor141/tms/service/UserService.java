@@ -6,6 +6,7 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.viktor141.tms.config.ReplicaRoutingDataSource;
 import ru.viktor141.tms.model.User;
 import ru.viktor141.tms.repository.UserRepository;
 import ru.viktor141.tms.security.JwtTokenProvider;
@@ -21,6 +22,7 @@ public class UserService implements UserDetailsService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtTokenProvider jwtTokenProvider;
+    private final LocalCache<String, User> userCache;
 
     /**
      * Registers a new user.
@@ -47,11 +49,16 @@ public class UserService implements UserDetailsService {
      * @return True if the user exists, false otherwise.
      */
     public boolean emailExists(String email) {
-        return userRepository.findByEmail(email).isPresent();
+        // A miss is not cached: registrations are checked against the database. A user who has just
+        // registered may not have reached the replica yet, so the lookup uses the primary
+        return userCache.getIfPresent(email) != null
+                || ReplicaRoutingDataSource.readFromPrimary(() -> userRepository.findByEmail(email).isPresent());
     }
 
     /**
      * Loads a user by their email.
+     * <p>
+     * Users are cached on every instance and the returned object must not be modified.
      *
      * @param email The user's email.
      * @return A UserDetails object representing the user.
@@ -59,7 +66,12 @@ public class UserService implements UserDetailsService {
      */
     @Override
     public User loadUserByUsername(String email) throws UsernameNotFoundException {
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
+        // Also on the primary while the cache is bypassed, for the same reason as emailExists
+        User user = userCache.get(email, key -> ReplicaRoutingDataSource.readFromPrimary(
+                () -> userRepository.findByEmail(key).orElse(null)));
+        if (user == null) {
+            throw new UsernameNotFoundException("User not found with email: " + email);
+        }
+        return user;
     }
 }
@@ -0,0 +1,61 @@
+package ru.viktor141.tms.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * CursorUtils provides utility methods for encoding and decoding keyset pagination cursors.
+ * <p>
+ * A cursor is the opaque, URL-safe form of the (creation date, ID) position of the last returned row.
+ * The creation date is kept as epoch seconds and nanoseconds: the column stores microseconds, and a
+ * cursor rounded to milliseconds would repeat or skip rows created within the same millisecond.
+ */
+public class CursorUtils {
+
+    /**
+     * Encodes a position into a cursor.
+     *
+     * @param createdDate The creation date of the last returned row.
+     * @param id          The ID of the last returned row.
+     * @return The cursor string.
+     */
+    public static String encode(Date createdDate, Long id) {
+        // Dates read from the database are Timestamps, whose Instant carries the full precision of the column
+        Instant instant = createdDate.toInstant();
+        String position = String.format(Locale.ROOT, "%d.%09d:%d", instant.getEpochSecond(), instant.getNano(), id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor into a position.
+     *
+     * @param cursor The cursor string.
+     * @return The decoded position.
+     * @throws IllegalArgumentException If the cursor is malformed.
+     */
+    public static Position decode(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = position.indexOf(':');
+            String date = position.substring(0, separator);
+            int dot = date.indexOf('.');
+            Instant instant = Instant.ofEpochSecond(Long.parseLong(date.substring(0, dot)), Long.parseLong(date.substring(dot + 1)));
+            return new Position(Timestamp.from(instant), Long.parseLong(position.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed cursor: " + cursor);
+        }
+    }
+
+    /**
+     * Position represents the (creation date, ID) key of a row.
+     *
+     * @param createdDate The creation date of the row.
+     * @param id          The ID of the row.
+     */
+    public record Position(Timestamp createdDate, long id) {
+    }
+}
@@ -0,0 +1,21 @@
+package ru.viktor141.tms.utils;
+
+/**
+ * EnvironmentUtils provides utility methods for checking the environment of the application.
+ * <p>
+ * The environment is read once at startup from the {@code APP_ENV} variable.
+ */
+public class EnvironmentUtils {
+
+    private static final String DEVELOPMENT_MODE = "development";
+    private static final boolean DEVELOPMENT = DEVELOPMENT_MODE.equals(System.getenv("APP_ENV"));
+
+    /**
+     * Checks if the application runs in development mode.
+     *
+     * @return True if {@code APP_ENV} is {@code development}, false otherwise.
+     */
+    public static boolean isDevelopmentMode() {
+        return DEVELOPMENT;
+    }
+}
@@ -0,0 +1,57 @@
+package ru.viktor141.tms.reactive;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Bean;
+import ru.viktor141.tms.model.CompressedTextConverter;
+import ru.viktor141.tms.security.JwtTokenProvider;
+
+import java.util.Map;
+
+/**
+ * ReactiveReadApplication is the entry point of the reactive read API.
+ * <p>
+ * This application serves task listing, task retrieval and comment paging on WebFlux with R2DBC,
+ * against the same schema as the main application, so read-heavy clients do not hold a thread per
+ * request. It scans only its own package and creates the shared JwtTokenProvider and
+ * CompressedTextConverter itself. The settings of application.properties are read first and
+ * overridden by reactive.properties; the R2DBC URL follows the JDBC URL unless it is set (see
+ * R2dbcUrlEnvironmentPostProcessor).
+ */
+@SpringBootApplication
+public class ReactiveReadApplication {
+
+    /**
+     * The main method to start the application.
+     *
+     * @param args Command-line arguments.
+     */
+    public static void main(String[] args) {
+        SpringApplication application = new SpringApplication(ReactiveReadApplication.class);
+        application.setDefaultProperties(Map.of("spring.config.name", "application,reactive"));
+        application.run(args);
+    }
+
+    /**
+     * Creates the JWT provider shared with the main application.
+     *
+     * @return A JwtTokenProvider object.
+     */
+    @Bean
+    public JwtTokenProvider jwtTokenProvider() {
+        return new JwtTokenProvider();
+    }
+
+    /**
+     * Creates the converter that reads the optionally compressed text columns.
+     *
+     * @param thresholdBytes The compression threshold, unused for reading.
+     * @return A CompressedTextConverter object.
+     */
+    @Bean
+    public CompressedTextConverter compressedTextConverter(
+            @Value("${tms.text-compression.threshold-bytes:2048}") int thresholdBytes) {
+        return new CompressedTextConverter(thresholdBytes);
+    }
+}
@@ -0,0 +1,55 @@
+package ru.viktor141.tms.reactive.config;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.PropertySource;
+
+/**
+ * R2dbcUrlEnvironmentPostProcessor derives the R2DBC URL of the reactive read API from the JDBC URL.
+ * <p>
+ * Both applications read the same database, so {@code spring.r2dbc.url} defaults to
+ * {@code spring.datasource.url} with the {@code jdbc:} prefix replaced by {@code r2dbc:}, and the
+ * database is configured in one place. The derived value has the lowest precedence: an explicit
+ * {@code spring.r2dbc.url} (or {@code SPRING_R2DBC_URL}) always wins. It is computed on every lookup,
+ * so a datasource URL added later, e.g. by a test, is picked up as well.
+ */
+public class R2dbcUrlEnvironmentPostProcessor implements EnvironmentPostProcessor, Ordered {
+
+    private static final String R2DBC_URL = "spring.r2dbc.url";
+    private static final String JDBC_URL = "spring.datasource.url";
+    private static final String JDBC_PREFIX = "jdbc:";
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        environment.getPropertySources().addLast(new DerivedUrlPropertySource(environment));
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+
+    /**
+     * DerivedUrlPropertySource resolves {@code spring.r2dbc.url} from the JDBC URL of the environment.
+     */
+    private static class DerivedUrlPropertySource extends PropertySource<Environment> {
+
+        DerivedUrlPropertySource(Environment environment) {
+            super("derivedR2dbcUrl", environment);
+        }
+
+        @Override
+        public Object getProperty(String name) {
+            if (!R2DBC_URL.equals(name)) {
+                return null;
+            }
+            String jdbcUrl = getSource().getProperty(JDBC_URL);
+            return jdbcUrl != null && jdbcUrl.startsWith(JDBC_PREFIX)
+                    ? "r2dbc:" + jdbcUrl.substring(JDBC_PREFIX.length())
+                    : null;
+        }
+    }
+}
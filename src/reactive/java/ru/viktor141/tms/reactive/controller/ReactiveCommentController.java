@@ -0,0 +1,105 @@
+package ru.viktor141.tms.reactive.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.viktor141.tms.dto.CommentDTO;
+import ru.viktor141.tms.dto.CursorPageDTO;
+import ru.viktor141.tms.exception.TaskNotFoundException;
+import ru.viktor141.tms.reactive.repository.ReactiveCommentRepository;
+import ru.viktor141.tms.reactive.repository.ReactiveTaskRepository;
+import ru.viktor141.tms.utils.CursorUtils;
+import ru.viktor141.tms.utils.UserAuthoritiesUtils;
+
+import javax.naming.NoPermissionException;
+import java.util.List;
+
+/**
+ * ReactiveCommentController serves the read-only comment endpoints of the reactive API.
+ * <p>
+ * The comments of a task are visible to the users who can see the task. Cursors are interchangeable
+ * with those of {@code GET /api/tasks/{taskId}/comments/cursor} of the main application.
+ */
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/tasks/{taskId}/comments")
+public class ReactiveCommentController {
+
+    private static final int MAX_CURSOR_PAGE_SIZE = 1000;
+
+    private final ReactiveTaskRepository taskRepository;
+    private final ReactiveCommentRepository commentRepository;
+
+    /**
+     * Retrieves comments for a specific task using cursor-based pagination.
+     *
+     * @param taskId         The ID of the task for which comments are retrieved.
+     * @param cursor         The cursor returned with the previous page (optional).
+     * @param size           The page size (default: 10, maximum: 1000).
+     * @param authentication The authentication object for user details.
+     * @return A Mono of a page of comments and the cursor of the next page.
+     */
+    @GetMapping("/cursor")
+    public Mono<CursorPageDTO<CommentDTO>> getCommentsByTaskCursor(@PathVariable long taskId,
+                                                                   @RequestParam(required = false) String cursor,
+                                                                   @RequestParam(defaultValue = "10") int size,
+                                                                   Authentication authentication) {
+        if (size < 1 || size > MAX_CURSOR_PAGE_SIZE) {
+            return Mono.error(new IllegalArgumentException("Page size must be between 1 and " + MAX_CURSOR_PAGE_SIZE));
+        }
+        CursorUtils.Position after;
+        try {
+            after = cursor != null ? CursorUtils.decode(cursor) : null;
+        } catch (IllegalArgumentException e) {
+            return Mono.error(e);
+        }
+
+        return checkVisible(taskId, authentication)
+                .thenMany(commentRepository.findByTaskId(taskId, after, size + 1))
+                .collectList()
+                .map(comments -> page(comments, size));
+    }
+
+    /**
+     * Streams all comments of a task in creation order.
+     * <p>
+     * The comments are written as newline-delimited JSON and read from the database only as fast as
+     * the client receives them, so threads with thousands of comments need neither paging nor memory.
+     *
+     * @param taskId         The ID of the task for which comments are retrieved.
+     * @param authentication The authentication object for user details.
+     * @return A Flux of comments.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<CommentDTO> streamCommentsByTask(@PathVariable long taskId, Authentication authentication) {
+        return checkVisible(taskId, authentication)
+                .thenMany(commentRepository.findByTaskId(taskId, null, null));
+    }
+
+    private Mono<Void> checkVisible(long taskId, Authentication authentication) {
+        UserDetails userDetails = UserAuthoritiesUtils.getUserDetails(authentication);
+        return taskRepository.findOwnersById(taskId)
+                .switchIfEmpty(Mono.error(() -> new TaskNotFoundException(taskId)))
+                .flatMap(task -> UserAuthoritiesUtils.isAdminOrAuthorOrAssigned(task, userDetails)
+                        ? Mono.<Void>empty()
+                        : Mono.<Void>error(new NoPermissionException("Task " + taskId + " is not visible to the user")));
+    }
+
+    private static CursorPageDTO<CommentDTO> page(List<CommentDTO> comments, int size) {
+        String nextCursor = null;
+        if (comments.size() > size) {
+            comments = comments.subList(0, size);
+            CommentDTO last = comments.get(size - 1);
+            nextCursor = CursorUtils.encode(last.getCreatedDate(), last.getId());
+        }
+        return new CursorPageDTO<>(comments, nextCursor);
+    }
+}
@@ -0,0 +1,57 @@
+package ru.viktor141.tms.reactive.controller;
+
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import ru.viktor141.tms.exception.GlobalExceptionHandler.ResponseError;
+
+import javax.naming.NoPermissionException;
+import java.time.LocalDateTime;
+
+/**
+ * ReactiveExceptionHandler handles the exceptions of the reactive API controllers.
+ * <p>
+ * Errors are returned in the ResponseError format of the main application, without stack traces.
+ */
+@RestControllerAdvice
+public class ReactiveExceptionHandler {
+
+    /**
+     * Handles EntityNotFoundException.
+     *
+     * @param ex The exception object.
+     * @return A ResponseEntity with a 404 status code.
+     */
+    @ExceptionHandler(EntityNotFoundException.class)
+    public ResponseEntity<ResponseError> handleEntityNotFoundException(EntityNotFoundException ex) {
+        return buildErrorResponse(HttpStatus.NOT_FOUND, ex.getMessage());
+    }
+
+    /**
+     * Handles IllegalArgumentException.
+     *
+     * @param ex The exception object.
+     * @return A ResponseEntity with a 400 status code.
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<ResponseError> handleIllegalArgumentException(IllegalArgumentException ex) {
+        return buildErrorResponse(HttpStatus.BAD_REQUEST, "Invalid input: " + ex.getMessage());
+    }
+
+    /**
+     * Handles NoPermissionException.
+     *
+     * @param ex The exception object.
+     * @return A ResponseEntity with a 403 status code.
+     */
+    @ExceptionHandler(NoPermissionException.class)
+    public ResponseEntity<ResponseError> handleNoPermissionException(NoPermissionException ex) {
+        return buildErrorResponse(HttpStatus.FORBIDDEN, "Don't have permission: " + ex.getMessage());
+    }
+
+    private static ResponseEntity<ResponseError> buildErrorResponse(HttpStatus status, String message) {
+        return new ResponseEntity<>(new ResponseError(LocalDateTime.now(), status.value(), message, null), status);
+    }
+}
@@ -0,0 +1,100 @@
+package ru.viktor141.tms.reactive.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.viktor141.tms.dto.TaskDTO;
+import ru.viktor141.tms.exception.TaskNotFoundException;
+import ru.viktor141.tms.model.User;
+import ru.viktor141.tms.reactive.repository.ReactiveTaskRepository;
+import ru.viktor141.tms.utils.UserAuthoritiesUtils;
+
+import javax.naming.NoPermissionException;
+
+/**
+ * ReactiveTaskController serves the read-only task endpoints of the reactive API.
+ * <p>
+ * The visibility rules are those of TaskController: admins see every task, other users only the
+ * tasks they authored or are assigned to.
+ */
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/tasks")
+public class ReactiveTaskController {
+
+    private static final int MAX_COLLECTED_TASKS = 1000;
+
+    private final ReactiveTaskRepository taskRepository;
+
+    /**
+     * Streams tasks in ID order.
+     * <p>
+     * With {@code Accept: application/x-ndjson} every task is written as a separate line as soon as
+     * it is read; the rows are read from the database only as fast as the client receives them, and
+     * the listing is unlimited by default. Any other response is collected in memory before it is
+     * written, so it holds at most 1000 tasks; later tasks are listed with {@code afterId}.
+     *
+     * @param authorId       The ID of the author (optional).
+     * @param assigneeId     The ID of the assignee (optional).
+     * @param afterId        The ID after which the listing starts (default: 0).
+     * @param limit          The maximum number of tasks (optional; at most and by default 1000 unless NDJSON is requested).
+     * @param authentication The authentication object for user details.
+     * @param exchange       The current exchange, for the accepted media types.
+     * @return A Flux of tasks, or an error if a user filters by another user.
+     */
+    @GetMapping(produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public Flux<TaskDTO> getTasks(@RequestParam(required = false) Long authorId,
+                                  @RequestParam(required = false) Long assigneeId,
+                                  @RequestParam(defaultValue = "0") long afterId,
+                                  @RequestParam(required = false) Integer limit,
+                                  Authentication authentication,
+                                  ServerWebExchange exchange) {
+        if (limit != null && limit < 1) {
+            return Flux.error(new IllegalArgumentException("Limit must be positive"));
+        }
+        if (exchange.getRequest().getHeaders().getAccept().stream().noneMatch(MediaType.APPLICATION_NDJSON::equalsTypeAndSubtype)) {
+            if (limit != null && limit > MAX_COLLECTED_TASKS) {
+                return Flux.error(new IllegalArgumentException("Limit must not exceed " + MAX_COLLECTED_TASKS
+                        + " unless " + MediaType.APPLICATION_NDJSON_VALUE + " is requested"));
+            }
+            limit = limit != null ? limit : MAX_COLLECTED_TASKS;
+        }
+
+        UserDetails userDetails = UserAuthoritiesUtils.getUserDetails(authentication);
+        if (UserAuthoritiesUtils.isAdmin(userDetails)) {
+            return taskRepository.findAll(null, authorId, assigneeId, afterId, limit);
+        }
+
+        long id = ((User) userDetails).getId();
+        if ((authorId != null && authorId != id) || (assigneeId != null && assigneeId != id)) {
+            return Flux.error(new NoPermissionException("Only admins can list the tasks of other users"));
+        }
+        return taskRepository.findAll(id, authorId, assigneeId, afterId, limit);
+    }
+
+    /**
+     * Retrieves a task by its ID.
+     *
+     * @param id             The ID of the task.
+     * @param authentication The authentication object for user details.
+     * @return A Mono of the task, or an error if it does not exist or is not visible to the user.
+     */
+    @GetMapping("/{id}")
+    public Mono<TaskDTO> getTaskById(@PathVariable long id, Authentication authentication) {
+        UserDetails userDetails = UserAuthoritiesUtils.getUserDetails(authentication);
+        return taskRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new TaskNotFoundException(id)))
+                .flatMap(task -> UserAuthoritiesUtils.isAdminOrAuthorOrAssigned(task, userDetails)
+                        ? Mono.just(task)
+                        : Mono.<TaskDTO>error(new NoPermissionException("Task " + id + " is not visible to the user")));
+    }
+}
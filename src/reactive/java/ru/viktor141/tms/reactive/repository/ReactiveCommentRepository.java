@@ -0,0 +1,83 @@
+package ru.viktor141.tms.reactive.repository;
+
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import ru.viktor141.tms.dto.CommentDTO;
+import ru.viktor141.tms.model.CompressedTextConverter;
+import ru.viktor141.tms.utils.CursorUtils;
+
+import java.time.LocalDateTime;
+
+/**
+ * ReactiveCommentRepository reads comments with R2DBC.
+ * <p>
+ * Comments are returned in (creation date, ID) order, the order of the comment cursors of the main
+ * application, and are read from the idx_comments_task_created_id index.
+ */
+@Repository
+public class ReactiveCommentRepository {
+
+    private final DatabaseClient databaseClient;
+    private final CompressedTextConverter compressedTextConverter;
+    private final int fetchSize;
+
+    /**
+     * Constructs a new ReactiveCommentRepository.
+     *
+     * @param databaseClient          The R2DBC client.
+     * @param compressedTextConverter The converter of the text column.
+     * @param fetchSize               The number of rows fetched from the database at a time.
+     */
+    public ReactiveCommentRepository(DatabaseClient databaseClient,
+                                     CompressedTextConverter compressedTextConverter,
+                                     @Value("${tms.reactive.fetch-size:500}") int fetchSize) {
+        this.databaseClient = databaseClient;
+        this.compressedTextConverter = compressedTextConverter;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Streams the comments of a task.
+     *
+     * @param taskId The ID of the task.
+     * @param after  The position after which the comments start, or null for the first comment.
+     * @param limit  The maximum number of comments, or null for no limit.
+     * @return A Flux of comments.
+     */
+    public Flux<CommentDTO> findByTaskId(long taskId, CursorUtils.Position after, Integer limit) {
+        StringBuilder sql = new StringBuilder("SELECT c.id, c.text, c.created_date, c.task_id, " +
+                "a.id AS author_id, a.email AS author_email, a.role AS author_role " +
+                "FROM comments c LEFT JOIN users a ON a.id = c.author_id WHERE c.task_id = :taskId");
+        if (after != null) {
+            sql.append(" AND (c.created_date, c.id) > (:createdDate, :id)");
+        }
+        sql.append(" ORDER BY c.created_date, c.id");
+        if (limit != null) {
+            sql.append(" LIMIT :limit");
+        }
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString()).bind("taskId", taskId);
+        if (after != null) {
+            spec = spec.bind("createdDate", after.createdDate().toLocalDateTime())
+                    .bind("id", after.id());
+        }
+        if (limit != null) {
+            spec = spec.bind("limit", limit);
+        }
+        return spec.filter(statement -> statement.fetchSize(fetchSize))
+                .map(this::mapComment)
+                .all();
+    }
+
+    private CommentDTO mapComment(Readable row) {
+        return new CommentDTO(
+                row.get("id", Long.class),
+                compressedTextConverter.convertToEntityAttribute(row.get("text", byte[].class)),
+                ReactiveUserRepository.toDate(row.get("created_date", LocalDateTime.class)),
+                ReactiveUserRepository.mapUser(row, "author"),
+                row.get("task_id", Long.class));
+    }
+}
@@ -0,0 +1,155 @@
+package ru.viktor141.tms.reactive.repository;
+
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.viktor141.tms.dto.TaskDTO;
+import ru.viktor141.tms.model.CompressedTextConverter;
+import ru.viktor141.tms.model.Task;
+import ru.viktor141.tms.model.User;
+
+import java.time.LocalDateTime;
+
+/**
+ * ReactiveTaskRepository reads tasks with R2DBC.
+ * <p>
+ * Listings are streamed with a fetch size: the driver reads the next rows from the open portal only
+ * when the subscriber requests them, so a slow client holds one connection but not the whole result
+ * in memory.
+ */
+@Repository
+public class ReactiveTaskRepository {
+
+    private static final String SELECT_TASKS = "SELECT t.id, t.title, t.description, t.status, t.priority, " +
+            "t.comment_count, t.last_comment_id, t.last_comment_preview, t.last_comment_date, " +
+            "au.id AS author_id, au.email AS author_email, au.role AS author_role, " +
+            "a.id AS assignee_id, a.email AS assignee_email, a.role AS assignee_role " +
+            "FROM tasks t LEFT JOIN users au ON au.id = t.author_id LEFT JOIN users a ON a.id = t.assignee_id ";
+
+    private final DatabaseClient databaseClient;
+    private final CompressedTextConverter compressedTextConverter;
+    private final int fetchSize;
+
+    /**
+     * Constructs a new ReactiveTaskRepository.
+     *
+     * @param databaseClient          The R2DBC client.
+     * @param compressedTextConverter The converter of the description column.
+     * @param fetchSize               The number of rows fetched from the database at a time.
+     */
+    public ReactiveTaskRepository(DatabaseClient databaseClient,
+                                  CompressedTextConverter compressedTextConverter,
+                                  @Value("${tms.reactive.fetch-size:500}") int fetchSize) {
+        this.databaseClient = databaseClient;
+        this.compressedTextConverter = compressedTextConverter;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Finds a task by its ID.
+     *
+     * @param id The ID of the task.
+     * @return A Mono of the task, empty if it does not exist.
+     */
+    public Mono<TaskDTO> findById(long id) {
+        return databaseClient.sql(SELECT_TASKS + "WHERE t.id = :id")
+                .bind("id", id)
+                .map(this::mapTask)
+                .one();
+    }
+
+    /**
+     * Finds the author and assignee of a task without reading its description.
+     *
+     * @param id The ID of the task.
+     * @return A Mono of a TaskDTO with only the ID and the owner IDs set, empty if the task does not exist.
+     */
+    public Mono<TaskDTO> findOwnersById(long id) {
+        return databaseClient.sql("SELECT id, author_id, assignee_id FROM tasks WHERE id = :id")
+                .bind("id", id)
+                .map(row -> {
+                    TaskDTO task = new TaskDTO();
+                    task.setId(row.get("id", Long.class));
+                    task.setAuthor(owner(row.get("author_id", Long.class)));
+                    task.setAssignee(owner(row.get("assignee_id", Long.class)));
+                    return task;
+                })
+                .one();
+    }
+
+    /**
+     * Streams tasks in ID order.
+     *
+     * @param visibleTo  The ID of a user whose authored or assigned tasks are returned, or null for all tasks.
+     * @param authorId   The ID of the author to filter by, or null.
+     * @param assigneeId The ID of the assignee to filter by, or null.
+     * @param afterId    The ID after which the listing starts.
+     * @param limit      The maximum number of tasks, or null for no limit.
+     * @return A Flux of tasks.
+     */
+    public Flux<TaskDTO> findAll(Long visibleTo, Long authorId, Long assigneeId, long afterId, Integer limit) {
+        StringBuilder sql = new StringBuilder(SELECT_TASKS).append("WHERE t.id > :afterId");
+        if (visibleTo != null) {
+            sql.append(" AND (t.author_id = :visibleTo OR t.assignee_id = :visibleTo)");
+        }
+        if (authorId != null) {
+            sql.append(" AND t.author_id = :authorId");
+        }
+        if (assigneeId != null) {
+            sql.append(" AND t.assignee_id = :assigneeId");
+        }
+        sql.append(" ORDER BY t.id");
+        if (limit != null) {
+            sql.append(" LIMIT :limit");
+        }
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString()).bind("afterId", afterId);
+        if (visibleTo != null) {
+            spec = spec.bind("visibleTo", visibleTo);
+        }
+        if (authorId != null) {
+            spec = spec.bind("authorId", authorId);
+        }
+        if (assigneeId != null) {
+            spec = spec.bind("assigneeId", assigneeId);
+        }
+        if (limit != null) {
+            spec = spec.bind("limit", limit);
+        }
+        return spec.filter(statement -> statement.fetchSize(fetchSize))
+                .map(this::mapTask)
+                .all();
+    }
+
+    private TaskDTO mapTask(Readable row) {
+        Integer commentCount = row.get("comment_count", Integer.class);
+        return new TaskDTO(
+                row.get("id", Long.class),
+                row.get("title", String.class),
+                compressedTextConverter.convertToEntityAttribute(row.get("description", byte[].class)),
+                enumValue(Task.Priority.class, row.get("priority", String.class)),
+                enumValue(Task.Status.class, row.get("status", String.class)),
+                ReactiveUserRepository.mapUser(row, "author"),
+                ReactiveUserRepository.mapUser(row, "assignee"),
+                commentCount != null ? commentCount : 0,
+                row.get("last_comment_id", Long.class),
+                row.get("last_comment_preview", String.class),
+                ReactiveUserRepository.toDate(row.get("last_comment_date", LocalDateTime.class)));
+    }
+
+    private static <E extends Enum<E>> E enumValue(Class<E> type, String name) {
+        return name != null ? Enum.valueOf(type, name) : null;
+    }
+
+    private static User owner(Long id) {
+        if (id == null) {
+            return null;
+        }
+        User user = new User();
+        user.setId(id);
+        return user;
+    }
+}
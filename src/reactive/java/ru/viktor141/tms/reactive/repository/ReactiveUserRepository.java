@@ -0,0 +1,64 @@
+package ru.viktor141.tms.reactive.repository;
+
+import io.r2dbc.spi.Readable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+import ru.viktor141.tms.model.User;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Date;
+
+/**
+ * ReactiveUserRepository reads users with R2DBC.
+ * <p>
+ * Passwords are never selected: the reactive API only authenticates with JWT tokens and does not
+ * return password hashes.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ReactiveUserRepository {
+
+    private final DatabaseClient databaseClient;
+
+    /**
+     * Finds a user by email.
+     *
+     * @param email The email of the user.
+     * @return A Mono of the user, empty if the email is not registered.
+     */
+    public Mono<User> findByEmail(String email) {
+        return databaseClient.sql("SELECT id AS user_id, email AS user_email, role AS user_role FROM users WHERE email = :email")
+                .bind("email", email)
+                .map(row -> mapUser(row, "user"))
+                .one();
+    }
+
+    /**
+     * Maps the ID, email and role columns of a joined user.
+     *
+     * @param row    The row.
+     * @param prefix The prefix of the columns, such as {@code author} for {@code author_id}.
+     * @return A User object, or null if the ID column is null.
+     */
+    static User mapUser(Readable row, String prefix) {
+        Long id = row.get(prefix + "_id", Long.class);
+        if (id == null) {
+            return null;
+        }
+        String role = row.get(prefix + "_role", String.class);
+        return new User(id, row.get(prefix + "_email", String.class), null, role != null ? User.Role.valueOf(role) : null);
+    }
+
+    /**
+     * Converts a timestamp column into the Date type of the DTOs.
+     *
+     * @param value The timestamp, or null.
+     * @return A Date object, or null.
+     */
+    static Date toDate(LocalDateTime value) {
+        return value != null ? Timestamp.valueOf(value) : null;
+    }
+}
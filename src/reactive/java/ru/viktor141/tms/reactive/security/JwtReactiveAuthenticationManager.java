@@ -0,0 +1,45 @@
+package ru.viktor141.tms.reactive.security;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import ru.viktor141.tms.reactive.repository.ReactiveUserRepository;
+import ru.viktor141.tms.security.JwtTokenProvider;
+
+/**
+ * JwtReactiveAuthenticationManager authenticates bearer tokens for the reactive read API.
+ * <p>
+ * Tokens are checked with the JwtTokenProvider of the main application, and the user is loaded
+ * without blocking, so a token accepted by one API is accepted by the other. The rejection reasons
+ * are the same as in JwtAuthenticationFilter.
+ */
+@Component
+@RequiredArgsConstructor
+public class JwtReactiveAuthenticationManager implements ReactiveAuthenticationManager {
+
+    private final JwtTokenProvider jwtTokenProvider;
+    private final ReactiveUserRepository userRepository;
+
+    @Override
+    public Mono<Authentication> authenticate(Authentication authentication) {
+        String token = (String) authentication.getCredentials();
+        return Mono.fromCallable(() -> jwtTokenProvider.extractEmail(token))
+                .flatMap(email -> userRepository.findByEmail(email)
+                        .switchIfEmpty(Mono.error(() -> new BadCredentialsException("Email not registered"))))
+                .<Authentication>handle((user, sink) -> {
+                    if (jwtTokenProvider.validateToken(token, user)) {
+                        sink.next(UsernamePasswordAuthenticationToken.authenticated(user, null, user.getAuthorities()));
+                    } else {
+                        sink.error(new BadCredentialsException("JWT token rejected"));
+                    }
+                })
+                .onErrorMap(ExpiredJwtException.class, e -> new BadCredentialsException("JWT token expired", e))
+                .onErrorMap(JwtException.class, e -> new BadCredentialsException("Incorrect JWT token", e));
+    }
+}
@@ -0,0 +1,283 @@
+package ru.viktor141.tms.reactive;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.testcontainers.containers.Container.ExecResult;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.MountableFile;
+import ru.viktor141.tms.model.CompressedTextConverter;
+import ru.viktor141.tms.model.User;
+import ru.viktor141.tms.security.JwtTokenProvider;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@SpringBootTest(classes = ReactiveReadApplication.class,
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "tms.reactive.fetch-size=2")
+@Testcontainers
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ReactiveReadApiTests {
+
+    @Container
+    public static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:latest")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void r2dbcProperties(DynamicPropertyRegistry registry) throws Exception {
+        postgres.start();
+        // Схему создал Hibernate основного приложения: её дамп готовит задача gradle reactiveSchema
+        postgres.copyFileToContainer(MountableFile.forHostPath(System.getProperty("tms.test.schema")), "/tmp/schema.sql");
+        ExecResult result = postgres.execInContainer("psql", "-U", "test", "-d", "testdb", "-v", "ON_ERROR_STOP=1",
+                "-q", "-f", "/tmp/schema.sql");
+        assertEquals(0, result.getExitCode(), result.getStderr());
+
+        // URL R2DBC выводится из URL основного приложения
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.r2dbc.username", postgres::getUsername);
+        registry.add("spring.r2dbc.password", postgres::getPassword);
+    }
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private CompressedTextConverter compressedTextConverter;
+
+    private String longDescription;
+    private long ownTaskId;
+    private long assignedTaskId;
+    private long foreignTaskId;
+    private String user1Token;
+    private String user2Token;
+    private String adminToken;
+    private long adminId;
+
+    @BeforeAll
+    public void setup() {
+        User user1 = insertUser("user1@example.com", User.Role.USER);
+        User user2 = insertUser("user2@example.com", User.Role.USER);
+        User admin = insertUser("admin@example.com", User.Role.ADMIN);
+        user1Token = jwtTokenProvider.generateToken(user1);
+        user2Token = jwtTokenProvider.generateToken(user2);
+        adminToken = jwtTokenProvider.generateToken(admin);
+        adminId = admin.getId();
+
+        // Задача первого юзера, задача второго юзера с первым исполнителем и чужая задача с длинным описанием
+        longDescription = "Длинное описание задачи. ".repeat(200);
+        ownTaskId = insertTask("Own task", "Short", user1.getId(), null);
+        assignedTaskId = insertTask("Assigned task", "Short", user2.getId(), user1.getId());
+        foreignTaskId = insertTask("Foreign task", longDescription, user2.getId(), null);
+
+        LocalDateTime date = LocalDateTime.of(2024, 1, 1, 12, 0);
+        for (int i = 0; i < 3; i++) {
+            databaseClient.sql("INSERT INTO comments (text, author_id, task_id, created_date) VALUES (:text, :authorId, :taskId, :createdDate)")
+                    .bind("text", compressedTextConverter.convertToDatabaseColumn("Comment " + i))
+                    .bind("authorId", user1.getId())
+                    .bind("taskId", ownTaskId)
+                    .bind("createdDate", date.plusMinutes(i))
+                    .then()
+                    .block();
+        }
+    }
+
+    @Test
+    public void testRequestWithoutTokenIsUnauthorized() {
+        webTestClient.get().uri("/api/tasks")
+                .exchange()
+                .expectStatus().isUnauthorized();
+
+        webTestClient.get().uri("/api/tasks")
+                .header("Authorization", "Bearer invalid")
+                .exchange()
+                .expectStatus().isUnauthorized();
+    }
+
+    @Test
+    public void testUserListsOnlyVisibleTasks() {
+        // Обычный юзер видит только свои задачи и задачи, где он исполнитель
+        webTestClient.get().uri("/api/tasks")
+                .header("Authorization", "Bearer " + user1Token)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].id").isEqualTo(ownTaskId)
+                .jsonPath("$[1].id").isEqualTo(assignedTaskId);
+
+        // Фильтр по чужому автору запрещён
+        webTestClient.get().uri("/api/tasks?authorId={id}", adminId)
+                .header("Authorization", "Bearer " + user1Token)
+                .exchange()
+                .expectStatus().isForbidden();
+    }
+
+    @Test
+    public void testAdminStreamsAllTasks() {
+        // Администратор получает все задачи построчно в NDJSON, даже если их больше, чем fetch-size
+        String body = webTestClient.get().uri("/api/tasks")
+                .header("Authorization", "Bearer " + adminToken)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertNotNull(body);
+        List<Long> ids = Arrays.stream(body.split("\n"))
+                .map(line -> JsonPath.parse(line).read("$.id", Long.class))
+                .toList();
+        assertEquals(List.of(ownTaskId, assignedTaskId, foreignTaskId), ids);
+
+        // Продолжение после последней полученной задачи
+        webTestClient.get().uri("/api/tasks?afterId={id}&limit=1", ownTaskId)
+                .header("Authorization", "Bearer " + adminToken)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].id").isEqualTo(assignedTaskId);
+    }
+
+    @Test
+    public void testJsonListIsCapped() {
+        // Без NDJSON ответ собирается в памяти, поэтому лимит больше 1000 отклоняется
+        webTestClient.get().uri("/api/tasks?limit=1001")
+                .header("Authorization", "Bearer " + adminToken)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        webTestClient.get().uri("/api/tasks?limit=0")
+                .header("Authorization", "Bearer " + adminToken)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        // В NDJSON лимит не ограничен
+        webTestClient.get().uri("/api/tasks?limit=1001")
+                .header("Authorization", "Bearer " + adminToken)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    public void testGetTaskAppliesVisibilityRules() {
+        webTestClient.get().uri("/api/tasks/{id}", foreignTaskId)
+                .header("Authorization", "Bearer " + user1Token)
+                .exchange()
+                .expectStatus().isForbidden();
+
+        // Сжатое описание читается так же, как в основном приложении
+        webTestClient.get().uri("/api/tasks/{id}", foreignTaskId)
+                .header("Authorization", "Bearer " + adminToken)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.description").isEqualTo(longDescription)
+                .jsonPath("$.author.email").isEqualTo("user2@example.com")
+                .jsonPath("$.author.password").doesNotExist();
+
+        webTestClient.get().uri("/api/tasks/{id}", foreignTaskId + 1000)
+                .header("Authorization", "Bearer " + adminToken)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void testCommentsByCursor() {
+        byte[] firstPage = webTestClient.get().uri("/api/tasks/{taskId}/comments/cursor?size=2", ownTaskId)
+                .header("Authorization", "Bearer " + user1Token)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.content.length()").isEqualTo(2)
+                .jsonPath("$.content[0].text").isEqualTo("Comment 0")
+                .jsonPath("$.nextCursor").isNotEmpty()
+                .returnResult()
+                .getResponseBody();
+
+        String nextCursor = JsonPath.read(new String(firstPage), "$.nextCursor");
+        webTestClient.get().uri("/api/tasks/{taskId}/comments/cursor?size=2&cursor={cursor}", ownTaskId, nextCursor)
+                .header("Authorization", "Bearer " + user1Token)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.content.length()").isEqualTo(1)
+                .jsonPath("$.content[0].text").isEqualTo("Comment 2")
+                .jsonPath("$.nextCursor").doesNotExist();
+
+        // Комментарии чужой задачи недоступны
+        webTestClient.get().uri("/api/tasks/{taskId}/comments/cursor", ownTaskId)
+                .header("Authorization", "Bearer " + user2Token)
+                .exchange()
+                .expectStatus().isForbidden();
+
+        webTestClient.get().uri("/api/tasks/{taskId}/comments/cursor?cursor=broken", ownTaskId)
+                .header("Authorization", "Bearer " + user1Token)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void testStreamComments() {
+        String body = webTestClient.get().uri("/api/tasks/{taskId}/comments/stream", ownTaskId)
+                .header("Authorization", "Bearer " + user1Token)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertNotNull(body);
+        assertEquals(3, body.split("\n").length);
+    }
+
+    private User insertUser(String email, User.Role role) {
+        Long id = databaseClient.sql("INSERT INTO users (email, password, role) VALUES (:email, 'unused', :role) RETURNING id")
+                .bind("email", email)
+                .bind("role", role.name())
+                .map(row -> row.get("id", Long.class))
+                .one()
+                .block();
+        return new User(id, email, null, role);
+    }
+
+    private long insertTask(String title, String description, long authorId, Long assigneeId) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql("INSERT INTO tasks (title, description, status, priority, author_id, assignee_id) " +
+                        "VALUES (:title, :description, 'PENDING', 'HIGH', :authorId, :assigneeId) RETURNING id")
+                .bind("title", title)
+                .bind("description", compressedTextConverter.convertToDatabaseColumn(description))
+                .bind("authorId", authorId);
+        spec = assigneeId != null ? spec.bind("assigneeId", assigneeId) : spec.bindNull("assigneeId", Long.class);
+        return spec.map(row -> row.get("id", Long.class)).one().block();
+    }
+}
@@ -0,0 +1,221 @@
+package ru.viktor141.tms;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import org.testcontainers.containers.Container.ExecResult;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.MountableFile;
+import ru.viktor141.tms.service.TaskArchiveService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The application on the comments table partitioned by db/comments-partitioning.
+ * <p>
+ * Hibernate creates the schema, both scripts replace the comments table with the hash-partitioned
+ * copy, and the comment endpoints, the archive and a later schema update then run on the new table.
+ */
+@SpringBootTest(properties = {
+        "tms.archive.initial-delay-ms=86400000",
+        "tms.rate-limit.enabled=false"
+})
+@Testcontainers
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class CommentsPartitioningTests {
+
+    private static final int COMMENTS = 25;
+
+    @Container
+    public static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:latest")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void dataSourceProperties(DynamicPropertyRegistry registry) {
+        postgres.start();
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TaskArchiveService taskArchiveService;
+
+    private MockMvc mockMvc;
+    private String token;
+    private long taskId;
+    private long oldTaskId;
+    private long undatedTaskId;
+
+    @BeforeAll
+    public void setup() throws Exception {
+        mockMvc = MockMvcBuilders
+                .webAppContextSetup(context)
+                .apply(SecurityMockMvcConfigurers.springSecurity())
+                .build();
+
+        MvcResult registered = mockMvc.perform(post("/api/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"partitioned@example.com\",\"password\":\"pass123\"}"))
+                .andExpect(status().isCreated())
+                .andReturn();
+        token = registered.getResponse().getContentAsString();
+        Long userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = 'partitioned@example.com'", Long.class);
+
+        // Активная задача, задача, завершённая давно, и завершённая задача без даты завершения
+        taskId = insertTask("Active task", "IN_PROGRESS", userId, "NULL");
+        oldTaskId = insertTask("Old task", "COMPLETED", userId, "now() - interval '400 days'");
+        undatedTaskId = insertTask("Undated task", "COMPLETED", userId, "NULL");
+        insertComments(taskId, userId, COMMENTS);
+        insertComments(oldTaskId, userId, 3);
+        insertComments(undatedTaskId, userId, 2);
+
+        // Перенос по 10 строк в 4 секции, затем подмена таблицы
+        runScript("01-backfill.sql", "-v", "partitions=4", "-v", "batch_size=10");
+        runScript("02-switch.sql");
+    }
+
+    @Test
+    @Order(1)
+    public void testScriptsReplaceTheTable() {
+        assertEquals("p", jdbcTemplate.queryForObject("SELECT relkind::text FROM pg_class WHERE relname = 'comments'", String.class));
+        assertEquals(4, jdbcTemplate.queryForObject("SELECT count(*) FROM pg_inherits WHERE inhparent = 'comments'::regclass", Integer.class));
+        assertEquals(COMMENTS + 5, jdbcTemplate.queryForObject("SELECT count(*) FROM comments", Integer.class));
+    }
+
+    @Test
+    @Order(2)
+    public void testAddComment() throws Exception {
+        // Новый комментарий получает ID после всех перенесённых и попадает в секционированную таблицу
+        long maxId = jdbcTemplate.queryForObject("SELECT max(id) FROM comments_unpartitioned", Long.class);
+        MvcResult created = mockMvc.perform(post("/api/tasks/" + taskId + "/comments")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"text\":\"After the switch\"}")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isCreated())
+                .andReturn();
+
+        long id = JsonPath.<Number>read(created.getResponse().getContentAsString(), "$.id").longValue();
+        assertTrue(id > maxId);
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM comments WHERE id = ?", Integer.class, id));
+        assertEquals(COMMENTS + 1, jdbcTemplate.queryForObject("SELECT comment_count FROM tasks WHERE id = ?", Integer.class, taskId));
+    }
+
+    @Test
+    @Order(3)
+    public void testCursorPaging() throws Exception {
+        // Постраничное чтение по курсору возвращает все комментарии по порядку без пропусков и повторов
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            MvcResult page = mockMvc.perform(get("/api/tasks/" + taskId + "/comments/cursor?size=7" + (cursor == null ? "" : "&cursor=" + cursor))
+                            .header("Authorization", "Bearer " + token))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            String body = page.getResponse().getContentAsString();
+            JsonPath.<List<Number>>read(body, "$.content[*].id").forEach(id -> ids.add(id.longValue()));
+            cursor = JsonPath.read(body, "$.nextCursor");
+        } while (cursor != null);
+
+        assertEquals(jdbcTemplate.queryForList("SELECT id FROM comments WHERE task_id = ? ORDER BY created_date, id", Long.class, taskId), ids);
+        assertEquals(COMMENTS + 1, ids.size());
+    }
+
+    @Test
+    @Order(4)
+    public void testExport() throws Exception {
+        MvcResult export = mockMvc.perform(get("/api/tasks/" + taskId + "/comments/export")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(export))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals(COMMENTS + 1, body.lines().count());
+    }
+
+    @Test
+    @Order(5)
+    public void testArchive() {
+        // Старая задача уходит в архив вместе с комментариями, задача без даты только получает дату
+        assertEquals(1, taskArchiveService.archiveCompletedTasks());
+
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM tasks WHERE id = ?", Integer.class, oldTaskId));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM comments WHERE task_id = ?", Integer.class, oldTaskId));
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT count(*) FROM comments_archive WHERE task_id = ?", Integer.class, oldTaskId));
+        assertNotNull(jdbcTemplate.queryForObject("SELECT completed_date FROM tasks WHERE id = ?", Object.class, undatedTaskId));
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT count(*) FROM comments WHERE task_id = ?", Integer.class, undatedTaskId));
+    }
+
+    @Test
+    @Order(6)
+    public void testSchemaUpdateStartsCleanly() {
+        // Повторный запуск с ddl-auto=update не должен падать и не меняет секционированную таблицу
+        String[] properties = {
+                "--spring.datasource.url=" + postgres.getJdbcUrl(),
+                "--spring.datasource.username=" + postgres.getUsername(),
+                "--spring.datasource.password=" + postgres.getPassword(),
+                "--spring.jpa.hibernate.ddl-auto=update",
+                "--spring.jpa.properties.hibernate.hbm2ddl.halt_on_error=true",
+                "--server.port=0",
+                "--tms.archive.enabled=false"
+        };
+        try (ConfigurableApplicationContext updated = SpringApplication.run(TestTaskTmsApplication.class, properties)) {
+            assertTrue(updated.isRunning());
+        }
+
+        assertEquals("p", jdbcTemplate.queryForObject("SELECT relkind::text FROM pg_class WHERE relname = 'comments'", String.class));
+        assertEquals(COMMENTS + 1 + 2, jdbcTemplate.queryForObject("SELECT count(*) FROM comments", Integer.class));
+    }
+
+    private long insertTask(String title, String status, long authorId, String completedDate) {
+        return jdbcTemplate.queryForObject("INSERT INTO tasks (title, status, priority, author_id, completed_date) " +
+                "VALUES (?, ?, 'LOW', ?, " + completedDate + ") RETURNING id", Long.class, title, status, authorId);
+    }
+
+    private void insertComments(long taskId, long authorId, int count) {
+        jdbcTemplate.update("INSERT INTO comments (text, author_id, task_id, created_date) " +
+                "SELECT convert_to('Comment ' || i, 'UTF8'), ?, ?, timestamp '2024-01-01 12:00' + i * interval '1 minute' " +
+                "FROM generate_series(1, ?) AS i", authorId, taskId, count);
+        jdbcTemplate.update("UPDATE tasks SET comment_count = ? WHERE id = ?", count, taskId);
+    }
+
+    private static void runScript(String name, String... variables) throws Exception {
+        postgres.copyFileToContainer(MountableFile.forHostPath("db/comments-partitioning/" + name), "/tmp/" + name);
+        List<String> command = new ArrayList<>(List.of("psql", "-U", "test", "-d", "testdb", "-q"));
+        command.addAll(List.of(variables));
+        command.addAll(List.of("-f", "/tmp/" + name));
+        ExecResult result = postgres.execInContainer(command.toArray(String[]::new));
+        assertEquals(0, result.getExitCode(), result.getStderr());
+    }
+}
@@ -0,0 +1,68 @@
+package ru.viktor141.tms.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimitFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(1, Duration.ofMillis(10), meterRegistry);
+
+    @Test
+    void testPermitIsReleasedWhenSynchronousRequestReturns() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/tasks");
+
+        // Act
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> assertEquals(1, active()));
+
+        // Assert
+        assertEquals(0, active());
+    }
+
+    @Test
+    void testAsyncRequestHoldsPermitUntilCompleted() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/tasks/1/comments/export");
+        request.setAsyncSupported(true);
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+
+        // Act
+        assertEquals(1, active());
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/tasks"), rejected, (req, res) -> fail("Must not be admitted"));
+        request.getAsyncContext().complete();
+
+        // Assert
+        assertEquals(503, rejected.getStatus());
+        assertEquals(0, active());
+    }
+
+    @Test
+    void testEventStreamReleasesPermitWhenSubscribed() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/tasks/events");
+        request.setAsyncSupported(true);
+
+        // Act
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            req.startAsync();
+            res.setContentType(MediaType.TEXT_EVENT_STREAM_VALUE);
+        });
+
+        // Assert
+        assertTrue(request.isAsyncStarted());
+        assertEquals(0, active());
+    }
+
+    private double active() {
+        return meterRegistry.get("tms.concurrency.active").gauge().value();
+    }
+}
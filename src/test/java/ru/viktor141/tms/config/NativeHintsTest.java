@@ -0,0 +1,48 @@
+package ru.viktor141.tms.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+import ru.viktor141.tms.dto.TaskDTO;
+import ru.viktor141.tms.model.Task;
+
+import java.lang.reflect.Field;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NativeHintsTest {
+
+    private final RuntimeHints hints = new RuntimeHints();
+
+    @BeforeEach
+    void setUp() {
+        new NativeHints().registerHints(hints, getClass().getClassLoader());
+    }
+
+    @Test
+    void testFieldsCopiedByUpdateTaskFullAreRegistered() {
+        // Every TaskDTO field and its Task counterpart are read and written reflectively
+        for (Field dtoField : TaskDTO.class.getDeclaredFields()) {
+            assertTrue(RuntimeHintsPredicates.reflection().onField(dtoField).test(hints), dtoField.getName());
+        }
+        for (Field entityField : Task.class.getDeclaredFields()) {
+            assertTrue(RuntimeHintsPredicates.reflection().onField(entityField).test(hints), entityField.getName());
+        }
+    }
+
+    @Test
+    void testJjwtImplementationsAreRegistered() {
+        assertTrue(RuntimeHintsPredicates.reflection()
+                .onType(TypeReference.of("io.jsonwebtoken.impl.DefaultJwtBuilder")).test(hints));
+        assertTrue(RuntimeHintsPredicates.resource()
+                .forResource("META-INF/services/io.jsonwebtoken.io.Serializer").test(hints));
+    }
+
+    @Test
+    void testDtoAccessorsAreRegisteredForJackson() {
+        assertTrue(RuntimeHintsPredicates.reflection().onMethod(TaskDTO.class, "getTitle").test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onMethod(TaskDTO.class, "setTitle").test(hints));
+    }
+}
@@ -0,0 +1,45 @@
+package ru.viktor141.tms.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.viktor141.tms.config.ReplicaRoutingDataSource.Route;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReplicaRoutingDataSourceTest {
+
+    private final ReadYourWritesTracker tracker = new ReadYourWritesTracker(Duration.ofSeconds(3));
+
+    @BeforeEach
+    void setUp() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    void testReadOnlyTransactionUsesReplica() {
+        assertEquals(Route.REPLICA, ReplicaRoutingDataSource.route(tracker));
+    }
+
+    @Test
+    void testReadFromPrimaryUsesPrimary() {
+        // Act
+        Route inside = ReplicaRoutingDataSource.readFromPrimary(() ->
+                ReplicaRoutingDataSource.readFromPrimary(() -> ReplicaRoutingDataSource.route(tracker)));
+        Route after = ReplicaRoutingDataSource.route(tracker);
+
+        // Assert
+        assertEquals(Route.PRIMARY, inside);
+        assertEquals(Route.REPLICA, after);
+    }
+}
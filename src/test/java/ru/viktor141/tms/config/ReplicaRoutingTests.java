@@ -0,0 +1,194 @@
+package ru.viktor141.tms.config;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import org.testcontainers.containers.Container.ExecResult;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.MountableFile;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Routing between the primary and the replica.
+ * <p>
+ * Both databases are independent containers without replication, so every row the application
+ * writes exists on the primary only: a read that finds it came from the primary, a read that misses
+ * it came from the replica. Users are always looked up on the primary, so they need no replication.
+ * Local caches keep nothing with a zero TTL, so every read reaches one of the databases.
+ */
+@SpringBootTest(properties = {
+        "tms.archive.enabled=false",
+        "tms.idempotency.purge-interval-ms=86400000",
+        "tms.changes.purge-interval-ms=86400000",
+        "tms.datasource.replica.sticky-window=PT1S",
+        "tms.cache.ttl=PT0S"
+})
+@Testcontainers
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class ReplicaRoutingTests {
+
+    private static final long AFTER_WINDOW_MS = 1500;
+
+    @Container
+    public static PostgreSQLContainer<?> primary = new PostgreSQLContainer<>("postgres:latest")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @Container
+    public static PostgreSQLContainer<?> replica = new PostgreSQLContainer<>("postgres:latest")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void dataSourceProperties(DynamicPropertyRegistry registry) {
+        primary.start();
+        replica.start();
+        registry.add("spring.datasource.url", primary::getJdbcUrl);
+        registry.add("spring.datasource.username", primary::getUsername);
+        registry.add("spring.datasource.password", primary::getPassword);
+        registry.add("tms.datasource.replica.url", replica::getJdbcUrl);
+    }
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private MockMvc mockMvc;
+    private JdbcTemplate replicaJdbcTemplate;
+    private String token;
+    private long taskId;
+
+    @BeforeAll
+    public void setup() throws Exception {
+        mockMvc = MockMvcBuilders
+                .webAppContextSetup(context)
+                .apply(SecurityMockMvcConfigurers.springSecurity())
+                .build();
+        replicaJdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                replica.getJdbcUrl(), replica.getUsername(), replica.getPassword()));
+
+        // Схему создал Hibernate на основной базе; реплика получает её копию без данных
+        exec(primary, "pg_dump", "-U", "test", "--schema-only", "--no-owner", "-f", "/tmp/schema.sql", "testdb");
+        Path schema = Files.createTempFile("schema", ".sql");
+        primary.copyFileFromContainer("/tmp/schema.sql", schema.toString());
+        replica.copyFileToContainer(MountableFile.forHostPath(schema), "/tmp/schema.sql");
+        exec(replica, "psql", "-U", "test", "-d", "testdb", "-v", "ON_ERROR_STOP=1", "-q", "-f", "/tmp/schema.sql");
+    }
+
+    @Test
+    @Order(1)
+    public void testWriterReadsFromPrimaryWithinWindow() throws Exception {
+        token = mockMvc.perform(post("/api/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"writer@example.com\",\"password\":\"pass123\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+
+        // Пользователя нет на реплике, но сразу после регистрации он читает с основной базы
+        mockMvc.perform(get("/api/tasks")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+
+        String body = mockMvc.perform(post("/api/tasks/create")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Routed\",\"description\":\"Written to the primary\",\"status\":\"PENDING\",\"priority\":\"HIGH\"}")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        taskId = ((Number) JsonPath.read(body, "$.id")).longValue();
+
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM tasks WHERE id = ?", Integer.class, taskId));
+        assertEquals(0, replicaJdbcTemplate.queryForObject("SELECT count(*) FROM tasks", Integer.class));
+
+        mockMvc.perform(get("/api/tasks/" + taskId)
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("Routed"));
+    }
+
+    @Test
+    @Order(2)
+    public void testReadsGoToReplicaAfterWindow() throws Exception {
+        Thread.sleep(AFTER_WINDOW_MS);
+
+        // Окно прошло: пользователя на реплике нет, но проверка токена всегда читает его с основной базы
+        assertEquals(0, replicaJdbcTemplate.queryForObject("SELECT count(*) FROM users", Integer.class));
+
+        // Задачи читаются с реплики, куда задача ещё не дошла
+        mockMvc.perform(get("/api/tasks")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(0));
+        mockMvc.perform(get("/api/tasks/" + taskId)
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @Order(3)
+    public void testLoginFindsUserMissingOnReplica() throws Exception {
+        Thread.sleep(AFTER_WINDOW_MS);
+
+        // Вход и повторная регистрация ищут пользователя на основной базе
+        mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"writer@example.com\",\"password\":\"pass123\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"writer@example.com\",\"password\":\"pass123\"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Order(4)
+    public void testWriteTransactionsUsePrimary() throws Exception {
+        // Изменение читает задачу в той же транзакции, поэтому находит её на основной базе
+        mockMvc.perform(put("/api/tasks/" + taskId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Updated\",\"description\":\"Written to the primary\",\"status\":\"IN_PROGRESS\",\"priority\":\"HIGH\"}")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+        assertEquals("Updated", jdbcTemplate.queryForObject("SELECT title FROM tasks WHERE id = ?", String.class, taskId));
+
+        // Запись снова открывает окно
+        mockMvc.perform(get("/api/tasks/" + taskId)
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("Updated"));
+
+        Thread.sleep(AFTER_WINDOW_MS);
+        mockMvc.perform(get("/api/tasks/" + taskId)
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isNotFound());
+    }
+
+    private static void exec(PostgreSQLContainer<?> container, String... command) throws Exception {
+        ExecResult result = container.execInContainer(command);
+        assertEquals(0, result.getExitCode(), result.getStderr());
+    }
+}
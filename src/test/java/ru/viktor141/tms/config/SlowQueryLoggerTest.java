@@ -0,0 +1,92 @@
+package ru.viktor141.tms.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlowQueryLoggerTest {
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger("ru.viktor141.tms.sql");
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    @BeforeEach
+    void setUp() {
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(appender);
+    }
+
+    @Test
+    void testSlowStatementIsLoggedAsWarning() {
+        // Arrange
+        SlowQueryLogger slowQueryLogger = new SlowQueryLogger(Duration.ofMillis(100), 0);
+
+        // Act
+        slowQueryLogger.afterQuery(execution(150, true), List.of(new QueryInfo("select * from tasks")));
+
+        // Assert
+        assertEquals(1, appender.list.size());
+        ILoggingEvent event = appender.list.get(0);
+        assertEquals(Level.WARN, event.getLevel());
+        assertTrue(event.getFormattedMessage().startsWith("Slow SQL 150 ms in "));
+        assertTrue(event.getFormattedMessage().endsWith(": select * from tasks"));
+    }
+
+    @Test
+    void testFastStatementIsNotLoggedWithoutSampling() {
+        // Arrange
+        SlowQueryLogger slowQueryLogger = new SlowQueryLogger(Duration.ofMillis(100), 0);
+
+        // Act
+        slowQueryLogger.afterQuery(execution(5, true), List.of(new QueryInfo("select 1")));
+
+        // Assert
+        assertTrue(appender.list.isEmpty());
+    }
+
+    @Test
+    void testFastStatementIsSampled() {
+        // Arrange
+        SlowQueryLogger slowQueryLogger = new SlowQueryLogger(Duration.ofMillis(100), 1);
+        ExecutionInfo execution = execution(5, false);
+        execution.setBatch(true);
+        execution.setBatchSize(3);
+
+        // Act
+        slowQueryLogger.afterQuery(execution, List.of(new QueryInfo("insert into comments values (?)")));
+
+        // Assert
+        assertEquals(1, appender.list.size());
+        ILoggingEvent event = appender.list.get(0);
+        assertEquals(Level.INFO, event.getLevel());
+        assertTrue(event.getFormattedMessage().contains("(batch of 3) (failed)"));
+    }
+
+    @Test
+    void testInvalidSampleRateIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new SlowQueryLogger(Duration.ofMillis(100), 1.5));
+    }
+
+    private static ExecutionInfo execution(long elapsedMillis, boolean success) {
+        ExecutionInfo execution = new ExecutionInfo();
+        execution.setElapsedTime(elapsedMillis);
+        execution.setSuccess(success);
+        return execution;
+    }
+}
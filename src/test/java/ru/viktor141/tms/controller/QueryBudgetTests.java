@@ -0,0 +1,294 @@
+package ru.viktor141.tms.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.viktor141.tms.support.QueryBudget;
+import ru.viktor141.tms.support.QueryBudgetConfig;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Statement budgets of the REST endpoints.
+ * <p>
+ * Each budget is the number of statements the endpoint needs today; a new eager association,
+ * an extra lookup or an N+1 query makes the test fail with the list of executed statements.
+ * Every user has several tasks, so budgets that depend on the number of rows fail as well.
+ */
+@SpringBootTest(properties = {
+        "tms.archive.enabled=false",
+        "tms.idempotency.purge-interval-ms=86400000",
+        "tms.changes.purge-interval-ms=86400000"
+})
+@Testcontainers
+@AutoConfigureMockMvc
+@Import(QueryBudgetConfig.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class QueryBudgetTests {
+
+    /**
+     * JwtAuthenticationFilter: проверка email и загрузка пользователя.
+     */
+    private static final int AUTH = 2;
+
+    /**
+     * Запись в журнал изменений: одна вставка.
+     */
+    private static final int CHANGE_LOG = 1;
+
+    /**
+     * Рассылка вытеснения из локальных кэшей: pg_notify перед фиксацией.
+     */
+    private static final int EVICTION = 1;
+
+    @Container
+    public static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:latest")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void dataSourceProperties(DynamicPropertyRegistry registry) {
+        postgres.start();
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private QueryBudget queryBudget;
+
+    private String userToken;
+    private String adminToken;
+    private long userId;
+    private long taskId;
+
+    @BeforeAll
+    public void setup() throws Exception {
+        mockMvc = MockMvcBuilders
+                .webAppContextSetup(context)
+                .apply(SecurityMockMvcConfigurers.springSecurity())
+                .build();
+
+        userToken = register("user@example.com");
+        adminToken = register("admin@example.com");
+        userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = ?", Long.class, "user@example.com");
+        long adminId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = ?", Long.class, "admin@example.com");
+        jdbcTemplate.update("UPDATE users SET role = ? WHERE id = ?", "ADMIN", adminId);
+
+        // Три задачи пользователя, назначенные администратору, и комментарии к первой
+        for (int i = 1; i <= 3; i++) {
+            long id = createTask("Task " + i);
+            if (i == 1) {
+                taskId = id;
+            }
+        }
+        jdbcTemplate.update("UPDATE tasks SET assignee_id = ? WHERE author_id = ?", adminId, userId);
+        for (int i = 1; i <= 3; i++) {
+            mockMvc.perform(post("/api/tasks/" + taskId + "/comments")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"text\":\"Comment " + i + "\"}")
+                            .header("Authorization", "Bearer " + userToken))
+                    .andExpect(status().isCreated());
+        }
+    }
+
+    @Test
+    @Order(1)
+    public void testAuthControllerBudgets() throws Exception {
+        // Регистрация: проверка email и вставка пользователя
+        queryBudget.assertAtMost(2, () -> mockMvc.perform(post("/api/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"new@example.com\",\"password\":\"pass123\"}"))
+                .andExpect(status().isCreated()));
+
+        // Повторная регистрация: только проверка email
+        queryBudget.assertAtMost(1, () -> mockMvc.perform(post("/api/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"new@example.com\",\"password\":\"pass123\"}"))
+                .andExpect(status().isBadRequest()));
+
+        // Вход и вход с неверным паролем: загрузка пользователя
+        queryBudget.assertAtMost(1, () -> mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"new@example.com\",\"password\":\"pass123\"}"))
+                .andExpect(status().isOk()));
+        queryBudget.assertAtMost(1, () -> mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"new@example.com\",\"password\":\"wrong\"}"))
+                .andExpect(status().isUnauthorized()));
+    }
+
+    @Test
+    @Order(2)
+    public void testTaskReadBudgets() throws Exception {
+        // Список задач: запрос задач и по одному запросу на каждого автора и исполнителя, а не на каждую задачу
+        queryBudget.assertAtMost(AUTH + 3, () -> mockMvc.perform(get("/api/tasks/all")
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isOk()));
+        queryBudget.assertAtMost(AUTH + 3, () -> mockMvc.perform(get("/api/tasks/all")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk()));
+
+        // Неполная первая страница не требует запроса count
+        queryBudget.assertAtMost(AUTH + 3, () -> mockMvc.perform(get("/api/tasks?page=0&size=10&authorId=" + userId)
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isOk()));
+
+        // Задача по ID загружается одним запросом вместе с автором и исполнителем
+        queryBudget.assertAtMost(AUTH + 1, () -> mockMvc.perform(get("/api/tasks/" + taskId)
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isOk()));
+
+        // Отсутствующая задача ищется ещё и в архиве
+        queryBudget.assertAtMost(AUTH + 2, () -> mockMvc.perform(get("/api/tasks/999999?includeArchived=true")
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isNotFound()));
+    }
+
+    @Test
+    @Order(3)
+    public void testTaskChangesAndEventsBudgets() throws Exception {
+        // Полный снимок: границы журнала и задачи вместе с владельцами, затем комментарии задач
+        String[] cursor = new String[1];
+        queryBudget.assertAtMost(AUTH + 2, () -> {
+            String body = mockMvc.perform(get("/api/tasks/changes")
+                            .header("Authorization", "Bearer " + userToken))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            cursor[0] = JsonPath.read(body, "$.cursor");
+        });
+        queryBudget.assertAtMost(AUTH + 1, () -> {
+            String body = mockMvc.perform(get("/api/tasks/changes?since=" + cursor[0])
+                            .header("Authorization", "Bearer " + userToken))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.hasMore").value(false))
+                    .andReturn().getResponse().getContentAsString();
+            cursor[0] = JsonPath.read(body, "$.cursor");
+        });
+
+        // Синхронизация без новых изменений: граница журнала и пустая выборка
+        queryBudget.assertAtMost(AUTH + 2, () -> mockMvc.perform(get("/api/tasks/changes?since=" + cursor[0])
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isOk()));
+
+        // Подписка на свои задачи не обращается к базе, подписка на задачу проверяет доступ
+        queryBudget.assertAtMost(AUTH, () -> mockMvc.perform(get("/api/tasks/events")
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(request().asyncStarted()));
+        queryBudget.assertAtMost(AUTH + 1, () -> mockMvc.perform(get("/api/tasks/events?taskIds=" + taskId)
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(request().asyncStarted()));
+    }
+
+    @Test
+    @Order(4)
+    public void testTaskWriteBudgets() throws Exception {
+        // Создание: вставка задачи и запись в журнал
+        long[] createdId = new long[1];
+        queryBudget.assertAtMost(AUTH + 1 + CHANGE_LOG + EVICTION, () -> createdId[0] = createTask("Budget Task"));
+
+        // Обновление: загрузка, обновление и запись в журнал
+        String updateJson = """
+                {
+                    "title": "Updated Task",
+                    "description": "Updated Description",
+                    "status": "IN_PROGRESS",
+                    "priority": "LOW"
+                }""";
+        queryBudget.assertAtMost(AUTH + 2 + CHANGE_LOG + EVICTION, () -> mockMvc.perform(put("/api/tasks/" + taskId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(updateJson)
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isOk()));
+
+        // Удаление: проверка доступа, владельцы, удаление комментариев и задачи, запись в журнал
+        queryBudget.assertAtMost(AUTH + 4 + CHANGE_LOG + EVICTION, () -> mockMvc.perform(delete("/api/tasks/" + createdId[0])
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isOk()));
+    }
+
+    @Test
+    @Order(5)
+    public void testCommentControllerBudgets() throws Exception {
+        // Добавление: проверка доступа, владельцы, вставка, счётчики задачи и запись в журнал
+        queryBudget.assertAtMost(AUTH + 4 + CHANGE_LOG + EVICTION, () -> mockMvc.perform(post("/api/tasks/" + taskId + "/comments")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"text\":\"Budget comment\"}")
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isCreated()));
+
+        // Страница комментариев: проверка задачи, комментарии и один запрос на автора
+        queryBudget.assertAtMost(AUTH + 3, () -> mockMvc.perform(get("/api/tasks/" + taskId + "/comments?page=0&size=10")
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isOk()));
+
+        // Страница по курсору: один запрос вместе с задачей и авторами
+        queryBudget.assertAtMost(AUTH + 1, () -> mockMvc.perform(get("/api/tasks/" + taskId + "/comments/cursor?size=2")
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isOk()));
+
+        // Экспорт: проверка доступа и один потоковый запрос
+        queryBudget.assertAtMost(AUTH + 2, () -> {
+            MvcResult export = mockMvc.perform(get("/api/tasks/" + taskId + "/comments/export")
+                            .header("Authorization", "Bearer " + userToken))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            mockMvc.perform(asyncDispatch(export))
+                    .andExpect(status().isOk());
+        });
+    }
+
+    private String register(String email) throws Exception {
+        return mockMvc.perform(post("/api/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"" + email + "\",\"password\":\"pass123\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    private long createTask(String title) throws Exception {
+        String taskJson = """
+                {
+                    "title": "%s",
+                    "description": "Test Description",
+                    "status": "PENDING",
+                    "priority": "HIGH"
+                }""".formatted(title);
+        String body = mockMvc.perform(post("/api/tasks/create")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(taskJson)
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return ((Number) JsonPath.read(body, "$.id")).longValue();
+    }
+}
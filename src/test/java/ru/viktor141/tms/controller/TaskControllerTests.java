@@ -1,6 +1,10 @@
 package ru.viktor141.tms.controller;
 
 
+import com.jayway.jsonpath.JsonPath;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -17,12 +21,27 @@ import org.springframework.web.context.WebApplicationContext;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
-
+import ru.viktor141.tms.model.Task;
+import ru.viktor141.tms.model.User;
+import ru.viktor141.tms.repository.UserRepository;
+import ru.viktor141.tms.service.TaskArchiveService;
+import ru.viktor141.tms.service.TaskEventBroadcaster;
+import ru.viktor141.tms.service.TaskService;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
-@SpringBootTest
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 @Testcontainers
 @AutoConfigureMockMvc
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
@@ -52,6 +71,21 @@ public class TaskControllerTests {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TaskArchiveService taskArchiveService;
+
+    @Autowired
+    private TaskEventBroadcaster taskEventBroadcaster;
+
     private String jwtUser1Token;
     private String jwtUser2Token;
 
@@ -213,4 +247,257 @@ public class TaskControllerTests {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    @Order(8)
+    public void testDeleteTaskStatementCount() {
+        // Удаление задачи с большим количеством комментариев выполняется фиксированным числом запросов
+        User author = userRepository.findById(1L).orElseThrow();
+        Long taskId = saveTask("Task with many comments", author);
+
+        jdbcTemplate.update("INSERT INTO comments (text, author_id, task_id, created_date) " +
+                "SELECT convert_to('Comment ' || g, 'UTF8'), ?, ?, now() FROM generate_series(1, 500) g", author.getId(), taskId);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        assertTrue(taskService.deleteTask(taskId));
+        assertEquals(3, statistics.getPrepareStatementCount());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM comments WHERE task_id = ?", Long.class, taskId));
+    }
+
+    @Test
+    @Order(9)
+    public void testTaskEventStream() throws Exception {
+        // Подписка на изменения своих задач получает событие о созданной задаче
+        MvcResult subscription = mockMvc.perform(get("/api/tasks/events")
+                        .header("Authorization", "Bearer " + jwtUser1Token))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String taskJson = """
+                {
+                    "title": "Streamed Task",
+                    "status": "PENDING",
+                    "priority": "LOW"
+                }""";
+        mockMvc.perform(post("/api/tasks/create")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(taskJson)
+                        .header("Authorization", "Bearer " + jwtUser1Token))
+                .andExpect(status().isCreated());
+
+        long deadline = System.currentTimeMillis() + 5000;
+        String body = subscription.getResponse().getContentAsString();
+        while (!body.contains("Streamed Task") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            body = subscription.getResponse().getContentAsString();
+        }
+        assertTrue(body.contains("event:TASK_CREATED"));
+        assertTrue(body.contains("Streamed Task"));
+    }
+
+    @Test
+    @Order(10)
+    public void testTaskEventStreamForbiddenTask() throws Exception {
+        // Обычный пользователь не может подписаться на чужую задачу
+        User admin = userRepository.findById(2L).orElseThrow();
+        Long taskId = saveTask("Admin task", admin);
+
+        mockMvc.perform(get("/api/tasks/events?taskIds=" + taskId)
+                        .header("Authorization", "Bearer " + jwtUser1Token))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    @Order(11)
+    public void testTaskChangesDeltaSync() throws Exception {
+        // Первая синхронизация возвращает полный снимок постранично: задачи, затем их комментарии
+        String cursor = readSnapshot(jwtUser1Token);
+
+        String taskJson = """
+                {
+                    "title": "Synced Task",
+                    "status": "PENDING",
+                    "priority": "LOW"
+                }""";
+        MvcResult created = mockMvc.perform(post("/api/tasks/create")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(taskJson)
+                        .header("Authorization", "Bearer " + jwtUser1Token))
+                .andExpect(status().isCreated())
+                .andReturn();
+        Integer taskId = JsonPath.read(created.getResponse().getContentAsString(), "$.id");
+
+        // Следующая синхронизация возвращает только изменения после курсора
+        MvcResult delta = mockMvc.perform(get("/api/tasks/changes?since=" + cursor)
+                        .header("Authorization", "Bearer " + jwtUser1Token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.reset").value(false))
+                .andExpect(jsonPath("$.tasks.length()").value(1))
+                .andExpect(jsonPath("$.tasks[0].id").value(taskId))
+                .andReturn();
+        cursor = JsonPath.read(delta.getResponse().getContentAsString(), "$.cursor");
+
+        // После передачи задачи другому автору прежний автор получает надгробие
+        mockMvc.perform(put("/api/tasks/" + taskId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"author\": {\"id\": 2}}")
+                        .header("Authorization", "Bearer " + jwtUser2Token))
+                .andExpect(status().isOk());
+
+        MvcResult transferred = mockMvc.perform(get("/api/tasks/changes?since=" + cursor)
+                        .header("Authorization", "Bearer " + jwtUser1Token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tasks.length()").value(0))
+                .andExpect(jsonPath("$.deletedTaskIds[0]").value(taskId))
+                .andReturn();
+        cursor = JsonPath.read(transferred.getResponse().getContentAsString(), "$.cursor");
+
+        // Задача, перенесённая в архив, тоже приходит как надгробие
+        Long archivedId = jdbcTemplate.queryForObject("INSERT INTO tasks (title, status, priority, author_id, completed_date) " +
+                "VALUES ('Archived Task', 'COMPLETED', 'LOW', 1, now() - interval '400 days') RETURNING id", Long.class);
+        taskArchiveService.archiveCompletedTasks();
+
+        mockMvc.perform(get("/api/tasks/changes?since=" + cursor)
+                        .header("Authorization", "Bearer " + jwtUser1Token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deletedTaskIds[0]").value(archivedId));
+    }
+
+    /**
+     * Reads a full snapshot page by page and returns the cursor of the following delta sync.
+     */
+    private String readSnapshot(String token) throws Exception {
+        String cursor = null;
+        boolean hasMore = true;
+        boolean first = true;
+        while (hasMore) {
+            MvcResult page = mockMvc.perform(get("/api/tasks/changes?limit=1" + (cursor == null ? "" : "&since=" + cursor))
+                            .header("Authorization", "Bearer " + token))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.reset").value(first))
+                    .andReturn();
+            String body = page.getResponse().getContentAsString();
+            int items = JsonPath.<Integer>read(body, "$.tasks.length()") + JsonPath.<Integer>read(body, "$.comments.length()");
+            assertTrue(items <= 1);
+            cursor = JsonPath.read(body, "$.cursor");
+            hasMore = JsonPath.read(body, "$.hasMore");
+            first = false;
+        }
+        return cursor;
+    }
+
+    @Test
+    @Order(12)
+    public void testExportComments() throws Exception {
+        // Экспорт всей истории комментариев задачи одним потоковым запросом
+        User author = userRepository.findById(1L).orElseThrow();
+        Long taskId = saveTask("Task to export", author);
+
+        jdbcTemplate.update("INSERT INTO comments (text, author_id, task_id, created_date) " +
+                "SELECT convert_to('Comment, \"' || g || '\"', 'UTF8'), ?, ?, now() FROM generate_series(1, 1500) g", author.getId(), taskId);
+
+        MvcResult ndjson = mockMvc.perform(get("/api/tasks/" + taskId + "/comments/export")
+                        .header("Authorization", "Bearer " + jwtUser1Token))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(ndjson))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertEquals(1500, body.lines().count());
+
+        // CSV со сжатием gzip
+        MvcResult csv = mockMvc.perform(get("/api/tasks/" + taskId + "/comments/export?format=csv&gzip=true")
+                        .header("Authorization", "Bearer " + jwtUser1Token))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        byte[] compressed = mockMvc.perform(asyncDispatch(csv))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+        String text;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        List<String> lines = text.lines().toList();
+        assertEquals(1501, lines.size());
+        assertEquals("id,createdDate,authorId,authorEmail,text", lines.get(0));
+        assertTrue(lines.get(1).endsWith(",\"Comment, \"\"1\"\"\""));
+
+        // Пользователь без доступа к задаче не может её экспортировать
+        User admin = userRepository.findById(2L).orElseThrow();
+        Long foreignId = saveTask("Foreign task", admin);
+        mockMvc.perform(get("/api/tasks/" + foreignId + "/comments/export")
+                        .header("Authorization", "Bearer " + jwtUser1Token))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    @Order(13)
+    public void testGetMissingTask() throws Exception {
+        // Несуществующая задача: 404 с телом ResponseError, в сообщении указан ID
+        mockMvc.perform(get("/api/tasks/999999")
+                        .header("Authorization", "Bearer " + jwtUser2Token))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.status").value(404))
+                .andExpect(jsonPath("$.message").value(containsString("999999")))
+                .andExpect(jsonPath("$.timestamp").exists());
+    }
+
+    @Test
+    @Order(14)
+    public void testTaskEventStreamAfterLosingAccess() throws Exception {
+        // Пользователь, у которого забрали задачу, получает только её ID, а подписка на задачу закрывается
+        User user = userRepository.findById(1L).orElseThrow();
+        Long taskId = saveTask("Handed over task", user);
+        MvcResult userStream = mockMvc.perform(get("/api/tasks/events")
+                        .header("Authorization", "Bearer " + jwtUser1Token))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult taskStream = mockMvc.perform(get("/api/tasks/events?taskIds=" + taskId)
+                        .header("Authorization", "Bearer " + jwtUser1Token))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        int subscribers = taskEventBroadcaster.getSubscriberCount();
+
+        String updatedTaskJson = """
+                {
+                    "title": "Handed over task",
+                    "description": "Secret description",
+                    "priority": "HIGH",
+                    "author": {
+                            "id": 2
+                        }
+                }""";
+        mockMvc.perform(put("/api/tasks/" + taskId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(updatedTaskJson)
+                        .header("Authorization", "Bearer " + jwtUser2Token))
+                .andExpect(status().isOk());
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((!userStream.getResponse().getContentAsString().contains("event:TASK_REMOVED")
+                || taskEventBroadcaster.getSubscriberCount() != subscribers - 1)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        for (MvcResult stream : List.of(userStream, taskStream)) {
+            String body = stream.getResponse().getContentAsString();
+            assertTrue(body.contains("event:TASK_REMOVED"));
+            assertTrue(body.contains("{\"taskId\":" + taskId + "}"));
+            assertFalse(body.contains("Secret description"));
+            assertFalse(body.contains("TASK_UPDATED"));
+        }
+        // Подписка на отдельные задачи закрыта, подписка на свои задачи остаётся
+        assertEquals(subscribers - 1, taskEventBroadcaster.getSubscriberCount());
+    }
+
+    private Long saveTask(String title, User author) {
+        Task task = new Task();
+        task.setTitle(title);
+        task.setStatus(Task.Status.PENDING);
+        task.setPriority(Task.Priority.LOW);
+        task.setAuthor(author);
+        return taskService.saveTask(task).getId();
+    }
 }
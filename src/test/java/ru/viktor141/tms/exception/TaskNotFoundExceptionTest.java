@@ -0,0 +1,45 @@
+package ru.viktor141.tms.exception;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import ru.viktor141.tms.exception.GlobalExceptionHandler.ResponseError;
+import ru.viktor141.tms.utils.EnvironmentUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+class TaskNotFoundExceptionTest {
+
+    @Test
+    void testStackTraceIsOmittedOutsideDevelopmentMode() {
+        assumeFalse(EnvironmentUtils.isDevelopmentMode(), "APP_ENV=development keeps the stack trace");
+
+        // Act
+        TaskNotFoundException exception = new TaskNotFoundException(42L);
+
+        // Assert
+        assertEquals(0, exception.getStackTrace().length);
+        assertEquals("Task not found with id: 42", exception.getMessage());
+    }
+
+    @Test
+    void testHandlerAnswersWithNotFound() {
+        assumeFalse(EnvironmentUtils.isDevelopmentMode(), "APP_ENV=development returns the stack trace");
+
+        // Arrange
+        GlobalExceptionHandler handler = new GlobalExceptionHandler();
+
+        // Act
+        ResponseEntity<ResponseError> response = handler.handleResourceNotFoundException(new TaskNotFoundException(42L));
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        ResponseError body = response.getBody();
+        assertNotNull(body);
+        assertEquals(HttpStatus.NOT_FOUND.value(), body.getStatus());
+        assertTrue(body.getMessage().contains("42"));
+        assertNotNull(body.getTimestamp());
+        assertNull(body.getStackTrace());
+    }
+}
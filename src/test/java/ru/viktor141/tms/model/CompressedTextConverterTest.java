@@ -0,0 +1,55 @@
+package ru.viktor141.tms.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressedTextConverterTest {
+
+    private final CompressedTextConverter converter = new CompressedTextConverter(1024);
+
+    @Test
+    void testShortTextIsStoredAsUtf8() {
+        // Act
+        byte[] stored = converter.convertToDatabaseColumn("Короткий комментарий");
+
+        // Assert
+        assertArrayEquals("Короткий комментарий".getBytes(StandardCharsets.UTF_8), stored);
+        assertEquals("Короткий комментарий", converter.convertToEntityAttribute(stored));
+    }
+
+    @Test
+    void testLongTextIsCompressed() {
+        // Arrange
+        String text = "Stack trace line at ru.viktor141.tms.service.TaskService.updateTask\n".repeat(1000);
+
+        // Act
+        byte[] stored = converter.convertToDatabaseColumn(text);
+
+        // Assert
+        assertEquals(0x1f, stored[0] & 0xff);
+        assertEquals(0x8b, stored[1] & 0xff);
+        assertTrue(stored.length < text.length() / 10);
+        assertEquals(text, converter.convertToEntityAttribute(stored));
+    }
+
+    @Test
+    void testUncompressedRowsAreReadWhenCompressionIsEnabled() {
+        // Arrange
+        String text = "x".repeat(4096);
+        byte[] legacy = new CompressedTextConverter(0).convertToDatabaseColumn(text);
+
+        // Act & Assert
+        assertArrayEquals(text.getBytes(StandardCharsets.UTF_8), legacy);
+        assertEquals(text, converter.convertToEntityAttribute(legacy));
+    }
+
+    @Test
+    void testNullIsPreserved() {
+        // Act & Assert
+        assertNull(converter.convertToDatabaseColumn(null));
+        assertNull(converter.convertToEntityAttribute(null));
+    }
+}
@@ -0,0 +1,182 @@
+package ru.viktor141.tms.security;
+
+import jakarta.servlet.Filter;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers;
+import org.springframework.security.web.FilterChainProxy;
+import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Rate limits with small bursts and a rate too slow to refill during the test.
+ * <p>
+ * Every test registers its own users, so the buckets of one test do not affect another.
+ */
+@SpringBootTest(properties = {
+        "tms.archive.enabled=false",
+        "tms.rate-limit.enabled=true",
+        "tms.rate-limit.limits.user.read.rate=0.001",
+        "tms.rate-limit.limits.user.read.burst=2",
+        "tms.rate-limit.limits.user.write.rate=0.001",
+        "tms.rate-limit.limits.user.write.burst=1",
+        "tms.rate-limit.limits.admin.read.rate=0.001",
+        "tms.rate-limit.limits.admin.read.burst=4",
+        "tms.rate-limit.limits.admin.write.rate=0.001",
+        "tms.rate-limit.limits.admin.write.burst=3"
+})
+@Testcontainers
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class RateLimitFilterTests {
+
+    @Container
+    public static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:latest")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void dataSourceProperties(DynamicPropertyRegistry registry) {
+        postgres.start();
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private FilterChainProxy filterChainProxy;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private MockMvc mockMvc;
+
+    @BeforeAll
+    public void setup() {
+        mockMvc = MockMvcBuilders
+                .webAppContextSetup(context)
+                .apply(SecurityMockMvcConfigurers.springSecurity())
+                .build();
+    }
+
+    @Test
+    public void testFilterRunsRightAfterAuthentication() {
+        SecurityFilterChain chain = filterChainProxy.getFilterChains().getFirst();
+        List<Class<?>> filters = chain.getFilters().stream().<Class<?>>map(Filter::getClass).toList();
+
+        int jwt = filters.indexOf(JwtAuthenticationFilter.class);
+        assertTrue(jwt >= 0);
+        assertEquals(jwt + 1, filters.indexOf(RateLimitFilter.class));
+    }
+
+    @Test
+    public void testExceededLimitIsRejected() throws Exception {
+        String token = register("reader@example.com", false);
+
+        // Запросы в пределах burst проходят, заголовки показывают остаток
+        mockMvc.perform(get("/api/tasks/all").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(header().string(RateLimitFilter.LIMIT_HEADER, "2"))
+                .andExpect(header().string(RateLimitFilter.REMAINING_HEADER, "1"))
+                .andExpect(header().exists(RateLimitFilter.RESET_HEADER));
+        mockMvc.perform(get("/api/tasks/all").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(header().string(RateLimitFilter.REMAINING_HEADER, "0"));
+
+        // Следующий запрос отклоняется с 429 и Retry-After
+        MvcResult rejected = mockMvc.perform(get("/api/tasks/all").header("Authorization", "Bearer " + token))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(RateLimitFilter.LIMIT_HEADER, "2"))
+                .andExpect(header().string(RateLimitFilter.REMAINING_HEADER, "0"))
+                .andReturn();
+        assertTrue(Long.parseLong(rejected.getResponse().getHeader(HttpHeaders.RETRY_AFTER)) >= 1);
+        assertTrue(Long.parseLong(rejected.getResponse().getHeader(RateLimitFilter.RESET_HEADER)) >= 1);
+
+        // Запись ограничивается отдельным ведром
+        mockMvc.perform(post("/api/tasks/create")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\": \"Task\", \"status\": \"PENDING\", \"priority\": \"LOW\"}")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(RateLimitFilter.LIMIT_HEADER, "1"));
+    }
+
+    @Test
+    public void testLimitsDependOnRole() throws Exception {
+        String token = register("admin@example.com", true);
+
+        for (int i = 0; i < 4; i++) {
+            mockMvc.perform(get("/api/tasks/all").header("Authorization", "Bearer " + token))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(RateLimitFilter.LIMIT_HEADER, "4"));
+        }
+        mockMvc.perform(get("/api/tasks/all").header("Authorization", "Bearer " + token))
+                .andExpect(status().isTooManyRequests());
+
+        // У администратора свой лимит на запись
+        mockMvc.perform(post("/api/tasks/create")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\": \"Task\", \"status\": \"PENDING\", \"priority\": \"LOW\"}")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(RateLimitFilter.LIMIT_HEADER, "3"))
+                .andExpect(header().string(RateLimitFilter.REMAINING_HEADER, "2"));
+    }
+
+    @Test
+    public void testAnonymousAndActuatorRequestsAreNotLimited() throws Exception {
+        String token = register("monitor@example.com", true);
+
+        for (int i = 0; i < 6; i++) {
+            // Анонимные запросы
+            mockMvc.perform(post("/api/auth/login")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"email\":\"monitor@example.com\",\"password\":\"wrong\"}"))
+                    .andExpect(status().is(not(429)))
+                    .andExpect(header().doesNotExist(RateLimitFilter.LIMIT_HEADER));
+
+            // Actuator с токеном администратора
+            mockMvc.perform(get("/actuator/health").header("Authorization", "Bearer " + token))
+                    .andExpect(status().is(not(429)))
+                    .andExpect(header().doesNotExist(RateLimitFilter.LIMIT_HEADER));
+        }
+    }
+
+    private String register(String email, boolean admin) throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"" + email + "\",\"password\":\"pass123\"}"))
+                .andExpect(status().isCreated())
+                .andReturn();
+        if (admin) {
+            jdbcTemplate.update("UPDATE users SET role = 'ADMIN' WHERE email = ?", email);
+        }
+        return result.getResponse().getContentAsString();
+    }
+}
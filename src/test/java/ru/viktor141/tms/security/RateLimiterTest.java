@@ -0,0 +1,110 @@
+package ru.viktor141.tms.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final RateLimiter rateLimiter = new RateLimiter(1000, Duration.ofMinutes(1));
+
+    @Test
+    void testBurstIsAdmittedThenRejected() {
+        // Arrange
+        RateLimiter.Rate rate = RateLimiter.Rate.of(1, 3);
+        long now = 1_000 * SECOND;
+
+        // Act
+        RateLimiter.Decision first = rateLimiter.tryAcquire("user", rate, now);
+        RateLimiter.Decision second = rateLimiter.tryAcquire("user", rate, now);
+        RateLimiter.Decision third = rateLimiter.tryAcquire("user", rate, now);
+        RateLimiter.Decision fourth = rateLimiter.tryAcquire("user", rate, now);
+
+        // Assert
+        assertTrue(first.allowed());
+        assertEquals(2, first.remaining());
+        assertEquals(1, second.remaining());
+        assertTrue(third.allowed());
+        assertEquals(0, third.remaining());
+        assertFalse(fourth.allowed());
+        assertEquals(SECOND, fourth.retryAfterNanos());
+        assertEquals(3 * SECOND, fourth.resetNanos());
+    }
+
+    @Test
+    void testBucketRefillsAtTheRate() {
+        // Arrange
+        RateLimiter.Rate rate = RateLimiter.Rate.of(2, 1);
+        long now = 1_000 * SECOND;
+        rateLimiter.tryAcquire("user", rate, now);
+
+        // Act
+        RateLimiter.Decision tooEarly = rateLimiter.tryAcquire("user", rate, now + SECOND / 4);
+        RateLimiter.Decision onTime = rateLimiter.tryAcquire("user", rate, now + SECOND / 2);
+
+        // Assert
+        assertFalse(tooEarly.allowed());
+        assertEquals(SECOND / 4, tooEarly.retryAfterNanos());
+        assertTrue(onTime.allowed());
+    }
+
+    @Test
+    void testKeysHaveSeparateBuckets() {
+        // Arrange
+        RateLimiter.Rate rate = RateLimiter.Rate.of(1, 1);
+        long now = 1_000 * SECOND;
+
+        // Act & Assert
+        assertTrue(rateLimiter.tryAcquire("user-1", rate, now).allowed());
+        assertTrue(rateLimiter.tryAcquire("user-2", rate, now).allowed());
+        assertFalse(rateLimiter.tryAcquire("user-1", rate, now).allowed());
+    }
+
+    @Test
+    void testConcurrentRequestsDoNotExceedBurst() throws Exception {
+        // Arrange
+        RateLimiter.Rate rate = RateLimiter.Rate.of(0.001, 100);
+        long now = System.nanoTime();
+        AtomicInteger admitted = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // Act
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        if (rateLimiter.tryAcquire("user", rate, now).allowed()) {
+                            admitted.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Assert
+        assertEquals(100, admitted.get());
+    }
+
+    @Test
+    void testInvalidRateIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> RateLimiter.Rate.of(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> RateLimiter.Rate.of(1, 0));
+    }
+}
@@ -0,0 +1,134 @@
+package ru.viktor141.tms.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheInvalidationBusTest {
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    void testEncodeSplitsLargeEvictions() {
+        // Arrange
+        List<String> entries = IntStream.range(0, 2000).mapToObj(i -> "tasks:" + (1_000_000 + i)).toList();
+
+        // Act
+        List<String> payloads = CacheInvalidationBus.encode(1700000000000L, "node-1", entries);
+
+        // Assert
+        assertTrue(payloads.size() > 1);
+        for (String payload : payloads) {
+            assertTrue(payload.getBytes(StandardCharsets.UTF_8).length <= CacheInvalidationBus.MAX_PAYLOAD_BYTES);
+        }
+        List<String> decoded = payloads.stream()
+                .map(CacheInvalidationBus::decode)
+                .peek(notification -> assertEquals(1700000000000L, notification.sentAt()))
+                .peek(notification -> assertEquals("node-1", notification.nodeId()))
+                .flatMap(notification -> notification.entries().stream())
+                .toList();
+        assertEquals(entries, decoded);
+    }
+
+    @Test
+    void testDecodeKeepsColonsInKeys() {
+        // Act
+        CacheInvalidationBus.Notification notification = CacheInvalidationBus.decode("42 node-2\nusers:a:b@example.com");
+
+        // Assert
+        assertEquals(List.of("users:a:b@example.com"), notification.entries());
+    }
+
+    @Test
+    void testDecodeRejectsMalformedPayload() {
+        assertThrows(IllegalArgumentException.class, () -> CacheInvalidationBus.decode("garbage"));
+        assertThrows(IllegalArgumentException.class, () -> CacheInvalidationBus.decode("42 node-2\nno-separator"));
+    }
+
+    @Test
+    void testEvictionWithoutTransactionIsImmediate() {
+        // Arrange
+        LocalCache<Long, String> cache = cache(bus(false));
+        cache.get(1L, id -> "first");
+
+        // Act
+        cache.evict(1L);
+
+        // Assert
+        assertNull(cache.getIfPresent(1L));
+    }
+
+    @Test
+    void testEvictionInTransactionWaitsForCommit() {
+        // Arrange
+        LocalCache<Long, String> cache = cache(bus(false));
+        cache.get(1L, id -> "first");
+        TransactionSynchronizationManager.initSynchronization();
+
+        // Act
+        cache.evict(1L);
+        String beforeCommit = cache.getIfPresent(1L);
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.beforeCommit(false);
+            synchronization.afterCommit();
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+
+        // Assert
+        assertEquals("first", beforeCommit);
+        assertNull(cache.getIfPresent(1L));
+    }
+
+    @Test
+    void testEvictionInReadOnlyTransactionFails() {
+        // Arrange
+        LocalCache<Long, String> cache = cache(bus(false));
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> cache.evict(1L));
+    }
+
+    @Test
+    void testCacheIsBypassedWhileNotListening() {
+        // Arrange
+        LocalCache<Long, String> cache = cache(bus(true));
+        AtomicInteger loads = new AtomicInteger();
+
+        // Act
+        cache.get(1L, id -> "value " + loads.incrementAndGet());
+        String second = cache.get(1L, id -> "value " + loads.incrementAndGet());
+
+        // Assert
+        assertEquals("value 2", second);
+        assertNull(cache.getIfPresent(1L));
+    }
+
+    private static CacheInvalidationBus bus(boolean enabled) {
+        // The listener is never started, so a distributing bus stays disconnected
+        return new CacheInvalidationBus(null, new DataSourceProperties(), enabled, "tms_cache_invalidation",
+                Duration.ofSeconds(1), Duration.ofSeconds(10), new SimpleMeterRegistry());
+    }
+
+    private static LocalCache<Long, String> cache(CacheInvalidationBus bus) {
+        return new LocalCache<>("tasks", Long::valueOf, 100, Duration.ofMinutes(1), bus, new SimpleMeterRegistry());
+    }
+}
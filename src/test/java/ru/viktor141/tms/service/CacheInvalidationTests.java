@@ -0,0 +1,169 @@
+package ru.viktor141.tms.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two application instances, each with its own CacheInvalidationBus, on one database.
+ */
+@Testcontainers
+public class CacheInvalidationTests {
+
+    @Container
+    public static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:latest")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    private JdbcTemplate jdbcTemplate;
+    private SimpleMeterRegistry remoteRegistry;
+    private CacheInvalidationBus localBus;
+    private CacheInvalidationBus remoteBus;
+    private LocalCache<Long, String> localTasks;
+    private LocalCache<Long, String> remoteTasks;
+    private LocalCache<String, String> remoteUsers;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword()));
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS users (id bigserial PRIMARY KEY, " +
+                "email varchar(255) NOT NULL UNIQUE, role varchar(255))");
+
+        remoteRegistry = new SimpleMeterRegistry();
+        localBus = bus(new SimpleMeterRegistry());
+        remoteBus = bus(remoteRegistry);
+        localTasks = new LocalCache<>("tasks", Long::valueOf, 100, Duration.ofMinutes(10), localBus, new SimpleMeterRegistry());
+        remoteTasks = new LocalCache<>("tasks", Long::valueOf, 100, Duration.ofMinutes(10), remoteBus, new SimpleMeterRegistry());
+        remoteUsers = new LocalCache<>("users", key -> key, 100, Duration.ofMinutes(10), remoteBus, new SimpleMeterRegistry());
+
+        localBus.evictOnRowChange("users", "users", "email");
+        localBus.afterSingletonsInstantiated();
+        localBus.start();
+        remoteBus.start();
+        await(() -> localBus.isConnected() && remoteBus.isConnected());
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        localBus.stop();
+        remoteBus.stop();
+        jdbcTemplate.execute("DROP TABLE users");
+    }
+
+    @Test
+    public void testEvictionReachesOtherInstance() throws Exception {
+        // Arrange
+        remoteTasks.get(1L, id -> "stale");
+
+        // Act
+        localTasks.evict(1L);
+
+        // Assert
+        await(() -> remoteTasks.getIfPresent(1L) == null);
+        assertEquals("fresh", remoteTasks.get(1L, id -> "fresh"));
+    }
+
+    @Test
+    public void testChangedUserRowIsEvicted() throws Exception {
+        // Arrange
+        jdbcTemplate.update("INSERT INTO users (email, role) VALUES ('user@example.com', 'USER')");
+        remoteUsers.get("user@example.com", email -> "USER");
+
+        // Act
+        jdbcTemplate.update("UPDATE users SET role = 'ADMIN' WHERE email = 'user@example.com'");
+
+        // Assert
+        await(() -> remoteUsers.getIfPresent("user@example.com") == null);
+
+        // Удаление пользователя тоже вытесняет запись
+        remoteUsers.get("user@example.com", email -> "ADMIN");
+        jdbcTemplate.update("DELETE FROM users WHERE email = 'user@example.com'");
+        await(() -> remoteUsers.getIfPresent("user@example.com") == null);
+    }
+
+    @Test
+    public void testUpToDateTriggerIsNotReplaced() {
+        // Arrange
+        Long triggerId = triggerId();
+
+        // Act
+        remoteBus.evictOnRowChange("users", "users", "email");
+        remoteBus.afterSingletonsInstantiated();
+
+        // Assert
+        assertEquals(triggerId, triggerId());
+    }
+
+    @Test
+    public void testChangedFunctionIsReplacedWithoutTrigger() throws Exception {
+        // Arrange
+        jdbcTemplate.execute("CREATE OR REPLACE FUNCTION tms_evict_users() RETURNS trigger LANGUAGE plpgsql " +
+                "AS $$BEGIN RETURN NULL; END$$");
+        Long triggerId = triggerId();
+
+        // Act
+        remoteBus.evictOnRowChange("users", "users", "email");
+        remoteBus.afterSingletonsInstantiated();
+
+        // Assert
+        assertEquals(triggerId, triggerId());
+        // Триггер остался прежним, но снова вызывает функцию с уведомлением
+        jdbcTemplate.update("INSERT INTO users (email, role) VALUES ('user@example.com', 'USER')");
+        remoteUsers.get("user@example.com", email -> "USER");
+        jdbcTemplate.update("UPDATE users SET role = 'ADMIN' WHERE email = 'user@example.com'");
+        await(() -> remoteUsers.getIfPresent("user@example.com") == null);
+    }
+
+    @Test
+    public void testLostConnectionFlushesCaches() throws Exception {
+        // Arrange
+        remoteTasks.get(1L, id -> "cached");
+
+        // Act
+        jdbcTemplate.queryForList("SELECT pg_terminate_backend(pid) FROM pg_stat_activity " +
+                "WHERE application_name = 'tms-cache-invalidation'");
+
+        // Assert
+        await(() -> remoteRegistry.counter("tms.cache.invalidation.flushes", "reason", "disconnected").count() >= 1);
+        await(remoteBus::isConnected);
+        assertNull(remoteTasks.getIfPresent(1L));
+    }
+
+    private Long triggerId() {
+        return jdbcTemplate.queryForObject("SELECT oid::bigint FROM pg_trigger WHERE tgname = 'tms_evict_users'", Long.class);
+    }
+
+    private static CacheInvalidationBus bus(SimpleMeterRegistry meterRegistry) {
+        DataSourceProperties properties = new DataSourceProperties();
+        properties.setUrl(postgres.getJdbcUrl());
+        properties.setUsername(postgres.getUsername());
+        properties.setPassword(postgres.getPassword());
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword()));
+        return new CacheInvalidationBus(jdbcTemplate, properties, true, "tms_cache_invalidation",
+                Duration.ofMillis(100), Duration.ofSeconds(1), meterRegistry);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() - deadline < 0, "Condition not met within 10 seconds");
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package ru.viktor141.tms.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import ru.viktor141.tms.dto.CommentDTO;
+import ru.viktor141.tms.model.Comment;
+import ru.viktor141.tms.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CommentIngestionBufferTest {
+
+    @Mock
+    private CommentService commentService;
+
+    private CommentIngestionBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (buffer != null) {
+            buffer.stop();
+        }
+    }
+
+    @Test
+    void testSubmitDisabledWritesDirectly() {
+        // Arrange
+        buffer = new CommentIngestionBuffer(commentService, false, 10, 5, 100);
+        buffer.start();
+
+        User user = new User();
+        CommentDTO commentDTO = new CommentDTO();
+        commentDTO.setText("Direct");
+        CommentDTO saved = new CommentDTO();
+        saved.setId(1L);
+        when(commentService.addCommentToTask(1L, commentDTO, user)).thenReturn(saved);
+
+        // Act
+        CommentDTO result = buffer.submit(1L, commentDTO, user);
+
+        // Assert
+        assertEquals(1L, result.getId());
+        verify(commentService, never()).addComments(anyList());
+    }
+
+    @Test
+    void testSubmitGroupsConcurrentComments() throws Exception {
+        // Arrange
+        buffer = new CommentIngestionBuffer(commentService, true, 10, 50, 100);
+        buffer.start();
+
+        AtomicLong ids = new AtomicLong();
+        when(commentService.addComments(anyList())).thenAnswer(invocation -> {
+            List<Comment> comments = invocation.getArgument(0);
+            List<CommentDTO> result = new ArrayList<>();
+            for (Comment comment : comments) {
+                CommentDTO dto = new CommentDTO();
+                dto.setId(ids.incrementAndGet());
+                dto.setText(comment.getText());
+                dto.setTaskId(comment.getTask().getId());
+                result.add(dto);
+            }
+            return result;
+        });
+
+        User user = new User();
+        user.setId(1L);
+        ExecutorService executor = Executors.newFixedThreadPool(20);
+
+        // Act
+        List<Future<CommentDTO>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            CommentDTO commentDTO = new CommentDTO();
+            commentDTO.setText("Comment " + i);
+            futures.add(executor.submit(() -> buffer.submit(1L, commentDTO, user)));
+        }
+        List<CommentDTO> results = new ArrayList<>();
+        for (Future<CommentDTO> future : futures) {
+            results.add(future.get(5, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        // Assert
+        assertEquals(20, results.stream().map(CommentDTO::getId).distinct().count());
+        assertTrue(results.stream().allMatch(dto -> dto.getTaskId() == 1L));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Comment>> batches = ArgumentCaptor.forClass(List.class);
+        verify(commentService, atMost(19)).addComments(batches.capture());
+        assertTrue(batches.getAllValues().stream().allMatch(batch -> batch.size() <= 10));
+        assertEquals(20, batches.getAllValues().stream().mapToInt(List::size).sum());
+        verify(commentService, never()).addCommentToTask(any(), any(), any());
+    }
+
+    @Test
+    void testSubmitDuringStopNeverHangs() throws Exception {
+        // Arrange
+        buffer = new CommentIngestionBuffer(commentService, true, 10, 1, 1000);
+        buffer.start();
+
+        AtomicLong ids = new AtomicLong();
+        when(commentService.addComments(anyList())).thenAnswer(invocation -> {
+            List<Comment> comments = invocation.getArgument(0);
+            List<CommentDTO> result = new ArrayList<>();
+            for (int i = 0; i < comments.size(); i++) {
+                CommentDTO dto = new CommentDTO();
+                dto.setId(ids.incrementAndGet());
+                result.add(dto);
+            }
+            return result;
+        });
+        when(commentService.addCommentToTask(any(), any(), any())).thenAnswer(invocation -> {
+            CommentDTO dto = new CommentDTO();
+            dto.setId(ids.incrementAndGet());
+            return dto;
+        });
+
+        User user = new User();
+        user.setId(1L);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch started = new CountDownLatch(8);
+
+        // Act
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                started.countDown();
+                int written = 0;
+                for (int i = 0; i < 200; i++) {
+                    CommentDTO commentDTO = new CommentDTO();
+                    commentDTO.setText("Comment " + i);
+                    buffer.submit(1L, commentDTO, user);
+                    written++;
+                }
+                return written;
+            }));
+        }
+        started.await();
+        buffer.stop();
+
+        // Assert
+        int written = 0;
+        for (Future<Integer> future : futures) {
+            written += future.get(5, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        assertEquals(1600, written);
+        assertEquals(1600, ids.get());
+    }
+}
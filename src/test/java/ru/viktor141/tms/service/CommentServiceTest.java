@@ -1,25 +1,30 @@
 package ru.viktor141.tms.service;
 
+import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import ru.viktor141.tms.dto.CommentDTO;
+import ru.viktor141.tms.dto.CursorPageDTO;
+import ru.viktor141.tms.event.TaskChangeEvent;
 import ru.viktor141.tms.model.Comment;
 import ru.viktor141.tms.model.Task;
 import ru.viktor141.tms.model.User;
 import ru.viktor141.tms.repository.CommentRepository;
 import ru.viktor141.tms.repository.TaskRepository;
+import ru.viktor141.tms.utils.CursorUtils;
 
+import java.sql.Timestamp;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
-import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -35,6 +40,9 @@ class CommentServiceTest {
     @Mock
     private TaskRepository taskRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
@@ -53,7 +61,8 @@ class CommentServiceTest {
         Task mockTask = new Task();
         mockTask.setId(taskId);
 
-        when(taskRepository.findById(taskId)).thenReturn(Optional.of(mockTask));
+        when(taskRepository.findOwnerIdsByIdIn(List.of(taskId))).thenReturn(List.<Object[]>of(new Object[]{taskId, 1L, null}));
+        when(taskRepository.getReferenceById(taskId)).thenReturn(mockTask);
 
         Comment mockComment = new Comment();
         mockComment.setId(1L);
@@ -73,8 +82,45 @@ class CommentServiceTest {
         assertNotNull(result.getCreatedDate());
         assertNotNull(result.getAuthor());
         assertNotNull(result.getTaskId());
-        verify(taskRepository, times(1)).findById(taskId);
+        verify(taskRepository, times(1)).findOwnerIdsByIdIn(List.of(taskId));
+        verify(taskRepository, never()).findById(any());
         verify(commentRepository, times(1)).save(any(Comment.class));
+        verify(taskRepository, times(1)).registerComments(taskId, 1, 1L, "Test Comment", mockComment.getCreatedDate());
+        verify(eventPublisher, times(1)).publishEvent(any(TaskChangeEvent.class));
+    }
+
+    @Test
+    void testAddCommentsUpdatesStatsPerTask() {
+        // Arrange
+        User user = new User();
+        user.setId(1L);
+        Task task1 = new Task();
+        task1.setId(1L);
+        Task task2 = new Task();
+        task2.setId(2L);
+
+        Date createdDate = new Date();
+        List<Comment> comments = List.of(
+                new Comment(null, "First", user, task1, createdDate),
+                new Comment(null, "Second", user, task2, createdDate),
+                new Comment(null, "Third", user, task1, createdDate));
+        when(commentRepository.insertAll(comments)).thenReturn(List.of(10L, 11L, 12L));
+
+        // Act
+        List<CommentDTO> result = commentService.addComments(comments);
+
+        // Assert
+        assertEquals(List.of(10L, 11L, 12L), result.stream().map(CommentDTO::getId).toList());
+        verify(taskRepository, times(1)).registerComments(1L, 2, 12L, "Third", createdDate);
+        verify(taskRepository, times(1)).registerComments(2L, 1, 11L, "Second", createdDate);
+    }
+
+    @Test
+    void testPreviewTruncatesLongText() {
+        String text = "a".repeat(CommentService.PREVIEW_LENGTH + 10);
+
+        assertEquals(CommentService.PREVIEW_LENGTH, CommentService.preview(text).length());
+        assertEquals("short", CommentService.preview("short"));
     }
 
     @Test
@@ -82,12 +128,8 @@ class CommentServiceTest {
         // Arrange
         Long taskId = 1L;
 
-        // Create a mock Task
-        Task mockTask = new Task();
-        mockTask.setId(taskId);
-
         // Mock the repository behavior
-        when(taskRepository.findById(taskId)).thenReturn(Optional.of(mockTask));
+        when(taskRepository.existsById(taskId)).thenReturn(true);
 
         Page<Comment> mockEmptyPage = new PageImpl<>(Collections.emptyList());
         when(commentRepository.findAllByTaskId(eq(taskId), any(Pageable.class))).thenReturn(mockEmptyPage);
@@ -99,7 +141,7 @@ class CommentServiceTest {
         assertNotNull(result);
         assertTrue(result.getContent().isEmpty());
 
-        verify(taskRepository, times(1)).findById(taskId);
+        verify(taskRepository, times(1)).existsById(taskId);
         verify(commentRepository, times(1)).findAllByTaskId(eq(taskId), any(Pageable.class));
     }
 
@@ -113,7 +155,7 @@ class CommentServiceTest {
         mockTask.setId(taskId);
 
         // Mock the repository behavior
-        when(taskRepository.findById(taskId)).thenReturn(Optional.of(mockTask));
+        when(taskRepository.existsById(taskId)).thenReturn(true);
 
         Comment comment1 = new Comment();
         comment1.setId(1L);
@@ -148,9 +190,85 @@ class CommentServiceTest {
         assertEquals("Comment 1", dto1.getText());
         assertEquals("Comment 2", dto2.getText());
 
-        verify(taskRepository, times(1)).findById(taskId);
+        verify(taskRepository, times(1)).existsById(taskId);
         verify(commentRepository, times(1)).findAllByTaskId(eq(taskId), any(Pageable.class));
     }
 
+    @Test
+    void testGetCommentsByTaskCursor() {
+        // Arrange
+        Long taskId = 1L;
+        Task mockTask = new Task();
+        mockTask.setId(taskId);
+
+        Date createdDate = new Date();
+        Comment comment1 = new Comment(1L, "Comment 1", new User(), mockTask, createdDate);
+        Comment comment2 = new Comment(2L, "Comment 2", new User(), mockTask, createdDate);
+        Comment comment3 = new Comment(3L, "Comment 3", new User(), mockTask, createdDate);
+
+        when(commentRepository.findAfterByTaskIdWithTask(eq(taskId), eq(createdDate), eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(
+                        new Object[]{taskId, comment1, comment1.getAuthor()},
+                        new Object[]{taskId, comment2, comment2.getAuthor()},
+                        new Object[]{taskId, comment3, comment3.getAuthor()}));
+
+        // Act
+        CursorPageDTO<CommentDTO> result = commentService.getCommentsByTask(taskId, CursorUtils.encode(createdDate, 0L), 2);
+
+        // Assert
+        assertEquals(2, result.getContent().size());
+        assertEquals("Comment 2", result.getContent().get(1).getText());
+        assertEquals(2L, CursorUtils.decode(result.getNextCursor()).id());
+        verify(taskRepository, never()).findById(any());
+    }
+
+    @Test
+    void testGetCommentsByTaskCursorKeepsMicroseconds() {
+        // Arrange
+        Long taskId = 1L;
+        Task mockTask = new Task();
+        mockTask.setId(taskId);
+
+        Timestamp createdDate = Timestamp.valueOf("2024-05-01 10:00:00.123456");
+        Comment comment1 = new Comment(1L, "Comment 1", new User(), mockTask, createdDate);
+        Comment comment2 = new Comment(2L, "Comment 2", new User(), mockTask, createdDate);
+
+        when(commentRepository.findFirstByTaskIdWithTask(eq(taskId), any(Pageable.class)))
+                .thenReturn(List.of(
+                        new Object[]{taskId, comment1, comment1.getAuthor()},
+                        new Object[]{taskId, comment2, comment2.getAuthor()}));
+
+        // Act
+        CursorPageDTO<CommentDTO> result = commentService.getCommentsByTask(taskId, null, 1);
+
+        // Assert
+        CursorUtils.Position position = CursorUtils.decode(result.getNextCursor());
+        assertEquals(createdDate, position.createdDate());
+        assertEquals(123456000, position.createdDate().getNanos());
+        assertEquals(1L, position.id());
+    }
 
+    @Test
+    void testGetCommentsByTaskCursorEmptyTask() {
+        // Arrange
+        Long taskId = 1L;
+        when(commentRepository.findFirstByTaskIdWithTask(eq(taskId), any(Pageable.class)))
+                .thenReturn(Collections.singletonList(new Object[]{taskId, null, null}));
+
+        // Act
+        CursorPageDTO<CommentDTO> result = commentService.getCommentsByTask(taskId, null, 10);
+
+        // Assert
+        assertTrue(result.getContent().isEmpty());
+        assertNull(result.getNextCursor());
+    }
+
+    @Test
+    void testGetCommentsByTaskCursorTaskNotFound() {
+        // Arrange
+        when(commentRepository.findFirstByTaskIdWithTask(eq(1L), any(Pageable.class))).thenReturn(List.of());
+
+        // Act & Assert
+        assertThrows(EntityNotFoundException.class, () -> commentService.getCommentsByTask(1L, null, 10));
+    }
 }
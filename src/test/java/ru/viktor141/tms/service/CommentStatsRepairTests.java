@@ -0,0 +1,219 @@
+package ru.viktor141.tms.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.viktor141.tms.TestTaskTmsApplication;
+import ru.viktor141.tms.dto.CommentDTO;
+import ru.viktor141.tms.dto.TaskDTO;
+import ru.viktor141.tms.model.Task;
+import ru.viktor141.tms.model.User;
+import ru.viktor141.tms.repository.UserRepository;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CommentStatsRepairService on tasks whose stored comment statistics have drifted.
+ */
+@SpringBootTest(properties = {
+        "tms.archive.enabled=false",
+        "tms.rate-limit.enabled=false",
+        "tms.comment-stats.repair.batch-size=2"
+})
+@Testcontainers
+public class CommentStatsRepairTests {
+
+    @Container
+    public static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:latest")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void dataSourceProperties(DynamicPropertyRegistry registry) {
+        postgres.start();
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Autowired
+    private CommentStatsRepairService commentStatsRepairService;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private CommentService commentService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    @Autowired
+    private LocalCache<Long, TaskDTO> taskCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        String email = UUID.randomUUID() + "@example.com";
+        userService.registerUser(email, "pass123");
+        user = userRepository.findByEmail(email).orElseThrow();
+
+        // Пока канал инвалидации не подключён, кеш задач не используется
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!cacheInvalidationBus.isConnected()) {
+            assertTrue(System.nanoTime() - deadline < 0, "Cache invalidation did not connect");
+            Thread.sleep(20);
+        }
+        // Остальные задачи исправляются в других тестах
+        commentStatsRepairService.repairAll();
+    }
+
+    @Test
+    public void testDriftedCountIsRepaired() {
+        // Arrange
+        long taskId = saveTask("Drifted");
+        addComment(taskId, "First");
+        CommentDTO last = addComment(taskId, "Second");
+        long consistentTaskId = saveTask("Consistent");
+        addComment(consistentTaskId, "Only");
+        jdbcTemplate.update("UPDATE tasks SET comment_count = 7 WHERE id = ?", taskId);
+
+        // Act
+        int repaired = commentStatsRepairService.repairAll();
+
+        // Assert
+        assertEquals(1, repaired);
+        Map<String, Object> stats = stats(taskId);
+        assertEquals(2, stats.get("comment_count"));
+        assertEquals(last.getId(), ((Number) stats.get("last_comment_id")).longValue());
+        assertEquals(1, stats(consistentTaskId).get("comment_count"));
+    }
+
+    @Test
+    public void testDeletedLatestCommentIsReplaced() {
+        // Arrange
+        long taskId = saveTask("Deleted latest");
+        CommentDTO previous = addComment(taskId, "Previous comment");
+        CommentDTO latest = addComment(taskId, "Latest comment");
+        jdbcTemplate.update("DELETE FROM comments WHERE id = ?", latest.getId());
+
+        // Act
+        int repaired = commentStatsRepairService.repairAll();
+
+        // Assert
+        assertEquals(1, repaired);
+        Map<String, Object> stats = stats(taskId);
+        assertEquals(1, stats.get("comment_count"));
+        assertEquals(previous.getId(), ((Number) stats.get("last_comment_id")).longValue());
+        assertEquals("Previous comment", stats.get("last_comment_preview"));
+        assertEquals(previous.getCreatedDate().getTime(), ((Date) stats.get("last_comment_date")).getTime());
+    }
+
+    @Test
+    public void testTaskWithoutCommentsIsCleared() {
+        // Arrange
+        long taskId = saveTask("No comments");
+        CommentDTO comment = addComment(taskId, "Removed");
+        jdbcTemplate.update("DELETE FROM comments WHERE id = ?", comment.getId());
+
+        // Act
+        int repaired = commentStatsRepairService.repairAll();
+
+        // Assert
+        assertEquals(1, repaired);
+        Map<String, Object> stats = stats(taskId);
+        assertEquals(0, stats.get("comment_count"));
+        assertNull(stats.get("last_comment_id"));
+        assertNull(stats.get("last_comment_preview"));
+        assertNull(stats.get("last_comment_date"));
+    }
+
+    @Test
+    public void testRepairedTaskIsEvicted() {
+        // Arrange
+        long taskId = saveTask("Cached");
+        long untouchedTaskId = saveTask("Untouched");
+        addComment(taskId, "Comment");
+        TaskDTO stale = taskService.findTaskById(taskId).orElseThrow();
+        taskService.findTaskById(untouchedTaskId).orElseThrow();
+        jdbcTemplate.update("UPDATE tasks SET comment_count = 0, last_comment_id = NULL WHERE id = ?", taskId);
+        assertSame(stale, taskCache.getIfPresent(taskId));
+
+        // Act
+        commentStatsRepairService.repairAll();
+
+        // Assert
+        assertNull(taskCache.getIfPresent(taskId));
+        assertNotNull(taskCache.getIfPresent(untouchedTaskId));
+        assertEquals(1, taskService.findTaskById(taskId).orElseThrow().getCommentCount());
+    }
+
+    @Test
+    public void testRepairRunsOnStartup() {
+        // Arrange
+        // Так выглядят задачи после обновления, добавившего comment_count со значением 0 по умолчанию
+        long taskId = saveTask("Upgraded");
+        addComment(taskId, "Before the upgrade");
+        jdbcTemplate.update("UPDATE tasks SET comment_count = 0, last_comment_id = NULL, last_comment_preview = NULL, " +
+                "last_comment_date = NULL WHERE id = ?", taskId);
+
+        // Act
+        String[] properties = {
+                "--spring.datasource.url=" + postgres.getJdbcUrl(),
+                "--spring.datasource.username=" + postgres.getUsername(),
+                "--spring.datasource.password=" + postgres.getPassword(),
+                "--server.port=0",
+                "--tms.archive.enabled=false"
+        };
+        try (ConfigurableApplicationContext ignored = SpringApplication.run(TestTaskTmsApplication.class, properties)) {
+            // Assert
+            assertEquals(1, stats(taskId).get("comment_count"));
+            assertNotNull(stats(taskId).get("last_comment_id"));
+        }
+    }
+
+    private long saveTask(String title) {
+        Task task = new Task();
+        task.setTitle(title);
+        task.setStatus(Task.Status.PENDING);
+        task.setPriority(Task.Priority.LOW);
+        task.setAuthor(user);
+        return taskService.saveTask(task).getId();
+    }
+
+    private CommentDTO addComment(long taskId, String text) {
+        CommentDTO comment = new CommentDTO();
+        comment.setText(text);
+        return commentService.addCommentToTask(taskId, comment, user);
+    }
+
+    private Map<String, Object> stats(long taskId) {
+        return jdbcTemplate.queryForMap("SELECT comment_count, last_comment_id, last_comment_preview, last_comment_date " +
+                "FROM tasks WHERE id = ?", taskId);
+    }
+}
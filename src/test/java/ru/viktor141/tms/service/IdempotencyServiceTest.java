@@ -0,0 +1,214 @@
+package ru.viktor141.tms.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.viktor141.tms.dto.TaskDTO;
+import ru.viktor141.tms.exception.IdempotencyKeyReusedException;
+import ru.viktor141.tms.exception.IdempotentRequestInProgressException;
+import ru.viktor141.tms.model.IdempotencyRecord;
+import ru.viktor141.tms.model.User;
+import ru.viktor141.tms.repository.IdempotencyRecordRepository;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class IdempotencyServiceTest {
+
+    private static final Map<String, String> REQUEST = Map.of("title", "Task");
+
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private IdempotencyService idempotencyService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        when(idempotencyRecordRepository.tryLock(anyLong())).thenReturn(true);
+        when(idempotencyRecordRepository.reserve(anyString(), anyString(), anyInt(), any(), any())).thenReturn(1);
+        idempotencyService = service(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void testReplayDoesNotRepeatAction() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+
+        // Act
+        ResponseEntity<TaskDTO> first = idempotencyService.execute("key-1", 1L, "POST /api/tasks/create", REQUEST, TaskDTO.class,
+                () -> createdTask(calls.incrementAndGet()));
+        ResponseEntity<TaskDTO> second = idempotencyService.execute("key-1", 1L, "POST /api/tasks/create", REQUEST, TaskDTO.class,
+                () -> createdTask(calls.incrementAndGet()));
+
+        // Assert
+        assertEquals(1, calls.get());
+        assertEquals(HttpStatus.CREATED, second.getStatusCode());
+        assertEquals(first.getBody().getId(), second.getBody().getId());
+        assertEquals("true", second.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        verify(idempotencyRecordRepository, times(1)).complete(anyString(), eq(201), anyString());
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    void testDifferentUsersDoNotShareKeys() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+
+        // Act
+        idempotencyService.execute("key-1", 1L, "POST /api/tasks/create", REQUEST, TaskDTO.class, () -> createdTask(calls.incrementAndGet()));
+        idempotencyService.execute("key-1", 2L, "POST /api/tasks/create", REQUEST, TaskDTO.class, () -> createdTask(calls.incrementAndGet()));
+
+        // Assert
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testStoredBodyHasNoPassword() {
+        // Arrange
+        User author = new User();
+        author.setId(1L);
+        author.setEmail("user@example.com");
+        author.setPassword("$2a$10$hash");
+
+        // Act
+        idempotencyService.execute("key-1", 1L, "POST /api/tasks/create", REQUEST, TaskDTO.class, () -> {
+            ResponseEntity<TaskDTO> response = createdTask(1);
+            response.getBody().setAuthor(author);
+            return response;
+        });
+
+        // Assert
+        ArgumentCaptor<String> body = ArgumentCaptor.forClass(String.class);
+        verify(idempotencyRecordRepository).complete(anyString(), eq(201), body.capture());
+        assertTrue(body.getValue().contains("user@example.com"));
+        assertFalse(body.getValue().contains("password"));
+        assertFalse(body.getValue().contains("$2a$10$hash"));
+    }
+
+    @Test
+    void testFailedResponseIsNotStored() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+
+        // Act
+        idempotencyService.execute("key-1", 1L, "POST /api/tasks/create", REQUEST, TaskDTO.class, () -> {
+            calls.incrementAndGet();
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        });
+        idempotencyService.execute("key-1", 1L, "POST /api/tasks/create", REQUEST, TaskDTO.class, () -> createdTask(calls.incrementAndGet()));
+
+        // Assert
+        assertEquals(2, calls.get());
+        verify(idempotencyRecordRepository, times(1)).release(anyString());
+    }
+
+    @Test
+    void testFailedActionRollsBackReservation() {
+        // Arrange
+        IllegalStateException failure = new IllegalStateException("Database unavailable");
+
+        // Act
+        IllegalStateException thrown = assertThrows(IllegalStateException.class, () -> idempotencyService.execute(
+                "key-1", 1L, "POST /api/tasks/create", REQUEST, TaskDTO.class, () -> {
+                    throw failure;
+                }));
+
+        // Assert
+        assertSame(failure, thrown);
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+        verify(idempotencyRecordRepository, never()).complete(anyString(), anyInt(), anyString());
+    }
+
+    @Test
+    void testKeyReusedForDifferentRequestIsRejected() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        idempotencyService.execute("key-1", 1L, "POST /api/tasks/create", REQUEST, TaskDTO.class,
+                () -> createdTask(calls.incrementAndGet()));
+
+        // Act & Assert
+        assertThrows(IdempotencyKeyReusedException.class, () -> idempotencyService.execute(
+                "key-1", 1L, "POST /api/tasks/create", Map.of("title", "Other task"), TaskDTO.class,
+                () -> createdTask(calls.incrementAndGet())));
+        assertThrows(IdempotencyKeyReusedException.class, () -> idempotencyService.execute(
+                "key-1", 1L, "POST /api/tasks/1/comments", REQUEST, TaskDTO.class,
+                () -> createdTask(calls.incrementAndGet())));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void testLockedKeyIsPolledUntilStored() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        idempotencyService.execute("key-1", 1L, "POST /api/tasks/create", REQUEST, TaskDTO.class, () -> createdTask(7));
+        ArgumentCaptor<String> id = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<String> fingerprint = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<String> body = ArgumentCaptor.forClass(String.class);
+        verify(idempotencyRecordRepository).reserve(id.capture(), fingerprint.capture(), anyInt(), any(), any());
+        verify(idempotencyRecordRepository).complete(anyString(), eq(201), body.capture());
+
+        // A second instance has nothing cached: the key is locked twice, then the record is committed
+        IdempotencyService other = service(Duration.ofSeconds(5));
+        when(idempotencyRecordRepository.tryLock(anyLong())).thenReturn(false, false, true);
+        when(idempotencyRecordRepository.reserve(anyString(), anyString(), anyInt(), any(), any())).thenReturn(0);
+        when(idempotencyRecordRepository.findById(id.getValue())).thenReturn(Optional.of(
+                new IdempotencyRecord(id.getValue(), fingerprint.getValue(), 201, body.getValue(), new Date())));
+
+        // Act
+        ResponseEntity<TaskDTO> replayed = other.execute("key-1", 1L, "POST /api/tasks/create", REQUEST, TaskDTO.class,
+                () -> createdTask(calls.incrementAndGet()));
+
+        // Assert
+        assertEquals(0, calls.get());
+        assertEquals(7L, replayed.getBody().getId());
+        assertEquals("true", replayed.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        verify(idempotencyRecordRepository, times(4)).tryLock(anyLong());
+    }
+
+    @Test
+    void testWaiterGivesUpWhileKeyIsLocked() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        IdempotencyService impatient = service(Duration.ofMillis(50));
+        when(idempotencyRecordRepository.tryLock(anyLong())).thenReturn(false);
+
+        // Act & Assert
+        assertThrows(IdempotentRequestInProgressException.class, () -> impatient.execute(
+                "key-1", 1L, "POST /api/tasks/create", REQUEST, TaskDTO.class, () -> createdTask(calls.incrementAndGet())));
+        assertEquals(0, calls.get());
+        verify(idempotencyRecordRepository, never()).reserve(anyString(), anyString(), anyInt(), any(), any());
+    }
+
+    private IdempotencyService service(Duration waitTimeout) {
+        return new IdempotencyService(idempotencyRecordRepository, new TransactionTemplate(transactionManager),
+                new ObjectMapper(), Duration.ofHours(1), 100, waitTimeout, Duration.ofMillis(5));
+    }
+
+    private static ResponseEntity<TaskDTO> createdTask(long id) {
+        TaskDTO task = new TaskDTO();
+        task.setId(id);
+        task.setTitle("Task " + id);
+        return new ResponseEntity<>(task, HttpStatus.CREATED);
+    }
+}
@@ -0,0 +1,197 @@
+package ru.viktor141.tms.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.viktor141.tms.dto.TaskDTO;
+import ru.viktor141.tms.exception.IdempotentRequestInProgressException;
+import ru.viktor141.tms.model.User;
+import ru.viktor141.tms.repository.IdempotencyRecordRepository;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two IdempotencyService instances sharing one database, as two application instances would.
+ */
+@SpringBootTest(properties = {
+        "tms.archive.enabled=false",
+        "tms.rate-limit.enabled=false"
+})
+@Testcontainers
+public class IdempotencyTests {
+
+    private static final Map<String, String> REQUEST = Map.of("title", "Task");
+    private static final String SCOPE = "POST /api/tasks/create";
+
+    @Container
+    public static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:latest")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void dataSourceProperties(DynamicPropertyRegistry registry) {
+        postgres.start();
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private IdempotencyService first;
+    private IdempotencyService second;
+
+    @BeforeEach
+    public void setUp() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS idempotent_writes (id bigint PRIMARY KEY)");
+        jdbcTemplate.execute("TRUNCATE idempotent_writes");
+        jdbcTemplate.execute("TRUNCATE idempotency_keys");
+        first = service(Duration.ofSeconds(10));
+        second = service(Duration.ofSeconds(10));
+    }
+
+    @Test
+    public void testConcurrentDuplicatesOnTwoInstancesWriteOnce() throws Exception {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        // Act
+        Future<ResponseEntity<TaskDTO>> running = executor.submit(() -> first.execute("key-1", 1L, SCOPE, REQUEST, TaskDTO.class, () -> {
+            started.countDown();
+            await(release);
+            return write(calls.incrementAndGet());
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<ResponseEntity<TaskDTO>> duplicate = executor.submit(() -> second.execute("key-1", 1L, SCOPE, REQUEST, TaskDTO.class,
+                () -> write(calls.incrementAndGet())));
+        Thread.sleep(200);
+        release.countDown();
+
+        // Assert
+        assertEquals(1L, running.get(10, TimeUnit.SECONDS).getBody().getId());
+        ResponseEntity<TaskDTO> replayed = duplicate.get(10, TimeUnit.SECONDS);
+        assertEquals(1L, replayed.getBody().getId());
+        assertEquals("true", replayed.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(1, calls.get());
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM idempotent_writes", Integer.class));
+        executor.shutdown();
+    }
+
+    @Test
+    public void testFailedWriteLeavesNoKey() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+
+        // Act
+        // Запись выполнена, но запрос падает до фиксации, поэтому откатываются и запись, и ключ
+        assertThrows(IllegalStateException.class, () -> first.execute("key-1", 1L, SCOPE, REQUEST, TaskDTO.class, () -> {
+            write(calls.incrementAndGet());
+            throw new IllegalStateException("Connection lost");
+        }));
+        ResponseEntity<TaskDTO> retried = second.execute("key-1", 1L, SCOPE, REQUEST, TaskDTO.class,
+                () -> write(calls.incrementAndGet()));
+
+        // Assert
+        assertEquals(2L, retried.getBody().getId());
+        assertNull(retried.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(List.of(2L), jdbcTemplate.queryForList("SELECT id FROM idempotent_writes", Long.class));
+    }
+
+    @Test
+    public void testWaiterGivesUpWhileKeyIsHeld() throws Exception {
+        // Arrange
+        IdempotencyService impatient = service(Duration.ofMillis(200));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<ResponseEntity<TaskDTO>> running = executor.submit(() -> first.execute("key-1", 1L, SCOPE, REQUEST, TaskDTO.class, () -> {
+            started.countDown();
+            await(release);
+            return write(1);
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // Act & Assert
+        assertThrows(IdempotentRequestInProgressException.class, () -> impatient.execute("key-1", 1L, SCOPE, REQUEST, TaskDTO.class,
+                () -> write(2)));
+        release.countDown();
+        assertEquals(HttpStatus.CREATED, running.get(10, TimeUnit.SECONDS).getStatusCode());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testStoredBodyHasNoPassword() {
+        // Arrange
+        User author = new User();
+        author.setId(1L);
+        author.setEmail("user@example.com");
+        author.setPassword("$2a$10$hash");
+
+        // Act
+        first.execute("key-1", 1L, SCOPE, REQUEST, TaskDTO.class, () -> {
+            ResponseEntity<TaskDTO> response = write(1);
+            response.getBody().setAuthor(author);
+            return response;
+        });
+        ResponseEntity<TaskDTO> replayed = second.execute("key-1", 1L, SCOPE, REQUEST, TaskDTO.class, () -> write(2));
+
+        // Assert
+        String body = jdbcTemplate.queryForObject("SELECT body FROM idempotency_keys", String.class);
+        assertFalse(body.contains("$2a$10$hash"));
+        assertEquals("user@example.com", replayed.getBody().getAuthor().getEmail());
+        assertNull(replayed.getBody().getAuthor().getPassword());
+    }
+
+    private ResponseEntity<TaskDTO> write(long id) {
+        // Пишет в транзакции IdempotencyService, как это делают сервисы приложения
+        jdbcTemplate.update("INSERT INTO idempotent_writes (id) VALUES (?)", id);
+        TaskDTO task = new TaskDTO();
+        task.setId(id);
+        task.setTitle("Task " + id);
+        return new ResponseEntity<>(task, HttpStatus.CREATED);
+    }
+
+    private IdempotencyService service(Duration waitTimeout) {
+        return new IdempotencyService(idempotencyRecordRepository, transactionTemplate, objectMapper,
+                Duration.ofHours(1), 100, waitTimeout, Duration.ofMillis(20));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -12,13 +13,18 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import ru.viktor141.tms.dto.TaskDTO;
+import ru.viktor141.tms.event.TaskChangeEvent;
+import ru.viktor141.tms.model.ArchivedTask;
 import ru.viktor141.tms.model.Task;
 import ru.viktor141.tms.model.User;
+import ru.viktor141.tms.repository.ArchivedTaskRepository;
+import ru.viktor141.tms.repository.CommentRepository;
 import ru.viktor141.tms.repository.TaskRepository;
 import ru.viktor141.tms.utils.UserAuthoritiesUtils;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -31,12 +37,27 @@ class TaskServiceTest {
     @Mock
     private TaskRepository taskRepository;
 
+    @Mock
+    private CommentRepository commentRepository;
+
+    @Mock
+    private ArchivedTaskRepository archivedTaskRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @Mock
     private UserAuthoritiesUtils userAuthoritiesUtils;
 
+    @Mock
+    private LocalCache<Long, TaskDTO> taskCache;
+
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        // The cache always loads, so the repository calls stay visible
+        when(taskCache.get(any(), any())).thenAnswer(invocation ->
+                invocation.<Function<Long, TaskDTO>>getArgument(1).apply(invocation.getArgument(0)));
     }
 
     @Test
@@ -87,15 +108,35 @@ class TaskServiceTest {
     void testDeleteTaskSuccess() {
         // Arrange
         Long taskId = 1L;
-        Task mockTask = new Task();
-        when(taskRepository.findById(taskId)).thenReturn(Optional.of(mockTask));
+        when(taskRepository.findOwnerIdsByIdIn(List.of(taskId))).thenReturn(List.<Object[]>of(new Object[]{taskId, 2L, null}));
+        when(commentRepository.deleteByTaskId(taskId)).thenReturn(3);
+        when(taskRepository.deleteTaskById(taskId)).thenReturn(1);
 
         // Act
         boolean result = taskService.deleteTask(taskId);
 
         // Assert
         assertTrue(result);
-        verify(taskRepository, times(1)).delete(mockTask);
+        verify(commentRepository, times(1)).deleteByTaskId(taskId);
+        verify(taskRepository, times(1)).deleteTaskById(taskId);
+        verify(taskRepository, never()).findById(any());
+        verify(eventPublisher, times(1)).publishEvent(argThat((Object event) -> event instanceof TaskChangeEvent change
+                && change.getType() == TaskChangeEvent.Type.TASK_DELETED && change.getAuthorId() == 2L));
+    }
+
+    @Test
+    void testDeleteTaskNotFound() {
+        // Arrange
+        Long taskId = 1L;
+        when(taskRepository.findOwnerIdsByIdIn(List.of(taskId))).thenReturn(List.of());
+
+        // Act
+        boolean result = taskService.deleteTask(taskId);
+
+        // Assert
+        assertFalse(result);
+        verify(commentRepository, never()).deleteByTaskId(taskId);
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
     }
 
     @Test
@@ -158,4 +199,31 @@ class TaskServiceTest {
 
         verify(taskRepository, times(1)).save(any(Task.class));
     }
+
+    @Test
+    void testFindTasksIncludingArchived() {
+        // Arrange
+        Pageable pageable = PageRequest.of(1, 2);
+
+        Task activeTask = new Task();
+        activeTask.setId(3L);
+        when(taskRepository.findByAuthorOrAssignee(1L, null, pageable))
+                .thenReturn(new PageImpl<>(List.of(activeTask), pageable, 3));
+
+        ArchivedTask archivedTask1 = new ArchivedTask();
+        archivedTask1.setId(10L);
+        ArchivedTask archivedTask2 = new ArchivedTask();
+        archivedTask2.setId(11L);
+        when(archivedTaskRepository.findByAuthorOrAssignee(eq(1L), isNull(), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(archivedTask1, archivedTask2), PageRequest.of(0, 2), 5));
+
+        // Act
+        Page<TaskDTO> result = taskService.findTasksByAuthorOrAssignee(1L, null, pageable, true);
+
+        // Assert
+        assertEquals(8, result.getTotalElements());
+        assertEquals(2, result.getContent().size());
+        assertEquals(3L, result.getContent().get(0).getId());
+        assertEquals(10L, result.getContent().get(1).getId());
+    }
 }
@@ -11,6 +11,7 @@ import ru.viktor141.tms.repository.UserRepository;
 import ru.viktor141.tms.security.JwtTokenProvider;
 
 import java.util.Optional;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -26,12 +27,18 @@ public class UserServiceTest {
     @Mock
     private JwtTokenProvider jwtTokenProvider;
 
+    @Mock
+    private LocalCache<String, User> userCache;
+
     @InjectMocks
     private UserService userService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        // The cache always loads, so the repository calls stay visible
+        when(userCache.get(any(), any())).thenAnswer(invocation ->
+                invocation.<Function<String, User>>getArgument(1).apply(invocation.getArgument(0)));
     }
 
     @Test
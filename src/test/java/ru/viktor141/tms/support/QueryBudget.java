@@ -0,0 +1,81 @@
+package ru.viktor141.tms.support;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * QueryBudget counts the JDBC statements executed through the proxied DataSource.
+ * <p>
+ * Statements are recorded from every thread while an action runs, so the work of async requests
+ * (streamed responses, for example) is counted as well. A batch is counted as one statement,
+ * because it is sent to the database in one round trip. Actions must not run concurrently.
+ */
+public class QueryBudget implements QueryExecutionListener {
+
+    private final List<String> statements = new CopyOnWriteArrayList<>();
+    private volatile boolean recording;
+
+    /**
+     * Action represents the code whose statements are counted.
+     */
+    @FunctionalInterface
+    public interface Action {
+        void run() throws Exception;
+    }
+
+    /**
+     * Runs an action and returns the statements it executed.
+     *
+     * @param action The action to run.
+     * @return The SQL of the executed statements in execution order.
+     * @throws Exception If the action fails.
+     */
+    public List<String> record(Action action) throws Exception {
+        statements.clear();
+        recording = true;
+        try {
+            action.run();
+        } finally {
+            recording = false;
+        }
+        return List.copyOf(statements);
+    }
+
+    /**
+     * Runs an action and fails if it executed more statements than allowed.
+     *
+     * @param maxStatements The maximum number of statements.
+     * @param action        The action to run.
+     * @throws Exception If the action fails.
+     */
+    public void assertAtMost(int maxStatements, Action action) throws Exception {
+        List<String> executed = record(action);
+        if (executed.size() > maxStatements) {
+            StringBuilder message = new StringBuilder()
+                    .append("Expected at most ").append(maxStatements)
+                    .append(" statements, but ").append(executed.size()).append(" were executed:");
+            for (int i = 0; i < executed.size(); i++) {
+                message.append('\n').append(i + 1).append(". ").append(executed.get(i));
+            }
+            fail(message.toString());
+        }
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        if (recording) {
+            statements.add(queryInfoList.stream().map(QueryInfo::getQuery).collect(Collectors.joining("; ")));
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package ru.viktor141.tms.support;
+
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+
+/**
+ * QueryBudgetConfig routes the application DataSource through a statement-counting proxy.
+ * <p>
+ * Import it into a test to get a {@link QueryBudget} bean that counts every statement sent by
+ * Hibernate and JdbcTemplate.
+ */
+@TestConfiguration(proxyBeanMethods = false)
+public class QueryBudgetConfig {
+
+    /**
+     * Provides the QueryBudget receiving the executed statements.
+     *
+     * @return A QueryBudget object.
+     */
+    @Bean
+    public static QueryBudget queryBudget() {
+        return new QueryBudget();
+    }
+
+    /**
+     * Wraps every DataSource bean in a proxy reporting to the QueryBudget.
+     *
+     * @param queryBudget The QueryBudget receiving the executed statements.
+     * @return A BeanPostProcessor object.
+     */
+    @Bean
+    public static BeanPostProcessor queryCountingDataSourcePostProcessor(QueryBudget queryBudget) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof ProxyDataSource proxyDataSource) {
+                    // Already wrapped by the SQL trace of the application
+                    proxyDataSource.getProxyConfig().getQueryListener().addListener(queryBudget);
+                    return bean;
+                }
+                if (bean instanceof DataSource dataSource) {
+                    return ProxyDataSourceBuilder.create(dataSource)
+                            .name(beanName)
+                            .listener(queryBudget)
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+}
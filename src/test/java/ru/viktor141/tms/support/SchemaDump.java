@@ -0,0 +1,65 @@
+package ru.viktor141.tms.support;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.Container.ExecResult;
+import org.testcontainers.containers.PostgreSQLContainer;
+import ru.viktor141.tms.TestTaskTmsApplication;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * SchemaDump writes the schema Hibernate creates for the main application to a SQL file.
+ * <p>
+ * The application is started once against a throwaway PostgreSQL container and the resulting schema
+ * is dumped with {@code pg_dump --schema-only}. The reactive read API has no JPA on its classpath,
+ * so its tests load this dump instead of keeping a copy of the schema by hand. Run it with
+ * {@code gradle reactiveSchema}.
+ */
+public class SchemaDump {
+
+    private static final String CONTAINER_FILE = "/tmp/schema.sql";
+
+    /**
+     * Creates the schema and writes the dump.
+     *
+     * @param args The file the dump is written to.
+     * @throws Exception If the application does not start or the dump fails.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("Expected the output file as the only argument");
+        }
+        Path output = Path.of(args[0]);
+
+        try (PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:latest")
+                .withDatabaseName("testdb")
+                .withUsername("test")
+                .withPassword("test")) {
+            postgres.start();
+
+            String[] properties = {
+                    "--spring.datasource.url=" + postgres.getJdbcUrl(),
+                    "--spring.datasource.username=" + postgres.getUsername(),
+                    "--spring.datasource.password=" + postgres.getPassword(),
+                    "--server.port=0",
+                    "--tms.archive.enabled=false",
+                    "--logging.level.root=WARN"
+            };
+            try (ConfigurableApplicationContext ignored = SpringApplication.run(TestTaskTmsApplication.class, properties)) {
+                // Hibernate creates the schema on startup; nothing else is needed
+            }
+
+            ExecResult result = postgres.execInContainer("pg_dump", "-U", "test", "--schema-only", "--no-owner",
+                    "-f", CONTAINER_FILE, "testdb");
+            if (result.getExitCode() != 0) {
+                throw new IllegalStateException("pg_dump failed: " + result.getStderr());
+            }
+            if (output.getParent() != null) {
+                Files.createDirectories(output.getParent());
+            }
+            postgres.copyFileFromContainer(CONTAINER_FILE, output.toString());
+        }
+    }
+}